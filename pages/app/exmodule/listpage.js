@@ -5,8 +5,8 @@
 const init = async function () {
   // メッセージクリア
   PageUtil.clearMsg();
-  // 一覧初期処理 Webサービス呼び出し
-  const res = await HttpUtil.callJsonService('/services/exmodule/ExampleListInit');
+  // 一覧初期処理 Webサービス呼び出し（レスポンスキャッシュ対象のため GET）
+  const res = await HttpUtil.getJsonService('/services/exmodule/ExampleListInit');
   // 前回の DB抽出条件を取得
   const old = StorageUtil.getPageObj('searchConditions');
   // レスポンスと前回の DB抽出条件をマージ
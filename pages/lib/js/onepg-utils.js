@@ -711,16 +711,287 @@ const HttpUtil = /** @lends HttpUtil */ {
       req[SessionUtil._IOKEY] = SessionUtil._sessionData;
     }
 
+    const pr = HttpUtil._postJson(url, req, addHeader).then(function(res) {
+      // レスポンスからセッションデータを取得して削除する
+      HttpUtil._takeSession(res);
+      return res;
+    });
+
+    if (ValUtil.existsObj(req, SessionUtil._IOKEY)) {
+      // リクエストに追加したセッションデータを削除する
+      delete req[SessionUtil._IOKEY];
+    }
+    return pr;
+  },
+
+  /**
+   * JSON Webサービス GET実行（async/await対応）.<br>
+   * <ul>
+   * <li>指定URL に対して <code>GET</code>メソッド で リクエストを URLパラメーターとして送信して JSONレスポンスを受信する。</li>
+   * <li>サーバー側でレスポンスキャッシュ（<code>@CacheableResponse</code>）・同一リクエスト集約（<code>@CoalescedRequest</code>）の対象となる参照専用の Webサービスに使用する。</li>
+   * <li>リクエストは値が文字列の連想配列とする。（配列・連想配列の値は送信できない）</li>
+   * <li><code>SessionUtil</code> で管理しているセッションデータは URLパラメーター <code>_session</code> に JSON で追加される。（サーバー側のキャッシュキーには含まれない）</li>
+   * <li>トークン・レスポンスのセッションデータの扱いは <code>HttpUtil.callJsonService</code> と同じ。</li>
+   * <li><pre>［例］
+   *      <code>const res = await HttpUtil.getJsonService('/services/exmodule/ExampleListInit');</code></pre></li>
+   * </ul>
+   *
+   * @param {string} url 送信先URL
+   * @param {Object.<string, string>} [req] リクエスト連想配列（省略可能）
+   * @param {Object.<string, string>} [addHeader] 追加HTTPヘッダー（省略可能）
+   * @returns {Object} レスポンス連想配列
+   */
+  getJsonService : async function(url, req, addHeader) {
+    req = req || {};
+    if (!ValUtil.isObj(req)) {
+      throw new Error('HttpUtil#getJsonService: Request must be an object. ');
+    }
+    // リクエストにセッションデータを追加（元のリクエストは変更しない）
+    const params = Object.assign({}, req);
+    if (!ValUtil.isEmpty(SessionUtil._sessionData)) {
+      params[SessionUtil._IOKEY] = JSON.stringify(SessionUtil._sessionData);
+    }
+    const query = HttpUtil.convUrlParam(params);
+    const res = await HttpUtil._sendJson('GET', ValUtil.isBlank(query) ? url : url + '?' + query, null, addHeader);
+    // レスポンスからセッションデータを取得して削除する
+    HttpUtil._takeSession(res);
+    return res;
+  },
+
+  /**
+   * JSON Webサービス一括実行（async/await対応）.<br>
+   * <ul>
+   * <li>複数の JSON Webサービスを1回のリクエスト（<code>/services/_batch</code>）で実行し、レスポンス連想配列の配列を受信する。</li>
+   * <li>各要素は <code>{url: 'サービスURL', req: リクエスト連想配列}</code> で指定する。URL は同じコンテキストパス（<code>/services</code> 等）であること。</li>
+   * <li>レスポンス配列は指定した順に並ぶ。サーバー側で例外エラーとなったサービスの要素は <code>null</code> となる。</li>
+   * <li>トランザクション指定の場合はサーバー側で順に1つのトランザクションで実行される。
+   *     エラーメッセージを返したサービスがあればロールバックされ、後続サービスの要素は <code>null</code> となる。</li>
+   * <li>指定なしの場合はサーバー側で並列に実行される。</li>
+   * <li>セッションデータ・トークンの扱いは <code>HttpUtil.callJsonService</code> と同じ。（各サービスのリクエストにセッションデータが追加され、レスポンスのセッションデータは後の要素のものが保存される）</li>
+   * <li><pre>［例］
+   *      <code>const [init, load] = await HttpUtil.callJsonServiceBatch([
+   *        {url: '/services/exmodule/ExampleListInit'},
+   *        {url: '/services/exmodule/ExampleLoad', req: params},
+   *      ]);</code></pre></li>
+   * </ul>
+   *
+   * @param {Array.<{url: string, req: Object}>} calls サービス呼び出し配列
+   * @param {boolean} [useTransaction] 1つのトランザクションで実行する場合は <code>true</code>（省略可能）
+   * @param {Object.<string, string>} [addHeader] 追加HTTPヘッダー（省略可能）
+   * @returns {Array.<Object|null>} レスポンス連想配列の配列
+   */
+  callJsonServiceBatch : async function(calls, useTransaction, addHeader) {
+    if (!Array.isArray(calls) || calls.length === 0) {
+      throw new Error('HttpUtil#callJsonServiceBatch: Calls must be a non-empty array. ');
+    }
+    let context = null;
+    const batchReq = [];
+    for (const call of calls) {
+      const req = call.req || {};
+      if (!ValUtil.isObj(req)) {
+        throw new Error('HttpUtil#callJsonServiceBatch: Request must be an object. ');
+      }
+      // URL をコンテキストパスとサービスパスに分ける（［例］/services/exmodule/ExampleLoad）
+      const url = ValUtil.nvl(call.url);
+      const pos = url.indexOf('/', 1);
+      if (!url.startsWith('/') || pos < 0) {
+        throw new Error(`HttpUtil#callJsonServiceBatch: Invalid service url. ${url}`);
+      }
+      const callContext = url.substring(0, pos);
+      if (context !== null && context !== callContext) {
+        throw new Error(`HttpUtil#callJsonServiceBatch: All urls must have the same context path. ${url}`);
+      }
+      context = callContext;
+      // リクエストにセッションデータを追加（元のリクエストは変更しない）
+      const params = Object.assign({}, req);
+      if (!ValUtil.isEmpty(SessionUtil._sessionData)) {
+        params[SessionUtil._IOKEY] = SessionUtil._sessionData;
+      }
+      batchReq.push({ path: url.substring(pos + 1), params: params });
+    }
+
+    const batchUrl = context + '/_batch' + (useTransaction ? '?transaction=true' : '');
+    const resAry = await HttpUtil._postJson(batchUrl, batchReq, addHeader);
+    if (!Array.isArray(resAry)) {
+      throw new Error('HttpUtil#callJsonServiceBatch: Response is not an array. ');
+    }
+    for (const res of resAry) {
+      // レスポンスからセッションデータを取得して削除する
+      HttpUtil._takeSession(res);
+    }
+    return resAry;
+  },
+
+  /**
+   * JSON Webサービス ストリーミング実行（async/await対応）.<br>
+   * <ul>
+   * <li>ストリーミング Webサービス（サーバー側 <code>AbstractStreamDbAccessWebService</code>）を実行し、行データを受信した順にコールバック関数に渡す。</li>
+   * <li>全件の受信を待たずに行を画面に追加できるため、大量件数の検索でも最初の行がすぐに表示される。</li>
+   * <li>受信データは <code>fetch</code> のストリームで順に読み込み、解析した行は破棄するため、受信件数に応じてメモリ使用量が増えることはない。（行の保持はコールバック関数側で行う）</li>
+   * <li>全行の受信後、終了レコード（メッセージ等を含むレスポンス連想配列）を返す。</li>
+   * <li>セッションデータ・トークンの扱いは <code>HttpUtil.callJsonService</code> と同じ。</li>
+   * <li>レスポンスの受信に時間がかかる場合があるため、タイムアウトは設けない。</li>
+   * <li>サーバー側で途中に例外エラーが発生した場合は、それまでの行はコールバック済のまま例外がスローされる。</li>
+   * <li><pre>［例］
+   *      <code>const res = await HttpUtil.callJsonServiceStream(url, req, function(row) {
+   *        // 行を一覧に追加
+   *      });</code></pre></li>
+   * </ul>
+   *
+   * @param {string} url 送信先URL
+   * @param {Object} [req] リクエスト連想配列（省略可能）
+   * @param {function(Object, number)} onRow 行データ受信時のコールバック関数（引数は行データ連想配列と行インデックス）
+   * @param {Object.<string, string>} [addHeader] 追加HTTPヘッダー（省略可能）
+   * @returns {Object} 終了レコードのレスポンス連想配列
+   */
+  callJsonServiceStream : async function(url, req, onRow, addHeader) {
+    req = req || {};
+    if (!ValUtil.isObj(req)) {
+      throw new Error('HttpUtil#callJsonServiceStream: Request must be an object. ');
+    }
+    if (typeof onRow !== 'function') {
+      throw new Error('HttpUtil#callJsonServiceStream: Row callback must be a function. ');
+    }
+    // リクエストにセッションデータを追加（元のリクエストは変更しない）
+    const params = Object.assign({}, req);
+    if (!ValUtil.isEmpty(SessionUtil._sessionData)) {
+      params[SessionUtil._IOKEY] = SessionUtil._sessionData;
+    }
+    // ヘッダーをマージ
+    const header = Object.assign(addHeader || {}, { 'Content-Type': 'application/json', 'Accept': 'application/x-ndjson' });
+    if (!ValUtil.isBlank(SessionUtil._token)) {
+      header['Authorization'] = 'Bearer ' + SessionUtil._token;
+    }
+
+    // 受信途中で中断するためのコントローラー（コールバック関数のエラー時に使用）
+    const abortCtrl = new AbortController();
+    let response;
+    try {
+      response = await fetch(url, {
+        method: 'POST',
+        headers: header,
+        body: JSON.stringify(params),
+        signal: abortCtrl.signal,
+      });
+    } catch (e) {
+      throw new Error('Network error. ');
+    }
+    if (response.status < 200 || 300 <= response.status) {
+      throw new Error(`HTTP status ${response.status}. `);
+    }
+
+    // 受信したバイト列を順に文字列に変換し、改行までの完全な行ごとに解析する
+    // 解析済の行は破棄し、未完了の行のみ保持する（受信済のレスポンス全体は保持しない）
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder('utf-8');
+    let rest = '';
+    let rowIdx = 0;
+    let end = null;
+
+    // 1行解析
+    const parseLine = function(line) {
+      if (ValUtil.isBlank(line)) {
+        return;
+      }
+      let rec;
+      try {
+        rec = JSON.parse(line);
+      } catch (e) {
+        throw new Error(`Json parse error. \n${e.name}\n : ${e.message}`);
+      }
+      if (ValUtil.existsObj(rec, 'row')) {
+        onRow(rec['row'], rowIdx++);
+      } else if (ValUtil.existsObj(rec, 'end')) {
+        end = rec['end'];
+      } else if (ValUtil.existsObj(rec, 'error')) {
+        throw new Error(`Stream error. ${rec['error']}`);
+      }
+    };
+
+    try {
+      while (true) {
+        let chunk;
+        try {
+          chunk = await reader.read();
+        } catch (e) {
+          throw new Error('Network error. ');
+        }
+        if (chunk.done) {
+          break;
+        }
+        const txt = rest + decoder.decode(chunk.value, { stream: true });
+        let readPos = 0;
+        let lfPos;
+        while ((lfPos = txt.indexOf('\n', readPos)) >= 0) {
+          parseLine(txt.substring(readPos, lfPos));
+          readPos = lfPos + 1;
+        }
+        rest = txt.substring(readPos);
+      }
+      // 改行で終わらない最終行
+      parseLine(rest + decoder.decode());
+    } catch (e) {
+      // 受信を中断してエラーをスローする
+      abortCtrl.abort();
+      throw e;
+    }
+    if (end === null) {
+      throw new Error('Stream ended without end record. ');
+    }
+    const res = end;
+
+    // レスポンスからセッションデータを取得して削除する
+    HttpUtil._takeSession(res);
+    return res;
+  },
+
+  /**
+   * @private
+   * JSON 送受信.<br>
+   * <ul>
+   *   <li>指定URL に対して <code>POST</code>メソッド で JSONリクエストを送信して JSONレスポンスを受信する。</li>
+   *   <li><code>SessionUtil</code> で管理しているトークンがあれば Authorization ヘッダーに付与される。</li>
+   *   <li><code>HttpUtil.callJsonService</code>、<code>HttpUtil.callJsonServiceBatch</code> から呼び出される想定。</li>
+   * </ul>
+   *
+   * @param {string} url 送信先URL
+   * @param {Object|Array} reqBody リクエスト
+   * @param {Object.<string, string>} [addHeader] 追加HTTPヘッダー（省略可能）
+   * @returns {Promise.<Object|Array>} レスポンス
+   */
+  _postJson : function(url, reqBody, addHeader) {
+    return HttpUtil._sendJson('POST', url, reqBody, addHeader);
+  },
+
+  /**
+   * @private
+   * JSON 送受信（HTTPメソッド指定）.<br>
+   * <ul>
+   *   <li>指定URL に対して指定HTTPメソッドでリクエストを送信して JSONレスポンスを受信する。</li>
+   *   <li><code>POST</code>メソッドの場合はリクエストを JSON で送信する。<code>GET</code>メソッドの場合はリクエストボディを送信しない。</li>
+   *   <li><code>SessionUtil</code> で管理しているトークンがあれば Authorization ヘッダーに付与される。</li>
+   * </ul>
+   *
+   * @param {string} method HTTPメソッド（<code>GET</code> または <code>POST</code>）
+   * @param {string} url 送信先URL（<code>GET</code>メソッドの場合は URLパラメーターを含む）
+   * @param {Object|Array|null} reqBody リクエスト（<code>GET</code>メソッドの場合は <code>null</code>）
+   * @param {Object.<string, string>} [addHeader] 追加HTTPヘッダー（省略可能）
+   * @returns {Promise.<Object|Array>} レスポンス
+   */
+  _sendJson : function(method, url, reqBody, addHeader) {
     // ヘッダーをマージ
-    const header = Object.assign(addHeader || {}, { 'Content-Type': 'application/json' });
+    const header = Object.assign({}, addHeader);
+    if (method === 'POST') {
+      header['Content-Type'] = 'application/json';
+    }
     // トークンが存在すれば Authorization ヘッダーに付与する
     if (!ValUtil.isBlank(SessionUtil._token)) {
       header['Authorization'] = 'Bearer ' + SessionUtil._token;
     }
 
-    const pr = new Promise(function(resolve, reject) {
+    return new Promise(function(resolve, reject) {
       const xhr = new XMLHttpRequest();
-      xhr.open('POST', url, true);
+      xhr.open(method, url, true);
       for (const key in header) {
         const val = header[key];
         xhr.setRequestHeader(key, val);
@@ -731,24 +1002,9 @@ const HttpUtil = /** @lends HttpUtil */ {
       // 通信完了イベント
       xhr.onload = function() {
         if (200 <= xhr.status && xhr.status < 300) {
-          let res = null;
           try {
             // 手動でJSONパース
-            res = JSON.parse(xhr.response);
-            // レスポンスからセッションデータを取得して削除する
-            if (ValUtil.existsObj(res, SessionUtil._IOKEY)) {
-              if (ValUtil.isObj(res[SessionUtil._IOKEY])) {
-                SessionUtil._sessionData = res[SessionUtil._IOKEY];
-                // セッションデータに JWT があれば _token に保存する
-                if (ValUtil.existsObj(SessionUtil._sessionData, SessionUtil._SSKEY_JWT)) {
-                  SessionUtil._token = SessionUtil._sessionData[SessionUtil._SSKEY_JWT];
-                  // セッションデータからは JWT を削除する
-                  delete SessionUtil._sessionData[SessionUtil._SSKEY_JWT];
-                }
-              }
-              delete res[SessionUtil._IOKEY];
-            }
-            resolve(res);
+            resolve(JSON.parse(xhr.response));
           } catch (e) {
             reject(new Error(`Json parse error. \n${e.name}\n : ${e.message}`));
           }
@@ -767,14 +1023,34 @@ const HttpUtil = /** @lends HttpUtil */ {
       };
 
       // 送信
-      xhr.send(JSON.stringify(req));
+      xhr.send(method === 'POST' ? JSON.stringify(reqBody) : null);
     });
+  },
 
-    if (ValUtil.existsObj(req, SessionUtil._IOKEY)) {
-      // リクエストに追加したセッションデータを削除する
-      delete req[SessionUtil._IOKEY];
+  /**
+   * @private
+   * レスポンスからセッションデータ取得.<br>
+   * <ul>
+   *   <li>レスポンスからセッションデータを取得して <code>SessionUtil</code> に保存し、レスポンスからは削除する。</li>
+   *   <li>セッションデータに JWT があればトークンとして保存し、セッションデータからは削除する。</li>
+   * </ul>
+   *
+   * @param {Object|null} res レスポンス連想配列
+   */
+  _takeSession : function(res) {
+    if (!ValUtil.existsObj(res, SessionUtil._IOKEY)) {
+      return;
     }
-    return pr;
+    if (ValUtil.isObj(res[SessionUtil._IOKEY])) {
+      SessionUtil._sessionData = res[SessionUtil._IOKEY];
+      // セッションデータに JWT があれば _token に保存する
+      if (ValUtil.existsObj(SessionUtil._sessionData, SessionUtil._SSKEY_JWT)) {
+        SessionUtil._token = SessionUtil._sessionData[SessionUtil._SSKEY_JWT];
+        // セッションデータからは JWT を削除する
+        delete SessionUtil._sessionData[SessionUtil._SSKEY_JWT];
+      }
+    }
+    delete res[SessionUtil._IOKEY];
   },
 };
 
@@ -0,0 +1,20 @@
+#!/bin/bash
+#
+# DBスキーマデータエクスポートバッチ実行
+#
+# url：JDBC接続URL ［例］jdbc:postgresql://localhost:5432/db01
+# user：DBユーザー（省略可能）
+# pass：DBパスワード（省略可能）
+# schema：対象スキーマ名（省略可能）
+# output：出力ディレクトリパス
+# include：対象テーブル名パターン カンマ区切り・ワイルドカード指定可能（省略可能）
+# exclude：除外テーブル名パターン カンマ区切り・ワイルドカード指定可能（省略可能）
+# zip：zip圧縮フラグ 圧縮時 true（省略可能）
+# parallel：並列数（省略可能）
+#
+
+# SqliteのDBファイルパス
+readonly PARENT_DIR=$(cd $(dirname $0)/.. && pwd)
+readonly JDBC_URL="jdbc:sqlite:${PARENT_DIR}/example_db/data/example.dbf"
+
+bash $(dirname $0)/sub/java-exec.sh $(basename $0 .sh) com.onepg.app.bat.dataio.DbSchemaExp "url=${JDBC_URL}&output=/tmp/dbschema&parallel=4"
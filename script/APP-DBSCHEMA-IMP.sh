@@ -0,0 +1,19 @@
+#!/bin/bash
+#
+# DBスキーマデータインポートバッチ実行
+#
+# url：JDBC接続URL ［例］jdbc:postgresql://localhost:5432/db01
+# user：DBユーザー（省略可能）
+# pass：DBパスワード（省略可能）
+# input：入力ディレクトリパス
+# include：対象テーブル名パターン カンマ区切り・ワイルドカード指定可能（省略可能）
+# exclude：除外テーブル名パターン カンマ区切り・ワイルドカード指定可能（省略可能）
+# parallel：並列数（省略可能）
+# verify：マニフェスト照合フラグ 照合しない場合は false（省略可能）
+#
+
+# SqliteのDBファイルパス
+readonly PARENT_DIR=$(cd $(dirname $0)/.. && pwd)
+readonly JDBC_URL="jdbc:sqlite:${PARENT_DIR}/example_db/data/example.dbf"
+
+bash $(dirname $0)/sub/java-exec.sh $(basename $0 .sh) com.onepg.app.bat.dataio.DbSchemaImp "url=${JDBC_URL}&input=/tmp/dbschema&parallel=4"
@@ -9,6 +9,9 @@
 # output：出力パス ディレクトリ指定可能
 # where：抽出条件（省略可能）
 # zip：zip圧縮フラグ 圧縮時 true（省略可能）
+# delta：差分キー項目名 差分出力時に指定 ［例］upd_ts（省略可能）
+# state：差分出力状態ファイルパス（省略可能）
+# delsrc：削除キー取得元テーブル名（省略可能）
 #
 
 # SqliteのDBファイルパス
@@ -0,0 +1,19 @@
+#!/bin/bash
+#
+# ファイル差分比較バッチ実行
+#
+# old：旧ファイルパス
+# new：新ファイルパス
+# keys：キー項目 カンマ区切りで 項目名[:キー型[:asc|desc]] ［例］user_id:number
+# output：出力ディレクトリパス
+# sort：並べ替えフラグ 入力ファイルがキー項目順に並んでいない場合 true（省略可能）
+# csv：CSVタイプ CSVファイルの場合に指定 ［例］dq_all（省略可能）
+# charset：CSVファイルの文字セット（省略可能）
+# linesep：CSVファイル出力時の改行コード（省略可能）
+# memory：並べ替え時のメモリ上限（MB）（省略可能）
+# parallel：並べ替え時の並列数（省略可能）
+# compress：並べ替え時の一時ファイル圧縮フラグ 圧縮時 true（省略可能）
+# tmpdir：並べ替え時の一時ディレクトリパス（省略可能）
+#
+
+bash $(dirname $0)/sub/java-exec.sh $(basename $0 .sh) com.onepg.app.bat.dataio.FileDiff "old=/tmp/old/t_user.tsv&new=/tmp/new/t_user.tsv&keys=user_id&output=/tmp"
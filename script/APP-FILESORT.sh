@@ -0,0 +1,17 @@
+#!/bin/bash
+#
+# ファイル並べ替えバッチ実行
+#
+# input：入力ファイルパス
+# output：出力ファイルパス
+# keys：ソートキー カンマ区切りで 項目名[:キー型[:asc|desc]] ［例］dept_id,salary:number:desc
+# csv：CSVタイプ CSVファイルの場合に指定 ［例］dq_all（省略可能）
+# charset：CSVファイルの文字セット（省略可能）
+# linesep：CSVファイル出力時の改行コード（省略可能）
+# memory：メモリ上限（MB）（省略可能）
+# parallel：並列数（省略可能）
+# compress：一時ファイル圧縮フラグ 圧縮時 true（省略可能）
+# tmpdir：一時ディレクトリパス（省略可能）
+#
+
+bash $(dirname $0)/sub/java-exec.sh $(basename $0 .sh) com.onepg.app.bat.dataio.FileSort "input=/tmp/t_user.tsv&output=/tmp/t_user_sorted.tsv&keys=user_nm,birth_dt:date:desc&parallel=4"
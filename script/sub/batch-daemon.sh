@@ -0,0 +1,72 @@
+#!/bin/bash
+#
+# 常駐バッチ実行デーモン操作サブスクリプト.
+# start でデーモンをバックグラウンドで起動し、stop で受付済ジョブの終了を待って停止する。
+# デーモン起動中に USE_BATCH_DAEMON=true で java-exec.sh を実行すると、デーモンでジョブが実行される。
+#
+# @param $1 操作（start・stop・status）
+# @return 終了ステータス
+#
+
+# 変数宣言必須
+set -u
+# 戻値0以外で中断
+set -e
+set -E
+# 新規作成ディレクトリ・ファイルの権限設定 755
+umask 022
+
+#
+# 現在タイムスタンプ取得.
+# フォーマット YYYYMMDD"T"HHMMSS の文字列を返す。
+#
+getNowTimestamp() {
+  date +"%Y%m%dT%H%M%S"
+}
+
+#
+# 標準エラー出力.
+#
+# @param $1 メッセージ
+#
+printStdErr() {
+  local MSG="$1"
+  local YMDHMS=$(getNowTimestamp)
+  echo ${YMDHMS} ${MSG} >&2
+}
+
+# 必須引数チェック
+if [[ $# -lt 1 ]] ; then
+  printStdErr "ERROR: First argument (start, stop or status) is required"
+  exit 1
+fi
+readonly OPERATION=$1
+
+# スクリプトディレクトリ（絶対パス変換）.
+readonly SCRIPT_DIR=$(cd $(dirname ${BASH_SOURCE[0]}) && pwd)
+
+# アプリケーション環境変数・Java環境変数読込
+source ${SCRIPT_DIR}/env-app.sh
+source ${SCRIPT_DIR}/env-java.sh
+
+# Javaクラスパス
+readonly JAVA_CP=${APP_HOME}/lib/*:${APP_HOME}/classes
+# デーモンログファイルパス（標準出力・標準エラー出力のリダイレクト先）
+readonly LOG_FILE=${LOG_DIR}/batch-daemon.log
+
+case "${OPERATION}" in
+  start)
+    nohup ${JAVA_BIN}/java ${JVM_XMS} ${JVM_XMX} -cp "${JAVA_CP}" com.onepg.bat.BatchDaemon >> ${LOG_FILE} 2>&1 &
+    echo "Batch daemon started. pid=$!"
+    ;;
+  stop)
+    ${JAVA_BIN}/java ${JVM_CLIENT_OPTS} -cp "${JAVA_CP}" com.onepg.bat.BatchDaemonClient -stop
+    ;;
+  status)
+    ${JAVA_BIN}/java ${JVM_CLIENT_OPTS} -cp "${JAVA_CP}" com.onepg.bat.BatchDaemonClient -status
+    ;;
+  *)
+    printStdErr "ERROR: Unknown operation: ${OPERATION}"
+    exit 1
+    ;;
+esac
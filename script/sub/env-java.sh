@@ -24,3 +24,16 @@ if [[ ! -v JVM_XMX ]]; then
   # TODO: プロジェクトに応じて適切な値に変更してください
   readonly JVM_XMX="-Xmx1024m"
 fi
+
+# 常駐バッチ実行デーモン使用有無 デフォルト値.
+# true の場合は java-exec.sh が常駐バッチ実行デーモン（batch-daemon.sh で起動）でジョブを実行する
+# 個別に設定されている場合は上書きしない
+if [[ ! -v USE_BATCH_DAEMON ]]; then
+  readonly USE_BATCH_DAEMON=false
+fi
+
+# 常駐バッチ実行デーモン クライアントJVMオプション.
+# クライアントはジョブを要求してログを受け取るだけのため、起動時間を優先する
+if [[ ! -v JVM_CLIENT_OPTS ]]; then
+  readonly JVM_CLIENT_OPTS="-Xms16m -Xmx64m -XX:TieredStopAtLevel=1 -Xshare:auto"
+fi
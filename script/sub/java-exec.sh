@@ -163,7 +163,12 @@ readonly JAVA_CP=${APP_HOME}/lib/*:${APP_HOME}/classes
 
 # Java実行
 set +e
-${JAVA_BIN}/java ${JVM_XMS} ${JVM_XMX} -cp "${JAVA_CP}" ${EXEC_CLS} "${EXEC_ARGS[@]}" >> ${LOG_FILE} 2>&1
+if [[ "${USE_BATCH_DAEMON}" = "true" ]] ; then
+  # 常駐バッチ実行デーモンで実行（ジョブのログはクライアントの標準出力に返される）
+  ${JAVA_BIN}/java ${JVM_CLIENT_OPTS} -cp "${JAVA_CP}" com.onepg.bat.BatchDaemonClient ${JOB_ID} ${EXEC_CLS} "${EXEC_ARGS[@]}" >> ${LOG_FILE} 2>&1
+else
+  ${JAVA_BIN}/java ${JVM_XMS} ${JVM_XMX} -cp "${JAVA_CP}" ${EXEC_CLS} "${EXEC_ARGS[@]}" >> ${LOG_FILE} 2>&1
+fi
 readonly EXIT_STATUS=$?
 set -e
 
@@ -1,6 +1,7 @@
 package com.example.app.bat.exmodule;
 
 import com.onepg.bat.AbstractDbAccessBatch;
+import com.onepg.bat.ImportCheckpoint;
 import com.onepg.db.SqlConst;
 import com.onepg.db.SqlUtil;
 import com.onepg.db.SqlConst.BindType;
@@ -12,8 +13,14 @@ import com.onepg.util.IoItems;
 import com.onepg.util.LogUtil;
 import com.onepg.util.ValUtil;
 
+import java.util.Iterator;
+
 /**
- * データインポートバッチクラス.
+ * データインポートバッチクラス.<br>
+ * <ul>
+ * <li>5000件ごとに中間コミットし、コミットした位置をチェックポイントファイル（入力ファイルパス + <code>.ckpt</code>）に保存します。</li>
+ * <li>異常終了後に引数 resume=true で再実行すると、チェックポイントの位置から取込を再開します。</li>
+ * </ul>
  */
 public class ExampleImport extends AbstractDbAccessBatch {
 
@@ -81,18 +88,48 @@ public class ExampleImport extends AbstractDbAccessBatch {
       throw new RuntimeException("Input path not exists. " + LogUtil.joinKeyVal("input", inputPath));
     }
 
+    // 再開フラグ取得
+    final boolean resume = io.getBooleanOrDefault("resume", false);
+    // チェックポイント
+    final ImportCheckpoint ckpt = new ImportCheckpoint(ImportCheckpoint.getDefaultPath(inputPath), inputPath);
+
     // ファイル読込してDB登録
     try (final CsvReader cr = new CsvReader(inputPath, CharSet.UTF8, CsvType.DQ_ALL_LF)) {
-      for (final IoItems row : cr) {
+      final boolean resumed = (resume && ckpt.load());
+      if (resumed) {
+        // コミット済の最終行の始端へ移動
+        cr.seek(ckpt.getRowOffset());
+      } else {
+        ckpt.delete();
+      }
+      final Iterator<IoItems> ite = cr.iterator();
+      long count = 0;
+      if (resumed) {
+        // コミット済の最終行を照合
+        count = ckpt.verifyRow(cr.getKeys(), ite);
+        super.logger.info("Resuming import from checkpoint. " + LogUtil.joinKeyVal("count", count));
+      }
+      while (ite.hasNext()) {
+        final long rowOffset = cr.getReadedBytes();
+        final IoItems row = ite.next();
         if (!SqlUtil.executeOneCache(getDbConn(), SQL_UPD_USER.bind(row))) {
           // 更新件数０件の場合は登録実行
           SqlUtil.executeOneCache(getDbConn(), SQL_INS_USER.bind(row));
         }
+        count++;
+        if (count % 5000 == 0) {
+          // 中間コミットしてチェックポイント保存
+          getDbConn().commit();
+          ckpt.save(rowOffset, cr.getReadedBytes(), count, ImportCheckpoint.hashRow(cr.getKeys(), row));
+        }
       }
-      if (cr.getReadedCount() == 0) {
+      if (count == 0) {
         // ゼロ行またはヘッダ行しか無い場合
         super.logger.info("No data found to import. " + LogUtil.joinKeyVal("input", inputPath));
       }
     }
+    // 最終コミット後にチェックポイント削除
+    getDbConn().commit();
+    ckpt.delete();
   }
 }
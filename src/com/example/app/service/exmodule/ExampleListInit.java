@@ -3,10 +3,18 @@ package com.example.app.service.exmodule;
 import com.onepg.db.SqlUtil;
 import com.onepg.util.Io;
 import com.onepg.web.AbstractDbAccessWebService;
+import com.onepg.web.CacheableResponse;
+import com.onepg.web.CoalescedRequest;
 
 /**
- * 一覧初期処理 Webサービスクラス.
+ * 一覧初期処理 Webサービスクラス.<br>
+ * <ul>
+ * <li>全利用者で同じ初期値を返すため、レスポンスをキャッシュします。（日付の変わり目は最大60秒前日の日付を返す）</li>
+ * <li>キャッシュが無い間の同時リクエストは集約し、DBアクセスを1回にします。</li>
+ * </ul>
  */
+@CacheableResponse(ttlSec = 60)
+@CoalescedRequest
 public class ExampleListInit extends AbstractDbAccessWebService {
 
   /**
@@ -4,26 +4,25 @@ import com.onepg.db.SqlBuilder;
 import com.onepg.db.SqlUtil;
 import com.onepg.util.Io;
 import com.onepg.util.Io.MsgType;
-import com.onepg.util.IoItems;
-import com.onepg.util.IoRows;
 import com.onepg.util.ValUtil;
-import com.onepg.web.AbstractDbAccessWebService;
+import com.onepg.web.AbstractAsyncDbAccessWebService;
 
 /**
- * データ取得 Webサービスクラス.
+ * データ取得 Webサービスクラス.<br>
+ * <ul>
+ * <li>ヘッダーと明細は互いに依存しないため、並列に抽出します。</li>
+ * <li>1リクエストにつきプーリングDB接続を2つ使用します。（接続が足りない場合、ステップは接続の解放を待つ）</li>
+ * </ul>
  */
-public class ExampleLoad extends AbstractDbAccessWebService {
+public class ExampleLoad extends AbstractAsyncDbAccessWebService {
 
   /**
    * {@inheritDoc}
    */
   @Override
-  public void doExecute(final Io io) throws Exception {
+  protected void doExecuteAsync(final Io io) throws Exception {
     // ヘッダー取得
     getHead(io);
-    if (io.hasErrorMsg()) {
-      return;
-    }
     // 明細取得
     getDetail(io);
   }
@@ -49,14 +48,15 @@ public class ExampleLoad extends AbstractDbAccessWebService {
     sb.addQuery("   AND u.upd_ts = ? ", io.getSqlTimestampNullable("upd_ts"));
 
     // DB１件抽出
-    final IoItems head = SqlUtil.selectOne(getDbConn(), sb);
-    if (ValUtil.isNull(head)) {
-      // データが見つからない場合は排他制御エラーメッセージセット
-      io.putMsg(MsgType.ERROR, "e0002", new String[]{io.getString("user_id")});
-      return;
-    }
-    // DB抽出結果セット
-    io.putAll(head);
+    readAsync(conn -> SqlUtil.selectOne(conn, sb), head -> {
+      if (ValUtil.isNull(head)) {
+        // データが見つからない場合は排他制御エラーメッセージセット
+        io.putMsg(MsgType.ERROR, "e0002", new String[]{io.getString("user_id")});
+        return;
+      }
+      // DB抽出結果セット
+      io.putAll(head);
+    });
   }
 
   /**
@@ -79,9 +79,14 @@ public class ExampleLoad extends AbstractDbAccessWebService {
     sb.addQuery(" WHERE d.user_id = ? ", io.getString("user_id"));
     sb.addQuery(" ORDER BY d.pet_no");
     // DB一括抽出
-    final IoRows detail = SqlUtil.selectBulkAll(getDbConn(), sb);
-    // DB抽出結果セット
-    io.putRows("detail", detail);
+    readAsync(conn -> SqlUtil.selectBulkAll(conn, sb), detail -> {
+      if (io.hasErrorMsg()) {
+        // ヘッダーが見つからない場合はセットしない
+        return;
+      }
+      // DB抽出結果セット
+      io.putRows("detail", detail);
+    });
   }
 
 }
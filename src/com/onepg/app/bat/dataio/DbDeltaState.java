@@ -0,0 +1,156 @@
+package com.onepg.app.bat.dataio;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.IoTsvReader;
+import com.onepg.util.IoTsvWriter;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+
+/**
+ * 差分エクスポート状態ファイルクラス.<br>
+ * <ul>
+ * <li>DB接続・テーブルごとの差分エクスポート済の上限値（ハイウォーターマーク）を入出力用TSVファイルで保持する。</li>
+ * <li>保存時はスレッド間および別ファイル（拡張子 lock）のファイルロックでプロセス間を排他し、一時ファイルに全行を出力してから置き換えるため、複数のバッチが同じ状態ファイルを更新しても行が失われず、途中で異常終了しても前回の内容が残る。</li>
+ * </ul>
+ * @hidden
+ */
+final class DbDeltaState {
+
+  /** 状態項目名配列. */
+  private static final String[] STATE_KEYS = {"conn", "table", "column", "mark", "del_mark", "upd_ts"};
+
+  /** 状態ファイルパス. */
+  private final String statePath;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param statePath 状態ファイルパス
+   */
+  DbDeltaState(final String statePath) {
+    this.statePath = FileUtil.convAbsolutePath(statePath);
+  }
+
+  /**
+   * 状態取得.
+   *
+   * @param connKey DB接続キー
+   * @param tableName テーブル名
+   * @return 状態行（未保存の場合は <code>null</code>）
+   */
+  IoItems load(final String connKey, final String tableName) {
+    for (final IoItems row : readAll()) {
+      if (connKey.equals(row.getString("conn")) && tableName.equals(row.getString("table"))) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 状態保存.<br>
+   * <ul>
+   * <li>同じ DB接続キー・テーブル名の行を置き換え、無ければ追加する。</li>
+   * </ul>
+   *
+   * @param connKey DB接続キー
+   * @param tableName テーブル名
+   * @param column 差分キー項目名
+   * @param mark 差分上限値（<code>null</code> 可）
+   * @param delMark 削除キー差分上限値（<code>null</code> 可）
+   */
+  void save(final String connKey, final String tableName, final String column, final String mark,
+      final String delMark) {
+    final IoItems state = new IoItems();
+    state.put("conn", connKey);
+    state.put("table", tableName);
+    state.put("column", column);
+    state.put("mark", mark);
+    state.put("del_mark", delMark);
+    state.put("upd_ts", LocalDateTime.now());
+
+    // ファイルロックはプロセス単位のため、同一プロセス内のスレッド間はクラス単位で排他する
+    synchronized (DbDeltaState.class) {
+      saveLocked(connKey, tableName, state);
+    }
+  }
+
+  /**
+   * 状態保存（ファイルロック取得後）.
+   *
+   * @param connKey DB接続キー
+   * @param tableName テーブル名
+   * @param state 状態行
+   */
+  private void saveLocked(final String connKey, final String tableName, final IoItems state) {
+    final Path lockPath = Paths.get(this.statePath + ".lock");
+    try (final FileChannel lockCh = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      final FileLock lock = lockCh.lock();
+      try {
+        // ロック後に最新の内容を読み込んで置き換える
+        final List<IoItems> rows = new ArrayList<>();
+        boolean replaced = false;
+        for (final IoItems row : readAll()) {
+          if (connKey.equals(row.getString("conn")) && tableName.equals(row.getString("table"))) {
+            rows.add(state);
+            replaced = true;
+          } else {
+            rows.add(row);
+          }
+        }
+        if (!replaced) {
+          rows.add(state);
+        }
+
+        final String tmpPath = this.statePath + ".tmp";
+        FileUtil.delete(tmpPath);
+        try (final IoTsvWriter tw = new IoTsvWriter(tmpPath)) {
+          tw.println(STATE_KEYS);
+          for (final IoItems row : rows) {
+            tw.println(row);
+          }
+        }
+        Files.move(Paths.get(tmpPath), Paths.get(this.statePath), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        lock.release();
+      }
+    } catch (final Exception e) {
+      throw new RuntimeException("Exception error occurred while saving delta export state. "
+          + LogUtil.joinKeyVal("path", this.statePath, "table", tableName), e);
+    }
+  }
+
+  /**
+   * 全行読込.
+   *
+   * @return 状態行リスト（ファイルが無い場合は空）
+   */
+  private List<IoItems> readAll() {
+    final List<IoItems> rows = new ArrayList<>();
+    if (!FileUtil.exists(this.statePath)) {
+      return rows;
+    }
+    try (final IoTsvReader tr = new IoTsvReader(this.statePath)) {
+      for (final IoItems row : tr) {
+        if (ValUtil.isBlank(row.getStringNullable("conn"))) {
+          continue;
+        }
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+}
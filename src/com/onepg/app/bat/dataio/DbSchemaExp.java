@@ -0,0 +1,148 @@
+package com.onepg.app.bat.dataio;
+
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import com.onepg.bat.AbstractBatch;
+import com.onepg.db.DbUtil;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+
+/**
+ * DBスキーマデータエクスポートバッチクラス.<br>
+ * <ul>
+ * <li>スキーマ内の複数テーブルのデータを、テーブルごとの入出力用TSVファイルに出力します。（ファイルの形式は <code>DbTableExp</code> と同じ）</li>
+ * <li>対象テーブルは JDBCメタ情報から取得し、対象パターン・除外パターンで絞り込みます。</li>
+ * <li>並列数のワーカーがそれぞれ１つのDB接続を持ち、テーブルを順に取り出して同時に出力します。１回の起動で全テーブルを出力するため、テーブルごとの JVM起動が不要になります。</li>
+ * <li>全テーブルの出力後、テーブルごとの件数・ファイルサイズ・SHA-256 ハッシュ値を記載したマニフェストファイル（<code>_manifest.tsv</code>）を出力ディレクトリに出力します。</li>
+ * <li>DBMSにあわせたJDBCライブラリ（jarファイル）が必要です。</li>
+ * <li><code>main</code>メソッドへの引数は URLパラメータ形式です。（<code>AbstractBatch</code>参照）</li>
+ * <li>引数は下記のとおり
+ *   <ul>
+ *   <li>url：JDBC接続URL ［例］jdbc:postgresql://localhost:5432/db01</li>
+ *   <li>user：DBユーザー（省略可能）</li>
+ *   <li>pass：DBパスワード（省略可能）</li>
+ *   <li>schema：対象スキーマ名（省略可能）省略時は DB接続の現在スキーマ</li>
+ *   <li>output：出力ディレクトリパス</li>
+ *   <li>include：対象テーブル名パターン カンマ区切り・ワイルドカード（*・?）指定可能（省略可能）省略時は全テーブル</li>
+ *   <li>exclude：除外テーブル名パターン カンマ区切り・ワイルドカード（*・?）指定可能（省略可能）</li>
+ *   <li>zip：zip圧縮フラグ 圧縮時 true（省略可能）</li>
+ *   <li>parallel：並列数（省略可能）省略時は 4</li>
+ *   </ul></li>
+ * <li>ファイル名はテーブル名となります。zip圧縮時は拡張子が zip となり、zipファイルへ直接出力します。</li>
+ * <li>テーブルごとに別トランザクションで抽出するため、抽出中に更新されるスキーマではテーブル間で読取時点が異なる可能性があります。</li>
+ * <li>いずれかのテーブルでエラーが発生した場合は、以降のテーブルを出力せず、今回出力したファイルを削除します。（マニフェストファイルは出力しません）</li>
+ * </ul>
+ */
+public class DbSchemaExp extends AbstractBatch {
+
+  /**
+   * メイン処理.
+   * @param args 引数
+   */
+  public static void main(String[] args) {
+    System.exit((new DbSchemaExp()).callMain(args));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doExecute(final IoItems io) throws Exception {
+    // 引数 - JDBC接続URL（必須）
+    final String jdbcUrl = io.getString("url");
+    // 引数 - DBユーザー（省略可能）
+    final String dbUser = io.getStringOrDefault("user", null);
+    // 引数 - DBパスワード（省略可能）
+    final String dbPass = io.getStringOrDefault("pass", null);
+    // 引数 - 対象スキーマ名（省略可能）
+    final String schema = io.getStringOrDefault("schema", null);
+    // 引数 - 出力ディレクトリパス（必須）
+    final String outputDir = io.getString("output");
+    // 引数 - 対象テーブル名パターン（省略可能）
+    final String include = io.getStringOrDefault("include", ValUtil.BLANK);
+    // 引数 - 除外テーブル名パターン（省略可能）
+    final String exclude = io.getStringOrDefault("exclude", ValUtil.BLANK);
+    // zip圧縮フラグ（省略可能）
+    final boolean isZip = io.getBooleanOrDefault("zip", false);
+    // 並列数（省略可能）
+    final int parallel = io.getIntOrDefault("parallel", 4);
+
+    if (!FileUtil.isDirectory(outputDir)) {
+      // 出力ディレクトリが無ければエラー
+      throw new RuntimeException("Output directory does not exist. " + LogUtil.joinKeyVal("output", outputDir));
+    }
+    final String manifestPath = FileUtil.joinPath(outputDir, DbSchemaUtil.MANIFEST_FILE_NAME);
+    if (FileUtil.exists(manifestPath)) {
+      // マニフェストファイル非存在チェック
+      throw new RuntimeException("Manifest file already exists. " + LogUtil.joinKeyVal("path", manifestPath));
+    }
+
+    // 対象テーブル
+    final List<String> tableNames;
+    try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode)) {
+      tableNames = DbSchemaUtil.filterTableNames(DbUtil.getTableNames(conn, schema), include, exclude);
+    }
+    if (tableNames.isEmpty()) {
+      super.logger.info("No tables found to export. " + LogUtil.joinKeyVal("schema", schema, "include", include, "exclude", exclude));
+      return;
+    }
+
+    // 出力ファイルパス
+    final String fileSuffix = (isZip ? ".zip" : ".tsv");
+    final List<String> outputPaths = new ArrayList<>();
+    for (final String tableName : tableNames) {
+      final String outputPath = FileUtil.joinPath(outputDir, tableName + fileSuffix);
+      if (FileUtil.exists(outputPath)) {
+        // 出力先ファイル非存在チェック
+        throw new RuntimeException("Output path already exists. " + LogUtil.joinKeyVal("output", outputPath));
+      }
+      outputPaths.add(outputPath);
+    }
+
+    super.logger.info("Starting DB schema data export. " + LogUtil.joinKeyVal("tables", tableNames.size(), "parallel", parallel));
+
+    // テーブルごとに出力（ワーカーごとのDB接続）
+    final Map<String, IoItems> results;
+    try {
+      results = DbSchemaUtil.runParallel(tableNames, parallel, jdbcUrl, dbUser, dbPass, super.traceCode,
+          (conn, tableName) -> {
+            final String outputPath = FileUtil.joinPath(outputDir, tableName + fileSuffix);
+            // スキーマ指定時はスキーマ修飾したテーブル名で抽出する
+            final String qualifiedName = ValUtil.isBlank(schema) ? tableName : schema + "." + tableName;
+            final String[] pkeys = DbUtil.getPrimaryKeys(conn, schema, tableName);
+            // ハッシュ値は出力しながら求める（ファイルを読み直さない）
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final int count = DbTableExp.exportToFile(conn,
+                DbTableExp.createSelectSql(qualifiedName, null, pkeys, null, null, null), outputPath, digest);
+            super.logger.info("Table data exported. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", outputPath));
+            return DbSchemaUtil.createManifestRow(tableName, outputPath, count, HexFormat.of().formatHex(digest.digest()));
+          });
+    } catch (final RuntimeException e) {
+      // 今回出力したファイルを削除
+      for (final String outputPath : outputPaths) {
+        FileUtil.delete(outputPath);
+      }
+      throw e;
+    }
+
+    // マニフェストファイル出力（テーブル名順）
+    final List<IoItems> manifestRows = new ArrayList<>();
+    long total = 0;
+    for (final String tableName : tableNames) {
+      final IoItems row = results.get(tableName);
+      manifestRows.add(row);
+      total += row.getLong("count");
+    }
+    DbSchemaUtil.writeManifest(manifestPath, manifestRows);
+
+    super.logger.info("DB schema data exported successfully. "
+        + LogUtil.joinKeyVal("tables", tableNames.size(), "count", total, "manifest", manifestPath));
+  }
+}
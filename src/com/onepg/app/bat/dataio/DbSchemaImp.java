@@ -0,0 +1,167 @@
+package com.onepg.app.bat.dataio;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.onepg.bat.AbstractBatch;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+import com.onepg.util.ValUtil.CompressType;
+
+/**
+ * DBスキーマデータインポートバッチクラス.<br>
+ * <ul>
+ * <li>入力ディレクトリ内のテーブルごとの入出力用TSVファイルから、複数テーブルにデータをインポートします。（ファイルの形式は <code>DbTableImp</code> と同じ）</li>
+ * <li>入力ディレクトリにマニフェストファイル（<code>_manifest.tsv</code>、<code>DbSchemaExp</code> が出力）がある場合は、記載されたテーブル・ファイルを対象とします。
+ *   <ul>
+ *   <li>インポート前にファイルの SHA-256 ハッシュ値をマニフェストと照合し、一致しない場合はエラーとします。</li>
+ *   <li>インポート後に登録件数をマニフェストの件数と照合し、一致しない場合はエラーとします。</li>
+ *   </ul></li>
+ * <li>マニフェストファイルが無い場合は、入力ディレクトリ内の拡張子 tsv・gz・zip のファイルを対象とし、ファイル名をテーブル名とします。</li>
+ * <li>対象テーブルは対象パターン・除外パターンで絞り込みます。</li>
+ * <li>並列数のワーカーがそれぞれ１つのDB接続を持ち、テーブルを順に取り出して同時にインポートします。１回の起動で全テーブルをインポートするため、テーブルごとの JVM起動が不要になります。</li>
+ * <li>テーブルごとに別トランザクションでインポートするため、外部キー制約のあるテーブルは同時に登録できるよう制約を無効にするか、並列数を 1 にしてください。</li>
+ * <li>DBMSにあわせたJDBCライブラリ（jarファイル）が必要です。</li>
+ * <li><code>main</code>メソッドへの引数は URLパラメータ形式です。（<code>AbstractBatch</code>参照）</li>
+ * <li>引数は下記のとおり
+ *   <ul>
+ *   <li>url：JDBC接続URL ［例］jdbc:postgresql://localhost:5432/db01</li>
+ *   <li>user：DBユーザー（省略可能）</li>
+ *   <li>pass：DBパスワード（省略可能）</li>
+ *   <li>input：入力ディレクトリパス</li>
+ *   <li>include：対象テーブル名パターン カンマ区切り・ワイルドカード（*・?）指定可能（省略可能）省略時は全テーブル</li>
+ *   <li>exclude：除外テーブル名パターン カンマ区切り・ワイルドカード（*・?）指定可能（省略可能）</li>
+ *   <li>parallel：並列数（省略可能）省略時は 4</li>
+ *   <li>verify：マニフェスト照合フラグ 照合しない場合は false（省略可能）省略時は true</li>
+ *   </ul></li>
+ * <li>いずれかのテーブルでエラーが発生した場合は、以降のテーブルをインポートせず異常終了します。（インポート済のテーブル・中間コミット済のデータはそのまま残ります）</li>
+ * </ul>
+ */
+public class DbSchemaImp extends AbstractBatch {
+
+  /**
+   * メイン処理.
+   * @param args 引数
+   */
+  public static void main(String[] args) {
+    System.exit((new DbSchemaImp()).callMain(args));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doExecute(final IoItems io) throws Exception {
+    // 引数 - JDBC接続URL（必須）
+    final String jdbcUrl = io.getString("url");
+    // 引数 - DBユーザー（省略可能）
+    final String dbUser = io.getStringOrDefault("user", null);
+    // 引数 - DBパスワード（省略可能）
+    final String dbPass = io.getStringOrDefault("pass", null);
+    // 引数 - 入力ディレクトリパス（必須）
+    final String inputDir = io.getString("input");
+    // 引数 - 対象テーブル名パターン（省略可能）
+    final String include = io.getStringOrDefault("include", ValUtil.BLANK);
+    // 引数 - 除外テーブル名パターン（省略可能）
+    final String exclude = io.getStringOrDefault("exclude", ValUtil.BLANK);
+    // 並列数（省略可能）
+    final int parallel = io.getIntOrDefault("parallel", 4);
+    // マニフェスト照合フラグ（省略可能）
+    final boolean verify = io.getBooleanOrDefault("verify", true);
+
+    if (!FileUtil.isDirectory(inputDir)) {
+      // 入力ディレクトリが無ければエラー
+      throw new RuntimeException("Input directory does not exist. " + LogUtil.joinKeyVal("input", inputDir));
+    }
+
+    // 入力ファイル（マニフェスト行）マップ<テーブル名、マニフェスト行>
+    final Map<String, IoItems> manifestMap = createManifestMap(inputDir);
+    final boolean hasManifest = FileUtil.exists(FileUtil.joinPath(inputDir, DbSchemaUtil.MANIFEST_FILE_NAME));
+
+    // 対象テーブル（テーブル名順）
+    final String[] allTableNames = manifestMap.keySet().stream().sorted().toArray(String[]::new);
+    final List<String> tableNames = DbSchemaUtil.filterTableNames(allTableNames, include, exclude);
+    if (tableNames.isEmpty()) {
+      super.logger.info("No tables found to import. " + LogUtil.joinKeyVal("input", inputDir, "include", include, "exclude", exclude));
+      return;
+    }
+
+    super.logger.info("Starting DB schema data import. "
+        + LogUtil.joinKeyVal("tables", tableNames.size(), "parallel", parallel, "manifest", hasManifest));
+
+    // テーブルごとにインポート（ワーカーごとのDB接続）
+    final Map<String, Long> results = DbSchemaUtil.runParallel(tableNames, parallel, jdbcUrl, dbUser, dbPass,
+        super.traceCode, (conn, tableName) -> {
+          final IoItems mrow = manifestMap.get(tableName);
+          final String inputPath = FileUtil.joinPath(inputDir, mrow.getString("file"));
+          if (hasManifest && verify) {
+            // ハッシュ値照合
+            final String sha256 = FileUtil.getFileSha256(inputPath);
+            if (!sha256.equals(mrow.getString("sha256"))) {
+              throw new RuntimeException("File checksum does not match the manifest. "
+                  + LogUtil.joinKeyVal("file", inputPath, "expected", mrow.getString("sha256"), "actual", sha256));
+            }
+          }
+          final long count = DbTableImp.importFromFile(conn, tableName, inputPath, super.logger);
+          if (hasManifest && verify && count != mrow.getLong("count")) {
+            // 件数照合
+            throw new RuntimeException("Imported count does not match the manifest. "
+                + LogUtil.joinKeyVal("table", tableName, "expected", mrow.getLong("count"), "actual", count));
+          }
+          super.logger.info("Table data imported. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", inputPath));
+          return count;
+        });
+
+    long total = 0;
+    for (final long count : results.values()) {
+      total += count;
+    }
+    super.logger.info("DB schema data imported successfully. " + LogUtil.joinKeyVal("tables", tableNames.size(), "count", total));
+  }
+
+  /**
+   * 入力ファイルマップ作成.<br>
+   * <ul>
+   * <li>マニフェストファイルがある場合はその行を、無い場合は拡張子 tsv・gz・zip のファイルからテーブル名・ファイル名のみの行を作成する。</li>
+   * <li>同じテーブル名のファイルが複数ある場合はエラーとする。</li>
+   * </ul>
+   *
+   * @param inputDir 入力ディレクトリパス
+   * @return 入力ファイルマップ&lt;テーブル名、マニフェスト行&gt;
+   */
+  private Map<String, IoItems> createManifestMap(final String inputDir) {
+    final List<IoItems> rows;
+    final String manifestPath = FileUtil.joinPath(inputDir, DbSchemaUtil.MANIFEST_FILE_NAME);
+    if (FileUtil.exists(manifestPath)) {
+      rows = DbSchemaUtil.readManifest(manifestPath);
+    } else {
+      rows = new ArrayList<>();
+      for (final String path : FileUtil.getFileList(inputDir, null, null, null, null)) {
+        final String fileName = FileUtil.getFileName(path);
+        if (!"tsv".equalsIgnoreCase(FileUtil.getTypeMark(fileName))
+            && CompressType.NONE == CompressType.byFilePath(fileName)) {
+          continue;
+        }
+        final IoItems row = new IoItems();
+        row.put("table", DbTableImp.getTableNameByFile(fileName));
+        row.put("file", fileName);
+        rows.add(row);
+      }
+    }
+
+    final Map<String, IoItems> manifestMap = new HashMap<>();
+    for (final IoItems row : rows) {
+      final String tableName = row.getString("table").toLowerCase();
+      if (manifestMap.containsKey(tableName)) {
+        throw new RuntimeException("Multiple input files exist for the same table. "
+            + LogUtil.joinKeyVal("table", tableName, "file1", manifestMap.get(tableName).getString("file"), "file2", row.getString("file")));
+      }
+      manifestMap.put(tableName, row);
+    }
+    return manifestMap;
+  }
+}
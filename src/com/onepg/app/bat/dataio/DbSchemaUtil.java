@@ -0,0 +1,272 @@
+package com.onepg.app.bat.dataio;
+
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.IoTsvReader;
+import com.onepg.util.IoTsvWriter;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+
+/**
+ * スキーマ単位データ入出力 共通処理クラス.<br>
+ * <ul>
+ * <li><code>DbSchemaExp</code>・<code>DbSchemaImp</code> で共通の、対象テーブルの絞り込み・テーブル単位の並列実行・マニフェストファイルの入出力を行う。</li>
+ * </ul>
+ * @hidden
+ */
+final class DbSchemaUtil {
+
+  /** マニフェストファイル名. */
+  static final String MANIFEST_FILE_NAME = "_manifest.tsv";
+  /** マニフェスト項目名配列. */
+  static final String[] MANIFEST_KEYS = {"table", "file", "count", "bytes", "sha256"};
+
+  /**
+   * テーブル単位処理インターフェース.
+   *
+   * @param <R> 処理結果の型
+   */
+  @FunctionalInterface
+  interface TableTask<R> {
+    /**
+     * テーブル単位処理.
+     *
+     * @param conn DB接続（ワーカーごとの接続）
+     * @param tableName テーブル名
+     * @return 処理結果
+     * @throws Exception 例外エラー
+     */
+    R run(final Connection conn, final String tableName) throws Exception;
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private DbSchemaUtil() {
+    // 処理なし
+  }
+
+  /**
+   * テーブル名絞り込み.<br>
+   * <ul>
+   * <li>対象パターン・除外パターンはカンマ区切りで複数指定できる。</li>
+   * <li>パターンはワイルドカード（<code>*</code>：任意の文字列、<code>?</code>：任意の１文字）で指定し、英字の大文字小文字を区別しない。</li>
+   * <li>対象パターンがブランクの場合は全テーブルを対象とし、除外パターンのいずれかに一致するテーブルを除く。</li>
+   * </ul>
+   *
+   * @param tableNames テーブル名配列
+   * @param include 対象パターン（ブランク可）
+   * @param exclude 除外パターン（ブランク可）
+   * @return 絞り込み後のテーブル名リスト（元の順序）
+   */
+  static List<String> filterTableNames(final String[] tableNames, final String include, final String exclude) {
+    final List<Pattern> includePtns = createPatterns(include);
+    final List<Pattern> excludePtns = createPatterns(exclude);
+    final List<String> retList = new ArrayList<>();
+    for (final String tableName : tableNames) {
+      if (!includePtns.isEmpty() && !matchesAny(includePtns, tableName)) {
+        continue;
+      }
+      if (matchesAny(excludePtns, tableName)) {
+        continue;
+      }
+      retList.add(tableName);
+    }
+    return retList;
+  }
+
+  /**
+   * ワイルドカードパターンリスト作成.
+   *
+   * @param patterns カンマ区切りのワイルドカードパターン
+   * @return 正規表現パターンリスト
+   */
+  private static List<Pattern> createPatterns(final String patterns) {
+    final List<Pattern> retList = new ArrayList<>();
+    if (ValUtil.isBlank(patterns)) {
+      return retList;
+    }
+    for (final String ptn : patterns.split(",")) {
+      if (ValUtil.isBlank(ptn)) {
+        continue;
+      }
+      final StringBuilder regex = new StringBuilder();
+      for (final char c : ptn.trim().toLowerCase().toCharArray()) {
+        if (c == '*') {
+          regex.append(".*");
+        } else if (c == '?') {
+          regex.append('.');
+        } else {
+          regex.append(Pattern.quote(String.valueOf(c)));
+        }
+      }
+      retList.add(Pattern.compile(regex.toString()));
+    }
+    return retList;
+  }
+
+  /**
+   * パターン一致判定.
+   *
+   * @param ptns 正規表現パターンリスト
+   * @param tableName テーブル名
+   * @return いずれかに一致する場合は <code>true</code>
+   */
+  private static boolean matchesAny(final List<Pattern> ptns, final String tableName) {
+    final String name = tableName.toLowerCase();
+    for (final Pattern ptn : ptns) {
+      if (ptn.matcher(name).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * テーブル単位並列実行.<br>
+   * <ul>
+   * <li>ワーカー数（並列数と対象テーブル数の小さい方）のスレッドで対象テーブルを順に取り出して処理する。</li>
+   * <li>DB接続はワーカーごとに１つ作成し、そのワーカーが処理する全テーブルで使用する。</li>
+   * <li>いずれかのテーブルでエラーが発生した場合は、以降のテーブルを取り出さず、処理中のテーブルの完了を待ってから最初のエラーをスローする。</li>
+   * </ul>
+   *
+   * @param <R> 処理結果の型
+   * @param tableNames テーブル名リスト
+   * @param parallel 並列数
+   * @param jdbcUrl JDBC接続URL
+   * @param dbUser DBユーザー
+   * @param dbPass DBパスワード
+   * @param traceCode トレースコード
+   * @param task テーブル単位処理
+   * @return 処理結果マップ&lt;テーブル名、処理結果&gt;
+   */
+  static <R> Map<String, R> runParallel(final List<String> tableNames, final int parallel, final String jdbcUrl,
+      final String dbUser, final String dbPass, final String traceCode, final TableTask<R> task) {
+    final Map<String, R> results = new ConcurrentHashMap<>();
+    if (tableNames.isEmpty()) {
+      return results;
+    }
+    final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>(tableNames);
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+    final int workerCount = Math.min(Math.max(parallel, 1), tableNames.size());
+
+    final ExecutorService pool = Executors.newFixedThreadPool(workerCount);
+    try {
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < workerCount; i++) {
+        futures.add(pool.submit(() -> {
+          try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, traceCode)) {
+            String tableName;
+            while (!aborted.get() && !ValUtil.isNull(tableName = queue.poll())) {
+              try {
+                results.put(tableName, task.run(conn, tableName));
+              } catch (final Exception | Error e) {
+                aborted.set(true);
+                throw new RuntimeException("An exception error occurred in table processing. "
+                    + LogUtil.joinKeyVal("table", tableName), e);
+              }
+            }
+          } catch (final Exception | Error e) {
+            aborted.set(true);
+            throw e;
+          }
+          return null;
+        }));
+      }
+      // 全ワーカーの終了を待ち、最初のエラーをスローする
+      Throwable firstError = null;
+      for (final Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          if (ValUtil.isNull(firstError)) {
+            firstError = e.getCause();
+          }
+        }
+      }
+      if (!ValUtil.isNull(firstError)) {
+        if (firstError instanceof RuntimeException) {
+          throw (RuntimeException) firstError;
+        }
+        throw new RuntimeException("An exception error occurred during parallel table processing. ", firstError);
+      }
+    } catch (final InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel table processing was interrupted. ", e);
+    } finally {
+      pool.shutdown();
+    }
+    return results;
+  }
+
+  /**
+   * マニフェスト行作成.<br>
+   * <ul>
+   * <li>ファイルのバイト数と、出力時に求めた SHA-256 ハッシュ値で行を作成する。（ファイルを読み直さない）</li>
+   * </ul>
+   *
+   * @param tableName テーブル名
+   * @param filePath ファイルパス
+   * @param count データ件数
+   * @param sha256 SHA-256 ハッシュ値（16進数文字列）
+   * @return マニフェスト行
+   */
+  static IoItems createManifestRow(final String tableName, final String filePath, final int count,
+      final String sha256) {
+    final IoItems row = new IoItems();
+    row.put("table", tableName);
+    row.put("file", FileUtil.getFileName(filePath));
+    row.put("count", count);
+    row.put("bytes", new File(filePath).length());
+    row.put("sha256", sha256);
+    return row;
+  }
+
+  /**
+   * マニフェストファイル出力.
+   *
+   * @param manifestPath マニフェストファイルパス
+   * @param rows マニフェスト行リスト
+   */
+  static void writeManifest(final String manifestPath, final List<IoItems> rows) {
+    try (final IoTsvWriter tw = new IoTsvWriter(manifestPath)) {
+      // 列名を出力
+      tw.println(MANIFEST_KEYS);
+      for (final IoItems row : rows) {
+        tw.println(row);
+      }
+    }
+  }
+
+  /**
+   * マニフェストファイル読込.
+   *
+   * @param manifestPath マニフェストファイルパス
+   * @return マニフェスト行リスト（ファイルの行順）
+   */
+  static List<IoItems> readManifest(final String manifestPath) {
+    final List<IoItems> rows = new ArrayList<>();
+    try (final IoTsvReader tr = new IoTsvReader(manifestPath)) {
+      for (final IoItems row : tr) {
+        rows.add(row);
+      }
+    }
+    return rows;
+  }
+}
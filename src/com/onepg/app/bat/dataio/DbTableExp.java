@@ -1,11 +1,23 @@
 package com.onepg.app.bat.dataio;
 
-import java.io.File;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.security.MessageDigest;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.onepg.bat.AbstractBatch;
 import com.onepg.db.DbUtil;
 import com.onepg.db.SqlBuilder;
+import com.onepg.db.SqlConst.BindType;
 import com.onepg.db.SqlResultSet;
 import com.onepg.db.SqlUtil;
 import com.onepg.util.FileUtil;
@@ -13,6 +25,7 @@ import com.onepg.util.IoItems;
 import com.onepg.util.IoTsvWriter;
 import com.onepg.util.LogUtil;
 import com.onepg.util.ValUtil;
+import com.onepg.util.ValUtil.CompressType;
 
 /**
  * DBテーブルデータエクスポートバッチクラス.<br>
@@ -37,12 +50,39 @@ import com.onepg.util.ValUtil;
  *   <li>output：出力パス ディレクトリ指定可能</li>
  *   <li>where：抽出条件（省略可能）</li>
  *   <li>zip：zip圧縮フラグ 圧縮時 true（省略可能）</li>
+ *   <li>parallel：並列数（省略可能）省略時は 1</li>
+ *   <li>merge：並列時の連結フラグ 分割ファイルのまま出力する場合は false（省略可能）省略時は true</li>
+ *   <li>delta：差分キー項目名 差分出力時に指定 ［例］upd_ts（省略可能）</li>
+ *   <li>state：差分出力状態ファイルパス（省略可能）省略時は出力ファイルと同じディレクトリの _delta_state.tsv</li>
+ *   <li>delsrc：削除キー取得元テーブル名 差分出力時に削除キーファイルを出力する場合に指定（省略可能）</li>
  *   </ul></li>
  * <li>出力パスにディレクトリを指定した場合、ファイル名はテーブル名となります。</li>
+ * <li>zip圧縮時は出力パスの拡張子を zip に置き換え、zipファイルへ直接出力します。（非圧縮ファイルは作成しません）</li>
+ * <li>出力パスの拡張子が gz・zip の場合も圧縮して出力します。</li>
+ * <li>並列数が 2 以上の場合は、プライマリキー先頭項目の値で抽出範囲を並列数に分割し、範囲ごとに別のDB接続で同時に抽出して分割ファイルに出力します。
+ *   <ul>
+ *   <li>分割ファイル名は出力ファイル名に連番を付加した名前となります。［例］table.part001.tsv</li>
+ *   <li>連結フラグが true の場合は分割ファイルを連番順に出力ファイルへ連結（zip圧縮時は圧縮）し、分割ファイルを削除します。出力内容は並列無しの場合と同じ順序になります。</li>
+ *   <li>連結フラグが false の場合は分割ファイル（各ファイルに列名行あり）を出力結果とします。zip圧縮時は分割ファイルごとに zipファイルとなります。</li>
+ *   <li>範囲ごとに別トランザクションで抽出するため、抽出中に更新されるテーブルでは範囲間で読取時点が異なる可能性があります。</li>
+ *   <li>プライマリキーが無いテーブルは並列無しで出力します。</li>
+ *   </ul></li>
+ * <li>差分キーを指定した場合は、前回出力時からの変更行のみを出力します。（差分出力）
+ *   <ul>
+ *   <li>DB接続（URL・ユーザー）とテーブルごとに、出力済の差分キーの最大値を状態ファイルに保存します。初回は全行を出力します。</li>
+ *   <li>出力対象は差分キーが前回の最大値より大きく、抽出開始時点の最大値以下の行です。最大値の取得後にコミットされた、最大値以下の差分キーを持つ行は出力されないため、差分キーは登録・更新時のタイムスタンプ等、コミット順に増加する値としてください。</li>
+ *   <li>抽出条件を指定した場合は抽出条件と差分条件の両方に一致する行を出力します。</li>
+ *   <li>状態ファイルは出力が成功した場合のみ更新します。</li>
+ *   <li>削除キー取得元テーブルを指定した場合は、そのテーブルから差分キーが前回の最大値より大きい行のプライマリキー項目を削除キーファイルに出力します。削除キー取得元テーブルには対象テーブルのプライマリキー項目と差分キー項目（削除日時等）が必要です。</li>
+ *   <li>削除キーファイル名は出力ファイル名に del を付加した名前となります。［例］table.del.tsv 取込側では削除キーファイルを先に適用してください。</li>
+ *   </ul></li>
  * </ul>
  */
 public class DbTableExp extends AbstractBatch {
 
+  /** 差分出力状態ファイル名（省略時）. */
+  private static final String DELTA_STATE_FILE_NAME = "_delta_state.tsv";
+
   /**
    * メイン処理.
    * @param args 引数
@@ -70,24 +110,64 @@ public class DbTableExp extends AbstractBatch {
     final String where = io.getStringOrDefault("where", ValUtil.BLANK);
     // zip圧縮フラグ（省略可能）
     final boolean isZip = io.getBooleanOrDefault("zip", false);
-    
+    // 並列数（省略可能）
+    final int parallel = io.getIntOrDefault("parallel", 1);
+    // 並列時の連結フラグ（省略可能）
+    final boolean merge = io.getBooleanOrDefault("merge", true);
+    // 差分キー（省略可能） 小文字で扱う
+    final String deltaKey = io.getStringOrDefault("delta", ValUtil.BLANK).toLowerCase();
+    // 削除キー取得元テーブル名（省略可能） 小文字で扱う
+    final String delSrc = io.getStringOrDefault("delsrc", ValUtil.BLANK).toLowerCase();
+
     // 出力ファイルパス
     if (FileUtil.isDirectory(outputPath)) {
       // 出力パスがディレクトリの場合、ファイル名はテーブル名とする
       outputPath = FileUtil.joinPath(outputPath, tableName + ".tsv");
     } else {
-      if (FileUtil.existsParent(outputPath)) {
+      if (!FileUtil.existsParent(outputPath)) {
         // 親ディレクトリが無ければエラー
         throw new RuntimeException("Output parent directory does not exist. " + LogUtil.joinKeyVal("output", outputPath));
       }
     }
 
+    if (isZip) {
+      // zip圧縮時は zipファイルへ直接出力する
+      outputPath = FileUtil.replaceTypeMark(outputPath, "zip");
+    }
+
     if (FileUtil.exists(outputPath)) {
       // 出力先ファイル非存在チェック
       throw new RuntimeException("Output path already exists. " + LogUtil.joinKeyVal("output", outputPath));
     }
 
+    // 差分出力の場合は状態ファイル・削除キーファイル
+    final DbDeltaState deltaState;
+    final String connKey;
+    final String delPath;
+    if (ValUtil.isBlank(deltaKey)) {
+      deltaState = null;
+      connKey = null;
+      delPath = null;
+    } else {
+      final String defaultStatePath = FileUtil.joinPath(
+          FileUtil.getParentPath(FileUtil.convAbsolutePath(outputPath)), DELTA_STATE_FILE_NAME);
+      deltaState = new DbDeltaState(io.getStringOrDefault("state", defaultStatePath));
+      // DB接続キー（パスワードは含めない）
+      connKey = ValUtil.isBlank(dbUser) ? jdbcUrl : dbUser + "@" + jdbcUrl;
+      if (ValUtil.isBlank(delSrc)) {
+        delPath = null;
+      } else {
+        delPath = createDeletePath(outputPath);
+        if (FileUtil.exists(delPath)) {
+          throw new RuntimeException("Delete key file already exists. " + LogUtil.joinKeyVal("path", delPath));
+        }
+      }
+    }
+
     int count = 0;
+    int delCount = 0;
+    // 出力結果ファイルパスリスト（並列で連結しない場合は分割ファイル）
+    final List<String> resultPaths = new ArrayList<>();
     // DB接続
     try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode)) {
       // テーブル存在チェック
@@ -98,50 +178,558 @@ public class DbTableExp extends AbstractBatch {
       super.logger.info("Starting DB data export. " + LogUtil.joinKeyVal("table", tableName));
       // プライマリキー取得
       final String[] pkeys = DbUtil.getPrimaryKeys(conn, tableName);
-      // SQL
-      final SqlBuilder sb = new SqlBuilder();
-      sb.addQuery("SELECT * FROM ").addQuery(tableName);
-      if (!ValUtil.isBlank(where)) {
-        if (where.toUpperCase().startsWith("WHERE ")) {
-          sb.addQuery(where);
-        } else {
-          sb.addQuery("WHERE ").addQuery(where);
+
+      // 抽出条件
+      final SqlBuilder cond;
+      String newMark = null;
+      String newDelMark = null;
+      SqlBuilder delSb = null;
+      if (ValUtil.isNull(deltaState)) {
+        cond = createCond(where, null, null, null);
+      } else {
+        final BindType deltaType = getDeltaBindType(conn, tableName, deltaKey);
+        final IoItems state = deltaState.load(connKey, tableName);
+        if (!ValUtil.isNull(state) && !deltaKey.equals(state.getString("column"))) {
+          throw new RuntimeException("Delta column differs from the saved state. "
+              + LogUtil.joinKeyVal("table", tableName, "delta", deltaKey, "saved", state.getString("column")));
         }
-      }
-      if (!ValUtil.isEmpty(pkeys)) {
-        sb.addQuery(" ORDER BY ");
-        for (final String key : pkeys) {
-          sb.addQuery(key).addQuery(",");
+        // 前回の上限値（この値を含まない）と今回の上限値（抽出開始時点の最大値、この値を含む）
+        final String oldMark = ValUtil.isNull(state) ? null : state.getStringNullable("mark");
+        newMark = selectMaxMark(conn, tableName, createCond(where, null, null, null), deltaKey);
+        if (ValUtil.isNull(newMark)) {
+          // 対象行が無い場合は前回の上限値のまま
+          newMark = oldMark;
+        }
+        cond = createCond(where, deltaKey, convMark(oldMark, deltaType), convMark(newMark, deltaType));
+        super.logger.info("Exporting rows changed since the last export. "
+            + LogUtil.joinKeyVal("table", tableName, "delta", deltaKey, "from", oldMark, "to", newMark));
+
+        if (!ValUtil.isNull(delPath)) {
+          // 削除キー抽出SQL（初回は全件出力のため削除キーは出力しない）
+          if (!DbUtil.isExistsTable(conn, delSrc)) {
+            throw new RuntimeException("Delete key source table does not exist. " + LogUtil.joinKeyVal("delsrc", delSrc));
+          }
+          if (ValUtil.isEmpty(pkeys)) {
+            throw new RuntimeException("Table has no primary key, so delete keys cannot be exported. " + LogUtil.joinKeyVal("table", tableName));
+          }
+          final BindType delType = getDeltaBindType(conn, delSrc, deltaKey);
+          final String oldDelMark = ValUtil.isNull(state) ? null : state.getStringNullable("del_mark");
+          newDelMark = selectMaxMark(conn, delSrc, null, deltaKey);
+          if (ValUtil.isNull(newDelMark)) {
+            newDelMark = oldDelMark;
+          }
+          final String fromDelMark = ValUtil.isNull(state) ? newDelMark : oldDelMark;
+          delSb = createDeleteKeySql(delSrc, pkeys,
+              createCond(null, deltaKey, convMark(fromDelMark, delType), convMark(newDelMark, delType)));
         }
-        sb.delLastChar();
       }
 
-      // DB抽出してファイル出力
-      try (final SqlResultSet rSet = SqlUtil.select(conn, sb);
-          final IoTsvWriter tw = new IoTsvWriter(outputPath)) {
-        // 列名を出力
-        tw.println(rSet.getItemNames());
-        for (final IoItems row : rSet) {
-          tw.println(row);
+      if (1 < parallel && !ValUtil.isEmpty(pkeys)) {
+        // 並列出力
+        count = exportParallel(conn, jdbcUrl, dbUser, dbPass, tableName, cond, pkeys, parallel, outputPath, merge,
+            resultPaths);
+      } else {
+        if (1 < parallel) {
+          super.logger.info("Table has no primary key, so exporting without parallel. " + LogUtil.joinKeyVal("table", tableName));
         }
-        count = rSet.getReadedCount();
+        // DB抽出してファイル出力（拡張子が gz・zip の場合は圧縮しながら出力）
+        count = exportToFile(conn, createSelectSql(tableName, cond, pkeys, null, null, null), outputPath);
+        resultPaths.add(outputPath);
+      }
+
+      if (!ValUtil.isNull(delSb)) {
+        // 削除キーファイル出力
+        delCount = exportToFile(conn, delSb, delPath);
+        super.logger.info("Delete keys exported. " + LogUtil.joinKeyVal("delsrc", delSrc, "count", delCount, "file", delPath));
+      }
+
+      if (!ValUtil.isNull(deltaState)) {
+        // 出力成功後に上限値を保存
+        deltaState.save(connKey, tableName, deltaKey, newMark, newDelMark);
       }
     }
 
-    final String outPath;
-    if (isZip) {
-      final String zipPath = FileUtil.replaceTypeMark(outputPath, "zip");
-      FileUtil.zip(outputPath,  ValUtil.UTF8, zipPath);
-      // テキストファイル削除
-      (new File(outputPath)).delete();
-      outPath = zipPath;
+    final String resultFile = String.join(", ", resultPaths);
+    if (ValUtil.isBlank(where)) {
+      super.logger.info("DB data exported successfully. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", resultFile));
     } else {
-      outPath = outputPath;
+      super.logger.info("DB data exported successfully. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", resultFile, "where", where));
     }
-    if (ValUtil.isBlank(where)) {
-      super.logger.info("DB data exported successfully. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", outPath));
+  }
+
+  /**
+   * 差分キーのバインドタイプ取得.
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param deltaKey 差分キー
+   * @return バインドタイプ
+   */
+  private BindType getDeltaBindType(final Connection conn, final String tableName, final String deltaKey) {
+    final Map<String, BindType> bindTypeMap = SqlUtil.createItemBindTypeMapByMeta(conn, tableName);
+    if (!bindTypeMap.containsKey(deltaKey)) {
+      throw new RuntimeException("Delta column does not exist in the table. " + LogUtil.joinKeyVal("table", tableName, "delta", deltaKey));
+    }
+    return bindTypeMap.get(deltaKey);
+  }
+
+  /**
+   * 差分キー最大値取得.
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param deltaKey 差分キー
+   * @return 最大値（対象行が無い場合は <code>null</code>）
+   */
+  private String selectMaxMark(final Connection conn, final String tableName, final SqlBuilder cond,
+      final String deltaKey) {
+    final SqlBuilder sb = new SqlBuilder();
+    sb.addQuery("SELECT MAX(").addQuery(deltaKey).addQuery(") mark FROM ").addQuery(tableName);
+    addWhere(sb, cond, null, null, null);
+    return SqlUtil.selectOne(conn, sb).getStringNullable("mark");
+  }
+
+  /**
+   * 差分上限値をバインド値に変換.
+   *
+   * @param mark 差分上限値（<code>null</code> 可）
+   * @param bindType バインドタイプ
+   * @return バインド値（差分上限値が <code>null</code> の場合は <code>null</code>）
+   */
+  private Object convMark(final String mark, final BindType bindType) {
+    if (ValUtil.isNull(mark)) {
+      return null;
+    }
+    final IoItems row = new IoItems();
+    row.put("mark", mark);
+    return convBindValue(row, "mark", bindType);
+  }
+
+  /**
+   * 削除キー抽出SQL作成.
+   *
+   * @param delSrc 削除キー取得元テーブル名
+   * @param pkeys プライマリキー
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @return SQL
+   */
+  private SqlBuilder createDeleteKeySql(final String delSrc, final String[] pkeys, final SqlBuilder cond) {
+    final SqlBuilder sb = new SqlBuilder();
+    sb.addQuery("SELECT ");
+    for (final String key : pkeys) {
+      sb.addQuery(key).addQuery(",");
+    }
+    sb.delLastChar();
+    sb.addQuery(" FROM ").addQuery(delSrc);
+    addWhere(sb, cond, null, null, null);
+    sb.addQuery(" ORDER BY ");
+    for (final String key : pkeys) {
+      sb.addQuery(key).addQuery(",");
+    }
+    sb.delLastChar();
+    return sb;
+  }
+
+  /**
+   * 削除キーファイルパス作成.<br>
+   * <ul>
+   * <li>出力ファイル名（拡張子を除く）に del を付加する。［例］table.tsv → table.del.tsv、table.tsv.gz → table.del.tsv.gz</li>
+   * </ul>
+   *
+   * @param outputPath 出力ファイルパス
+   * @return 削除キーファイルパス
+   */
+  private String createDeletePath(final String outputPath) {
+    final String fileName = FileUtil.getFileName(outputPath);
+    final String baseName = FileUtil.trimDataTypeMark(fileName);
+    final String delName = baseName + ".del" + fileName.substring(baseName.length());
+    return FileUtil.joinPath(FileUtil.getParentPath(FileUtil.convAbsolutePath(outputPath)), delName);
+  }
+
+  /**
+   * 並列出力.<br>
+   * <ul>
+   * <li>プライマリキー先頭項目の範囲ごとに別のDB接続で同時に抽出し、分割ファイルに出力する。</li>
+   * <li>いずれかの範囲でエラーが発生した場合は、残りの範囲を中止し分割ファイルを削除する。</li>
+   * </ul>
+   *
+   * @param conn DB接続（範囲算出用）
+   * @param jdbcUrl JDBC接続URL
+   * @param dbUser DBユーザー
+   * @param dbPass DBパスワード
+   * @param tableName テーブル名
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param pkeys プライマリキー
+   * @param parallel 並列数
+   * @param outputPath 出力ファイルパス
+   * @param merge 連結する場合は <code>true</code>
+   * @param resultPaths 出力結果ファイルパスリスト（連結する場合は出力ファイル、連結しない場合は分割ファイルを追加する）
+   * @return 出力件数
+   */
+  private int exportParallel(final Connection conn, final String jdbcUrl, final String dbUser, final String dbPass,
+      final String tableName, final SqlBuilder cond, final String[] pkeys, final int parallel, final String outputPath,
+      final boolean merge, final List<String> resultPaths) {
+    // 範囲境界値（各範囲の始点）
+    final String rangeKey = pkeys[0];
+    final List<Object> bounds = createRangeBounds(conn, tableName, cond, rangeKey, parallel);
+    final int rangeCount = bounds.size() + 1;
+    super.logger.info("Exporting in parallel by primary key ranges. "
+        + LogUtil.joinKeyVal("table", tableName, "key", rangeKey, "ranges", rangeCount));
+
+    // 分割ファイルパス
+    final List<String> partPaths = createPartPaths(outputPath, rangeCount, merge);
+    for (final String partPath : partPaths) {
+      if (FileUtil.exists(partPath)) {
+        throw new RuntimeException("Part file already exists. " + LogUtil.joinKeyVal("path", partPath));
+      }
+    }
+
+    // 範囲ごとに別のDB接続で抽出
+    final ExecutorService pool = Executors.newFixedThreadPool(rangeCount);
+    final List<Future<Integer>> futures = new ArrayList<>();
+    int count = 0;
+    try {
+      for (int i = 0; i < rangeCount; i++) {
+        final Object fromVal = (i == 0) ? null : bounds.get(i - 1);
+        final Object toVal = (i == rangeCount - 1) ? null : bounds.get(i);
+        final SqlBuilder sb = createSelectSql(tableName, cond, pkeys, rangeKey, fromVal, toVal);
+        final String partPath = partPaths.get(i);
+        futures.add(pool.submit(() -> {
+          try (final Connection partConn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode)) {
+            return exportToFile(partConn, sb, partPath);
+          }
+        }));
+      }
+      for (int i = 0; i < rangeCount; i++) {
+        final int partCount = futures.get(i).get();
+        super.logger.info("Part file exported. " + LogUtil.joinKeyVal("file", partPaths.get(i), "count", partCount));
+        count += partCount;
+      }
+    } catch (InterruptedException | ExecutionException e) {
+      // 未完了の抽出を取り消し、DB接続のクローズ・分割ファイルの出力が終わるのを待ってから削除する
+      for (final Future<Integer> future : futures) {
+        future.cancel(true);
+      }
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      deleteFiles(partPaths);
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      final Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+      throw new RuntimeException("An exception error occurred during parallel export. " + LogUtil.joinKeyVal("table", tableName), cause);
+    } finally {
+      pool.shutdown();
+    }
+
+    if (merge) {
+      // 分割ファイルを連番順に連結
+      try {
+        FileUtil.concat(partPaths, outputPath, true, CompressType.byFilePath(outputPath));
+      } finally {
+        deleteFiles(partPaths);
+      }
+      resultPaths.add(outputPath);
     } else {
-      super.logger.info("DB data exported successfully. " + LogUtil.joinKeyVal("table", tableName, "count", count, "file", outPath, "where", where));
+      resultPaths.addAll(partPaths);
+    }
+    return count;
+  }
+
+  /**
+   * 範囲境界値作成.<br>
+   * <ul>
+   * <li>範囲キーが数値の場合は最小値・最大値を取得し、その間を並列数で等分した値を境界値とする。（値が偏っている場合は範囲ごとの件数が均等にならない）</li>
+   * <li>数値以外の場合は NTILE ウィンドウ関数で範囲キー順に件数を均等に分け、各グループの最小値を境界値とする。（並べ替えは DB側で行い、取得するのは並列数分の行のみ）</li>
+   * <li>同じ範囲キー値が続く場合（複合プライマリキーなど）は境界値が重複しないよう除外するため、範囲数は並列数より少なくなることがある。</li>
+   * <li>境界値は範囲キーのバインドタイプに変換して返す。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param rangeKey 範囲キー
+   * @param parallel 並列数
+   * @return 範囲境界値リスト（各範囲の始点、先頭範囲を除く）
+   */
+  private List<Object> createRangeBounds(final Connection conn, final String tableName, final SqlBuilder cond,
+      final String rangeKey, final int parallel) {
+    // 範囲キーのバインドタイプ
+    final Map<String, BindType> bindTypeMap = SqlUtil.createItemBindTypeMapByMeta(conn, tableName);
+    final BindType bindType = bindTypeMap.containsKey(rangeKey) ? bindTypeMap.get(rangeKey) : BindType.STRING;
+    if (BindType.BIGDECIMAL == bindType) {
+      return createNumberRangeBounds(conn, tableName, cond, rangeKey, parallel);
+    }
+
+    final List<Object> bounds = new ArrayList<>();
+    // 範囲キー順に件数を均等に分けた各グループの最小値（並列数は整数のためSQLに直接埋め込む）
+    final SqlBuilder tileSb = new SqlBuilder();
+    tileSb.addQuery("SELECT MIN(").addQuery(rangeKey).addQuery(") ").addQuery(rangeKey);
+    tileSb.addQuery(" FROM (SELECT ").addQuery(rangeKey);
+    tileSb.addQuery(", NTILE(" + parallel + ") OVER (ORDER BY ").addQuery(rangeKey).addQuery(") tile_no");
+    tileSb.addQuery(" FROM ").addQuery(tableName);
+    addWhere(tileSb, cond, null, null, null);
+    tileSb.addQuery(") r GROUP BY tile_no ORDER BY tile_no");
+    try (final SqlResultSet rSet = SqlUtil.select(conn, tileSb)) {
+      String lastVal = null;
+      boolean isFirst = true;
+      for (final IoItems row : rSet) {
+        final String val = row.getString(rangeKey);
+        if (!isFirst && !val.equals(lastVal)) {
+          // 先頭グループの最小値は境界値としない
+          bounds.add(convBindValue(row, rangeKey, bindType));
+        }
+        isFirst = false;
+        lastVal = val;
+      }
+    }
+    return bounds;
+  }
+
+  /**
+   * 数値の範囲境界値作成.<br>
+   * <ul>
+   * <li>範囲キーの最小値・最大値の間を並列数で等分した値を境界値とする。最小値・最大値が整数の場合は境界値も整数とする。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param rangeKey 範囲キー
+   * @param parallel 並列数
+   * @return 範囲境界値リスト（各範囲の始点、先頭範囲を除く）
+   */
+  private List<Object> createNumberRangeBounds(final Connection conn, final String tableName,
+      final SqlBuilder cond, final String rangeKey, final int parallel) {
+    final List<Object> bounds = new ArrayList<>();
+    final SqlBuilder sb = new SqlBuilder();
+    sb.addQuery("SELECT MIN(").addQuery(rangeKey).addQuery(") min_val, MAX(").addQuery(rangeKey)
+        .addQuery(") max_val FROM ").addQuery(tableName);
+    addWhere(sb, cond, null, null, null);
+    final IoItems row = SqlUtil.selectOne(conn, sb);
+    final BigDecimal minVal = row.getBigDecimalNullable("min_val");
+    final BigDecimal maxVal = row.getBigDecimalNullable("max_val");
+    if (ValUtil.isNull(minVal) || ValUtil.isNull(maxVal) || minVal.compareTo(maxVal) >= 0) {
+      // 対象行が無い、または値が１種類の場合は分割しない
+      return bounds;
+    }
+    final boolean isInteger = (minVal.stripTrailingZeros().scale() <= 0 && maxVal.stripTrailingZeros().scale() <= 0);
+    final BigDecimal width = maxVal.subtract(minVal);
+    BigDecimal lastBound = minVal;
+    for (int i = 1; i < parallel; i++) {
+      BigDecimal bound = minVal.add(width.multiply(BigDecimal.valueOf(i))
+          .divide(BigDecimal.valueOf(parallel), MathContext.DECIMAL64));
+      if (isInteger) {
+        bound = bound.setScale(0, RoundingMode.CEILING);
+      }
+      if (bound.compareTo(lastBound) <= 0 || bound.compareTo(maxVal) > 0) {
+        // 範囲が空になる境界値は除外
+        continue;
+      }
+      bounds.add(bound);
+      lastBound = bound;
+    }
+    return bounds;
+  }
+
+  /**
+   * バインド値変換.
+   *
+   * @param row 行データ
+   * @param key 項目名
+   * @param bindType バインドタイプ
+   * @return バインド値
+   */
+  private Object convBindValue(final IoItems row, final String key, final BindType bindType) {
+    if (BindType.BIGDECIMAL == bindType) {
+      return row.getBigDecimal(key);
+    }
+    if (BindType.DATE == bindType) {
+      return row.getSqlDateNullable(key);
+    }
+    if (BindType.TIMESTAMP == bindType) {
+      return row.getSqlTimestampNullable(key);
+    }
+    return row.getString(key);
+  }
+
+  /**
+   * 分割ファイルパス作成.<br>
+   * <ul>
+   * <li>出力ファイル名（拡張子を除く）に連番を付加する。［例］table.tsv → table.part001.tsv</li>
+   * <li>連結する場合は非圧縮の tsv、連結しない場合は出力ファイルと同じ拡張子とする。</li>
+   * </ul>
+   *
+   * @param outputPath 出力ファイルパス
+   * @param rangeCount 範囲数
+   * @param merge 連結する場合は <code>true</code>
+   * @return 分割ファイルパスリスト
+   */
+  private List<String> createPartPaths(final String outputPath, final int rangeCount, final boolean merge) {
+    final String fileName = FileUtil.getFileName(outputPath);
+    final String baseName = FileUtil.trimDataTypeMark(fileName);
+    final String suffix;
+    if (merge) {
+      suffix = ".tsv";
+    } else {
+      suffix = fileName.substring(baseName.length());
+    }
+    final List<String> partPaths = new ArrayList<>();
+    for (int i = 1; i <= rangeCount; i++) {
+      final String partName = baseName + ".part" + String.format("%03d", i) + suffix;
+      partPaths.add(FileUtil.joinPath(FileUtil.getParentPath(FileUtil.convAbsolutePath(outputPath)), partName));
+    }
+    return partPaths;
+  }
+
+  /**
+   * 抽出SQL作成.
+   *
+   * @param tableName テーブル名
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param pkeys プライマリキー
+   * @param rangeKey 範囲キー（範囲指定無しの場合は <code>null</code>）
+   * @param fromVal 範囲始点（この値を含む、指定無しの場合は <code>null</code>）
+   * @param toVal 範囲終点（この値を含まない、指定無しの場合は <code>null</code>）
+   * @return SQL
+   */
+  static SqlBuilder createSelectSql(final String tableName, final SqlBuilder cond, final String[] pkeys,
+      final String rangeKey, final Object fromVal, final Object toVal) {
+    final SqlBuilder sb = new SqlBuilder();
+    sb.addQuery("SELECT * FROM ").addQuery(tableName);
+    addWhere(sb, cond, rangeKey, fromVal, toVal);
+    if (!ValUtil.isEmpty(pkeys)) {
+      sb.addQuery(" ORDER BY ");
+      for (final String key : pkeys) {
+        sb.addQuery(key).addQuery(",");
+      }
+      sb.delLastChar();
+    }
+    return sb;
+  }
+
+  /**
+   * 抽出条件作成.<br>
+   * <ul>
+   * <li>引数の抽出条件（先頭の WHERE は省略可能）を括弧で囲み、差分条件を AND で連結する。</li>
+   * </ul>
+   *
+   * @param where 抽出条件（ブランク可）
+   * @param deltaKey 差分キー（差分指定無しの場合は <code>null</code>）
+   * @param fromMark 差分始点（この値を含まない、指定無しの場合は <code>null</code>）
+   * @param toMark 差分終点（この値を含む、指定無しの場合は <code>null</code>）
+   * @return 抽出条件（条件無しの場合は <code>null</code>）
+   */
+  static SqlBuilder createCond(final String where, final String deltaKey, final Object fromMark,
+      final Object toMark) {
+    final List<String> conds = new ArrayList<>();
+    final List<Object> params = new ArrayList<>();
+    if (!ValUtil.isBlank(where)) {
+      if (where.toUpperCase().startsWith("WHERE ")) {
+        conds.add("(" + where.substring(6) + ")");
+      } else {
+        conds.add("(" + where + ")");
+      }
+    }
+    if (!ValUtil.isNull(fromMark)) {
+      conds.add(deltaKey + " > ?");
+      params.add(fromMark);
+    }
+    if (!ValUtil.isNull(toMark)) {
+      conds.add(deltaKey + " <= ?");
+      params.add(toMark);
+    }
+    if (conds.isEmpty()) {
+      return null;
+    }
+    final SqlBuilder cond = new SqlBuilder();
+    cond.addQuery(String.join(" AND ", conds), params.toArray());
+    return cond;
+  }
+
+  /**
+   * 抽出条件追加.
+   *
+   * @param sb SQL
+   * @param cond 抽出条件（条件無しの場合は <code>null</code>）
+   * @param rangeKey 範囲キー（範囲指定無しの場合は <code>null</code>）
+   * @param fromVal 範囲始点（この値を含む、指定無しの場合は <code>null</code>）
+   * @param toVal 範囲終点（この値を含まない、指定無しの場合は <code>null</code>）
+   */
+  private static void addWhere(final SqlBuilder sb, final SqlBuilder cond, final String rangeKey,
+      final Object fromVal, final Object toVal) {
+    if (ValUtil.isNull(cond) && ValUtil.isNull(fromVal) && ValUtil.isNull(toVal)) {
+      return;
+    }
+    sb.addQuery(" WHERE ");
+    boolean needsAnd = false;
+    if (!ValUtil.isNull(cond)) {
+      sb.addSqlBuilder(cond);
+      needsAnd = true;
+    }
+    if (!ValUtil.isNull(fromVal)) {
+      sb.addQuery(needsAnd ? " AND " : ValUtil.BLANK).addQuery(rangeKey + " >= ?", fromVal);
+      needsAnd = true;
+    }
+    if (!ValUtil.isNull(toVal)) {
+      sb.addQuery(needsAnd ? " AND " : ValUtil.BLANK).addQuery(rangeKey + " < ?", toVal);
+    }
+  }
+
+  /**
+   * ファイル出力.<br>
+   * <ul>
+   * <li>出力ファイルパスの拡張子が gz・zip の場合は圧縮しながら出力する。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param sb SQL
+   * @param outputPath 出力ファイルパス
+   * @return 出力件数
+   */
+  static int exportToFile(final Connection conn, final SqlBuilder sb, final String outputPath) {
+    return exportToFile(conn, sb, outputPath, null);
+  }
+
+  /**
+   * ファイル出力（ダイジェスト更新あり）.<br>
+   * <ul>
+   * <li>出力ファイルパスの拡張子が gz・zip の場合は圧縮しながら出力する。</li>
+   * <li>ダイジェストを指定した場合は、ファイルに書き込むバイト列でダイジェストを更新する。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param sb SQL
+   * @param outputPath 出力ファイルパス
+   * @param digest ダイジェスト（不要な場合は <code>null</code>）
+   * @return 出力件数
+   */
+  static int exportToFile(final Connection conn, final SqlBuilder sb, final String outputPath,
+      final MessageDigest digest) {
+    try (final SqlResultSet rSet = SqlUtil.select(conn, sb);
+        final IoTsvWriter tw = new IoTsvWriter(outputPath, CompressType.byFilePath(outputPath), digest)) {
+      // 列名を出力
+      tw.println(rSet.getItemNames());
+      for (final IoItems row : rSet) {
+        tw.println(row);
+      }
+      return rSet.getReadedCount();
+    }
+  }
+
+  /**
+   * ファイル削除（存在するもののみ）.
+   *
+   * @param paths ファイルパスリスト
+   */
+  private void deleteFiles(final List<String> paths) {
+    for (final String path : paths) {
+      FileUtil.delete(path);
     }
   }
 }
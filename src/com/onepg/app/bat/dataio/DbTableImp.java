@@ -1,9 +1,15 @@
 package com.onepg.app.bat.dataio;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import com.onepg.bat.AbstractBatch;
+import com.onepg.bat.ImportCheckpoint;
+import com.onepg.db.DbBulkUtil;
+import com.onepg.db.DbBulkUtil.ApplyMode;
 import com.onepg.db.DbUtil;
 import com.onepg.db.SqlConst;
 import com.onepg.db.SqlUtil;
@@ -11,8 +17,10 @@ import com.onepg.db.SqlConst.BindType;
 import com.onepg.db.SqlConst.SqlConstBuilder;
 import com.onepg.util.FileUtil;
 import com.onepg.util.IoItems;
+import com.onepg.util.IoRowView;
 import com.onepg.util.IoTsvReader;
 import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
 import com.onepg.util.ValUtil;
 
 
@@ -37,9 +45,34 @@ import com.onepg.util.ValUtil;
  *   <li>pass：DBパスワード（省略可能）</li>
  *   <li>table：対象テーブル物理名（省略可能）</li>
  *   <li>input：入力ファイルパス </li>
+ *   <li>pipeline：パイプライン登録フラグ パイプライン登録時 true（省略可能）</li>
+ *   <li>converters：パイプライン登録時の変換スレッド数（省略可能）省略時は CPU数</li>
+ *   <li>writers：パイプライン登録時の登録スレッド数（省略可能）省略時は 2</li>
+ *   <li>batch：パイプライン登録時のバッチ件数（省略可能）省略時は 1000</li>
+ *   <li>staging：ステージング反映方法 insert（追加）・merge（主キーで更新または追加）・replace（全件置換）のいずれか（省略可能）省略時はテーブルへ直接登録</li>
+ *   <li>dropidx：ステージング反映時の副索引削除フラグ 反映前に削除し反映後に再作成する場合 true（省略可能）</li>
+ *   <li>resume：再開フラグ 前回異常終了したインポートをチェックポイントから再開する場合 true（省略可能）</li>
+ *   <li>checkpoint：チェックポイントファイルパス（省略可能）省略時は 入力ファイルパス + <code>.ckpt</code></li>
  *   </ul></li>
  * <li>対象テーブル物理名が省略された場合は入力ファイル名がテーブル名として使用されます。</li>
- * <li>入力ファイルパスは zip圧縮ファイルも指定可能です。</li>
+ * <li>入力ファイルパスは zip・gzip圧縮ファイル（拡張子 zip・gz）も指定可能です。解凍ファイルは作成せず直接読み込みます。</li>
+ * <li>通常の登録では 5000件ごとの中間コミットのたびに、ファイルのバイト位置・件数をチェックポイントファイルに保存します。（正常終了時に削除）<br>
+ * 異常終了後に再開フラグを指定して再実行すると、チェックポイントのバイト位置から読込を再開します。（<code>ImportCheckpoint</code>参照）<br>
+ * 再開フラグを指定しない場合は前回のチェックポイントを削除して先頭から登録します。パイプライン登録・ステージング反映は再開できません。</li>
+ * <li>パイプライン登録の場合は、ファイルの読込・変換と DB登録を別スレッドで同時に実行します。
+ *   <ul>
+ *   <li>変換スレッド数のスレッドでファイルを範囲分割して読み込み（圧縮ファイルは１スレッド）、登録スレッド数のスレッドがそれぞれ別のDB接続でバッチ件数ごとに一括登録します。</li>
+ *   <li>各登録スレッドは 5000件ごとに中間コミットします。エラー時は全スレッドを中止し、未コミット分をロールバックします。</li>
+ *   <li>登録順序はファイルの行順と一致しません。</li>
+ *   </ul></li>
+ * <li>ステージング反映の場合は、対象テーブルと同じ列構成のステージングテーブル（テーブル名 + <code>_stg</code>）に登録してから、SQL１文で対象テーブルへ一括反映します。
+ *   <ul>
+ *   <li>ステージングテーブルは JDBCメタ情報の列構成で作成し、索引を持たないため登録時の索引更新が発生しません。終了時（エラー時も含む）に削除します。</li>
+ *   <li>ステージングテーブルへの登録はパイプライン登録フラグにしたがいます。ステージングテーブルへの登録が完了するまで対象テーブルは変更しません。</li>
+ *   <li>反映は１トランザクションで行い、エラー時はロールバックします。反映に使用する SQL は DBMSにあわせて作成します。（<code>DbBulkUtil</code>参照）</li>
+ *   <li>副索引削除の場合は、一意でない索引を反映前に削除し、反映後（エラー時も含む）に再作成します。Oracle・MS-SqlServer は DDL で暗黙コミットされるため、削除・再作成はトランザクション外となります。</li>
+ *   <li>ステージングテーブルが既に存在する場合はエラーとします。（前回の異常終了で残った場合は削除してください）</li>
+ *   </ul></li>
  * </ul>
  */
 public class DbTableImp extends AbstractBatch {
@@ -65,89 +98,384 @@ public class DbTableImp extends AbstractBatch {
     final String dbPass = io.getStringOrDefault("pass", null);
     // 引数 - 入力ファイルパス（必須）
     final String inputPath = io.getString("input");
-    final String inputFileName = FileUtil.trimTypeMark(FileUtil.getFileName(inputPath));
     // 引数 - 対象テーブル名（省略可能） 小文字で扱う
-    final String tableName =  io.getStringOrDefault("table", inputFileName).toLowerCase();
+    final String tableName =  io.getStringOrDefault("table", getTableNameByFile(inputPath)).toLowerCase();
+    // 引数 - パイプライン登録フラグ（省略可能）
+    final boolean pipeline = io.getBooleanOrDefault("pipeline", false);
+    // 引数 - パイプライン登録時の変換スレッド数（省略可能）
+    final int converters = io.getIntOrDefault("converters", Runtime.getRuntime().availableProcessors());
+    // 引数 - パイプライン登録時の登録スレッド数（省略可能）
+    final int writers = io.getIntOrDefault("writers", 2);
+    // 引数 - パイプライン登録時のバッチ件数（省略可能）
+    final int batchSize = io.getIntOrDefault("batch", 1000);
+    // 引数 - ステージング反映方法（省略可能）
+    final String staging = io.getStringOrDefault("staging", ValUtil.BLANK);
+    // 引数 - ステージング反映時の副索引削除フラグ（省略可能）
+    final boolean dropIdx = io.getBooleanOrDefault("dropidx", false);
+    // 引数 - 再開フラグ（省略可能）
+    final boolean resume = io.getBooleanOrDefault("resume", false);
+    // 引数 - チェックポイントファイルパス（省略可能）
+    final String ckptPath = io.getStringOrDefault("checkpoint", ImportCheckpoint.getDefaultPath(inputPath));
 
     if (!FileUtil.exists(inputPath)) {
       // 入力ファイルが無ければエラー
       throw new RuntimeException("Input file not exists. " + LogUtil.joinKeyVal("input", inputPath));
     }
 
-    // zip解凍
-    final boolean isZip = (FileUtil.getTypeMark(inputPath).equalsIgnoreCase("zip"));
-    
-    // 入力ファイルパス
-    final String inPath;
-    if (isZip) {
-      inPath = FileUtil.unzip(inputPath, FileUtil.getParentPath(inputPath))[0];
+    if (resume && (pipeline || !ValUtil.isBlank(staging))) {
+      // パイプライン登録・ステージング反映はファイルの行順にコミットしないため再開できない
+      throw new RuntimeException("Resume is available only for the standard import. "
+          + LogUtil.joinKeyVal("pipeline", pipeline, "staging", staging));
+    }
+
+    super.logger.info("Starting DB data import. " + LogUtil.joinKeyVal("table", tableName, "file", inputPath));
+
+    final long count;
+    if (!ValUtil.isBlank(staging)) {
+      // ステージング反映
+      count = importByStaging(jdbcUrl, dbUser, dbPass, tableName, inputPath, ApplyMode.byValue(staging), dropIdx,
+          pipeline, converters, writers, batchSize);
+    } else if (pipeline) {
+      // パイプライン登録（ステージごとのスレッド、登録スレッドごとのDB接続）
+      final DbTableImpPipeline pl = new DbTableImpPipeline(jdbcUrl, dbUser, dbPass, super.traceCode, super.logger,
+          converters, writers, batchSize, 5000);
+      count = pl.run(tableName, inputPath);
     } else {
-      inPath = inputPath;
-    } 
-    
-    super.logger.info("Starting DB data import. " + LogUtil.joinKeyVal("table", tableName, "file", inPath));
+      // DB接続
+      try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode)) {
+        count = importFromFile(conn, tableName, inputPath, super.logger, new ImportCheckpoint(ckptPath, inputPath),
+            resume);
+      }
+    }
+
+    super.logger.info("DB data imported successfully. " + LogUtil.joinKeyVal("count", count, "file", inputPath));
+  }
+
+  /**
+   * ステージング反映.<br>
+   * <ul>
+   * <li>ステージングテーブルを作成して入力ファイルを登録し、対象テーブルへ一括反映する。</li>
+   * <li>ステージングテーブルは処理の成否にかかわらず削除する。</li>
+   * </ul>
+   *
+   * @param jdbcUrl JDBC接続URL
+   * @param dbUser DBユーザー
+   * @param dbPass DBパスワード
+   * @param tableName 対象テーブル名
+   * @param inputPath 入力ファイルパス
+   * @param mode 反映方法
+   * @param dropIdx 副索引削除フラグ
+   * @param pipeline パイプライン登録フラグ
+   * @param converters パイプライン登録時の変換スレッド数
+   * @param writers パイプライン登録時の登録スレッド数
+   * @param batchSize パイプライン登録時のバッチ件数
+   * @return 反映件数
+   * @throws SQLException DB例外エラー
+   */
+  private long importByStaging(final String jdbcUrl, final String dbUser, final String dbPass,
+      final String tableName, final String inputPath, final ApplyMode mode, final boolean dropIdx,
+      final boolean pipeline, final int converters, final int writers, final int batchSize) throws SQLException {
+    final String stagingName = tableName + "_stg";
 
     // DB接続
-    int count = 0;
-    // DB接続
-    try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode);
-      final IoTsvReader tr = new IoTsvReader(inPath)) {
+    try (final Connection conn = DbUtil.getConnByUrl(jdbcUrl, dbUser, dbPass, super.traceCode)) {
+      // テーブル存在チェック
+      if (!DbUtil.isExistsTable(conn, tableName)) {
+        throw new RuntimeException("Specified table does not exist. " + LogUtil.joinKeyVal("table", tableName));
+      }
+      // ステージングテーブル非存在チェック
+      if (DbUtil.isExistsTable(conn, stagingName)) {
+        throw new RuntimeException("Staging table already exists. " + LogUtil.joinKeyVal("staging", stagingName));
+      }
+      DbBulkUtil.createStagingTable(conn, tableName, stagingName);
+      conn.commit();
+
+      try {
+        // ステージングテーブルへ登録
+        final long loadCount;
+        if (pipeline) {
+          final DbTableImpPipeline pl = new DbTableImpPipeline(jdbcUrl, dbUser, dbPass, super.traceCode, super.logger,
+              converters, writers, batchSize, 5000);
+          loadCount = pl.run(stagingName, inputPath);
+        } else {
+          loadCount = importFromFile(conn, stagingName, inputPath, super.logger);
+        }
+        super.logger.info("Staging table loaded. " + LogUtil.joinKeyVal("staging", stagingName, "count", loadCount));
+        if (loadCount == 0 && ApplyMode.REPLACE != mode) {
+          return 0;
+        }
+        return applyStaging(conn, stagingName, tableName, mode, dropIdx);
+      } finally {
+        // ステージングテーブル削除（元の例外を優先するため削除エラーはログ出力のみ）
+        try {
+          conn.rollback();
+          DbBulkUtil.dropTable(conn, stagingName);
+          conn.commit();
+        } catch (final Exception e) {
+          super.logger.error(e, "Failed to drop staging table. " + LogUtil.joinKeyVal("staging", stagingName));
+        }
+      }
+    }
+  }
+
+  /**
+   * ステージングテーブルから一括反映.<br>
+   * <ul>
+   * <li>副索引削除の場合は反映前に削除してコミットし、反映後（エラー時も含む）に再作成してコミットする。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param stagingName ステージングテーブル名
+   * @param tableName 対象テーブル名
+   * @param mode 反映方法
+   * @param dropIdx 副索引削除フラグ
+   * @return 反映件数
+   * @throws SQLException DB例外エラー
+   */
+  private long applyStaging(final Connection conn, final String stagingName, final String tableName,
+      final ApplyMode mode, final boolean dropIdx) throws SQLException {
+    final List<String> idxDdls;
+    if (dropIdx) {
+      idxDdls = DbBulkUtil.dropSecondaryIndexes(conn, tableName);
+      conn.commit();
+      super.logger.info("Secondary indexes dropped. " + LogUtil.joinKeyVal("table", tableName, "indexes", idxDdls.size()));
+    } else {
+      idxDdls = List.of();
+    }
+
+    final int count;
+    try {
+      count = DbBulkUtil.applyStaging(conn, stagingName, tableName, mode);
+      conn.commit();
+      super.logger.info("Staging table applied. " + LogUtil.joinKeyVal("table", tableName, "mode", mode, "count", count));
+    } catch (final RuntimeException | SQLException e) {
+      // 元の例外を優先し、ロールバック・副索引再作成のエラーは抑制された例外として付加する
+      try {
+        conn.rollback();
+      } catch (final RuntimeException | SQLException re) {
+        e.addSuppressed(re);
+      }
+      try {
+        recreateIndexes(conn, tableName, idxDdls);
+      } catch (final RuntimeException | SQLException re) {
+        e.addSuppressed(re);
+      }
+      throw e;
+    }
+    recreateIndexes(conn, tableName, idxDdls);
+    return count;
+  }
+
+  /**
+   * 副索引再作成.
+   *
+   * @param conn DB接続
+   * @param tableName 対象テーブル名
+   * @param idxDdls 副索引作成DDLリスト（空の場合は何もしない）
+   * @throws SQLException DB例外エラー
+   */
+  private void recreateIndexes(final Connection conn, final String tableName, final List<String> idxDdls)
+      throws SQLException {
+    if (idxDdls.isEmpty()) {
+      return;
+    }
+    DbBulkUtil.createIndexes(conn, idxDdls);
+    conn.commit();
+    super.logger.info("Secondary indexes recreated. " + LogUtil.joinKeyVal("table", tableName, "indexes", idxDdls.size()));
+  }
+
+  /**
+   * 入力ファイル名からテーブル名取得.<br>
+   * <ul>
+   * <li>ファイル名から拡張子を除いた名前とする。圧縮ファイルの場合は圧縮の拡張子を１回だけ除き、残りがデータファイルの拡張子の場合はそれも除く。（［例］table.tsv.gz → table、a.b.zip → a.b）</li>
+   * </ul>
+   *
+   * @param inputPath 入力ファイルパス
+   * @return テーブル名（小文字）
+   */
+  static String getTableNameByFile(final String inputPath) {
+    return FileUtil.trimDataTypeMark(FileUtil.getFileName(inputPath)).toLowerCase();
+  }
+
+  /**
+   * ファイル読込してDB登録.<br>
+   * <ul>
+   * <li>チェックポイントを使用しない。（<code>#importFromFile(Connection, String, String, LogWriter, ImportCheckpoint, boolean)</code> 参照）</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param inputPath 入力ファイルパス
+   * @param logger ログライター
+   * @return 登録件数
+   * @throws SQLException DB例外エラー
+   */
+  static long importFromFile(final Connection conn, final String tableName, final String inputPath,
+      final LogWriter logger) throws SQLException {
+    return importFromFile(conn, tableName, inputPath, logger, null, false);
+  }
+
+  /**
+   * ファイル読込してDB登録.<br>
+   * <ul>
+   * <li>入力ファイル（zip・gzip圧縮ファイルは直接読込）の１行目の列名で登録SQLを作成し、全行を登録する。</li>
+   * <li>5000件ごとに中間コミットし、最後にコミットする。</li>
+   * <li>チェックポイントがある場合は中間コミットごとに保存し、最終コミット後に削除する。</li>
+   * <li>再開する場合はチェックポイントのバイト位置から読み込む。（チェックポイントが無い場合は先頭から）</li>
+   * <li>チェックポイントの保存はコミットの後のため、その間に異常終了した場合はチェックポイント以降の最大で中間コミット１回分の行が登録済となる。<br>
+   * 再開時はその範囲の行のみプライマリキーで存在確認し、登録済の行は登録をスキップする。（プライマリキーが無い、または入力ファイルにプライマリキー項目が無いテーブルは確認しない）</li>
+   * <li>ヘッダ行が無い場合・ヘッダ行しか無い場合は何もせず 0 を返す。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param inputPath 入力ファイルパス
+   * @param logger ログライター
+   * @param ckpt チェックポイント（<code>null</code> 可）
+   * @param resume 再開する場合は <code>true</code>
+   * @return 登録件数（再開時は前回までのコミット済件数を含む）
+   * @throws SQLException DB例外エラー
+   */
+  static long importFromFile(final Connection conn, final String tableName, final String inputPath,
+      final LogWriter logger, final ImportCheckpoint ckpt, final boolean resume) throws SQLException {
+    // 圧縮ファイルは IoTsvReader で直接読み込む
+    try (final IoTsvReader tr = new IoTsvReader(inputPath)) {
 
       final String[] keys = tr.getKeys();
       if (ValUtil.isEmpty(keys)) {
         // ヘッダ行が無い場合はファイルがゼロ行として終了する
-        super.logger.info("No data found to import. " + LogUtil.joinKeyVal("file", inPath));
-        return;
+        logger.info("No data found to import. " + LogUtil.joinKeyVal("file", inputPath));
+        return 0;
       }
       // テーブル存在チェック
       if (!DbUtil.isExistsTable(conn, tableName)) {
         throw new RuntimeException("Specified table does not exist. " + LogUtil.joinKeyVal("table", tableName));
       }
       
-      // DB項目名・バインドタイプマップ
-      final Map<String, BindType> bindType = SqlUtil.createItemBindTypeMapByMeta(conn, tableName);
-    
-      // 登録SQL作成 ※通常は使用しない SqlConstBuilder を使用
-      final SqlConstBuilder scb = SqlConst.begin();
-      scb.addQuery("INSERT INTO ").addQuery(tableName).addQuery(" ( ");
-      for (final String key : keys) {
-        scb.addQuery(key).addQuery(",");
+      // 登録SQL
+      final SqlConst sc = createInsertSql(conn, tableName, keys);
+
+      // チェックポイントから再開（コミット済の最終行の始端へ移動し、その行を照合する）
+      final boolean resumed = (!ValUtil.isNull(ckpt) && resume && ckpt.load());
+      if (resumed) {
+        tr.seek(ckpt.getRowOffset());
+      } else if (!ValUtil.isNull(ckpt)) {
+        // 先頭から登録するため前回のチェックポイントは削除
+        ckpt.delete();
       }
-      scb.delLastChar();
-      scb.addQuery(" ) VALUES ( ");
-      for (final String key : keys) {
-        if (!bindType.containsKey(key)) {
-          throw new RuntimeException("Column name does not exist in the table. " + LogUtil.joinKeyVal("table", tableName, "column", key));
+      final Iterator<IoRowView> ite = tr.rowViews().iterator();
+      long count = 0;
+      // 登録済確認SQL（再開時のみ）と確認範囲の終端件数
+      SqlConst existsSc = null;
+      long checkUntilCount = 0;
+      if (resumed) {
+        count = ckpt.verifyRow(keys, ite);
+        logger.info("Resuming import from checkpoint. " + LogUtil.joinKeyVal("count", count, "offset", ckpt.getOffset()));
+        // チェックポイント保存前に異常終了した場合の登録済範囲（最大で中間コミット１回分）
+        existsSc = createExistsSql(conn, tableName, keys);
+        checkUntilCount = count + 5000;
+        if (ValUtil.isNull(existsSc)) {
+          logger.info("Rows committed after the checkpoint cannot be detected without a primary key. "
+              + LogUtil.joinKeyVal("table", tableName));
         }
-        scb.addQuery("?", key, bindType.get(key)).addQuery(",");
       }
-      scb.delLastChar();
-      scb.addQuery(" ) ");
-      final SqlConst sc = scb.end();
-      
-      // ファイル読込してDB登録
-      for (final IoItems row : tr) {
-        SqlUtil.executeOneCache(conn, sc.bind(row));
+
+      // ファイル読込してDB登録（行ビューを使い回し行ごとの IoItems 作成を省く）
+      while (ite.hasNext()) {
+        final long rowOffset = tr.getReadedBytes();
+        final IoRowView row = ite.next();
+        if (!ValUtil.isNull(existsSc) && count < checkUntilCount
+            && !ValUtil.isNull(SqlUtil.selectOne(conn, existsSc.bind(row)))) {
+          // 登録済の行はスキップ
+        } else {
+          SqlUtil.executeOneCache(conn, sc.bind(row));
+        }
+        count++;
         // にコミットしてログ出力
-        if (tr.getReadedCount() % 5000 == 0) {
-          super.logger.info("Intermediate commit every 5000 records. " + LogUtil.joinKeyVal("count", tr.getReadedCount()));
+        if (count % 5000 == 0) {
+          logger.info("Intermediate commit every 5000 records. " + LogUtil.joinKeyVal("count", count));
           conn.commit();
+          if (!ValUtil.isNull(ckpt)) {
+            // コミット済の位置を保存
+            ckpt.save(rowOffset, tr.getReadedBytes(), count, ImportCheckpoint.hashRow(keys, row));
+          }
         }
       }
-      if (tr.getReadedCount() == 0) {
+      if (count == 0) {
         // ヘッダ行しか無い場合
-        super.logger.info("No data found to import. " + LogUtil.joinKeyVal("input", inputPath));
+        logger.info("No data found to import. " + LogUtil.joinKeyVal("input", inputPath));
       } else {
         // 最終コミット
         conn.commit();
       }
-      count = tr.getReadedCount();
+      if (!ValUtil.isNull(ckpt)) {
+        ckpt.delete();
+      }
+      return count;
     }
+  }
 
-    if (isZip) {
-      FileUtil.delete(inPath);
+  /**
+   * 登録済確認SQL作成.<br>
+   * <ul>
+   * <li>プライマリキーで行の存在を確認する SQL を作成する。</li>
+   * <li>プライマリキーが無い、または列名にプライマリキー項目が無い場合は <code>null</code> を返す。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param keys 列名配列
+   * @return 登録済確認SQL（確認できない場合は <code>null</code>）
+   */
+  static SqlConst createExistsSql(final Connection conn, final String tableName, final String[] keys) {
+    final String[] pkeys = DbUtil.getPrimaryKeys(conn, tableName);
+    if (ValUtil.isEmpty(pkeys) || !List.of(keys).containsAll(List.of(pkeys))) {
+      return null;
     }
+    // DB項目名・バインドタイプマップ
+    final Map<String, BindType> bindType = SqlUtil.createItemBindTypeMapByMeta(conn, tableName);
 
-    super.logger.info("DB data imported successfully. " + LogUtil.joinKeyVal("count", count, "file", inputPath));
+    final SqlConstBuilder scb = SqlConst.begin();
+    scb.addQuery("SELECT 1 exists_flg FROM ").addQuery(tableName).addQuery(" WHERE ");
+    for (final String pkey : pkeys) {
+      scb.addQuery(pkey).addQuery(" = ").addQuery("?", pkey, bindType.get(pkey)).addQuery(" AND ");
+    }
+    scb.delLastChar(5);
+    return scb.end();
+  }
+
+  /**
+   * 登録SQL作成.<br>
+   * <ul>
+   * <li>入力ファイルの列名を登録項目とし、テーブルのメタ情報から各項目のバインドタイプを決める。</li>
+   * <li>テーブルに無い列名がある場合はエラーとする。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @param keys 列名配列
+   * @return 登録SQL
+   */
+  static SqlConst createInsertSql(final Connection conn, final String tableName, final String[] keys) {
+    // DB項目名・バインドタイプマップ
+    final Map<String, BindType> bindType = SqlUtil.createItemBindTypeMapByMeta(conn, tableName);
+
+    // 登録SQL作成 ※通常は使用しない SqlConstBuilder を使用
+    final SqlConstBuilder scb = SqlConst.begin();
+    scb.addQuery("INSERT INTO ").addQuery(tableName).addQuery(" ( ");
+    for (final String key : keys) {
+      scb.addQuery(key).addQuery(",");
+    }
+    scb.delLastChar();
+    scb.addQuery(" ) VALUES ( ");
+    for (final String key : keys) {
+      if (!bindType.containsKey(key)) {
+        throw new RuntimeException("Column name does not exist in the table. " + LogUtil.joinKeyVal("table", tableName, "column", key));
+      }
+      scb.addQuery("?", key, bindType.get(key)).addQuery(",");
+    }
+    scb.delLastChar();
+    scb.addQuery(" ) ");
+    return scb.end();
   }
 }
@@ -0,0 +1,355 @@
+package com.onepg.app.bat.dataio;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.onepg.db.DbUtil;
+import com.onepg.db.SqlBean;
+import com.onepg.db.SqlConst;
+import com.onepg.db.SqlUtil;
+import com.onepg.util.IoRowView;
+import com.onepg.util.IoTsvReader;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ParallelRowReader;
+import com.onepg.util.ValUtil;
+import com.onepg.util.ValUtil.CompressType;
+
+/**
+ * DBテーブルデータ パイプラインインポートクラス.<br>
+ * <ul>
+ * <li>読込・変換ステージと DB登録ステージを別スレッドで動かし、ファイルの読込・変換と DB との往復を重ねて実行する。
+ *   <ul>
+ *   <li>読込・変換ステージ：<code>ParallelRowReader</code> でファイルを範囲分割して並列に読み込み、行ごとに登録SQLへバインドしてバッチ単位にまとめる。（圧縮ファイルは並列読込できないため１スレッドで読み込む）</li>
+ *   <li>DB登録ステージ：登録スレッドごとに DB接続を持ち、バッチ単位に JDBCバッチで登録し、コミット件数ごとにコミットする。</li>
+ *   </ul></li>
+ * <li>ステージ間は上限付きキューでつなぎ、DB登録が追いつかない場合は読込・変換が待機する。（メモリ使用量はキュー上限のバッチ数までとなる）</li>
+ * <li>いずれかのステージでエラーが発生した場合は最初のエラーを記録して全ステージを中止し、各登録スレッドは未コミット分をロールバックして最初のエラーをスローする。（コミット済のデータは残る）</li>
+ * <li>行の登録順序はファイルの行順と一致しない。</li>
+ * </ul>
+ * @hidden
+ */
+final class DbTableImpPipeline {
+
+  /** 終了マーク（キューの終端を示す空バッチ）. */
+  private static final List<SqlBean> END_MARK = new ArrayList<>(0);
+  /** キュー待機のタイムアウト（ミリ秒）. */
+  private static final long QUEUE_WAIT_MILLIS = 100;
+
+  /** JDBC接続URL. */
+  private final String jdbcUrl;
+  /** DBユーザー. */
+  private final String dbUser;
+  /** DBパスワード. */
+  private final String dbPass;
+  /** トレースコード. */
+  private final String traceCode;
+  /** ログライター. */
+  private final LogWriter logger;
+  /** 変換スレッド数. */
+  private final int converters;
+  /** 登録スレッド数. */
+  private final int writers;
+  /** バッチ件数. */
+  private final int batchSize;
+  /** コミット件数. */
+  private final int commitCount;
+
+  /** バッチキュー. */
+  private final BlockingQueue<List<SqlBean>> queue;
+  /** 最初のエラー. */
+  private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+  /** 登録件数. */
+  private final AtomicLong insertedCount = new AtomicLong();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param jdbcUrl JDBC接続URL
+   * @param dbUser DBユーザー
+   * @param dbPass DBパスワード
+   * @param traceCode トレースコード
+   * @param logger ログライター
+   * @param converters 変換スレッド数
+   * @param writers 登録スレッド数
+   * @param batchSize バッチ件数
+   * @param commitCount コミット件数
+   */
+  DbTableImpPipeline(final String jdbcUrl, final String dbUser, final String dbPass, final String traceCode,
+      final LogWriter logger, final int converters, final int writers, final int batchSize, final int commitCount) {
+    if (converters <= 0 || writers <= 0 || batchSize <= 0 || commitCount <= 0) {
+      throw new RuntimeException("Pipeline settings must be positive. " + LogUtil.joinKeyVal("converters", converters,
+          "writers", writers, "batch", batchSize, "commit", commitCount));
+    }
+    this.jdbcUrl = jdbcUrl;
+    this.dbUser = dbUser;
+    this.dbPass = dbPass;
+    this.traceCode = traceCode;
+    this.logger = logger;
+    this.converters = converters;
+    this.writers = writers;
+    this.batchSize = batchSize;
+    this.commitCount = commitCount;
+    // 各登録スレッドに２バッチ分の先読みを許す
+    this.queue = new ArrayBlockingQueue<>(writers * 2);
+  }
+
+  /**
+   * インポート実行.
+   *
+   * @param tableName テーブル名
+   * @param inputPath 入力ファイルパス
+   * @return 登録件数
+   */
+  long run(final String tableName, final String inputPath) {
+    // 列名と登録SQL
+    final String[] keys;
+    try (final IoTsvReader tr = new IoTsvReader(inputPath)) {
+      keys = tr.getKeys();
+    }
+    if (ValUtil.isEmpty(keys)) {
+      // ヘッダ行が無い場合はファイルがゼロ行として終了する
+      this.logger.info("No data found to import. " + LogUtil.joinKeyVal("file", inputPath));
+      return 0;
+    }
+    final SqlConst sc;
+    try (final Connection conn = DbUtil.getConnByUrl(this.jdbcUrl, this.dbUser, this.dbPass, this.traceCode)) {
+      if (!DbUtil.isExistsTable(conn, tableName)) {
+        throw new RuntimeException("Specified table does not exist. " + LogUtil.joinKeyVal("table", tableName));
+      }
+      sc = DbTableImp.createInsertSql(conn, tableName, keys);
+    } catch (final SQLException e) {
+      throw new RuntimeException("Exception error occurred while preparing pipeline import. " + LogUtil.joinKeyVal("table", tableName), e);
+    }
+
+    this.logger.info("Starting pipelined import. " + LogUtil.joinKeyVal("table", tableName, "converters", this.converters,
+        "writers", this.writers, "batch", this.batchSize, "commit", this.commitCount));
+
+    // DB登録ステージ
+    final ExecutorService pool = Executors.newFixedThreadPool(this.writers);
+    final List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < this.writers; i++) {
+        futures.add(pool.submit(this::write));
+      }
+
+      // 読込・変換ステージ（呼び出し元スレッド、並列読込時は読込スレッド）
+      try {
+        produce(sc, inputPath);
+      } catch (final Exception | Error e) {
+        abort(e);
+      }
+      // 終了マークを登録スレッド数分投入（中止時は登録スレッドが自ら終了する）
+      for (int i = 0; i < this.writers && ValUtil.isNull(this.firstError.get()); i++) {
+        putBatch(END_MARK);
+      }
+
+      for (final Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          abort(e.getCause());
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort(e);
+    } catch (final RuntimeException e) {
+      // 中止によるキュー投入失敗は最初のエラーを優先
+      abort(e);
+    } finally {
+      pool.shutdown();
+    }
+
+    final Throwable error = this.firstError.get();
+    if (!ValUtil.isNull(error)) {
+      // 登録スレッドの終了を待つ（未コミット分はDB切断時にロールバックされる）
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (error instanceof RuntimeException) {
+        throw (RuntimeException) error;
+      }
+      throw new RuntimeException("An exception error occurred during pipelined import. " + LogUtil.joinKeyVal("table", tableName), error);
+    }
+    return this.insertedCount.get();
+  }
+
+  /**
+   * 読込・変換ステージ.<br>
+   * <ul>
+   * <li>非圧縮ファイルは <code>ParallelRowReader</code> で並列に読み込み、各読込スレッドで登録SQLへバインドする。</li>
+   * <li>圧縮ファイルは <code>IoTsvReader</code> の行ビューで読み込む。</li>
+   * </ul>
+   *
+   * @param sc 登録SQL
+   * @param inputPath 入力ファイルパス
+   */
+  private void produce(final SqlConst sc, final String inputPath) {
+    final BatchBuffer buffer = new BatchBuffer();
+    if (CompressType.NONE == CompressType.byFilePath(inputPath)) {
+      try (final ParallelRowReader pr = new ParallelRowReader(inputPath)) {
+        pr.setParallelism(this.converters);
+        pr.read(row -> {
+          checkAborted();
+          final List<SqlBean> full = buffer.add(sc.bind(row));
+          if (!ValUtil.isNull(full)) {
+            putBatch(full);
+          }
+        }, false);
+      }
+    } else {
+      try (final IoTsvReader tr = new IoTsvReader(inputPath)) {
+        for (final IoRowView row : tr.rowViews()) {
+          checkAborted();
+          final List<SqlBean> full = buffer.add(sc.bind(row));
+          if (!ValUtil.isNull(full)) {
+            putBatch(full);
+          }
+        }
+      }
+    }
+    final List<SqlBean> rest = buffer.drain();
+    if (!rest.isEmpty()) {
+      putBatch(rest);
+    }
+  }
+
+  /**
+   * DB登録ステージ.<br>
+   * <ul>
+   * <li>終了マークを受け取るまでバッチを取り出して登録し、コミット件数ごとにコミットする。</li>
+   * <li>終了マークを受け取った場合は最終コミットして終了する。中止された場合はコミットせずに終了する。</li>
+   * </ul>
+   *
+   * @return <code>null</code>
+   * @throws Exception 例外エラー
+   */
+  private Void write() throws Exception {
+    try (final Connection conn = DbUtil.getConnByUrl(this.jdbcUrl, this.dbUser, this.dbPass, this.traceCode)) {
+      int uncommitted = 0;
+      while (true) {
+        if (!ValUtil.isNull(this.firstError.get())) {
+          // 中止（未コミット分はDB切断時にロールバック）
+          return null;
+        }
+        final List<SqlBean> batch = this.queue.poll(QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (ValUtil.isNull(batch)) {
+          continue;
+        }
+        if (batch == END_MARK) {
+          // 最終コミット
+          conn.commit();
+          return null;
+        }
+        SqlUtil.executeBatchCache(conn, batch);
+        uncommitted += batch.size();
+        final long total = this.insertedCount.addAndGet(batch.size());
+        if (this.commitCount <= uncommitted) {
+          conn.commit();
+          uncommitted = 0;
+          this.logger.info("Intermediate commit in pipelined import. " + LogUtil.joinKeyVal("count", total));
+        }
+      }
+    } catch (final Exception | Error e) {
+      abort(e);
+      throw e;
+    }
+  }
+
+  /**
+   * バッチ投入.<br>
+   * <ul>
+   * <li>キューが満杯の場合は空くまで待機する。待機中に中止された場合は実行時エラーとする。</li>
+   * </ul>
+   *
+   * @param batch バッチ
+   */
+  private void putBatch(final List<SqlBean> batch) {
+    try {
+      while (!this.queue.offer(batch, QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        checkAborted();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Pipelined import was interrupted. ", e);
+    }
+  }
+
+  /**
+   * 中止チェック.<br>
+   * <ul>
+   * <li>いずれかのステージでエラーが発生している場合は実行時エラーとする。</li>
+   * </ul>
+   */
+  private void checkAborted() {
+    if (!ValUtil.isNull(this.firstError.get())) {
+      throw new RuntimeException("Pipelined import was aborted. ");
+    }
+  }
+
+  /**
+   * 中止.<br>
+   * <ul>
+   * <li>最初のエラーのみ記録する。</li>
+   * </ul>
+   *
+   * @param e エラー
+   */
+  private void abort(final Throwable e) {
+    this.firstError.compareAndSet(null, e);
+  }
+
+  /**
+   * バッチバッファクラス.<br>
+   * <ul>
+   * <li>複数の読込スレッドからの追加をバッチ件数ごとのリストにまとめる。</li>
+   * </ul>
+   */
+  private final class BatchBuffer {
+
+    /** 現在のバッチ. */
+    private List<SqlBean> current = new ArrayList<>(DbTableImpPipeline.this.batchSize);
+
+    /**
+     * 追加.
+     *
+     * @param sb SQL Bean
+     * @return バッチ件数に達した場合はそのバッチ、それ以外は <code>null</code>
+     */
+    private synchronized List<SqlBean> add(final SqlBean sb) {
+      this.current.add(sb);
+      if (this.current.size() < DbTableImpPipeline.this.batchSize) {
+        return null;
+      }
+      final List<SqlBean> full = this.current;
+      this.current = new ArrayList<>(DbTableImpPipeline.this.batchSize);
+      return full;
+    }
+
+    /**
+     * 残りの取り出し.
+     *
+     * @return 残りのバッチ（空の場合あり）
+     */
+    private synchronized List<SqlBean> drain() {
+      final List<SqlBean> rest = this.current;
+      this.current = new ArrayList<>(0);
+      return rest;
+    }
+  }
+}
@@ -0,0 +1,484 @@
+package com.onepg.app.bat.dataio;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import com.onepg.bat.AbstractBatch;
+import com.onepg.util.CsvReader;
+import com.onepg.util.CsvWriter;
+import com.onepg.util.ExternalSorter;
+import com.onepg.util.ExternalSorter.SortKey;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.IoRowView;
+import com.onepg.util.IoTsvReader;
+import com.onepg.util.IoTsvWriter;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CsvType;
+import com.onepg.util.ValUtil.LineSep;
+
+/**
+ * ファイル差分比較バッチクラス.<br>
+ * <ul>
+ * <li>キー項目順に並んだ２つの入出力用TSVファイル・CSVファイル（旧ファイル・新ファイル）を突き合わせ、追加行・削除行・変更行をそれぞれ別ファイルに出力します。</li>
+ * <li>両ファイルを先頭から１行ずつ読み進めるマージ結合で比較するため、メモリ使用量はファイルサイズによらず各ファイル１行分程度です。</li>
+ * <li><code>main</code>メソッドへの引数は URLパラメータ形式です。（<code>AbstractBatch</code>参照）</li>
+ * <li>引数は下記のとおり
+ *   <ul>
+ *   <li>old：旧ファイルパス</li>
+ *   <li>new：新ファイルパス</li>
+ *   <li>keys：キー項目 カンマ区切りで <code>項目名[:キー型[:asc|desc]]</code> を指定 キー型は string・number・date・timestamp ［例］user_id:number</li>
+ *   <li>output：出力ディレクトリパス</li>
+ *   <li>sort：並べ替えフラグ 入力ファイルがキー項目順に並んでいない場合 true（省略可能）</li>
+ *   <li>csv：CSVタイプ CSVファイルの場合に指定 no_dq・dq_all・dq_std・dq_all_lf・dq_std_lf のいずれか（省略可能）省略時は入出力用TSVファイル</li>
+ *   <li>charset：CSVファイルの文字セット utf8・sjis・ms932 のいずれか（省略可能）省略時は utf8</li>
+ *   <li>linesep：CSVファイル出力時の改行コード lf・cr・crlf のいずれか（省略可能）省略時は lf</li>
+ *   <li>memory：並べ替え時のメモリ上限（MB）（省略可能）省略時は 256</li>
+ *   <li>parallel：並べ替え時の並列数（省略可能）省略時は 1</li>
+ *   <li>compress：並べ替え時の一時ファイル圧縮フラグ 圧縮時 true（省略可能）</li>
+ *   <li>tmpdir：並べ替え時の一時ディレクトリパス（省略可能）省略時は OS一時ディレクトリ</li>
+ *   </ul></li>
+ * <li>出力ファイル名は新ファイル名に ins（追加行）・del（削除行）・chg（変更行）を付加した名前となります。［例］t_user.ins.tsv 出力形式は入力ファイルと同じです。（圧縮はしません）
+ *   <ul>
+ *   <li>追加行ファイル：新ファイルのみにあるキーの行（新ファイルの値）</li>
+ *   <li>削除行ファイル：旧ファイルのみにあるキーの行（旧ファイルの値）</li>
+ *   <li>変更行ファイル：両ファイルにあり、キー項目以外の値が異なる行（新ファイルの値）と、最終列に変更項目名（カンマ区切り）</li>
+ *   </ul></li>
+ * <li>両ファイルの列名は同じである必要があります。（列の順序は異なってもよい、出力は新ファイルの列順）</li>
+ * <li>値は文字列として比較します。<code>null</code> とブランクは異なる値とします。キー項目はキー型に変換して比較します。</li>
+ * <li>並べ替えフラグが false の場合、入力ファイルがキー項目順に並んでいない、またはキーが重複しているとエラーとします。</li>
+ * <li>並べ替えフラグが true の場合は、外部マージソート（<code>ExternalSorter</code>参照）で並べ替えた一時ファイルを比較し、終了時に削除します。キーが重複している場合はエラーとします。</li>
+ * </ul>
+ */
+public class FileDiff extends AbstractBatch {
+
+  /** 変更項目名の列名. */
+  private static final String DIFF_COLS_KEY = "diff_cols";
+
+  /**
+   * メイン処理.
+   * @param args 引数
+   */
+  public static void main(String[] args) {
+    System.exit((new FileDiff()).callMain(args));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doExecute(final IoItems io) throws Exception {
+    // 引数 - 旧ファイルパス（必須）
+    final String oldPath = io.getString("old");
+    // 引数 - 新ファイルパス（必須）
+    final String newPath = io.getString("new");
+    // 引数 - キー項目（必須）
+    final SortKey[] sortKeys = SortKey.parse(io.getString("keys"));
+    // 引数 - 出力ディレクトリパス（必須）
+    final String outputDir = io.getString("output");
+    // 引数 - 並べ替えフラグ（省略可能）
+    final boolean sort = io.getBooleanOrDefault("sort", false);
+    // 引数 - CSVタイプ（省略可能）
+    final String csv = io.getStringOrDefault("csv", ValUtil.BLANK);
+    // 引数 - 文字セット（省略可能）
+    final String charset = io.getStringOrDefault("charset", CharSet.UTF8.name());
+    // 引数 - 改行コード（省略可能）
+    final String linesep = io.getStringOrDefault("linesep", LineSep.LF.name());
+    // 引数 - 並べ替え時のメモリ上限MB（省略可能）
+    final int memoryMb = io.getIntOrDefault("memory", 256);
+    // 引数 - 並べ替え時の並列数（省略可能）
+    final int parallel = io.getIntOrDefault("parallel", 1);
+    // 引数 - 並べ替え時の一時ファイル圧縮フラグ（省略可能）
+    final boolean compress = io.getBooleanOrDefault("compress", false);
+    // 引数 - 並べ替え時の一時ディレクトリパス（省略可能）
+    final String tmpDir = io.getStringOrDefault("tmpdir", FileUtil.getOsTemporaryPath());
+
+    for (final String path : new String[] {oldPath, newPath}) {
+      if (!FileUtil.exists(path)) {
+        throw new RuntimeException("Input file does not exist. " + LogUtil.joinKeyVal("input", path));
+      }
+    }
+    if (!FileUtil.isDirectory(outputDir)) {
+      throw new RuntimeException("Output directory does not exist. " + LogUtil.joinKeyVal("output", outputDir));
+    }
+
+    final FileFormat format;
+    if (ValUtil.isBlank(csv)) {
+      format = new FileFormat(null, null, null);
+    } else {
+      format = new FileFormat(CharSet.valueOf(charset.toUpperCase()), CsvType.valueOf(csv.toUpperCase()),
+          LineSep.valueOf(linesep.toUpperCase()));
+    }
+
+    // 出力ファイルパス（新ファイル名に ins・del・chg を付加）
+    // 圧縮ファイルは圧縮前の拡張子も取り除く
+    final String baseName = FileUtil.trimDataTypeMark(newPath);
+    final String typeMark = (format.isCsv() ? "csv" : "tsv");
+    final String insPath = FileUtil.joinPath(outputDir, baseName + ".ins." + typeMark);
+    final String delPath = FileUtil.joinPath(outputDir, baseName + ".del." + typeMark);
+    final String chgPath = FileUtil.joinPath(outputDir, baseName + ".chg." + typeMark);
+    for (final String path : new String[] {insPath, delPath, chgPath}) {
+      if (FileUtil.exists(path)) {
+        throw new RuntimeException("Output path already exists. " + LogUtil.joinKeyVal("output", path));
+      }
+    }
+
+    final ExternalSorter sorter = new ExternalSorter(sortKeys, memoryMb * 1024L * 1024L, parallel, compress, tmpDir);
+    String workDir = null;
+    try {
+      String oldInput = oldPath;
+      String newInput = newPath;
+      if (sort) {
+        // 並べ替えた一時ファイルを比較する
+        workDir = Files.createTempDirectory(Paths.get(tmpDir), "diff").toString();
+        oldInput = FileUtil.joinPath(workDir, "old." + typeMark + (compress ? ".gz" : ValUtil.BLANK));
+        newInput = FileUtil.joinPath(workDir, "new." + typeMark + (compress ? ".gz" : ValUtil.BLANK));
+        super.logger.info("Sorting input files. " + LogUtil.joinKeyVal("keys", io.getString("keys")));
+        sortFile(sorter, format, oldPath, oldInput);
+        sortFile(sorter, format, newPath, newInput);
+      }
+
+      super.logger.info("Starting file diff. " + LogUtil.joinKeyVal("old", oldPath, "new", newPath));
+      final long[] counts = diff(sorter, sortKeys, format, oldInput, newInput, insPath, delPath, chgPath);
+      super.logger.info("File diff completed. " + LogUtil.joinKeyVal("inserted", counts[0], "deleted", counts[1],
+          "changed", counts[2], "unchanged", counts[3]));
+    } finally {
+      if (!ValUtil.isNull(workDir)) {
+        // 一時ファイル削除
+        for (final String path : FileUtil.getFileList(workDir, null, null, null, null)) {
+          FileUtil.delete(path);
+        }
+        FileUtil.delete(workDir);
+      }
+    }
+  }
+
+  /**
+   * ファイル並べ替え.
+   *
+   * @param sorter 外部マージソート
+   * @param format ファイル形式
+   * @param inputPath 入力ファイルパス
+   * @param outputPath 出力ファイルパス
+   */
+  private void sortFile(final ExternalSorter sorter, final FileFormat format, final String inputPath,
+      final String outputPath) {
+    if (format.isCsv()) {
+      sorter.sortCsv(inputPath, outputPath, format.charSet, format.csvType, format.lineSep);
+    } else {
+      sorter.sortTsv(inputPath, outputPath);
+    }
+  }
+
+  /**
+   * 差分比較.<br>
+   * <ul>
+   * <li>旧ファイル・新ファイルの現在行のキーを比較し、小さい方（キー順で先の方）を読み進める。</li>
+   * <li>キーが同じ場合はキー項目以外の値を比較し、両方を読み進める。</li>
+   * </ul>
+   *
+   * @param sorter 外部マージソート（キー比較に使用）
+   * @param sortKeys キー項目
+   * @param format ファイル形式
+   * @param oldPath 旧ファイルパス（キー順）
+   * @param newPath 新ファイルパス（キー順）
+   * @param insPath 追加行ファイルパス
+   * @param delPath 削除行ファイルパス
+   * @param chgPath 変更行ファイルパス
+   * @return 件数配列（追加・削除・変更・変更無し）
+   */
+  private long[] diff(final ExternalSorter sorter, final SortKey[] sortKeys, final FileFormat format,
+      final String oldPath, final String newPath, final String insPath, final String delPath, final String chgPath) {
+    final long[] counts = new long[4];
+    try (final DiffInput oldIn = new DiffInput(oldPath, format, sorter);
+        final DiffInput newIn = new DiffInput(newPath, format, sorter)) {
+      // 列名チェック
+      final String[] keys = newIn.keys;
+      final List<String> oldKeys = Arrays.asList(oldIn.keys);
+      if (oldKeys.size() != keys.length || !oldKeys.containsAll(Arrays.asList(keys))) {
+        throw new RuntimeException("Column names of the two files differ. "
+            + LogUtil.joinKeyVal("old", oldIn.keys, "new", keys));
+      }
+      if (oldKeys.contains(DIFF_COLS_KEY)) {
+        throw new RuntimeException("Column name is reserved for the changed columns. "
+            + LogUtil.joinKeyVal("column", DIFF_COLS_KEY));
+      }
+      for (final SortKey sortKey : sortKeys) {
+        if (!oldKeys.contains(sortKey.getName())) {
+          throw new RuntimeException("Key column does not exist. " + LogUtil.joinKeyVal("key", sortKey.getName()));
+        }
+      }
+      // 比較対象列（キー項目以外）
+      final List<String> cmpKeyList = new ArrayList<>();
+      for (final String key : keys) {
+        if (Arrays.stream(sortKeys).noneMatch(k -> k.getName().equals(key))) {
+          cmpKeyList.add(key);
+        }
+      }
+      final String[] cmpKeys = cmpKeyList.toArray(new String[0]);
+      final String[] chgKeys = Arrays.copyOf(keys, keys.length + 1);
+      chgKeys[keys.length] = DIFF_COLS_KEY;
+
+      try (final DiffOutput insOut = new DiffOutput(insPath, format, keys);
+          final DiffOutput delOut = new DiffOutput(delPath, format, keys);
+          final DiffOutput chgOut = new DiffOutput(chgPath, format, chgKeys)) {
+        oldIn.next();
+        newIn.next();
+        final StringBuilder diffCols = new StringBuilder();
+        while (oldIn.hasRow() || newIn.hasRow()) {
+          final int cmp;
+          if (!oldIn.hasRow()) {
+            cmp = 1;
+          } else if (!newIn.hasRow()) {
+            cmp = -1;
+          } else {
+            cmp = sorter.compareSortValues(oldIn.sortVals, newIn.sortVals);
+          }
+          if (cmp < 0) {
+            // 旧ファイルのみ
+            delOut.println(oldIn.row, keys, null);
+            counts[1]++;
+            oldIn.next();
+            continue;
+          }
+          if (cmp > 0) {
+            // 新ファイルのみ
+            insOut.println(newIn.row, keys, null);
+            counts[0]++;
+            newIn.next();
+            continue;
+          }
+          // 両ファイルにあるキーは値を比較
+          diffCols.setLength(0);
+          for (final String key : cmpKeys) {
+            final String oldVal = oldIn.row.getStringNullable(key);
+            final String newVal = newIn.row.getStringNullable(key);
+            if (ValUtil.isNull(oldVal) ? !ValUtil.isNull(newVal) : !oldVal.equals(newVal)) {
+              diffCols.append(key).append(',');
+            }
+          }
+          if (diffCols.length() > 0) {
+            ValUtil.deleteLastChar(diffCols);
+            chgOut.println(newIn.row, keys, diffCols.toString());
+            counts[2]++;
+          } else {
+            counts[3]++;
+          }
+          oldIn.next();
+          newIn.next();
+        }
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * ファイル形式.
+   */
+  private static final class FileFormat {
+    /** 文字セット（TSV の場合は <code>null</code>）. */
+    private final CharSet charSet;
+    /** CSVタイプ（TSV の場合は <code>null</code>）. */
+    private final CsvType csvType;
+    /** 改行コード（TSV の場合は <code>null</code>）. */
+    private final LineSep lineSep;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param charSet 文字セット
+     * @param csvType CSVタイプ
+     * @param lineSep 改行コード
+     */
+    private FileFormat(final CharSet charSet, final CsvType csvType, final LineSep lineSep) {
+      this.charSet = charSet;
+      this.csvType = csvType;
+      this.lineSep = lineSep;
+    }
+
+    /**
+     * CSV判定.
+     *
+     * @return CSVファイルの場合は <code>true</code>
+     */
+    private boolean isCsv() {
+      return !ValUtil.isNull(this.csvType);
+    }
+  }
+
+  /**
+   * 差分比較入力.<br>
+   * <ul>
+   * <li>行ビューで１行ずつ読み進め、キー順・キー重複をチェックする。</li>
+   * </ul>
+   */
+  private static final class DiffInput implements AutoCloseable {
+    /** 入出力用TSVリーダー. */
+    private final IoTsvReader tsvReader;
+    /** CSVリーダー. */
+    private final CsvReader csvReader;
+    /** 列名配列. */
+    private final String[] keys;
+    /** 行ビューイテレーター. */
+    private final Iterator<IoRowView> ite;
+    /** 外部マージソート（キー比較に使用）. */
+    private final ExternalSorter sorter;
+    /** ファイルパス. */
+    private final String path;
+    /** 現在行. */
+    private IoRowView row = null;
+    /** 現在行のソート値. */
+    private Comparable<?>[] sortVals = null;
+    /** 読込済行数. */
+    private long rowNo = 0;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param path ファイルパス
+     * @param format ファイル形式
+     * @param sorter 外部マージソート
+     */
+    private DiffInput(final String path, final FileFormat format, final ExternalSorter sorter) {
+      this.path = path;
+      this.sorter = sorter;
+      if (format.isCsv()) {
+        this.tsvReader = null;
+        this.csvReader = new CsvReader(path, format.charSet, format.csvType);
+        this.keys = this.csvReader.getKeys();
+        this.ite = this.csvReader.rowViews().iterator();
+      } else {
+        this.csvReader = null;
+        this.tsvReader = new IoTsvReader(path);
+        this.keys = this.tsvReader.getKeys();
+        this.ite = this.tsvReader.rowViews().iterator();
+      }
+    }
+
+    /**
+     * 行有無判定.
+     *
+     * @return 現在行がある場合は <code>true</code>
+     */
+    private boolean hasRow() {
+      return !ValUtil.isNull(this.row);
+    }
+
+    /**
+     * 次行読込.<br>
+     * <ul>
+     * <li>前行よりキーが小さい場合・同じ場合はエラーとする。</li>
+     * </ul>
+     */
+    private void next() {
+      if (!this.ite.hasNext()) {
+        this.row = null;
+        this.sortVals = null;
+        return;
+      }
+      this.row = this.ite.next();
+      this.rowNo++;
+      final Comparable<?>[] vals = this.sorter.createSortValues(this.row, this.rowNo);
+      if (!ValUtil.isNull(this.sortVals)) {
+        final int cmp = this.sorter.compareSortValues(this.sortVals, vals);
+        if (cmp > 0) {
+          throw new RuntimeException("Input file is not sorted by the keys. Specify sort=true. "
+              + LogUtil.joinKeyVal("path", this.path, "row", this.rowNo));
+        }
+        if (cmp == 0) {
+          throw new RuntimeException("Input file has duplicate keys. "
+              + LogUtil.joinKeyVal("path", this.path, "row", this.rowNo, "data", this.row));
+        }
+      }
+      this.sortVals = vals;
+    }
+
+    /**
+     * クローズ.
+     */
+    @Override
+    public void close() {
+      if (!ValUtil.isNull(this.tsvReader)) {
+        this.tsvReader.close();
+      }
+      if (!ValUtil.isNull(this.csvReader)) {
+        this.csvReader.close();
+      }
+    }
+  }
+
+  /**
+   * 差分比較出力.
+   */
+  private static final class DiffOutput implements AutoCloseable {
+    /** 入出力用TSVライター. */
+    private final IoTsvWriter tsvWriter;
+    /** CSVライター. */
+    private final CsvWriter csvWriter;
+    /** 値配列（使い回し）. */
+    private final String[] values;
+
+    /**
+     * コンストラクタ.<br>
+     * <ul>
+     * <li>1行目に列名を出力する。</li>
+     * </ul>
+     *
+     * @param path ファイルパス
+     * @param format ファイル形式
+     * @param keys 列名配列
+     */
+    private DiffOutput(final String path, final FileFormat format, final String[] keys) {
+      if (format.isCsv()) {
+        this.tsvWriter = null;
+        this.csvWriter = new CsvWriter(path, format.lineSep, format.charSet, format.csvType);
+        this.csvWriter.println(keys);
+      } else {
+        this.csvWriter = null;
+        this.tsvWriter = new IoTsvWriter(path);
+        this.tsvWriter.println(keys);
+      }
+      this.values = new String[keys.length];
+    }
+
+    /**
+     * 行出力.
+     *
+     * @param row 行
+     * @param keys 列名配列（出力列順）
+     * @param diffCols 変更項目名（変更行ファイル以外は <code>null</code>）
+     */
+    private void println(final IoRowView row, final String[] keys, final String diffCols) {
+      for (int i = 0; i < keys.length; i++) {
+        this.values[i] = row.getStringNullable(keys[i]);
+      }
+      if (this.values.length > keys.length) {
+        this.values[keys.length] = diffCols;
+      }
+      if (!ValUtil.isNull(this.tsvWriter)) {
+        this.tsvWriter.println(this.values);
+      } else {
+        this.csvWriter.println(this.values);
+      }
+    }
+
+    /**
+     * クローズ.
+     */
+    @Override
+    public void close() {
+      if (!ValUtil.isNull(this.tsvWriter)) {
+        this.tsvWriter.close();
+      }
+      if (!ValUtil.isNull(this.csvWriter)) {
+        this.csvWriter.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.onepg.app.bat.dataio;
+
+import com.onepg.bat.AbstractBatch;
+import com.onepg.util.ExternalSorter;
+import com.onepg.util.ExternalSorter.SortKey;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CsvType;
+import com.onepg.util.ValUtil.LineSep;
+
+/**
+ * ファイル並べ替えバッチクラス.<br>
+ * <ul>
+ * <li>入出力用TSVファイル・CSVファイルを指定キー項目の順に並べ替えて出力します。</li>
+ * <li>メモリに載らない大きさのファイルも外部マージソートで並べ替えます。（<code>ExternalSorter</code>参照）</li>
+ * <li><code>main</code>メソッドへの引数は URLパラメータ形式です。（<code>AbstractBatch</code>参照）</li>
+ * <li>引数は下記のとおり
+ *   <ul>
+ *   <li>input：入力ファイルパス</li>
+ *   <li>output：出力ファイルパス</li>
+ *   <li>keys：ソートキー カンマ区切りで <code>項目名[:キー型[:asc|desc]]</code> を指定 キー型は string・number・date・timestamp ［例］dept_id,salary:number:desc</li>
+ *   <li>csv：CSVタイプ CSVファイルの場合に指定 no_dq・dq_all・dq_std・dq_all_lf・dq_std_lf のいずれか（省略可能）省略時は入出力用TSVファイル</li>
+ *   <li>charset：CSVファイルの文字セット utf8・sjis・ms932 のいずれか（省略可能）省略時は utf8</li>
+ *   <li>linesep：CSVファイル出力時の改行コード lf・cr・crlf のいずれか（省略可能）省略時は lf</li>
+ *   <li>memory：メモリ上限（MB）（省略可能）省略時は 256</li>
+ *   <li>parallel：並列数（省略可能）省略時は 1</li>
+ *   <li>compress：一時ファイル圧縮フラグ 圧縮時 true（省略可能）</li>
+ *   <li>tmpdir：一時ディレクトリパス（省略可能）省略時は OS一時ディレクトリ</li>
+ *   </ul></li>
+ * <li>入力ファイルの1行目は列名とします。出力ファイルの1行目にも列名を出力します。</li>
+ * <li>入力ファイルパス・出力ファイルパスは zip・gzip圧縮ファイル（拡張子 zip・gz）も指定可能です。</li>
+ * <li>メモリ上限は行データの見積サイズの上限です。ヒープサイズ（-Xmx）の半分程度以下を指定してください。</li>
+ * <li>一時ディレクトリには入力ファイルと同程度（圧縮時はそれ以下）の空き容量が必要です。</li>
+ * </ul>
+ */
+public class FileSort extends AbstractBatch {
+
+  /**
+   * メイン処理.
+   * @param args 引数
+   */
+  public static void main(String[] args) {
+    System.exit((new FileSort()).callMain(args));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void doExecute(final IoItems io) throws Exception {
+    // 引数 - 入力ファイルパス（必須）
+    final String inputPath = io.getString("input");
+    // 引数 - 出力ファイルパス（必須）
+    final String outputPath = io.getString("output");
+    // 引数 - ソートキー（必須）
+    final SortKey[] sortKeys = SortKey.parse(io.getString("keys"));
+    // 引数 - CSVタイプ（省略可能）
+    final String csv = io.getStringOrDefault("csv", ValUtil.BLANK);
+    // 引数 - 文字セット（省略可能）
+    final String charset = io.getStringOrDefault("charset", CharSet.UTF8.name());
+    // 引数 - 改行コード（省略可能）
+    final String linesep = io.getStringOrDefault("linesep", LineSep.LF.name());
+    // 引数 - メモリ上限MB（省略可能）
+    final int memoryMb = io.getIntOrDefault("memory", 256);
+    // 引数 - 並列数（省略可能）
+    final int parallel = io.getIntOrDefault("parallel", 1);
+    // 引数 - 一時ファイル圧縮フラグ（省略可能）
+    final boolean compress = io.getBooleanOrDefault("compress", false);
+    // 引数 - 一時ディレクトリパス（省略可能）
+    final String tmpDir = io.getStringOrDefault("tmpdir", null);
+
+    if (!FileUtil.exists(inputPath)) {
+      throw new RuntimeException("Input file does not exist. " + LogUtil.joinKeyVal("input", inputPath));
+    }
+    if (FileUtil.exists(outputPath)) {
+      throw new RuntimeException("Output path already exists. " + LogUtil.joinKeyVal("output", outputPath));
+    }
+    if (!FileUtil.existsParent(outputPath)) {
+      throw new RuntimeException("Output parent directory does not exist. " + LogUtil.joinKeyVal("output", outputPath));
+    }
+
+    final ExternalSorter sorter = new ExternalSorter(sortKeys, memoryMb * 1024L * 1024L, parallel, compress, tmpDir);
+    super.logger.info("Starting file sort. " + LogUtil.joinKeyVal("input", inputPath, "keys", io.getString("keys"),
+        "memoryMb", memoryMb, "parallel", parallel));
+    final long count;
+    if (ValUtil.isBlank(csv)) {
+      count = sorter.sortTsv(inputPath, outputPath);
+    } else {
+      count = sorter.sortCsv(inputPath, outputPath, CharSet.valueOf(charset.toUpperCase()),
+          CsvType.valueOf(csv.toUpperCase()), LineSep.valueOf(linesep.toUpperCase()));
+    }
+    super.logger.info("File sort completed. " + LogUtil.joinKeyVal("output", outputPath, "count", count,
+        "runs", sorter.getRunCount(), "mergePasses", sorter.getMergePassCount()));
+  }
+}
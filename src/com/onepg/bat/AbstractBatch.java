@@ -97,9 +97,13 @@ public abstract class AbstractBatch {
    * リソースのクローズ処理.<br>
    * <ul>
    * <li>ログテキストファイルのクローズを行います。</li>
+   * <li>常駐バッチ実行デーモン（<code>BatchDaemon</code>）で実行中の場合は他のジョブと共用しているためクローズしません。（デーモン停止時にクローズされる）</li>
    * </ul>
    */
   private final void closeResources() {
+    if (BatchDaemon.isResident()) {
+      return;
+    }
     try {
       // ログテキストファイルを閉じる
       LogTxtHandler.closeAll();
@@ -94,8 +94,8 @@ public abstract class AbstractDbAccessBatch {
     int status = 0;
     try {
       this.logger.begin();
-      // プーリングDB接続取得
-      try (final Connection conn = DbUtil.getConn(this.traceCode)) {
+      // DB接続取得（常駐バッチ実行デーモンで実行中の場合はプーリングDB接続）
+      try (final Connection conn = BatchDaemon.getBatchConn(this.traceCode)) {
         this.dbConn = conn;
         doExecute(argsMap);
         this.dbConn.commit();
@@ -135,9 +135,13 @@ public abstract class AbstractDbAccessBatch {
    * <ul>
    * <li>プーリングDB接続の切断とログテキストファイルのクローズを行います。</li>
    * <li>基本的にバッチ処理でプーリングDB接続は使用しないが、念のため切断処理を実行する。</li>
+   * <li>常駐バッチ実行デーモン（<code>BatchDaemon</code>）で実行中の場合は他のジョブと共用しているためクローズしません。（デーモン停止時にクローズされる）</li>
    * </ul>
    */
   private final void closeResources() {
+    if (BatchDaemon.isResident()) {
+      return;
+    }
     try {
       // プーリングDB切断
       DbUtil.closePooledConn();
@@ -0,0 +1,643 @@
+package com.onepg.bat;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogTxtHandler;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ValUtil;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 並列DBアクセス バッチ処理 基底クラス.<br>
+ * <ul>
+ * <li>読込・処理・書込の３つに分けたバッチ処理を、複数の処理スレッドで並列に実行する基底クラスです。</li>
+ * <li>サブクラスで <code>createReader</code>メソッド（読込）、<code>process</code>メソッド（１件ごとの処理）、<code>write</code>メソッド（書込）を実装します。</li>
+ * <li>読込は呼び出し元スレッドで行い、読み込んだデータをチャンク件数ごとにまとめて上限付きキューで処理スレッドへ渡します。（処理が追いつかない場合は読込が待機する）</li>
+ * <li>処理スレッドごとに DB接続を持ち、チャンクごとに <code>process</code>メソッド・<code>write</code>メソッドを実行してコミットします。</li>
+ * <li>チャンクの処理でエラーが発生した場合はロールバックし、リトライ対象のエラーであればリトライ回数までチャンクを再実行します。</li>
+ * <li>リトライしてもエラーとなり、スキップ対象のエラーであれば、チャンクを１件ずつ再実行してエラーとなったデータのみスキップします。スキップ件数がスキップ上限を超えた場合は異常終了とします。</li>
+ * <li>異常終了時はすべての処理スレッドを中止します。コミット済のチャンクは残ります。チャンクの処理順序は読込順と一致しません。</li>
+ * <li>処理スレッド数・チャンク件数・リトライ回数・スキップ上限は引数で指定できます。サブクラスでメソッドをオーバーライドして変更することもできます。</li>
+ * <li>ログライター・トレースコードはバッチで１つとし、すべての処理スレッドと DB接続で共有します。</li>
+ * <li>サブクラス <code>main</code>メソッドへの引数は URLパラメータ形式で <code>callMain</code>メソッドにそのまま渡される前提としています。</li>
+ * <li>正常終了時の <code>callMain</code>メソッドの戻値は 0 となります。</li>
+ * <li>スキップしたデータがあり、それ以外は正常終了した場合の <code>callMain</code>メソッドの戻値は 2 となります。</li>
+ * <li>Exception がスローされた場合、スキップ上限を超えた場合の <code>callMain</code>メソッドの戻値は 1 となります。</li>
+ * <li>引数は下記のとおり（いずれも省略可能）
+ *   <ul>
+ *   <li>workers: 処理スレッド数（省略時は 4）</li>
+ *   <li>chunk: チャンク件数（コミット単位、省略時は 1000）</li>
+ *   <li>retry: リトライ回数（省略時は 0）</li>
+ *   <li>retrywait: リトライ待機時間（ミリ秒、省略時は 1000）</li>
+ *   <li>skiplimit: スキップ上限件数（省略時は 0、スキップしない）</li>
+ *   </ul></li>
+ * </ul>
+ * <pre>
+ * ［実装例］<code>public class ExampleParallelBatch extends AbstractParallelDbBatch {
+ *    public static void main(String[] args) {
+ *      System.exit((new ExampleParallelBatch()).callMain(args));
+ *    }
+ *
+ *    @Override
+ *    protected Iterable&lt;IoItems&gt; createReader(final Connection readConn, final IoItems args) throws Exception {
+ *      return SqlUtil.select(readConn, SQL_SEL_USER);
+ *    }
+ *
+ *    @Override
+ *    protected IoItems process(final Connection conn, final IoItems item) throws Exception {
+ *      // １件ごとの処理を実装（対象外の場合は null を返す）
+ *      ：
+ *    }
+ *
+ *    @Override
+ *    protected void write(final Connection conn, final List&lt;IoItems&gt; items) throws Exception {
+ *      // チャンク単位の書込を実装
+ *      ：
+ *    }
+ * }</code>
+ * ［実行例］<code>java com.example.ExampleParallelBatch "workers=8&amp;chunk=500&amp;retry=2&amp;skiplimit=10"</code>
+ * </pre>
+ */
+public abstract class AbstractParallelDbBatch {
+
+  /** 終了マーク（キューの終端を示す空チャンク）. */
+  private static final List<IoItems> END_MARK = new ArrayList<>(0);
+  /** キュー待機のタイムアウト（ミリ秒）. */
+  private static final long QUEUE_WAIT_MILLIS = 100;
+
+  /** トレースコード. */
+  protected final String traceCode;
+  /** ログライター. */
+  protected final LogWriter logger;
+
+  /** 最初のエラー. */
+  private final AtomicReference<Throwable> firstError = new AtomicReference<>();
+  /** 読込件数. */
+  private final AtomicLong readCount = new AtomicLong();
+  /** 書込件数. */
+  private final AtomicLong writeCount = new AtomicLong();
+  /** 対象外件数. */
+  private final AtomicLong filterCount = new AtomicLong();
+  /** スキップ件数. */
+  private final AtomicLong skipCount = new AtomicLong();
+  /** リトライ回数. */
+  private final AtomicLong retryCount = new AtomicLong();
+
+  /**
+   * 読込作成.<br>
+   * <ul>
+   * <li>処理対象データを返す読込を作成します。呼び出し元スレッドで１回だけ呼び出されます。</li>
+   * <li>読込用DB接続は読込専用とし、処理スレッドとは別の接続です。（<code>SqlUtil.select</code> の結果をそのまま返せます）</li>
+   * <li>戻値が <code>AutoCloseable</code> の場合は読込終了後にクローズします。</li>
+   * </ul>
+   *
+   * @param readConn 読込用DB接続
+   * @param args 引数
+   * @return 読込
+   * @throws Exception 例外エラー
+   */
+  protected abstract Iterable<IoItems> createReader(final Connection readConn, final IoItems args) throws Exception;
+
+  /**
+   * １件処理.<br>
+   * <ul>
+   * <li>読み込んだデータ１件を処理し、書込データを返します。処理スレッドで呼び出されます。</li>
+   * <li>書込対象外とする場合は <code>null</code> を返します。</li>
+   * <li>エラー時はリトライ・スキップで再実行されるため、引数のデータは変更しない前提としています。</li>
+   * </ul>
+   *
+   * @param conn 処理スレッドのDB接続
+   * @param item 読込データ
+   * @return 書込データ（書込対象外の場合は <code>null</code>）
+   * @throws Exception 例外エラー
+   */
+  protected abstract IoItems process(final Connection conn, final IoItems item) throws Exception;
+
+  /**
+   * 書込.<br>
+   * <ul>
+   * <li>チャンク内の書込データをまとめて書き込みます。処理スレッドで呼び出され、呼び出し後にコミットされます。</li>
+   * <li>書込データが無い場合は呼び出されません。</li>
+   * </ul>
+   *
+   * @param conn 処理スレッドのDB接続
+   * @param items 書込データ
+   * @throws Exception 例外エラー
+   */
+  protected abstract void write(final Connection conn, final List<IoItems> items) throws Exception;
+
+  /**
+   * コンストラクタ.
+   */
+  public AbstractParallelDbBatch() {
+    this.traceCode = ValUtil.getSequenceCode();
+    this.logger = LogUtil.newLogWriter(getClass(), this.traceCode);
+  }
+
+  /**
+   * 処理スレッド数取得.
+   *
+   * @param args 引数
+   * @return 処理スレッド数
+   */
+  protected int getWorkerCount(final IoItems args) {
+    return args.getIntOrDefault("workers", 4);
+  }
+
+  /**
+   * チャンク件数取得.
+   *
+   * @param args 引数
+   * @return チャンク件数（コミット単位）
+   */
+  protected int getChunkSize(final IoItems args) {
+    return args.getIntOrDefault("chunk", 1_000);
+  }
+
+  /**
+   * リトライ回数取得.
+   *
+   * @param args 引数
+   * @return リトライ回数（ゼロの場合はリトライしない）
+   */
+  protected int getRetryLimit(final IoItems args) {
+    return args.getIntOrDefault("retry", 0);
+  }
+
+  /**
+   * リトライ待機時間取得.
+   *
+   * @param args 引数
+   * @return リトライ待機時間（ミリ秒）
+   */
+  protected long getRetryWaitMillis(final IoItems args) {
+    return args.getIntOrDefault("retrywait", 1_000);
+  }
+
+  /**
+   * スキップ上限件数取得.
+   *
+   * @param args 引数
+   * @return スキップ上限件数（ゼロの場合はスキップしない）
+   */
+  protected long getSkipLimit(final IoItems args) {
+    return args.getIntOrDefault("skiplimit", 0);
+  }
+
+  /**
+   * リトライ対象判定.<br>
+   * <ul>
+   * <li>デフォルトは Exception をリトライ対象とし、Error はリトライ対象外とします。</li>
+   * <li>デッドロック・タイムアウトなど一時的なエラーのみリトライする場合はオーバーライドします。</li>
+   * </ul>
+   *
+   * @param e エラー
+   * @return リトライ対象の場合は <code>true</code>
+   */
+  protected boolean isRetryable(final Throwable e) {
+    return e instanceof Exception;
+  }
+
+  /**
+   * スキップ対象判定.<br>
+   * <ul>
+   * <li>デフォルトは Exception をスキップ対象とし、Error はスキップ対象外とします。</li>
+   * </ul>
+   *
+   * @param e エラー
+   * @return スキップ対象の場合は <code>true</code>
+   */
+  protected boolean isSkippable(final Throwable e) {
+    return e instanceof Exception;
+  }
+
+  /**
+   * スキップ時処理.<br>
+   * <ul>
+   * <li>スキップしたデータとエラーをエラーログに出力します。</li>
+   * <li>スキップしたデータを別ファイルに出力する場合などはオーバーライドします。処理スレッドで呼び出されます。</li>
+   * </ul>
+   *
+   * @param item スキップした読込データ
+   * @param e エラー
+   */
+  protected void onSkip(final IoItems item, final Throwable e) {
+    this.logger.error(e, "Skipped an item in parallel batch processing. " + LogUtil.joinKeyVal("item", item));
+  }
+
+  /**
+   * メイン処理の呼び出し.<br>
+   * <ul>
+   * <li>引数をURLパラメータ形式からマップ形式に変換し、ログ開始処理を実行後、読込・処理・書込を並列に実行します。</li>
+   * <li>コマンドライン引数1つあたりの長さ制限に対応するため、複数の引数を配列として受け取る。</li>
+   * <li>処理終了後、件数をログ出力し、DB接続を必ずクローズします。</li>
+   * </ul>
+   *
+   * @param args 引数
+   * @return 正常終了時は 0、スキップありの場合は 2、異常終了時は 1
+   */
+  protected int callMain(final String[] args) {
+    final IoItems argsMap = new IoItems();
+    argsMap.putAllByBatParam(args);
+    if (this.logger.isDevelopMode()) {
+      this.logger.develop(LogUtil.joinKeyVal("arguments", argsMap));
+    }
+
+    int status = 0;
+    try {
+      this.logger.begin();
+      execute(argsMap);
+      if (this.skipCount.get() > 0) {
+        status = 2;
+      }
+    } catch (final Exception | Error e) {
+      status = 1;
+      this.logger.error(e, "An exception error occurred in batch processing. ");
+    }
+    this.logger.info("Parallel batch processing counts. " + LogUtil.joinKeyVal("read", this.readCount.get(),
+        "write", this.writeCount.get(), "filter", this.filterCount.get(), "skip", this.skipCount.get(),
+        "retry", this.retryCount.get()));
+    this.logger.end(status);
+
+    // リソースのクローズ処理
+    closeResources();
+
+    return status;
+  }
+
+  /**
+   * 並列実行.<br>
+   * <ul>
+   * <li>処理スレッドを起動し、呼び出し元スレッドで読込とチャンクの投入を行います。</li>
+   * <li>いずれかのスレッドでエラーが発生した場合は最初のエラーを記録して全スレッドを中止し、最初のエラーをスローします。</li>
+   * </ul>
+   *
+   * @param args 引数
+   * @throws Exception 例外エラー
+   */
+  private void execute(final IoItems args) throws Exception {
+    final int workers = getWorkerCount(args);
+    final int chunkSize = getChunkSize(args);
+    if (workers <= 0 || chunkSize <= 0) {
+      throw new RuntimeException("Worker count and chunk size must be positive. "
+          + LogUtil.joinKeyVal("workers", workers, "chunk", chunkSize));
+    }
+    final Policy policy = new Policy(getRetryLimit(args), getRetryWaitMillis(args), getSkipLimit(args));
+    this.logger.info("Starting parallel batch processing. " + LogUtil.joinKeyVal("workers", workers, "chunk", chunkSize,
+        "retry", policy.retryLimit, "skiplimit", policy.skipLimit));
+
+    // 各処理スレッドに２チャンク分の先読みを許す
+    final BlockingQueue<List<IoItems>> queue = new ArrayBlockingQueue<>(workers * 2);
+    final ExecutorService pool = Executors.newFixedThreadPool(workers);
+    final List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < workers; i++) {
+        futures.add(pool.submit(() -> work(queue, policy)));
+      }
+
+      // 読込（呼び出し元スレッド）
+      try (final Connection readConn = BatchDaemon.getBatchConn(this.traceCode)) {
+        read(readConn, args, queue, chunkSize);
+        readConn.commit();
+      } catch (final Exception | Error e) {
+        abort(e);
+      }
+      // 終了マークを処理スレッド数分投入（中止時は処理スレッドが自ら終了する）
+      for (int i = 0; i < workers && ValUtil.isNull(this.firstError.get()); i++) {
+        putChunk(queue, END_MARK);
+      }
+
+      for (final Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (final ExecutionException e) {
+          abort(e.getCause());
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort(e);
+    } catch (final RuntimeException e) {
+      // 中止によるキュー投入失敗は最初のエラーを優先
+      abort(e);
+    } finally {
+      pool.shutdown();
+    }
+
+    final Throwable error = this.firstError.get();
+    if (!ValUtil.isNull(error)) {
+      // 処理スレッドの終了を待つ（未コミット分はDB切断時にロールバックされる）
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (error instanceof Exception) {
+        throw (Exception) error;
+      }
+      throw (Error) error;
+    }
+  }
+
+  /**
+   * 読込.<br>
+   * <ul>
+   * <li>読込データをチャンク件数ごとにまとめてキューへ投入します。</li>
+   * </ul>
+   *
+   * @param readConn 読込用DB接続
+   * @param args 引数
+   * @param queue キュー
+   * @param chunkSize チャンク件数
+   * @throws Exception 例外エラー
+   */
+  private void read(final Connection readConn, final IoItems args, final BlockingQueue<List<IoItems>> queue,
+      final int chunkSize) throws Exception {
+    final Iterable<IoItems> reader = createReader(readConn, args);
+    try {
+      List<IoItems> chunk = new ArrayList<>(chunkSize);
+      for (final IoItems item : reader) {
+        checkAborted();
+        chunk.add(item);
+        this.readCount.incrementAndGet();
+        if (chunk.size() >= chunkSize) {
+          putChunk(queue, chunk);
+          chunk = new ArrayList<>(chunkSize);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        putChunk(queue, chunk);
+      }
+    } finally {
+      if (reader instanceof AutoCloseable) {
+        ((AutoCloseable) reader).close();
+      }
+    }
+  }
+
+  /**
+   * 処理スレッド.<br>
+   * <ul>
+   * <li>終了マークを受け取るまでチャンクを取り出して処理します。中止された場合は未コミット分をロールバックして終了します。</li>
+   * </ul>
+   *
+   * @param queue キュー
+   * @param policy リトライ・スキップ方針
+   * @return <code>null</code>
+   * @throws Exception 例外エラー
+   */
+  private Void work(final BlockingQueue<List<IoItems>> queue, final Policy policy) throws Exception {
+    try (final Connection conn = BatchDaemon.getBatchConn(this.traceCode)) {
+      while (true) {
+        if (!ValUtil.isNull(this.firstError.get())) {
+          // 中止（未コミット分はDB切断時にロールバック）
+          return null;
+        }
+        final List<IoItems> chunk = queue.poll(QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        if (ValUtil.isNull(chunk)) {
+          continue;
+        }
+        if (chunk == END_MARK) {
+          return null;
+        }
+        executeChunk(conn, chunk, policy);
+      }
+    } catch (final Exception | Error e) {
+      abort(e);
+      throw e;
+    }
+  }
+
+  /**
+   * チャンク実行.<br>
+   * <ul>
+   * <li>チャンクをリトライ付きで実行します。</li>
+   * <li>エラーとなった場合、スキップ対象のエラーであればチャンクを１件ずつ再実行し、エラーとなったデータをスキップします。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param chunk チャンク
+   * @param policy リトライ・スキップ方針
+   * @throws Exception 例外エラー
+   */
+  private void executeChunk(final Connection conn, final List<IoItems> chunk, final Policy policy)
+      throws Exception {
+    try {
+      executeWithRetry(conn, chunk, policy);
+      return;
+    } catch (final Exception | Error e) {
+      if (policy.skipLimit <= 0 || !isSkippable(e)) {
+        throw e;
+      }
+      if (chunk.size() == 1) {
+        skip(chunk.get(0), e, policy);
+        return;
+      }
+      this.logger.info("Chunk failed, re-executing item by item to skip failed items. "
+          + LogUtil.joinKeyVal("size", chunk.size(), "error", e.toString()));
+    }
+    // １件ずつ再実行
+    for (final IoItems item : chunk) {
+      checkAborted();
+      try {
+        executeWithRetry(conn, Collections.singletonList(item), policy);
+      } catch (final Exception | Error e) {
+        if (!isSkippable(e)) {
+          throw e;
+        }
+        skip(item, e, policy);
+      }
+    }
+  }
+
+  /**
+   * リトライ付き実行.<br>
+   * <ul>
+   * <li>データごとに <code>process</code>メソッドを実行し、書込データを <code>write</code>メソッドで書き込んでコミットします。</li>
+   * <li>エラー時はロールバックし、リトライ対象のエラーであればリトライ待機時間だけ待ってリトライ回数まで再実行します。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param items 読込データ
+   * @param policy リトライ・スキップ方針
+   * @throws Exception 例外エラー
+   */
+  private void executeWithRetry(final Connection conn, final List<IoItems> items, final Policy policy)
+      throws Exception {
+    int attempt = 0;
+    while (true) {
+      try {
+        final List<IoItems> outputs = new ArrayList<>(items.size());
+        for (final IoItems item : items) {
+          final IoItems output = process(conn, item);
+          if (!ValUtil.isNull(output)) {
+            outputs.add(output);
+          }
+        }
+        if (!outputs.isEmpty()) {
+          write(conn, outputs);
+        }
+        conn.commit();
+        this.writeCount.addAndGet(outputs.size());
+        this.filterCount.addAndGet(items.size() - outputs.size());
+        return;
+      } catch (final Exception | Error e) {
+        rollback(conn);
+        if (attempt >= policy.retryLimit || !isRetryable(e)) {
+          throw e;
+        }
+        attempt++;
+        this.retryCount.incrementAndGet();
+        this.logger.info("Retrying chunk in parallel batch processing. "
+            + LogUtil.joinKeyVal("attempt", attempt, "size", items.size(), "error", e.toString()));
+        checkAborted();
+        Thread.sleep(policy.retryWaitMillis);
+      }
+    }
+  }
+
+  /**
+   * スキップ.<br>
+   * <ul>
+   * <li>スキップ件数がスキップ上限を超えた場合は実行時エラーとします。</li>
+   * </ul>
+   *
+   * @param item 読込データ
+   * @param e エラー
+   * @param policy リトライ・スキップ方針
+   */
+  private void skip(final IoItems item, final Throwable e, final Policy policy) {
+    final long skipped = this.skipCount.incrementAndGet();
+    if (skipped > policy.skipLimit) {
+      throw new RuntimeException("Skip limit exceeded in parallel batch processing. "
+          + LogUtil.joinKeyVal("skiplimit", policy.skipLimit, "item", item), e);
+    }
+    onSkip(item, e);
+  }
+
+  /**
+   * ロールバック.<br>
+   * <ul>
+   * <li>ロールバック自体のエラーはログ出力のみとし、元のエラーを優先します。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   */
+  private void rollback(final Connection conn) {
+    try {
+      conn.rollback();
+    } catch (final Exception e) {
+      this.logger.error(e, "An exception error occurred in rollback. ");
+    }
+  }
+
+  /**
+   * チャンク投入.<br>
+   * <ul>
+   * <li>キューが満杯の場合は空くまで待機する。待機中に中止された場合は実行時エラーとする。</li>
+   * </ul>
+   *
+   * @param queue キュー
+   * @param chunk チャンク
+   */
+  private void putChunk(final BlockingQueue<List<IoItems>> queue, final List<IoItems> chunk) {
+    try {
+      while (!queue.offer(chunk, QUEUE_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+        checkAborted();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel batch processing was interrupted. ", e);
+    }
+  }
+
+  /**
+   * 中止チェック.<br>
+   * <ul>
+   * <li>いずれかのスレッドでエラーが発生している場合は実行時エラーとする。</li>
+   * </ul>
+   */
+  private void checkAborted() {
+    if (!ValUtil.isNull(this.firstError.get())) {
+      throw new RuntimeException("Parallel batch processing was aborted. ");
+    }
+  }
+
+  /**
+   * 中止.<br>
+   * <ul>
+   * <li>最初のエラーのみ記録する。</li>
+   * </ul>
+   *
+   * @param e エラー
+   */
+  private void abort(final Throwable e) {
+    this.firstError.compareAndSet(null, e);
+  }
+
+  /**
+   * リソースのクローズ処理.<br>
+   * <ul>
+   * <li>プーリングDB接続の切断とログテキストファイルのクローズを行います。</li>
+   * <li>基本的にバッチ処理でプーリングDB接続は使用しないが、念のため切断処理を実行する。</li>
+   * <li>常駐バッチ実行デーモン（<code>BatchDaemon</code>）で実行中の場合は他のジョブと共用しているためクローズしません。（デーモン停止時にクローズされる）</li>
+   * </ul>
+   */
+  private final void closeResources() {
+    if (BatchDaemon.isResident()) {
+      return;
+    }
+    try {
+      // プーリングDB切断
+      DbUtil.closePooledConn();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in disconnecting pooled DB connections. ");
+    }
+    try {
+      // ログテキストファイルを閉じる
+      LogTxtHandler.closeAll();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in log text file close.");
+    }
+  }
+
+  /**
+   * リトライ・スキップ方針クラス.
+   */
+  private static final class Policy {
+    /** リトライ回数. */
+    private final int retryLimit;
+    /** リトライ待機時間（ミリ秒）. */
+    private final long retryWaitMillis;
+    /** スキップ上限件数. */
+    private final long skipLimit;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param retryLimit リトライ回数
+     * @param retryWaitMillis リトライ待機時間（ミリ秒）
+     * @param skipLimit スキップ上限件数
+     */
+    private Policy(final int retryLimit, final long retryWaitMillis, final long skipLimit) {
+      this.retryLimit = retryLimit;
+      this.retryWaitMillis = retryWaitMillis;
+      this.skipLimit = skipLimit;
+    }
+  }
+}
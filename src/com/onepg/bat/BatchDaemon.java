@@ -0,0 +1,547 @@
+package com.onepg.bat;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogTxtHandler;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.PropertiesUtil;
+import com.onepg.util.PropertiesUtil.FwPropertiesName;
+import com.onepg.util.ValUtil;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 常駐バッチ実行デーモンクラス.<br>
+ * <ul>
+ * <li>JVM を常駐させ、クライアントから受け付けたバッチ処理（ジョブ）を同じ JVM 内で実行します。</li>
+ * <li>ジョブごとの JVM 起動・クラス読込・設定ファイル読込が不要となり、JIT コンパイル結果とプーリングDB接続を後続のジョブで再利用できます。</li>
+ * <li>ジョブはローカルの UNIXドメインソケットで受け付けます。ソケットファイルは所有者のみ読み書き可能とします。（クライアントは <code>BatchDaemonClient</code> 参照）</li>
+ * <li>実行できるクラスは実行許可パッケージ配下の <code>AbstractBatch</code>・<code>AbstractDbAccessBatch</code>・<code>AbstractParallelDbBatch</code> のサブクラスとします。</li>
+ * <li>ジョブごとに引数無しのコンストラクタでバッチクラスのインスタンスを生成して <code>callMain</code>メソッドを呼び出します。（<code>main</code>メソッドは呼び出しません）</li>
+ * <li>インスタンスがジョブごとに異なるため、トレースコードもジョブごとに異なります。ジョブのスレッド（ジョブ内で生成したスレッドを含む）で生成したログライターの出力は、ログファイルに加えてそのジョブのクライアントにのみ転送します。</li>
+ * <li>同時実行ジョブ数は上限までとし、上限に達している場合は空きが出るまで待機します。</li>
+ * <li>デーモンで実行中のバッチ処理はプーリングDB接続を使用します。プールの最大接続数に達している場合は新規接続します。</li>
+ * <li>ログテキストファイル・プーリングDB接続はジョブ終了時にクローズせず、デーモン停止時にクローズします。</li>
+ * <li>クライアントが切断されてもジョブは中止せず最後まで実行します。（ログはログファイルにのみ出力されます）</li>
+ * <li>停止要求を受けると新たなジョブの受付を止め、受付済のジョブがすべて終了してから停止します。</li>
+ * <li>設定は bat.properties の下記キーで行います。
+ *   <ul>
+ *   <li>daemon.socket.path: 受付ソケットファイルパス（必須）</li>
+ *   <li>daemon.max.jobs: 同時実行ジョブ数（省略時は 4）</li>
+ *   <li>daemon.allow.packages: 実行許可パッケージ（カンマ区切り、省略時はすべて許可）</li>
+ *   </ul></li>
+ * <li>通信は UTF-8 の行単位とし、要求・応答の各行は下記のとおりです。（項目はタブ区切り）
+ *   <ul>
+ *   <li>要求：<code>RUN ジョブID クラス名 引数1 引数2 …</code>・<code>STATUS</code>・<code>STOP</code> のいずれか１行</li>
+ *   <li>応答：ログ１行ごとに <code>L ログ</code>、最後に <code>X 終了ステータス</code></li>
+ *   </ul></li>
+ * </ul>
+ * <pre>
+ * ［起動例］<code>java com.onepg.bat.BatchDaemon</code>
+ * </pre>
+ */
+public final class BatchDaemon {
+
+  /** 要求 - ジョブ実行. */
+  static final String CMD_RUN = "RUN";
+  /** 要求 - 状態表示. */
+  static final String CMD_STATUS = "STATUS";
+  /** 要求 - 停止. */
+  static final String CMD_STOP = "STOP";
+  /** 応答 - ログ. */
+  static final String RES_LOG = "L";
+  /** 応答 - 終了ステータス. */
+  static final String RES_EXIT = "X";
+  /** 項目区切り文字. */
+  static final String SEP = "\t";
+  /** 設定キー - 受付ソケットファイルパス. */
+  static final String PPKEY_SOCKET_PATH = "daemon.socket.path";
+  /** 設定キー - 同時実行ジョブ数. */
+  private static final String PPKEY_MAX_JOBS = "daemon.max.jobs";
+  /** 設定キー - 実行許可パッケージ. */
+  private static final String PPKEY_ALLOW_PACKAGES = "daemon.allow.packages";
+
+  /** 常駐実行中フラグ. */
+  private static volatile boolean resident = false;
+
+  /** ログライター. */
+  private final LogWriter logger;
+  /** 受付ソケットファイルパス. */
+  private final Path socketPath;
+  /** 同時実行ジョブ数. */
+  private final int maxJobs;
+  /** 実行許可パッケージ（空の場合はすべて許可）. */
+  private final String[] allowPackages;
+  /** ジョブ実行枠. */
+  private final Semaphore jobSlots;
+  /** 受付スレッドプール. */
+  private final ExecutorService connPool = Executors.newCachedThreadPool();
+  /** 受付済ジョブ&lt;受付番号, ジョブ内容&gt;. */
+  private final Map<Long, String> jobs = new ConcurrentSkipListMap<>();
+  /** 受付番号. */
+  private final AtomicLong jobNo = new AtomicLong();
+
+  /** 受付ソケット. */
+  private volatile ServerSocketChannel server = null;
+  /** 停止要求フラグ. */
+  private volatile boolean stopping = false;
+
+  /**
+   * メイン処理.
+   *
+   * @param args 引数（不使用）
+   */
+  public static void main(final String[] args) {
+    System.exit((new BatchDaemon()).run());
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private BatchDaemon() {
+    this.logger = LogUtil.newLogWriter(getClass());
+    final IoItems propMap = PropertiesUtil.getFrameworkProps(FwPropertiesName.BAT);
+    this.socketPath = getSocketPath(propMap);
+    this.maxJobs = propMap.getIntOrDefault(PPKEY_MAX_JOBS, 4);
+    if (this.maxJobs <= 0) {
+      throw new RuntimeException("Batch daemon max jobs must be positive. " + LogUtil.joinKeyVal("maxJobs", this.maxJobs));
+    }
+    final String packages = propMap.getStringOrDefault(PPKEY_ALLOW_PACKAGES, ValUtil.BLANK);
+    this.allowPackages = Arrays.stream(packages.split(","))
+        .map(String::trim).filter(s -> !ValUtil.isBlank(s)).toArray(String[]::new);
+    this.jobSlots = new Semaphore(this.maxJobs, true);
+  }
+
+  /**
+   * 受付ソケットファイルパス取得.
+   *
+   * @param propMap バッチ処理設定
+   * @return 受付ソケットファイルパス
+   */
+  static Path getSocketPath(final IoItems propMap) {
+    if (!propMap.containsKey(PPKEY_SOCKET_PATH) || ValUtil.isBlank(propMap.getString(PPKEY_SOCKET_PATH))) {
+      throw new RuntimeException("Batch daemon socket path is not configured. " + LogUtil.joinKeyVal("key", PPKEY_SOCKET_PATH));
+    }
+    return Paths.get(propMap.getString(PPKEY_SOCKET_PATH)).toAbsolutePath();
+  }
+
+  /**
+   * 常駐実行中判断.<br>
+   * <ul>
+   * <li>バッチ処理基底クラスでのリソースのクローズ処理・DB接続取得の切り替えに使用する。</li>
+   * </ul>
+   *
+   * @return デーモンで実行中の場合は <code>true</code>
+   */
+  static boolean isResident() {
+    return resident;
+  }
+
+  /**
+   * バッチ処理用 DB接続取得.<br>
+   * <ul>
+   * <li>デーモンで実行中の場合はプーリングDB接続を返す。プールの最大接続数に達している場合は新規接続を返す。</li>
+   * <li>デーモンで実行中でない場合は新規接続を返す。</li>
+   * <li>try 句（try-with-resources文）で宣言する。</li>
+   * </ul>
+   *
+   * @param traceCode トレースコード
+   * @return DB接続
+   */
+  static Connection getBatchConn(final String traceCode) {
+    if (!resident) {
+      return DbUtil.getConn(traceCode);
+    }
+    try {
+      return DbUtil.getConnPooled(traceCode);
+    } catch (final RuntimeException e) {
+      // 最大接続数に達している場合は新規接続
+      return DbUtil.getConn(traceCode);
+    }
+  }
+
+  /**
+   * デーモン実行.<br>
+   * <ul>
+   * <li>停止要求を受けるまでジョブを受け付け、停止後はリソースをクローズする。</li>
+   * </ul>
+   *
+   * @return 正常終了時は 0、異常終了時は 1
+   */
+  private int run() {
+    int status = 0;
+    try {
+      this.logger.begin();
+      if (Files.exists(this.socketPath)) {
+        if (isAlive(this.socketPath)) {
+          throw new RuntimeException("Batch daemon is already running. " + LogUtil.joinKeyVal("socket", this.socketPath));
+        }
+        // 前回の異常終了で残ったソケットファイルを削除
+        Files.delete(this.socketPath);
+      }
+      try (final ServerSocketChannel ssc = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+        ssc.bind(UnixDomainSocketAddress.of(this.socketPath));
+        restrictPermission(this.socketPath);
+        this.server = ssc;
+        resident = true;
+        this.logger.info("Batch daemon started. " + LogUtil.joinKeyVal("socket", this.socketPath, "maxJobs", this.maxJobs,
+            "allowPackages", this.allowPackages));
+        while (!this.stopping) {
+          final SocketChannel sc;
+          try {
+            sc = ssc.accept();
+          } catch (final AsynchronousCloseException e) {
+            // 停止要求による受付ソケットのクローズ
+            break;
+          }
+          this.connPool.execute(() -> handle(sc));
+        }
+      }
+      // 受付済ジョブの終了を待つ
+      this.connPool.shutdown();
+      while (!this.connPool.awaitTermination(1, TimeUnit.MINUTES)) {
+        this.logger.info("Waiting for running jobs to end. " + LogUtil.joinKeyVal("jobs", this.jobs.size()));
+      }
+    } catch (final Exception | Error e) {
+      status = 1;
+      this.logger.error(e, "An exception error occurred in batch daemon. ");
+    } finally {
+      try {
+        Files.deleteIfExists(this.socketPath);
+      } catch (final IOException e) {
+        this.logger.error(e, "An exception error occurred in deleting batch daemon socket. ");
+      }
+      resident = false;
+    }
+    this.logger.end(status);
+
+    // リソースのクローズ処理
+    closeResources();
+
+    return status;
+  }
+
+  /**
+   * 稼働中判断.
+   *
+   * @param path ソケットファイルパス
+   * @return 接続できた場合は <code>true</code>
+   */
+  private static boolean isAlive(final Path path) {
+    try {
+      // 接続確認のみのため即時クローズする
+      SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+      return true;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * ソケットファイル権限設定.<br>
+   * <ul>
+   * <li>所有者のみ読み書き可能とする。POSIX 権限に対応していないファイルシステムでは何もしない。</li>
+   * </ul>
+   *
+   * @param path ソケットファイルパス
+   * @throws IOException 入出力エラー
+   */
+  private static void restrictPermission(final Path path) throws IOException {
+    try {
+      Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+    } catch (final UnsupportedOperationException e) {
+      // 処理なし
+    }
+  }
+
+  /**
+   * 要求処理.<br>
+   * <ul>
+   * <li>要求１行を読み込んで処理し、終了ステータスを応答して切断する。</li>
+   * </ul>
+   *
+   * @param sc ソケット
+   */
+  private void handle(final SocketChannel sc) {
+    try (sc;
+        final BufferedReader br = new BufferedReader(new InputStreamReader(Channels.newInputStream(sc), StandardCharsets.UTF_8));
+        final JobOutput out = new JobOutput(new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(sc),
+            StandardCharsets.UTF_8)))) {
+      final String line = br.readLine();
+      if (ValUtil.isNull(line)) {
+        // 稼働確認などによる接続のみ
+        return;
+      }
+      final String[] req = line.split(SEP, -1);
+      if (CMD_RUN.equals(req[0])) {
+        out.exit(runJob(req, out));
+      } else if (CMD_STATUS.equals(req[0])) {
+        out.accept(LogUtil.joinKeyVal("maxJobs", this.maxJobs, "running", this.maxJobs - this.jobSlots.availablePermits(),
+            "waiting", this.jobSlots.getQueueLength(), "stopping", this.stopping));
+        for (final String job : this.jobs.values()) {
+          out.accept(job);
+        }
+        out.exit(0);
+      } else if (CMD_STOP.equals(req[0])) {
+        stop();
+        out.accept("Batch daemon is stopping. " + LogUtil.joinKeyVal("jobs", this.jobs.size()));
+        out.exit(0);
+      } else {
+        out.accept("Unknown batch daemon request. " + LogUtil.joinKeyVal("request", req[0]));
+        out.exit(1);
+      }
+    } catch (final Exception | Error e) {
+      this.logger.error(e, "An exception error occurred in batch daemon request. ");
+    }
+  }
+
+  /**
+   * 停止要求.<br>
+   * <ul>
+   * <li>受付ソケットをクローズして受付を止める。</li>
+   * </ul>
+   */
+  private void stop() {
+    this.stopping = true;
+    try {
+      if (!ValUtil.isNull(this.server)) {
+        this.server.close();
+      }
+    } catch (final IOException e) {
+      this.logger.error(e, "An exception error occurred in closing batch daemon socket. ");
+    }
+    this.logger.info("Batch daemon stop requested. " + LogUtil.joinKeyVal("jobs", this.jobs.size()));
+  }
+
+  /**
+   * ジョブ実行.<br>
+   * <ul>
+   * <li>ジョブ実行枠を取得してからバッチクラスのインスタンスを生成し、<code>callMain</code>メソッドを呼び出す。</li>
+   * <li>インスタンス生成前にログ転送先を設定し、ジョブのログライターの出力をクライアントへ転送する。</li>
+   * </ul>
+   *
+   * @param req 要求
+   * @param out 応答
+   * @return 終了ステータス
+   */
+  private int runJob(final String[] req, final JobOutput out) {
+    if (req.length < 3 || ValUtil.isBlank(req[2])) {
+      out.accept("Job ID and class name are required. ");
+      return 1;
+    }
+    final String jobId = req[1];
+    final String clsName = req[2];
+    final String[] args = Arrays.copyOfRange(req, 3, req.length);
+    final long no = this.jobNo.incrementAndGet();
+    final String desc = LogUtil.joinKeyVal("no", no, "jobId", jobId, "class", clsName);
+    final Thread thread = Thread.currentThread();
+    final String threadName = thread.getName();
+    this.jobs.put(no, desc + " status=\"waiting\"");
+    try {
+      if (!this.jobSlots.tryAcquire()) {
+        out.accept("Waiting for a job slot. " + LogUtil.joinKeyVal("maxJobs", this.maxJobs));
+        this.jobSlots.acquire();
+      }
+      try {
+        this.jobs.put(no, desc + " status=\"running\" begin=\"" + LocalDateTime.now() + "\"");
+        this.logger.info("Job started. " + desc);
+        thread.setName("batch-" + jobId);
+        LogUtil.setThreadLogForwarder(out);
+        final int status = callBatch(clsName, args, out);
+        this.logger.info("Job ended. " + desc + " " + LogUtil.joinKeyVal("status", status));
+        return status;
+      } finally {
+        LogUtil.setThreadLogForwarder(null);
+        thread.setName(threadName);
+        this.jobSlots.release();
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      out.accept("Job was interrupted while waiting. " + desc);
+      return 1;
+    } finally {
+      this.jobs.remove(no);
+    }
+  }
+
+  /**
+   * バッチ処理呼び出し.<br>
+   * <ul>
+   * <li>クラスの読込・インスタンス生成でのエラーはデーモンのログとクライアントに出力し、異常終了とする。</li>
+   * </ul>
+   *
+   * @param clsName クラス名
+   * @param args 引数
+   * @param out 応答
+   * @return 終了ステータス
+   */
+  private int callBatch(final String clsName, final String[] args, final JobOutput out) {
+    final Object batch;
+    try {
+      if (!isAllowed(clsName)) {
+        throw new RuntimeException("Class is not in the allowed packages. " + LogUtil.joinKeyVal("class", clsName,
+            "allowPackages", this.allowPackages));
+      }
+      final Class<?> cls = Class.forName(clsName);
+      if (!AbstractBatch.class.isAssignableFrom(cls) && !AbstractDbAccessBatch.class.isAssignableFrom(cls)
+          && !AbstractParallelDbBatch.class.isAssignableFrom(cls)) {
+        throw new RuntimeException("Class is not a batch class. " + LogUtil.joinKeyVal("class", clsName));
+      }
+      batch = cls.getDeclaredConstructor().newInstance();
+    } catch (final Exception | Error e) {
+      this.logger.error(e, "An exception error occurred in creating batch instance. " + LogUtil.joinKeyVal("class", clsName));
+      out.accept(LogUtil.getStackTrace(ValUtil.LF, e));
+      return 1;
+    }
+    if (batch instanceof AbstractBatch) {
+      return ((AbstractBatch) batch).callMain(args);
+    }
+    if (batch instanceof AbstractDbAccessBatch) {
+      return ((AbstractDbAccessBatch) batch).callMain(args);
+    }
+    return ((AbstractParallelDbBatch) batch).callMain(args);
+  }
+
+  /**
+   * 実行許可判断.
+   *
+   * @param clsName クラス名
+   * @return 実行許可パッケージ配下の場合は <code>true</code>
+   */
+  private boolean isAllowed(final String clsName) {
+    if (this.allowPackages.length == 0) {
+      return true;
+    }
+    for (final String pkg : this.allowPackages) {
+      if (clsName.startsWith(pkg + ".")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * リソースのクローズ処理.<br>
+   * <ul>
+   * <li>プーリングDB接続の切断とログテキストファイルのクローズを行います。</li>
+   * </ul>
+   */
+  private void closeResources() {
+    try {
+      // プーリングDB切断
+      DbUtil.closePooledConn();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in disconnecting pooled DB connections. ");
+    }
+    try {
+      // ログテキストファイルを閉じる
+      LogTxtHandler.closeAll();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in log text file close.");
+    }
+  }
+
+  /**
+   * ジョブ応答クラス.<br>
+   * <ul>
+   * <li>ログ転送先として、ログを１行ずつクライアントへ送る。複数スレッドから呼び出される。</li>
+   * <li>クライアントが切断された場合は以降の送信を行わない。クローズ後に転送されたログ（ジョブ終了後も残るスレッドのログ）は破棄する。</li>
+   * </ul>
+   */
+  private static final class JobOutput implements Consumer<String>, AutoCloseable {
+
+    /** 応答ライター. */
+    private final Writer writer;
+    /** 送信停止フラグ. */
+    private boolean closed = false;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param writer 応答ライター
+     */
+    private JobOutput(final Writer writer) {
+      this.writer = writer;
+    }
+
+    /**
+     * ログ送信.
+     *
+     * @param log ログ（複数行可）
+     */
+    @Override
+    public synchronized void accept(final String log) {
+      if (this.closed) {
+        return;
+      }
+      try {
+        for (final String line : ValUtil.nvl(log).split("\r\n|\r|\n", -1)) {
+          this.writer.write(RES_LOG + SEP + line + ValUtil.LF);
+        }
+        this.writer.flush();
+      } catch (final IOException e) {
+        // クライアント切断
+        this.closed = true;
+      }
+    }
+
+    /**
+     * 終了ステータス送信.
+     *
+     * @param status 終了ステータス
+     */
+    private synchronized void exit(final int status) {
+      if (this.closed) {
+        return;
+      }
+      try {
+        this.writer.write(RES_EXIT + SEP + status + ValUtil.LF);
+        this.writer.flush();
+      } catch (final IOException e) {
+        // クライアント切断
+        this.closed = true;
+      }
+    }
+
+    /**
+     * クローズ.
+     */
+    @Override
+    public synchronized void close() {
+      this.closed = true;
+      try {
+        this.writer.close();
+      } catch (final IOException e) {
+        // 処理なし
+      }
+    }
+  }
+}
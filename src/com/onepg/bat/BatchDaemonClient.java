@@ -0,0 +1,117 @@
+package com.onepg.bat;
+
+import com.onepg.util.PropertiesUtil;
+import com.onepg.util.PropertiesUtil.FwPropertiesName;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * 常駐バッチ実行デーモン クライアントクラス.<br>
+ * <ul>
+ * <li>常駐バッチ実行デーモン（<code>BatchDaemon</code>）にジョブの実行を要求し、ジョブのログを標準出力に出力して、ジョブの終了ステータスで終了します。</li>
+ * <li>第1引数にジョブID、第2引数にバッチクラス名、第3引数以降にバッチ処理への引数を指定します。（<code>sub/java-exec.sh</code> と同じ並び）</li>
+ * <li>第1引数が -status の場合はデーモンの状態を、-stop の場合はデーモンに停止を要求します。</li>
+ * <li>受付ソケットファイルパスは bat.properties の daemon.socket.path から取得します。</li>
+ * <li>デーモンに接続できない場合、途中で切断された場合は終了ステータス 1 で終了します。</li>
+ * <li>本クラスを強制終了してもデーモン側のジョブは中止されません。</li>
+ * </ul>
+ * <pre>
+ * ［実行例］<code>java com.onepg.bat.BatchDaemonClient JOB-EXAMPLE-EXP com.example.app.bat.exmodule.ExampleExport "output=/tmp/example_export.txt"</code>
+ * </pre>
+ */
+public final class BatchDaemonClient {
+
+  /** 引数 - 状態表示. */
+  private static final String OPT_STATUS = "-status";
+  /** 引数 - 停止. */
+  private static final String OPT_STOP = "-stop";
+
+  /**
+   * コンストラクタ.
+   */
+  private BatchDaemonClient() {
+    // 処理なし
+  }
+
+  /**
+   * メイン処理.
+   *
+   * @param args 引数
+   */
+  public static void main(final String[] args) {
+    // フレームワーク部品の読込で System.out が無効化されるため先に保持する
+    final PrintStream out = System.out;
+    System.exit(request(args, out));
+  }
+
+  /**
+   * 要求.
+   *
+   * @param args 引数
+   * @param out 出力先
+   * @return 終了ステータス
+   */
+  private static int request(final String[] args, final PrintStream out) {
+    if (args.length == 0) {
+      System.err.println("Usage: BatchDaemonClient <jobId> <class> [args...] | -status | -stop");
+      return 1;
+    }
+    final String req;
+    if (OPT_STATUS.equals(args[0])) {
+      req = BatchDaemon.CMD_STATUS;
+    } else if (OPT_STOP.equals(args[0])) {
+      req = BatchDaemon.CMD_STOP;
+    } else if (args.length < 2) {
+      System.err.println("Second argument (Java class) is required. ");
+      return 1;
+    } else {
+      final StringBuilder sb = new StringBuilder(BatchDaemon.CMD_RUN);
+      for (final String arg : args) {
+        if (arg.contains(BatchDaemon.SEP) || arg.contains("\n") || arg.contains("\r")) {
+          System.err.println("Argument must not contain tab or line break. arg=\"" + arg + "\"");
+          return 1;
+        }
+        sb.append(BatchDaemon.SEP).append(arg);
+      }
+      req = sb.toString();
+    }
+
+    final Path socketPath = BatchDaemon.getSocketPath(PropertiesUtil.getFrameworkProps(FwPropertiesName.BAT));
+    try (final SocketChannel sc = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+        final BufferedReader br = new BufferedReader(new InputStreamReader(Channels.newInputStream(sc), StandardCharsets.UTF_8))) {
+      final Writer writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(sc), StandardCharsets.UTF_8));
+      writer.write(req + "\n");
+      writer.flush();
+
+      String line;
+      while ((line = br.readLine()) != null) {
+        final int pos = line.indexOf(BatchDaemon.SEP);
+        final String type = (pos < 0) ? line : line.substring(0, pos);
+        final String body = (pos < 0) ? "" : line.substring(pos + 1);
+        if (BatchDaemon.RES_LOG.equals(type)) {
+          out.println(body);
+        } else if (BatchDaemon.RES_EXIT.equals(type)) {
+          out.flush();
+          return Integer.parseInt(body);
+        }
+      }
+      out.flush();
+      System.err.println("Connection to batch daemon was closed before the job ended. socket=\"" + socketPath + "\"");
+      return 1;
+    } catch (final IOException e) {
+      System.err.println("Failed to communicate with batch daemon. socket=\"" + socketPath + "\" error=\"" + e + "\"");
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.onepg.bat;
+
+import com.onepg.util.AbstractIoTypeMap;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.IoTsvReader;
+import com.onepg.util.IoTsvWriter;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+/**
+ * ファイル取込チェックポイントクラス.<br>
+ * <ul>
+ * <li>ファイルを読み込んで DB登録するバッチ処理で、中間コミットした位置（チェックポイント）をファイルに保存し、異常終了後の再実行で続きから取り込むために使用します。</li>
+ * <li>チェックポイントは入力ファイルパス・コミット済の最終行の始端と終端のバイト位置・件数・最終行のハッシュ値です。</li>
+ * <li>保存は一時ファイルに出力してから置き換えるため、途中で異常終了しても前回の内容が残ります。</li>
+ * <li>再開時は最終行の始端へ移動してその行を読み込み、ハッシュ値が一致することを確認してから続きを読み込みます。（入力ファイルが差し替えられた場合はエラー）</li>
+ * <li>DBのコミット後にチェックポイントを保存するため、その間に異常終了した場合は最大で中間コミット１回分の行が登録済となります。（再開時はその範囲の行を登録済確認してスキップするか、登録処理を更新または追加にする）</li>
+ * </ul>
+ * <pre>［例］
+ * <code>final ImportCheckpoint ckpt = new ImportCheckpoint(ImportCheckpoint.getDefaultPath(inputPath), inputPath);
+ * try (final CsvReader cr = new CsvReader(inputPath, CharSet.UTF8, CsvType.DQ_ALL_LF)) {
+ *   final boolean resumed = (resume &amp;&amp; ckpt.load());
+ *   if (resumed) {
+ *     cr.seek(ckpt.getRowOffset());
+ *   }
+ *   final Iterator&lt;IoItems&gt; ite = cr.iterator();
+ *   long count = (resumed ? ckpt.verifyRow(cr.getKeys(), ite) : 0);
+ *   while (ite.hasNext()) {
+ *     final long rowOffset = cr.getReadedBytes();
+ *     final IoItems row = ite.next();
+ *     ：登録処理
+ *     if (++count % 5000 == 0) {
+ *       conn.commit();
+ *       ckpt.save(rowOffset, cr.getReadedBytes(), count, ImportCheckpoint.hashRow(cr.getKeys(), row));
+ *     }
+ *   }
+ *   conn.commit();
+ *   ckpt.delete();
+ * }</code>
+ * </pre>
+ */
+public final class ImportCheckpoint {
+
+  /** チェックポイント項目名配列. */
+  private static final String[] CHECKPOINT_KEYS = {"file", "row_offset", "offset", "count", "row_hash", "upd_ts"};
+  /** チェックポイントファイル拡張子. */
+  private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+  /** チェックポイントファイルパス. */
+  private final String checkpointPath;
+  /** 入力ファイルパス. */
+  private final String inputPath;
+
+  /** 最終行始端バイト位置. */
+  private long rowOffset = 0;
+  /** 最終行終端バイト位置. */
+  private long offset = 0;
+  /** 件数. */
+  private long count = 0;
+  /** 最終行ハッシュ値. */
+  private String rowHash = null;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param checkpointPath チェックポイントファイルパス
+   * @param inputPath 入力ファイルパス
+   */
+  public ImportCheckpoint(final String checkpointPath, final String inputPath) {
+    this.checkpointPath = FileUtil.convAbsolutePath(checkpointPath);
+    this.inputPath = FileUtil.convAbsolutePath(inputPath);
+  }
+
+  /**
+   * デフォルトのチェックポイントファイルパス取得.<br>
+   * <ul>
+   * <li>入力ファイルパスに拡張子 ckpt を付けたパスを返す。（［例］user.csv → user.csv.ckpt）</li>
+   * </ul>
+   *
+   * @param inputPath 入力ファイルパス
+   * @return チェックポイントファイルパス
+   */
+  public static String getDefaultPath(final String inputPath) {
+    return inputPath + CHECKPOINT_SUFFIX;
+  }
+
+  /**
+   * チェックポイント読込.<br>
+   * <ul>
+   * <li>チェックポイントファイルが無い場合は <code>false</code> を返す。</li>
+   * <li>保存時と入力ファイルパスが異なる場合はエラーとする。</li>
+   * </ul>
+   *
+   * @return チェックポイントを読み込んだ場合は <code>true</code>
+   */
+  public boolean load() {
+    if (!FileUtil.exists(this.checkpointPath)) {
+      return false;
+    }
+    IoItems row = null;
+    try (final IoTsvReader tr = new IoTsvReader(this.checkpointPath)) {
+      for (final IoItems r : tr) {
+        row = r;
+      }
+    }
+    if (ValUtil.isNull(row)) {
+      throw new RuntimeException("Checkpoint file is empty. " + LogUtil.joinKeyVal("path", this.checkpointPath));
+    }
+    if (!this.inputPath.equals(row.getString("file"))) {
+      throw new RuntimeException("Checkpoint was saved for a different input file. " + LogUtil.joinKeyVal("path",
+          this.checkpointPath, "input", this.inputPath, "checkpointInput", row.getString("file")));
+    }
+    this.rowOffset = row.getLong("row_offset");
+    this.offset = row.getLong("offset");
+    this.count = row.getLong("count");
+    this.rowHash = row.getString("row_hash");
+    return true;
+  }
+
+  /**
+   * 最終行照合.<br>
+   * <ul>
+   * <li>最終行始端へ移動済のイテレーターから１行読み込み、チェックポイントの最終行ハッシュ値と照合する。</li>
+   * <li>一致しない場合・行が無い場合はエラーとする。一致した場合のイテレーターは最終行の次の行から読み込める。</li>
+   * </ul>
+   *
+   * @param keys キー配列
+   * @param ite イテレーター（最終行始端へ移動済）
+   * @return コミット済件数
+   */
+  public long verifyRow(final String[] keys, final Iterator<? extends AbstractIoTypeMap> ite) {
+    if (!ite.hasNext() || !this.rowHash.equals(hashRow(keys, ite.next()))) {
+      throw new RuntimeException("Checkpoint does not match the input file. "
+          + LogUtil.joinKeyVal("path", this.checkpointPath, "input", this.inputPath, "rowOffset", this.rowOffset));
+    }
+    return this.count;
+  }
+
+  /**
+   * チェックポイント保存.<br>
+   * <ul>
+   * <li>DBのコミット直後に呼び出す。</li>
+   * <li>一時ファイルに出力してからチェックポイントファイルへ置き換える。</li>
+   * </ul>
+   *
+   * @param rowOffset コミット済の最終行の始端バイト位置
+   * @param offset コミット済の最終行の終端バイト位置
+   * @param count コミット済件数
+   * @param rowHash コミット済の最終行のハッシュ値（<code>#hashRow(String[], AbstractIoTypeMap)</code>）
+   */
+  public void save(final long rowOffset, final long offset, final long count, final String rowHash) {
+    final IoItems row = new IoItems();
+    row.put("file", this.inputPath);
+    row.put("row_offset", rowOffset);
+    row.put("offset", offset);
+    row.put("count", count);
+    row.put("row_hash", rowHash);
+    row.put("upd_ts", LocalDateTime.now());
+
+    final String tmpPath = this.checkpointPath + ".tmp";
+    try {
+      FileUtil.delete(tmpPath);
+      try (final IoTsvWriter tw = new IoTsvWriter(tmpPath)) {
+        tw.println(CHECKPOINT_KEYS);
+        tw.println(row);
+      }
+      Files.move(Paths.get(tmpPath), Paths.get(this.checkpointPath), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final Exception e) {
+      throw new RuntimeException("Exception error occurred while saving checkpoint. "
+          + LogUtil.joinKeyVal("path", this.checkpointPath, "count", count), e);
+    }
+    this.rowOffset = rowOffset;
+    this.offset = offset;
+    this.count = count;
+    this.rowHash = rowHash;
+  }
+
+  /**
+   * チェックポイント削除.<br>
+   * <ul>
+   * <li>全件の取込完了後（最終コミット後）、または最初から取り込み直す場合に呼び出す。</li>
+   * </ul>
+   */
+  public void delete() {
+    if (FileUtil.exists(this.checkpointPath)) {
+      FileUtil.delete(this.checkpointPath);
+    }
+  }
+
+  /**
+   * 行ハッシュ値作成.<br>
+   * <ul>
+   * <li>キー配列順の値を連結した文字列の SHA-256 ハッシュ値（16進数文字列）を返す。（ブランクキーは読み飛ばし列のため除く）</li>
+   * <li>値が <code>null</code> の場合とブランクの場合は異なるハッシュ値になる。</li>
+   * </ul>
+   *
+   * @param keys キー配列
+   * @param row 行
+   * @return ハッシュ値
+   */
+  public static String hashRow(final String[] keys, final AbstractIoTypeMap row) {
+    final StringBuilder sb = new StringBuilder();
+    for (final String key : keys) {
+      if (ValUtil.isBlank(key)) {
+        // 読み飛ばし列
+        continue;
+      }
+      final String val = row.getStringNullable(key);
+      if (ValUtil.isNull(val)) {
+        sb.append('\u0000');
+      } else {
+        sb.append(val);
+      }
+      sb.append('\t');
+    }
+    try {
+      final MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-256 is not available. ", e);
+    }
+  }
+
+  /**
+   * 最終行始端バイト位置取得.
+   *
+   * @return 最終行始端バイト位置
+   */
+  public long getRowOffset() {
+    return this.rowOffset;
+  }
+
+  /**
+   * 最終行終端バイト位置取得.
+   *
+   * @return 最終行終端バイト位置（再開位置）
+   */
+  public long getOffset() {
+    return this.offset;
+  }
+
+  /**
+   * コミット済件数取得.
+   *
+   * @return コミット済件数
+   */
+  public long getCount() {
+    return this.count;
+  }
+}
@@ -0,0 +1,328 @@
+package com.onepg.db;
+
+import com.onepg.db.DbUtil.DbmsName;
+import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * DB一括反映ユーティリティクラス.<br>
+ * <ul>
+ * <li>ステージングテーブル（反映先テーブルと同じ列構成の一時的なテーブル）を使った一括反映を行います。</li>
+ * <li>行ごとの登録で発生する索引更新・ロック競合を、集合演算の SQL１文の反映に置き換えるために使用します。</li>
+ * <li>DBMSによって SQL が異なるため、DBMS名にあわせた SQL を作成します。（その他のDBMSは未対応として例外エラーとします）</li>
+ * </ul>
+ */
+public final class DbBulkUtil {
+
+  /**
+   * 反映方法.
+   */
+  public enum ApplyMode {
+    /** 追加（<code>INSERT ... SELECT</code>）. */
+    INSERT,
+    /** 主キーで更新または追加（<code>MERGE</code>・<code>INSERT ... ON CONFLICT</code>）. */
+    MERGE,
+    /** 全件置換（全件削除後に <code>INSERT ... SELECT</code>）. */
+    REPLACE;
+
+    /**
+     * 反映方法取得.
+     *
+     * @param value 反映方法文字列（英字の大文字小文字を区別しない）
+     * @return 反映方法
+     */
+    public static ApplyMode byValue(final String value) {
+      for (final ApplyMode mode : values()) {
+        if (mode.name().equalsIgnoreCase(ValUtil.nvl(value).trim())) {
+          return mode;
+        }
+      }
+      throw new RuntimeException("Apply mode is invalid. " + LogUtil.joinKeyVal("value", value));
+    }
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private DbBulkUtil() {
+    // 処理なし
+  }
+
+  /**
+   * ステージングテーブル作成.<br>
+   * <ul>
+   * <li>反映先テーブルの列構成を JDBCメタ情報から取得し、同じ列・型のステージングテーブルを作成します。</li>
+   * <li>索引・制約は作成しません。（登録時の索引更新を発生させないため）</li>
+   * <li>SQLite は <code>CREATE TABLE ... AS SELECT</code> で宣言型が引き継がれないため、メタ情報の型名で列を定義します。</li>
+   * <li>DDL をコミットしないDBMSがあるため、呼び出し元でコミットしてください。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName 反映先テーブル名
+   * @param stagingName ステージングテーブル名
+   */
+  public static void createStagingTable(final Connection conn, final String tableName, final String stagingName) {
+    final DbmsName dbmsName = DbUtil.getDbmsName(conn);
+    final Map<String, String> colTypes = getColumnTypeNames(conn, tableName);
+    if (colTypes.isEmpty()) {
+      throw new RuntimeException("Specified table does not exist. " + LogUtil.joinKeyVal("table", tableName));
+    }
+    final String cols = String.join(",", colTypes.keySet());
+
+    final SqlBuilder sb = new SqlBuilder();
+    if (DbmsName.POSTGRESQL == dbmsName || DbmsName.ORACLE == dbmsName) {
+      sb.addQuery("CREATE TABLE ").addQuery(stagingName);
+      sb.addQuery(" AS SELECT ").addQuery(cols).addQuery(" FROM ").addQuery(tableName).addQuery(" WHERE 1 = 0 ");
+    } else if (DbmsName.DB2 == dbmsName) {
+      sb.addQuery("CREATE TABLE ").addQuery(stagingName);
+      sb.addQuery(" AS ( SELECT ").addQuery(cols).addQuery(" FROM ").addQuery(tableName).addQuery(" ) WITH NO DATA ");
+    } else if (DbmsName.MSSQL == dbmsName) {
+      sb.addQuery("SELECT ").addQuery(cols).addQuery(" INTO ").addQuery(stagingName);
+      sb.addQuery(" FROM ").addQuery(tableName).addQuery(" WHERE 1 = 0 ");
+    } else if (DbmsName.SQLITE == dbmsName) {
+      sb.addQuery("CREATE TABLE ").addQuery(stagingName).addQuery(" ( ");
+      for (final Map.Entry<String, String> ent : colTypes.entrySet()) {
+        sb.addQuery(ent.getKey() + " " + ent.getValue()).addQuery(",");
+      }
+      sb.delLastChar();
+      sb.addQuery(" ) ");
+    } else {
+      throw new RuntimeException("Staging table is not supported for this DBMS. " + LogUtil.joinKeyVal("dbmsName", dbmsName));
+    }
+    SqlUtil.execute(conn, sb);
+  }
+
+  /**
+   * テーブル削除.<br>
+   * <ul>
+   * <li>DDL をコミットしないDBMSがあるため、呼び出し元でコミットしてください。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   */
+  public static void dropTable(final Connection conn, final String tableName) {
+    SqlUtil.execute(conn, new SqlBuilder().addQuery("DROP TABLE ").addQuery(tableName));
+  }
+
+  /**
+   * ステージングテーブルから一括反映.<br>
+   * <ul>
+   * <li>ステージングテーブルの全行を、反映方法にあわせた SQL１文（全件置換は削除と登録の２文）で反映先テーブルに反映します。</li>
+   * <li>対象列は反映先テーブルの JDBCメタ情報の全列です。</li>
+   * <li>更新または追加は主キーが必要です。ステージングテーブル内に同じ主キーの行がある場合は DBMSのエラーとなります。
+   *   <ul>
+   *   <li>PostgreSQL・SQLite：<code>INSERT ... SELECT ... ON CONFLICT (主キー) DO UPDATE</code></li>
+   *   <li>Oracle・MS-SqlServer・DB2：<code>MERGE INTO ... USING</code></li>
+   *   </ul></li>
+   * <li>コミットは呼び出し元で行ってください。（全件置換は削除と登録が同じトランザクションになり、コミットまで他の接続からは反映前の内容が見えます）</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param stagingName ステージングテーブル名
+   * @param tableName 反映先テーブル名
+   * @param mode 反映方法
+   * @return 反映件数（DBMSが返す件数）
+   */
+  public static int applyStaging(final Connection conn, final String stagingName, final String tableName,
+      final ApplyMode mode) {
+    final String[] cols = getColumnTypeNames(conn, tableName).keySet().toArray(new String[0]);
+    if (ValUtil.isEmpty(cols)) {
+      throw new RuntimeException("Specified table does not exist. " + LogUtil.joinKeyVal("table", tableName));
+    }
+    if (ApplyMode.MERGE == mode) {
+      return SqlUtil.execute(conn, createMergeSql(conn, stagingName, tableName, cols));
+    }
+    if (ApplyMode.REPLACE == mode) {
+      SqlUtil.execute(conn, new SqlBuilder().addQuery("DELETE FROM ").addQuery(tableName));
+    }
+    final String colsStr = String.join(",", cols);
+    final SqlBuilder sb = new SqlBuilder();
+    sb.addQuery("INSERT INTO ").addQuery(tableName).addQuery(" ( ").addQuery(colsStr).addQuery(" ) ");
+    sb.addQuery("SELECT ").addQuery(colsStr).addQuery(" FROM ").addQuery(stagingName);
+    return SqlUtil.execute(conn, sb);
+  }
+
+  /**
+   * 更新または追加SQL作成.
+   *
+   * @param conn DB接続
+   * @param stagingName ステージングテーブル名
+   * @param tableName 反映先テーブル名
+   * @param cols 列名配列
+   * @return 更新または追加SQL
+   */
+  private static SqlBuilder createMergeSql(final Connection conn, final String stagingName, final String tableName,
+      final String[] cols) {
+    final DbmsName dbmsName = DbUtil.getDbmsName(conn);
+    final String[] pkeys = DbUtil.getPrimaryKeys(conn, tableName);
+    if (ValUtil.isEmpty(pkeys)) {
+      throw new RuntimeException("Primary key is required for merge. " + LogUtil.joinKeyVal("table", tableName));
+    }
+    final List<String> pkList = Arrays.asList(pkeys);
+    final List<String> updCols = new ArrayList<>();
+    for (final String col : cols) {
+      if (!pkList.contains(col)) {
+        updCols.add(col);
+      }
+    }
+    final String colsStr = String.join(",", cols);
+
+    final SqlBuilder sb = new SqlBuilder();
+    if (DbmsName.POSTGRESQL == dbmsName || DbmsName.SQLITE == dbmsName) {
+      // SQLite は SELECT と ON CONFLICT の構文解析があいまいになるため WHERE句が必要
+      sb.addQuery("INSERT INTO ").addQuery(tableName).addQuery(" ( ").addQuery(colsStr).addQuery(" ) ");
+      sb.addQuery("SELECT ").addQuery(colsStr).addQuery(" FROM ").addQuery(stagingName).addQuery(" WHERE 1 = 1 ");
+      sb.addQuery("ON CONFLICT ( ").addQuery(String.join(",", pkeys)).addQuery(" ) ");
+      if (updCols.isEmpty()) {
+        sb.addQuery("DO NOTHING ");
+      } else {
+        sb.addQuery("DO UPDATE SET ");
+        for (final String col : updCols) {
+          sb.addQuery(col).addQuery(" = EXCLUDED.").addQuery(col).addQuery(",");
+        }
+        sb.delLastChar();
+      }
+      return sb;
+    }
+    if (DbmsName.ORACLE != dbmsName && DbmsName.MSSQL != dbmsName && DbmsName.DB2 != dbmsName) {
+      throw new RuntimeException("Merge is not supported for this DBMS. " + LogUtil.joinKeyVal("dbmsName", dbmsName));
+    }
+
+    sb.addQuery("MERGE INTO ").addQuery(tableName).addQuery(" d USING ").addQuery(stagingName).addQuery(" s ON ( ");
+    for (final String pkey : pkeys) {
+      sb.addQuery("d.").addQuery(pkey).addQuery(" = s.").addQuery(pkey).addQuery(" AND ");
+    }
+    sb.delLastChar(4);
+    sb.addQuery(" ) ");
+    if (!updCols.isEmpty()) {
+      // 更新先の列名は別名で修飾しない（DB2 は修飾できない）
+      sb.addQuery("WHEN MATCHED THEN UPDATE SET ");
+      for (final String col : updCols) {
+        sb.addQuery(col).addQuery(" = s.").addQuery(col).addQuery(",");
+      }
+      sb.delLastChar();
+    }
+    sb.addQuery(" WHEN NOT MATCHED THEN INSERT ( ").addQuery(colsStr).addQuery(" ) VALUES ( ");
+    for (final String col : cols) {
+      sb.addQuery("s.").addQuery(col).addQuery(",");
+    }
+    sb.delLastChar();
+    sb.addQuery(" ) ");
+    if (DbmsName.MSSQL == dbmsName) {
+      // MS-SqlServer の MERGE文はセミコロンでの終端が必須
+      sb.addQuery(";");
+    }
+    return sb;
+  }
+
+  /**
+   * 副索引削除.<br>
+   * <ul>
+   * <li>JDBCメタ情報から一意でない索引を取得して削除し、再作成用の <code>CREATE INDEX</code>文を返します。</li>
+   * <li>主キー・一意索引は削除しません。（削除中に重複データが反映されるのを防ぐため）</li>
+   * <li>式索引・部分索引など、メタ情報の列名だけでは再作成できない索引は削除しません。</li>
+   * <li>DDL をコミットしないDBMSがあるため、呼び出し元でコミットしてください。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @return 再作成用の <code>CREATE INDEX</code>文リスト（削除した索引が無い場合は空）
+   */
+  public static List<String> dropSecondaryIndexes(final Connection conn, final String tableName) {
+    final DbmsName dbmsName = DbUtil.getDbmsName(conn);
+    final Set<String> tableCols = getColumnTypeNames(conn, tableName).keySet();
+    final String tableCondition = DbUtil.convTableNameByDbms(conn, tableName);
+
+    // 索引名・列定義（ORDINAL_POSITION 順）マップ
+    final Map<String, Map<Integer, String>> idxColsMap = new LinkedHashMap<>();
+    // 再作成できない索引名
+    final List<String> keepIdxNames = new ArrayList<>();
+    try (final ResultSet rset = conn.getMetaData().getIndexInfo(null, null, tableCondition, false, false)) {
+      while (rset.next()) {
+        final String idxName = rset.getString("INDEX_NAME");
+        if (ValUtil.isBlank(idxName) || rset.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) {
+          continue;
+        }
+        final String colName = rset.getString("COLUMN_NAME");
+        if (!rset.getBoolean("NON_UNIQUE") || ValUtil.isNull(colName)
+            || !tableCols.contains(colName.toLowerCase()) || !ValUtil.isBlank(rset.getString("FILTER_CONDITION"))) {
+          keepIdxNames.add(idxName);
+          continue;
+        }
+        final String colDef;
+        if ("D".equals(rset.getString("ASC_OR_DESC"))) {
+          colDef = colName.toLowerCase() + " DESC";
+        } else {
+          colDef = colName.toLowerCase();
+        }
+        idxColsMap.computeIfAbsent(idxName, k -> new TreeMap<>()).put(rset.getInt("ORDINAL_POSITION"), colDef);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Exception error occurred during index retrieval. " + LogUtil.joinKeyVal("tableName", tableName), e);
+    }
+
+    final List<String> createDdls = new ArrayList<>();
+    for (final Map.Entry<String, Map<Integer, String>> ent : idxColsMap.entrySet()) {
+      final String idxName = ent.getKey();
+      if (keepIdxNames.contains(idxName)) {
+        continue;
+      }
+      final SqlBuilder sb = new SqlBuilder().addQuery("DROP INDEX ").addQuery(idxName);
+      if (DbmsName.MSSQL == dbmsName) {
+        sb.addQuery(" ON ").addQuery(tableName);
+      }
+      SqlUtil.execute(conn, sb);
+      createDdls.add("CREATE INDEX " + idxName + " ON " + tableName + " ( " + String.join(",", ent.getValue().values()) + " )");
+    }
+    return createDdls;
+  }
+
+  /**
+   * 索引作成.<br>
+   * <ul>
+   * <li><code>dropSecondaryIndexes</code> が返した <code>CREATE INDEX</code>文を実行します。</li>
+   * <li>DDL をコミットしないDBMSがあるため、呼び出し元でコミットしてください。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param createDdls <code>CREATE INDEX</code>文リスト
+   */
+  public static void createIndexes(final Connection conn, final List<String> createDdls) {
+    for (final String ddl : createDdls) {
+      SqlUtil.execute(conn, new SqlBuilder().addQuery(ddl));
+    }
+  }
+
+  /**
+   * 列名・型名マップ取得.
+   *
+   * @param conn DB接続
+   * @param tableName テーブル名
+   * @return 列名（小文字）・型名マップ（列順）
+   */
+  private static Map<String, String> getColumnTypeNames(final Connection conn, final String tableName) {
+    final String tableCondition = DbUtil.convTableNameByDbms(conn, tableName);
+    final Map<String, String> colTypes = new LinkedHashMap<>();
+    try (final ResultSet rset = conn.getMetaData().getColumns(null, null, tableCondition, null)) {
+      while (rset.next()) {
+        colTypes.put(rset.getString("COLUMN_NAME").toLowerCase(), ValUtil.nvl(rset.getString("TYPE_NAME")));
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Exception error occurred during metadata acquisition. " + LogUtil.joinKeyVal("tableName", tableName), e);
+    }
+    return colTypes;
+  }
+}
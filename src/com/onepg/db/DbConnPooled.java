@@ -79,6 +79,8 @@ public final class DbConnPooled extends DbConn {
     } finally {
       // 使用中接続リストから削除
       this.connBusyList.remove(super.serialCode);
+      // 空き待ちの取得処理に通知
+      DbUtil.notifyPooledConnReleased();
       if (super.logger.isDevelopMode()) {
         super.logger.develop("Released busy database connection. " + LogUtil.joinKeyVal("busyConnSize", this.connBusyList.size()));
       }
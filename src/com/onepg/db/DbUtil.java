@@ -20,6 +20,7 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * DBユーティリティクラス.
@@ -80,6 +81,8 @@ public final class DbUtil {
   private static final String PPKEY_SUFFIX_PASS = ".conn.pass";
   /** DB接続設定 - 最大接続数（プール数） 接尾語. */
   private static final String PPKEY_SUFFIX_MAX = ".conn.max";
+  /** DB接続設定 - 最小接続数（事前接続数） 接尾語. */
+  private static final String PPKEY_SUFFIX_MIN = ".conn.min";
 
   /** DB設定. */
   private static final IoItems PROP_MAP;
@@ -112,6 +115,11 @@ public final class DbUtil {
    */
   private static final Map<String, ConcurrentLinkedQueue<String>> connBusyLists_ = new HashMap<>();
 
+  /** 接続解放通知ロック（空き待ちの DB接続プーリング取得で使用）. */
+  private static final Object POOL_RELEASE_LOCK = new Object();
+  /** 空き待ちの最大待機間隔（ミリ秒）. ※解放通知の無い接続破棄にも対応するため */
+  private static final long POOL_WAIT_INTERVAL_MSEC = 100;
+
   /**
    * コンストラクタ.
    */
@@ -230,6 +238,67 @@ public final class DbUtil {
    * @return DB接続
    */
   public static synchronized Connection getConnPooledByConfigName(final String connName, final String traceCode) {
+    final Connection conn = tryGetConnPooled(connName, traceCode);
+    if (ValUtil.isNull(conn)) {
+      throw new RuntimeException("Database connection limit reached. "
+          + LogUtil.joinKeyVal("maxSize", PROP_MAP.getInt(connName + PPKEY_SUFFIX_MAX)));
+    }
+    return conn;
+  }
+
+  /**
+   * デフォルト DB接続プーリング取得（空き待ち）.<br>
+   * <ul>
+   * <li>プーリングされているDB接続を取得する。</li>
+   * <li>try 句（try-with-resources文）で宣言する。</li>
+   * <li>最大接続数に達している場合は、他の接続が解放されるまで待機時間上限まで待つ。（超えた場合はエラー）</li>
+   * </ul>
+   *
+   * @param traceCode トレースコード
+   * @param timeoutMsec 待機時間上限（ミリ秒）
+   * @return DB接続
+   * @throws InterruptedException 割り込みエラー
+   */
+  public static Connection getConnPooledWait(final String traceCode, final long timeoutMsec)
+      throws InterruptedException {
+    final long limitNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMsec);
+    synchronized (POOL_RELEASE_LOCK) {
+      while (true) {
+        final Connection conn = tryGetConnPooled(DEFAULT_CONN_NAME, traceCode);
+        if (!ValUtil.isNull(conn)) {
+          return conn;
+        }
+        final long waitMsec = TimeUnit.NANOSECONDS.toMillis(limitNanos - System.nanoTime());
+        if (waitMsec <= 0) {
+          throw new RuntimeException("Database connection limit reached and no connection was released in time. "
+              + LogUtil.joinKeyVal("maxSize", PROP_MAP.getInt(DEFAULT_CONN_NAME + PPKEY_SUFFIX_MAX),
+                  "timeoutMsec", timeoutMsec));
+        }
+        POOL_RELEASE_LOCK.wait(Math.min(waitMsec, POOL_WAIT_INTERVAL_MSEC));
+      }
+    }
+  }
+
+  /**
+   * 接続解放通知.<br>
+   * <ul>
+   * <li>プーリングDB接続が使用中でなくなったことを空き待ちの取得処理に通知する。</li>
+   * </ul>
+   */
+  static void notifyPooledConnReleased() {
+    synchronized (POOL_RELEASE_LOCK) {
+      POOL_RELEASE_LOCK.notifyAll();
+    }
+  }
+
+  /**
+   * DB接続プーリング取得（最大接続数到達時は <code>null</code>）.
+   *
+   * @param connName  設定ファイル上のDB接続名（.dbcon.url より前の部分）
+   * @param traceCode トレースコード
+   * @return DB接続（最大接続数に達している場合は <code>null</code>）
+   */
+  private static synchronized Connection tryGetConnPooled(final String connName, final String traceCode) {
 
     // DB接続名の管理データがなければ作成する
     if (!connPoolMaps_.containsKey(connName)) {
@@ -272,7 +341,7 @@ public final class DbUtil {
     final int maxSize = PROP_MAP.getInt(connName + PPKEY_SUFFIX_MAX);
 
     if (connPoolMap.size() >= maxSize) {
-      throw new RuntimeException("Database connection limit reached. " + LogUtil.joinKeyVal("maxSize", maxSize));
+      return null;
     }
 
     // 接続シリアルコードを発番
@@ -309,6 +378,39 @@ public final class DbUtil {
     return dbConn;
   }
 
+  /**
+   * DB接続プール事前接続.<br>
+   * <ul>
+   * <li>DB接続名の接続プールに、最小接続数（.conn.min）まで新規接続を追加する。</li>
+   * <li>最小接続数が設定されていない場合は何もしない。最小接続数は最大接続数を上限とする。</li>
+   * <li>Webサーバー起動時のウォームアップで、初回リクエストの接続確立待ちを無くすために使用する。</li>
+   * </ul>
+   *
+   * @param connName 設定ファイル上のDB接続名（.dbcon.url より前の部分）
+   * @return 追加した接続数
+   */
+  public static synchronized int prefillPooledConn(final String connName) {
+    final int minSize = Math.min(PROP_MAP.getIntOrDefault(connName + PPKEY_SUFFIX_MIN, 0),
+        PROP_MAP.getIntOrDefault(connName + PPKEY_SUFFIX_MAX, 0));
+    if (minSize <= 0) {
+      return 0;
+    }
+    // DB接続名の管理データがなければ作成する
+    if (!connPoolMaps_.containsKey(connName)) {
+      connPoolMaps_.put(connName, new ConcurrentHashMap<String, Connection>());
+      connBusyLists_.put(connName, new ConcurrentLinkedQueue<String>());
+    }
+    // 接続プール（スレッドセーフ）
+    final ConcurrentMap<String, Connection> connPoolMap = connPoolMaps_.get(connName);
+    int count = 0;
+    while (connPoolMap.size() < minSize) {
+      // 未使用の接続として接続プールに追加
+      connPoolMap.put(createSerialCode(connName), createConnByProp(connName));
+      count++;
+    }
+    return count;
+  }
+
   /**
    * プーリングDB切断.<br>
    * <ul>
@@ -590,6 +692,39 @@ public final class DbUtil {
     }
   }
 
+  /**
+   * テーブル名一覧を取得.<br>
+   * <ul>
+   * <li>JDBCメタ情報からテーブルタイプが TABLE のテーブル名を取得します。（ビュー・システムテーブルは含みません）</li>
+   * <li>スキーマを省略した場合は DB接続の現在スキーマを対象とします。（現在スキーマを持たないDBMSは全テーブルが対象）</li>
+   * <li>テーブル名は英字小文字に変換し、名前順で返します。</li>
+   * </ul>
+   * 
+   * @param conn DB接続
+   * @param schema スキーマ名（省略可能）省略した場合は <code>null</code>
+   * @return テーブル名配列（小文字、名前順）
+   */
+  public static String[] getTableNames(final Connection conn, final String schema) {
+    final List<String> tableNames = new ArrayList<>();
+    try {
+      String schemaCondition = schema;
+      if (ValUtil.isBlank(schemaCondition)) {
+        schemaCondition = conn.getSchema();
+      } else {
+        schemaCondition = convTableNameByDbms(conn, schemaCondition);
+      }
+      try (final ResultSet rset = conn.getMetaData().getTables(null, schemaCondition, "%", new String[] {"TABLE"});) {
+        while (rset.next()) {
+          tableNames.add(rset.getString("TABLE_NAME").toLowerCase());
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Exception error occurred during table name retrieval. " + LogUtil.joinKeyVal("schema", schema), e);
+    }
+    tableNames.sort(null);
+    return tableNames.toArray(new String[0]);
+  }
+
   /**
    * 主キーの列名を取得.<br>
    * <ul>
@@ -603,11 +738,29 @@ public final class DbUtil {
    * @return 主キー項目名配列（小文字、KEY_SEQ 順）
    */
   public static String[] getPrimaryKeys(final Connection conn, final String tableName) {
+    return getPrimaryKeys(conn, null, tableName);
+  }
+
+  /**
+   * 主キーの列名を取得（スキーマ指定）.<br>
+   * <ul>
+   * <li>指定スキーマのテーブルの主キー項目名を取得します。スキーマを省略した場合はスキーマを問わず検索します。</li>
+   * <li>主キーが存在しないテーブルは空の配列を返します。</li>
+   * <li>項目物理名は英字小文字に変換します。（<code>AbstractIoTypeMap</code> のキールール）</li>
+   * </ul>
+   * 
+   * @param conn DB接続
+   * @param schema スキーマ名（省略可能）省略した場合は <code>null</code>
+   * @param tableName テーブル名
+   * @return 主キー項目名配列（小文字、KEY_SEQ 順）
+   */
+  public static String[] getPrimaryKeys(final Connection conn, final String schema, final String tableName) {
     final String tableCondition = convTableNameByDbms(conn, tableName);
+    final String schemaCondition = ValUtil.isBlank(schema) ? null : convTableNameByDbms(conn, schema);
     // KEY_SEQ 順で並べる
     final Map<Integer, String> pkMap = new TreeMap<>();
     // メタ情報から主キー情報を取得
-    try (final ResultSet rset = conn.getMetaData().getPrimaryKeys(null, null, tableCondition);) {
+    try (final ResultSet rset = conn.getMetaData().getPrimaryKeys(null, schemaCondition, tableCondition);) {
       while (rset.next()) {
         // 列名を小文字に変換して追加
         pkMap.put(rset.getInt("KEY_SEQ"), rset.getString("COLUMN_NAME").toLowerCase());
@@ -14,6 +14,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -1164,6 +1165,83 @@ public final class SqlUtil {
     return ret;
   }
 
+  /**
+   * SQL 一括登録・更新・削除（プリペアードステートメントキャッシュ）.<br>
+   * <ul>
+   * <li>同じ SQL-ID の SQL Bean リストを JDBCバッチ（<code>addBatch</code>・<code>executeBatch</code>）で１回の往復にまとめて実行する。</li>
+   * <li>行ごとに <code>executeCache</code> を呼び出すより DB との往復回数が減るため、大量登録で性能改善が見込める。</li>
+   * <li>キャッシュ済みのプリペアードステートメントを使用して実行する。</li>
+   * <li>キャッシュを使用するためには、DbConn（DB接続ラッパー）インスタンスと SQL-ID を持つ SqlConst（固定SQL）インスタンスが必要です。</li>
+   * <li>反映件数が不明（<code>Statement.SUCCESS_NO_INFO</code>）の SQL は１件として数える。</li>
+   * </ul>
+   *
+   * @param conn DB接続
+   * @param sbs SQL Bean リスト（全て同じ SQL-ID）
+   * @return 反映件数の合計
+   */
+  public static int executeBatchCache(final Connection conn, final List<SqlBean> sbs) {
+    if (ValUtil.isEmpty(sbs)) {
+      return 0;
+    }
+    try {
+      return executeSqlBatchCache(conn, sbs);
+    } catch (SQLException e) {
+      throw new RuntimeException("Exception error occurred during batch SQL execution. "
+          + LogUtil.joinKeyVal("sql", sbs.get(0), "size", sbs.size()), e);
+    }
+  }
+
+  /**
+   * SQL一括実行（プリペアードステートメントキャッシュ）.
+   *
+   * @param conn DB接続
+   * @param sbs SQL Bean リスト
+   * @return 反映件数の合計
+   * @throws SQLException SQL例外エラー
+   */
+  private static int executeSqlBatchCache(final Connection conn, final List<SqlBean> sbs) throws SQLException {
+    final String sqlId = sbs.get(0).getId();
+    if (ValUtil.isBlank(sqlId)) {
+      throw new RuntimeException("A SqlConst (fixed SQL) instance with a SQL-ID is required. " + LogUtil.joinKeyVal("sql", sbs.get(0)));
+    }
+    if (!(conn instanceof DbConn)) {
+      throw new RuntimeException("A cache-enabled DbConn (DB connection wrapper) instance is required. " + LogUtil.joinKeyVal("sql", sbs.get(0)));
+    }
+    final DbConn dbConn = (DbConn) conn;
+    final DbmsName dbmsName = DbUtil.getDbmsName(conn);
+    // ステートメント生成
+    final PreparedStatement stmt = dbConn.prepareStatementCache(sqlId, sbs.get(0).getQuery());
+    try {
+      for (final SqlBean sb : sbs) {
+        if (!sqlId.equals(sb.getId())) {
+          throw new RuntimeException("All SQL beans in a batch must have the same SQL-ID. "
+              + LogUtil.joinKeyVal("sqlId", sqlId, "sql", sb));
+        }
+        // ステートメントにパラメーターセット
+        setStmtParameters(stmt, sb.getBindValues(), dbmsName);
+        stmt.addBatch();
+      }
+      if (logger.isDevelopMode()) {
+        // SQLログ出力
+        logger.develop("SQL#EXECUTE batch execution. " + LogUtil.joinKeyVal("sql", sbs.get(0), "size", sbs.size()));
+      }
+      // SQL実行
+      int ret = 0;
+      for (final int cnt : stmt.executeBatch()) {
+        if (cnt == Statement.SUCCESS_NO_INFO) {
+          ret++;
+        } else if (cnt > 0) {
+          ret += cnt;
+        }
+      }
+      return ret;
+    } finally {
+      // キャッシュして再利用するためステートメントのバッチとパラメーターをクリア
+      stmt.clearBatch();
+      stmt.clearParameters();
+    }
+  }
+
   /**
    * ステートメントにパラメーターセット.
    *
@@ -107,6 +107,22 @@ public abstract class AbstractIoTypeMap implements Map<String, String> {
     putAll(srcMap);
   }
 
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>値保持マップを直接指定する。（読取専用行ビュー <code>IoRowView</code> 用）</li>
+   * <li>引数のマップはコピーされないため、キー検証は呼び出し元で行う必要がある。</li>
+   * </ul>
+   *
+   * @param valMap 値保持マップ
+   * @param allKey 全キーセット
+   */
+  AbstractIoTypeMap(final Map<String, String> valMap, final Set<String> allKey) {
+    super();
+    this.valMap = valMap;
+    this.allKey = allKey;
+  }
+
   /**
    * 値保持マップ取得.
    *
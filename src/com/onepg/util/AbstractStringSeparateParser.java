@@ -19,6 +19,23 @@ abstract class AbstractStringSeparateParser implements Iterable<String> {
   /** 始点終点リスト. */
   private List<int[]> beginEnds = null;
 
+  /**
+   * 始点終点受取処理.<br>
+   * <ul>
+   * <li>分割した１項目ごとに始点と終点を受け取る。</li>
+   * <li>始点終点リストを作らずに項目位置を走査する場合に使用する。</li>
+   * </ul>
+   */
+  @FunctionalInterface
+  interface BeginEndConsumer {
+    /**
+     * 始点終点受取.
+     *
+     * @param beginPos 始点
+     * @param endPos 終点（この位置を含まない）
+     */
+    void accept(int beginPos, int endPos);
+  }
 
   /**
    * 分割始点終点検索.<br>
@@ -94,7 +111,7 @@ abstract class AbstractStringSeparateParser implements Iterable<String> {
    * @param targetPos 判定対象位置
    * @return エスケープされていれば <code>true</code>
    */
-  protected boolean isPreEsc(final String target, final int targetPos) {
+  protected static boolean isPreEsc(final String target, final int targetPos) {
     if (targetPos <= 0 || target == null || targetPos > target.length()) {
         return false;
     }
@@ -142,12 +159,25 @@ abstract class AbstractStringSeparateParser implements Iterable<String> {
    */
   protected void trimDqPosAdd(final List<int[]> retList, final int beginPos, final int endPos,
       final String value) {
+    trimDqPos((b, e) -> retList.add(new int[] {b, e}), beginPos, endPos, value);
+  }
+
+  /**
+   * 両端がダブルクォーテーションの場合は内側を受取処理に渡す.
+   *
+   * @param consumer 始点終点受取処理
+   * @param beginPos 始点
+   * @param endPos   終点
+   * @param value    元の文字列
+   */
+  protected static void trimDqPos(final BeginEndConsumer consumer, final int beginPos, final int endPos,
+      final String value) {
     if (beginPos < value.length() && endPos > 0 && beginPos + 1 < endPos
         && value.charAt(beginPos) == '"'
         && value.charAt(endPos - 1) == '"') {
-        retList.add(new int[] {beginPos + 1, endPos - 1});
+        consumer.accept(beginPos + 1, endPos - 1);
     } else {
-        retList.add(new int[] {beginPos, endPos});
+        consumer.accept(beginPos, endPos);
     }
   }
 
@@ -40,11 +40,26 @@ final class CsvDqParser extends AbstractStringSeparateParser {
    */
   @Override
   protected List<int[]> findBeginEnds(final String value) {
-    this.unclosedDq = false;
     final List<int[]> idxs = new ArrayList<>();
+    this.unclosedDq = scanBeginEnds(value, (beginPos, endPos) -> idxs.add(new int[] {beginPos, endPos}));
+    return idxs;
+  }
+
+  /**
+   * 分割始点終点走査.<br>
+   * <ul>
+   * <li>分割した項目の始点終点を先頭から順に受取処理に渡す。</li>
+   * <li>分割ルールは <code>findBeginEnds</code> と同じ。（<code>IoRowView</code> からも使用する）</li>
+   * </ul>
+   *
+   * @param value 対象文字列
+   * @param consumer 始点終点受取処理
+   * @return ダブルクォーテーションが閉じてない場合は <code>true</code>
+   */
+  static boolean scanBeginEnds(final String value, final BeginEndConsumer consumer) {
     if (ValUtil.isBlank(value)) {
       // 空の場合
-      return idxs;
+      return false;
     }
 
     int beginPos = 0;
@@ -89,7 +104,7 @@ final class CsvDqParser extends AbstractStringSeparateParser {
       }
       if (c == ',') {
         // カンマの場合は始点終点を追加
-        trimDqPosAdd(idxs, beginPos, endPos, value);
+        trimDqPos(consumer, beginPos, endPos, value);
         // 次の始点
         beginPos = i + 1;
         endPos = beginPos;
@@ -98,13 +113,10 @@ final class CsvDqParser extends AbstractStringSeparateParser {
     }
 
     // 最後の始点終点を追加
-    trimDqPosAdd(idxs, beginPos, endPos, value);
+    trimDqPos(consumer, beginPos, endPos, value);
 
-    // ダブルクォーテーション閉じてない場合はフラグON
-    if (inDq) {
-      this.unclosedDq = true;
-    }
-    return idxs;
+    // ダブルクォーテーション閉じてない場合は true
+    return inDq;
   }
 
   /**
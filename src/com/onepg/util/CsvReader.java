@@ -4,6 +4,7 @@ import java.util.Iterator;
 
 import com.onepg.util.ValUtil.CsvType;
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 
 
 /**
@@ -21,6 +22,8 @@ import com.onepg.util.ValUtil.CharSet;
  * <li>CSVタイプがダブルクォーテーション付の場合、値内の２つ連続したダブルクォーテーション（""）は１つのダブルクォーテーション（"）に変換される。</li>
  * <li>CSVタイプが改行有りの場合、かつ値（ダブルクォーテーション間）に改行コードを含む場合、その改行コード（CRLF・CR）は LF に統一される。</li>
  * <li>CSVタイプが改行無し（改行有り以外）の場合、値（ダブルクォーテーション間）に改行コードを含むと、改行箇所が列区切りとして誤認識され列数不足のエラー状態となる。</li>
+ * <li>gzip・zip圧縮ファイルを直接読み込める。（<code>TxtReader</code> 参照）</li>
+ * <li>行ごとの <code>IoItems</code> 作成を避けたい場合は <code>#rowViews()</code> で読取専用行ビューを使い回すストリーミングモードを使用できる。</li>
  * </ul>
  * <pre>［例］
  * <code>try (final CsvReader cr = new CsvReader(filePath, ValUtil.UTF8, CsvType.DQ_ALL);) {
@@ -52,7 +55,22 @@ public final class CsvReader implements Iterable<IoItems>, AutoCloseable {
    * @param csvType CSVタイプ
    */
   public CsvReader(final String filePath, final CharSet charSet, final CsvType csvType) {
-    this.txtReader = new TxtReader(filePath, charSet);
+    this(filePath, charSet, csvType, CompressType.byFilePath(filePath));
+  }
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>ファイルの１行目をヘッダ行とし <code>IoItems</code> のキーに使用する。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param charSet  文字セット
+   * @param csvType CSVタイプ
+   * @param compressType 圧縮タイプ
+   */
+  public CsvReader(final String filePath, final CharSet charSet, final CsvType csvType, final CompressType compressType) {
+    this.txtReader = new TxtReader(filePath, charSet, compressType);
     this.csvType = csvType;
     // ファイルの1行目をキーとして取得
     final String firstLine = this.txtReader.getFirstLine();
@@ -76,7 +94,24 @@ public final class CsvReader implements Iterable<IoItems>, AutoCloseable {
    * @param csvType CSVタイプ
    */
   public CsvReader(final String filePath, final CharSet charSet, final String[] keys, final CsvType csvType) {
-    this.txtReader = new TxtReader(filePath, charSet);
+    this(filePath, charSet, keys, csvType, CompressType.byFilePath(filePath));
+  }
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>引数のキー配列を使用し、ファイルの１行目からCSVデータとして読み込む。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param charSet  文字セット
+   * @param keys キー配列
+   * @param csvType CSVタイプ
+   * @param compressType 圧縮タイプ
+   */
+  public CsvReader(final String filePath, final CharSet charSet, final String[] keys, final CsvType csvType,
+      final CompressType compressType) {
+    this.txtReader = new TxtReader(filePath, charSet, compressType);
     this.csvType = csvType;
     if (ValUtil.isEmpty(keys)) {
       throw new RuntimeException("Keys array is empty or null. " + LogUtil.joinKeyVal("path", filePath));
@@ -94,6 +129,26 @@ public final class CsvReader implements Iterable<IoItems>, AutoCloseable {
     return new CsvReadIterator();
   }
 
+  /**
+   * 行ビューイテラブル取得.<br>
+   * <ul>
+   * <li>全行で同じ読取専用行ビュー <code>IoRowView</code> を返すストリーミングモードのイテラブルを返す。</li>
+   * <li>キーの検証は最初に１回だけ行い、行ごとの <code>IoItems</code> 作成・キー検証・項目配列作成を行わない。</li>
+   * <li>値をバインドするだけの用途（［例］<code>SqlConst#bind</code>）では行ごとのオブジェクト生成がほぼ無くなる。</li>
+   * <li>次行を読み込むと行ビューの内容は置き換わるため、行を保持する場合は <code>new IoItems(view)</code> でコピーする。</li>
+   * </ul>
+   * <pre>［例］
+   * <code>for (final IoRowView row : cr.rowViews()) {
+   *   SqlUtil.executeOneCache(conn, SQL_INS.bind(row));
+   * }</code>
+   * </pre>
+   *
+   * @return CSV行ビューイテラブル
+   */
+  public Iterable<IoRowView> rowViews() {
+    return () -> new CsvRowViewIterator();
+  }
+
   /**
    * ファイルクローズ.
    */
@@ -136,6 +191,33 @@ public final class CsvReader implements Iterable<IoItems>, AutoCloseable {
     return this.txtReader.isReadedEndRow();
   }
 
+  /**
+   * 読込済バイト位置取得.<br>
+   * <ul>
+   * <li>イテレーターで読み込んだ最後の行（値内の改行で複数行にまたがる場合は最後の行）の終端のバイト位置を返す。（<code>TxtReader#getReadedBytes()</code> 参照）</li>
+   * <li>中断した読込を再開する位置として <code>#seek(long)</code> に渡せる。</li>
+   * </ul>
+   *
+   * @return 読込済バイト位置
+   */
+  public long getReadedBytes() {
+    return this.txtReader.getReadedBytes();
+  }
+
+  /**
+   * バイト位置移動.<br>
+   * <ul>
+   * <li>以前に <code>#getReadedBytes()</code> で取得したバイト位置まで読み飛ばし、次に読み込む行をその位置から始まる行にする。（<code>TxtReader#seek(long)</code> 参照）</li>
+   * <li>読込済行数はカウントアップされない。</li>
+   * <li>イテレーター作成前に呼び出す必要がある。</li>
+   * </ul>
+   *
+   * @param bytePos バイト位置
+   */
+  public void seek(final long bytePos) {
+    this.txtReader.seek(bytePos);
+  }
+
   /**
    * CSV読み込み行イテレータークラス.
    */
@@ -208,4 +290,66 @@ public final class CsvReader implements Iterable<IoItems>, AutoCloseable {
       return items;
     }
   }
+
+  /**
+   * CSV読み込み行ビューイテレータークラス.<br>
+   * <ul>
+   * <li>全行で同じ読取専用行ビューを返す。</li>
+   * </ul>
+   */
+  public final class CsvRowViewIterator implements Iterator<IoRowView> {
+
+    /** TxtReader のイテレーター */
+    private final Iterator<String> txtIterator;
+    /** 行ビュー */
+    private final IoRowView view;
+
+    /**
+     * コンストラクタ.
+     */
+    private CsvRowViewIterator() {
+      super();
+      this.txtIterator = txtReader.iterator();
+      this.view = new IoRowView(keys, csvType);
+    }
+
+    /**
+     * 次行確認.
+     *
+     * @return 次行が存在する場合は <code>true</code>
+     */
+    @Override
+    public boolean hasNext() {
+      if (ValUtil.isEmpty(keys)) {
+        // キー配列が無い場合は次行無しとする
+        return false;
+      }
+      return this.txtIterator.hasNext();
+    }
+
+    /**
+     * 次行取得.<br>
+     * <ul>
+     * <li>行ビューの内容を次の CSV行に置き換えて返す。</li>
+     * </ul>
+     *
+     * @return CSV行の行ビュー
+     */
+    @Override
+    public IoRowView next() {
+      String line = this.txtIterator.next();
+      // 読込済行数をカウントアップ
+      readedCount++;
+
+      this.view.setLine(line);
+      if (csvType == CsvType.DQ_ALL_LF || csvType == CsvType.DQ_STD_LF) {
+        while (this.view.isUnclosedDq() && this.txtIterator.hasNext()) {
+          // ダブルクォーテーション閉じてない場合は次行を連結する
+          line = line + ValUtil.LF + this.txtIterator.next();
+          this.view.setLine(line);
+        }
+      }
+      return this.view;
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package com.onepg.util;
 
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 import com.onepg.util.ValUtil.CsvType;
 import com.onepg.util.ValUtil.LineSep;
 
@@ -10,6 +11,7 @@ import com.onepg.util.ValUtil.LineSep;
  * <li>TxtWriterをラッピングし、CSV出力に特化した機能を提供する。</li>
  * <li>CSV形式での出力を簡易化する。</li>
  * <li>文字セット、改行コード、CSV形式を指定可能。</li>
+ * <li>圧縮タイプを指定した場合は gzip・zip圧縮ファイルに直接出力できる。（<code>TxtWriter</code> 参照）</li>
  * </ul>
  */
 public final class CsvWriter implements AutoCloseable {
@@ -20,7 +22,10 @@ public final class CsvWriter implements AutoCloseable {
   private final CsvType csvType;
 
   /**
-   * コンストラクタ.
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>拡張子に関わらず圧縮せずに出力する。</li>
+   * </ul>
    *
    * @param filePath ファイルパス
    * @param lineSep 改行コード
@@ -28,7 +33,21 @@ public final class CsvWriter implements AutoCloseable {
    * @param csvType CSV形式
    */
   public CsvWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final CsvType csvType) {
-    this.txtWriter = new TxtWriter(filePath, lineSep, charSet);
+    this(filePath, lineSep, charSet, csvType, CompressType.NONE);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param lineSep 改行コード
+   * @param charSet 文字セット
+   * @param csvType CSV形式
+   * @param compressType 圧縮タイプ
+   */
+  public CsvWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final CsvType csvType,
+      final CompressType compressType) {
+    this.txtWriter = new TxtWriter(filePath, lineSep, charSet, false, false, false, compressType, "csv");
     this.csvType = csvType;
   }
 
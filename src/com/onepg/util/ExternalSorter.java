@@ -0,0 +1,831 @@
+package com.onepg.util;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
+import com.onepg.util.ValUtil.CsvType;
+import com.onepg.util.ValUtil.LineSep;
+
+/**
+ * 外部マージソートクラス.<br>
+ * <ul>
+ * <li>メモリに載らない大きさの入出力用TSVファイル・CSVファイルを、指定キー項目の順に並べ替えたファイルを出力する。</li>
+ * <li>入力ファイルを <code>IoTsvReader</code>・<code>CsvReader</code> の行ビューで読み込み、メモリ上限に達するごとに並べ替えて一時ファイル（ラン）に出力し、最後に全ランを k-way マージする。</li>
+ * <li>ランの並べ替えと出力は並列数のスレッドで同時に行う。（読込中の行とあわせて、最大で並列数＋１個分のランがメモリ上に存在する）</li>
+ * <li>ラン数が最大マージ数を超える場合は、最大マージ数ごとにマージした中間ランを作成してから最終マージする。</li>
+ * <li>ランは入出力用TSV形式で出力し、ラン圧縮フラグが <code>true</code> の場合は gzip圧縮する。（ディスク使用量は減るが CPU負荷は増える）</li>
+ * <li>全行がメモリ上限に収まる場合は一時ファイルを作成せずに出力する。</li>
+ * <li>並べ替えは安定ソートで、キーが同じ行は入力ファイルの順序を保つ。</li>
+ * <li>キー型（<code>KeyType</code>）は文字列・数値・日付・日時で、値を型変換してから比較する。型変換できない値はエラーとする。</li>
+ * <li><code>null</code>・ブランクは昇順の場合は先頭、降順の場合は末尾になる。</li>
+ * <li>出力ファイルの1行目には列名を出力する。出力形式は入力ファイルと同じ形式（TSV または指定 CSVタイプ）とする。</li>
+ * <li>一時ファイルは一時ディレクトリ配下に作成したディレクトリに出力し、終了時（エラー時も含む）に削除する。</li>
+ * </ul>
+ * <pre>［例］
+ * <code>final ExternalSorter sorter = new ExternalSorter(ExternalSorter.SortKey.parse("dept_id,salary:number:desc,birth_dt:date"));
+ * final long count = sorter.sortTsv("/tmp/user.tsv", "/tmp/user_sorted.tsv");</code>
+ * </pre>
+ */
+public final class ExternalSorter {
+
+  /** メモリ上限バイト数（省略時）. */
+  public static final long DEFAULT_MEMORY_BYTES = 256L * 1024 * 1024;
+  /** 最大マージ数（省略時）. */
+  public static final int DEFAULT_MAX_MERGE = 64;
+
+  /** 行あたりの見積オーバーヘッドバイト数. */
+  private static final int ROW_OVERHEAD_BYTES = 64;
+  /** 項目あたりの見積オーバーヘッドバイト数. */
+  private static final int VALUE_OVERHEAD_BYTES = 48;
+  /** ランあたりの最小行数（メモリ上限が極端に小さい場合の保護）. */
+  private static final int MIN_RUN_ROWS = 1000;
+  /** 日付区切文字パターン. */
+  private static final Pattern DATE_SEP_PATTERN = Pattern.compile("[-/]");
+
+  /**
+   * キー型.
+   */
+  public enum KeyType {
+    /** 文字列 */
+    STRING,
+    /** 数値 */
+    NUMBER,
+    /** 日付（YYYYMMDD、区切文字 - / は除いて扱う） */
+    DATE,
+    /** 日時（入出力用TSV のタイムスタンプ形式 YYYYMMDD"T"HH24MISSFF6） */
+    TIMESTAMP;
+
+    /**
+     * 値からキー型取得.<br>
+     * <ul>
+     * <li>大文字小文字を区別しない。</li>
+     * </ul>
+     *
+     * @param value 値（［例］string・number・date・timestamp）
+     * @return キー型
+     */
+    public static KeyType byValue(final String value) {
+      for (final KeyType type : values()) {
+        if (type.name().equalsIgnoreCase(value)) {
+          return type;
+        }
+      }
+      throw new RuntimeException("Invalid sort key type. " + LogUtil.joinKeyVal("type", value));
+    }
+  }
+
+  /**
+   * ソートキー.
+   */
+  public static final class SortKey {
+
+    /** 項目名. */
+    private final String name;
+    /** キー型. */
+    private final KeyType type;
+    /** 降順フラグ. */
+    private final boolean desc;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param name 項目名
+     * @param type キー型
+     * @param desc 降順の場合は <code>true</code>
+     */
+    public SortKey(final String name, final KeyType type, final boolean desc) {
+      if (ValUtil.isBlank(name)) {
+        throw new RuntimeException("Sort key name is blank. ");
+      }
+      this.name = name;
+      this.type = type;
+      this.desc = desc;
+    }
+
+    /**
+     * ソートキー文字列解析.<br>
+     * <ul>
+     * <li>カンマ区切りのキー指定を解析する。キー指定は <code>項目名[:キー型[:asc|desc]]</code> 形式とする。</li>
+     * <li>キー型を省略した場合は文字列、並び順を省略した場合は昇順とする。</li>
+     * </ul>
+     * <pre>［例］<code>"dept_id,salary:number:desc,birth_dt:date"</code></pre>
+     *
+     * @param spec キー指定文字列
+     * @return ソートキー配列
+     */
+    public static SortKey[] parse(final String spec) {
+      if (ValUtil.isBlank(spec)) {
+        throw new RuntimeException("Sort key is blank. ");
+      }
+      final List<SortKey> keys = new ArrayList<>();
+      for (final String keySpec : spec.split(",")) {
+        final String[] parts = keySpec.trim().split(":");
+        if (parts.length > 3) {
+          throw new RuntimeException("Invalid sort key. " + LogUtil.joinKeyVal("key", keySpec));
+        }
+        final KeyType type = (parts.length > 1 ? KeyType.byValue(parts[1].trim()) : KeyType.STRING);
+        final boolean desc;
+        if (parts.length < 3 || "asc".equalsIgnoreCase(parts[2].trim())) {
+          desc = false;
+        } else if ("desc".equalsIgnoreCase(parts[2].trim())) {
+          desc = true;
+        } else {
+          throw new RuntimeException("Invalid sort order. " + LogUtil.joinKeyVal("key", keySpec));
+        }
+        keys.add(new SortKey(parts[0].trim(), type, desc));
+      }
+      return keys.toArray(new SortKey[0]);
+    }
+
+    /**
+     * 項目名取得.
+     *
+     * @return 項目名
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * キー型取得.
+     *
+     * @return キー型
+     */
+    public KeyType getType() {
+      return this.type;
+    }
+
+    /**
+     * 降順判定.
+     *
+     * @return 降順の場合は <code>true</code>
+     */
+    public boolean isDesc() {
+      return this.desc;
+    }
+
+    /**
+     * 文字列化.
+     *
+     * @return キー指定文字列
+     */
+    @Override
+    public String toString() {
+      return this.name + ":" + this.type.name().toLowerCase() + ":" + (this.desc ? "desc" : "asc");
+    }
+  }
+
+  /** ソートキー配列. */
+  private final SortKey[] sortKeys;
+  /** メモリ上限バイト数. */
+  private final long memoryBytes;
+  /** 並列数. */
+  private final int parallel;
+  /** ラン圧縮フラグ. */
+  private final boolean compressRuns;
+  /** 一時ディレクトリパス. */
+  private final String tmpDirPath;
+  /** 最大マージ数. */
+  private final int maxMerge;
+
+  /** ラン数（最後の並べ替えで作成した初期ラン数）. */
+  private int runCount = 0;
+  /** マージ段数（最後の並べ替えでの中間マージを含むマージ回数）. */
+  private int mergePassCount = 0;
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>メモリ上限 256MB・並列数 1・ラン圧縮無し・OS一時ディレクトリで並べ替える。</li>
+   * </ul>
+   *
+   * @param sortKeys ソートキー配列
+   */
+  public ExternalSorter(final SortKey[] sortKeys) {
+    this(sortKeys, DEFAULT_MEMORY_BYTES, 1, false, null);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param sortKeys ソートキー配列
+   * @param memoryBytes メモリ上限バイト数（行データの見積サイズの上限、ヒープサイズより十分小さくする）
+   * @param parallel 並列数（初期ランを同時に並べ替える数）
+   * @param compressRuns ランを gzip圧縮する場合は <code>true</code>
+   * @param tmpDirPath 一時ディレクトリパス（<code>null</code> の場合は OS一時ディレクトリ）
+   */
+  public ExternalSorter(final SortKey[] sortKeys, final long memoryBytes, final int parallel,
+      final boolean compressRuns, final String tmpDirPath) {
+    this(sortKeys, memoryBytes, parallel, compressRuns, tmpDirPath, DEFAULT_MAX_MERGE);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param sortKeys ソートキー配列
+   * @param memoryBytes メモリ上限バイト数（行データの見積サイズの上限、ヒープサイズより十分小さくする）
+   * @param parallel 並列数（初期ランを同時に並べ替える数）
+   * @param compressRuns ランを gzip圧縮する場合は <code>true</code>
+   * @param tmpDirPath 一時ディレクトリパス（<code>null</code> の場合は OS一時ディレクトリ）
+   * @param maxMerge 最大マージ数（同時に開くランファイル数の上限）
+   */
+  public ExternalSorter(final SortKey[] sortKeys, final long memoryBytes, final int parallel,
+      final boolean compressRuns, final String tmpDirPath, final int maxMerge) {
+    if (ValUtil.isEmpty(sortKeys)) {
+      throw new RuntimeException("Sort keys are empty. ");
+    }
+    if (memoryBytes <= 0 || parallel <= 0 || maxMerge < 2) {
+      throw new RuntimeException("Invalid sort settings. "
+          + LogUtil.joinKeyVal("memory", memoryBytes, "parallel", parallel, "maxMerge", maxMerge));
+    }
+    this.sortKeys = sortKeys;
+    this.memoryBytes = memoryBytes;
+    this.parallel = parallel;
+    this.compressRuns = compressRuns;
+    this.tmpDirPath = ValUtil.isBlank(tmpDirPath) ? FileUtil.getOsTemporaryPath() : tmpDirPath;
+    this.maxMerge = maxMerge;
+  }
+
+  /**
+   * 入出力用TSVファイル並べ替え.
+   *
+   * @param inputPath 入力ファイルパス（gz・zip圧縮ファイル可）
+   * @param outputPath 出力ファイルパス（拡張子が gz・zip の場合は圧縮して出力）
+   * @return 件数
+   */
+  public long sortTsv(final String inputPath, final String outputPath) {
+    try (final IoTsvReader tr = new IoTsvReader(inputPath)) {
+      final String[] keys = tr.getKeys();
+      return sort(keys, tr.rowViews(), () -> {
+        final IoTsvWriter tw = new IoTsvWriter(outputPath, CompressType.byFilePath(outputPath));
+        tw.println(keys);
+        return new RowWriter(tw::println, tw::close);
+      });
+    }
+  }
+
+  /**
+   * CSVファイル並べ替え.<br>
+   * <ul>
+   * <li>入力ファイルの1行目を列名とする。出力ファイルは入力ファイルと同じ文字セット・CSVタイプで出力する。</li>
+   * </ul>
+   *
+   * @param inputPath 入力ファイルパス（gz・zip圧縮ファイル可）
+   * @param outputPath 出力ファイルパス（拡張子が gz・zip の場合は圧縮して出力）
+   * @param charSet 文字セット
+   * @param csvType CSVタイプ
+   * @param lineSep 出力ファイルの改行コード
+   * @return 件数
+   */
+  public long sortCsv(final String inputPath, final String outputPath, final CharSet charSet,
+      final CsvType csvType, final LineSep lineSep) {
+    try (final CsvReader cr = new CsvReader(inputPath, charSet, csvType)) {
+      final String[] keys = cr.getKeys();
+      return sort(keys, cr.rowViews(), () -> {
+        final CsvWriter cw = new CsvWriter(outputPath, lineSep, charSet, csvType, CompressType.byFilePath(outputPath));
+        cw.println(keys);
+        return new RowWriter(cw::println, cw::close);
+      });
+    }
+  }
+
+  /**
+   * 初期ラン数取得.
+   *
+   * @return 最後の並べ替えで作成した初期ラン数（一時ファイルを作成しなかった場合は 0）
+   */
+  public int getRunCount() {
+    return this.runCount;
+  }
+
+  /**
+   * マージ段数取得.
+   *
+   * @return 最後の並べ替えでのマージ回数（中間マージを含む）
+   */
+  public int getMergePassCount() {
+    return this.mergePassCount;
+  }
+
+  /**
+   * ソート値作成.<br>
+   * <ul>
+   * <li>行のソートキー項目の値をキー型に変換した配列を返す。</li>
+   * <li>並べ替え済ファイル同士を突き合わせる場合などに <code>#compareSortValues(Comparable[], Comparable[])</code> とあわせて使用する。</li>
+   * </ul>
+   *
+   * @param row 行
+   * @param rowNo 行番号（エラーメッセージ用）
+   * @return ソート値配列
+   */
+  public Comparable<?>[] createSortValues(final AbstractIoTypeMap row, final long rowNo) {
+    final Comparable<?>[] sortVals = new Comparable<?>[this.sortKeys.length];
+    for (int i = 0; i < this.sortKeys.length; i++) {
+      sortVals[i] = convSortVal(this.sortKeys[i], row.getStringNullable(this.sortKeys[i].name), rowNo);
+    }
+    return sortVals;
+  }
+
+  /**
+   * ソート値比較.<br>
+   * <ul>
+   * <li>並べ替えと同じ順序で比較する。</li>
+   * </ul>
+   *
+   * @param vals1 ソート値配列１（<code>#createSortValues(AbstractIoTypeMap, long)</code>）
+   * @param vals2 ソート値配列２（<code>#createSortValues(AbstractIoTypeMap, long)</code>）
+   * @return 比較結果（１が先の場合は負の値、同じ場合は 0、２が先の場合は正の値）
+   */
+  public int compareSortValues(final Comparable<?>[] vals1, final Comparable<?>[] vals2) {
+    return compareVals(vals1, vals2);
+  }
+
+  /**
+   * 並べ替え.
+   *
+   * @param keys 列名配列
+   * @param views 入力行ビュー
+   * @param output 出力ライター作成処理
+   * @return 件数
+   */
+  private long sort(final String[] keys, final Iterable<IoRowView> views, final RowWriterOpener output) {
+    final int[] keyIdxs = getKeyIndexes(keys);
+    this.runCount = 0;
+    this.mergePassCount = 0;
+
+    // 読込中の行とあわせて 並列数＋１個分のランがメモリ上に存在する
+    final long runBytes = this.memoryBytes / (this.parallel + 1);
+    final List<String> runPaths = new ArrayList<>();
+    final AtomicReference<Throwable> firstError = new AtomicReference<>();
+    final Semaphore permits = new Semaphore(this.parallel);
+    final List<Future<?>> futures = new ArrayList<>();
+    String workDir = null;
+    ExecutorService pool = null;
+    long count = 0;
+    try {
+      List<SortRow> chunk = new ArrayList<>();
+      long chunkBytes = 0;
+      for (final IoRowView view : views) {
+        final SortRow row = toSortRow(keys, keyIdxs, view, count + 1);
+        chunk.add(row);
+        chunkBytes += row.bytes;
+        count++;
+        if (chunkBytes < runBytes || chunk.size() < MIN_RUN_ROWS) {
+          continue;
+        }
+        // メモリ上限に達したらランとして並べ替え・出力する
+        if (ValUtil.isNull(pool)) {
+          workDir = Files.createTempDirectory(Paths.get(this.tmpDirPath), "sort").toString();
+          pool = Executors.newFixedThreadPool(this.parallel);
+        }
+        permits.acquire();
+        throwIfFailed(firstError);
+        final List<SortRow> runRows = chunk;
+        final String runPath = createRunPath(workDir, runPaths.size());
+        runPaths.add(runPath);
+        futures.add(pool.submit(() -> {
+          try {
+            writeRun(keys, runRows, runPath);
+          } catch (final Throwable e) {
+            firstError.compareAndSet(null, e);
+          } finally {
+            permits.release();
+          }
+        }));
+        chunk = new ArrayList<>();
+        chunkBytes = 0;
+      }
+
+      if (runPaths.isEmpty()) {
+        // 全行がメモリ上限に収まる場合は一時ファイルを作成しない
+        chunk.sort(this::compareRow);
+        try (final RowWriter rw = output.open()) {
+          for (final SortRow row : chunk) {
+            rw.println(row.values);
+          }
+        }
+        return count;
+      }
+
+      // 残りの行を最後のランとする
+      if (!chunk.isEmpty()) {
+        final String runPath = createRunPath(workDir, runPaths.size());
+        runPaths.add(runPath);
+        writeRun(keys, chunk, runPath);
+        chunk = null;
+      }
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+      throwIfFailed(firstError);
+      this.runCount = runPaths.size();
+
+      // 最大マージ数ごとに中間マージする
+      List<String> curRuns = runPaths;
+      int passNo = 0;
+      while (curRuns.size() > this.maxMerge) {
+        passNo++;
+        final List<String> nextRuns = new ArrayList<>();
+        for (int i = 0; i < curRuns.size(); i += this.maxMerge) {
+          final List<String> group = curRuns.subList(i, Math.min(i + this.maxMerge, curRuns.size()));
+          final String mergedPath = createRunPath(workDir, passNo + "_" + nextRuns.size());
+          try (final IoTsvWriter tw = new IoTsvWriter(mergedPath, CompressType.byFilePath(mergedPath))) {
+            tw.println(keys);
+            merge(keys, keyIdxs, group, tw::println);
+          }
+          nextRuns.add(mergedPath);
+          deleteRuns(group);
+        }
+        this.mergePassCount++;
+        curRuns = nextRuns;
+      }
+      try (final RowWriter rw = output.open()) {
+        merge(keys, keyIdxs, curRuns, rw::println);
+      }
+      this.mergePassCount++;
+      deleteRuns(curRuns);
+      return count;
+
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RuntimeException("Exception error occurred in external sort. "
+          + LogUtil.joinKeyVal("keys", Arrays.toString(this.sortKeys), "rows", count), e);
+    } finally {
+      if (!ValUtil.isNull(pool)) {
+        pool.shutdownNow();
+        // 実行中の並列ソートが一時ファイルを書き終えるまで待ってから削除する
+        try {
+          pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (!ValUtil.isNull(workDir)) {
+        // 一時ファイル削除
+        for (final String path : FileUtil.getFileList(workDir, null, null, null, null)) {
+          FileUtil.delete(path);
+        }
+        FileUtil.delete(workDir);
+      }
+    }
+  }
+
+  /**
+   * ソートキー位置取得.
+   *
+   * @param keys 列名配列
+   * @return ソートキーごとの列位置
+   */
+  private int[] getKeyIndexes(final String[] keys) {
+    final int[] idxs = new int[this.sortKeys.length];
+    for (int i = 0; i < this.sortKeys.length; i++) {
+      idxs[i] = -1;
+      for (int j = 0; j < keys.length; j++) {
+        if (this.sortKeys[i].name.equals(keys[j])) {
+          idxs[i] = j;
+          break;
+        }
+      }
+      if (idxs[i] < 0) {
+        throw new RuntimeException("Sort key column does not exist. "
+            + LogUtil.joinKeyVal("key", this.sortKeys[i].name, "columns", keys));
+      }
+    }
+    return idxs;
+  }
+
+  /**
+   * 並べ替え行作成.
+   *
+   * @param keys 列名配列
+   * @param keyIdxs ソートキー位置
+   * @param view 行ビュー
+   * @param rowNo 行番号（エラーメッセージ用）
+   * @return 並べ替え行
+   */
+  private SortRow toSortRow(final String[] keys, final int[] keyIdxs, final IoRowView view, final long rowNo) {
+    final String[] values = new String[keys.length];
+    long bytes = ROW_OVERHEAD_BYTES;
+    for (int i = 0; i < keys.length; i++) {
+      values[i] = view.getStringNullable(keys[i]);
+      bytes += VALUE_OVERHEAD_BYTES + (ValUtil.isNull(values[i]) ? 0 : values[i].length() * 2L);
+    }
+    final Comparable<?>[] sortVals = new Comparable<?>[this.sortKeys.length];
+    for (int i = 0; i < this.sortKeys.length; i++) {
+      sortVals[i] = convSortVal(this.sortKeys[i], values[keyIdxs[i]], rowNo);
+      bytes += VALUE_OVERHEAD_BYTES;
+    }
+    return new SortRow(sortVals, values, bytes);
+  }
+
+  /**
+   * ソート値変換.
+   *
+   * @param sortKey ソートキー
+   * @param value 値
+   * @param rowNo 行番号（エラーメッセージ用）
+   * @return ソート値（<code>null</code>・ブランクの場合は <code>null</code>）
+   */
+  private static Comparable<?> convSortVal(final SortKey sortKey, final String value, final long rowNo) {
+    if (ValUtil.isBlank(value)) {
+      return null;
+    }
+    try {
+      switch (sortKey.type) {
+        case NUMBER:
+          return new BigDecimal(value.trim());
+        case DATE:
+          return LocalDate.parse(DATE_SEP_PATTERN.matcher(value.trim()).replaceAll(ValUtil.BLANK),
+              AbstractIoTypeMap.DTF_IO_DATE);
+        case TIMESTAMP:
+          return LocalDateTime.parse(value.trim(), AbstractIoTypeMap.DTF_IO_TIMESTAMP);
+        default:
+          return value;
+      }
+    } catch (final NumberFormatException | DateTimeParseException e) {
+      throw new RuntimeException("Sort key value cannot be converted. "
+          + LogUtil.joinKeyVal("key", sortKey.name, "type", sortKey.type, "row", rowNo, "value", value), e);
+    }
+  }
+
+  /**
+   * 行比較.
+   *
+   * @param row1 行１
+   * @param row2 行２
+   * @return 比較結果
+   */
+  private int compareRow(final SortRow row1, final SortRow row2) {
+    return compareVals(row1.sortVals, row2.sortVals);
+  }
+
+  /**
+   * ソート値比較.<br>
+   * <ul>
+   * <li><code>null</code> は昇順の場合は先頭、降順の場合は末尾とする。</li>
+   * </ul>
+   *
+   * @param vals1 ソート値１
+   * @param vals2 ソート値２
+   * @return 比較結果
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private int compareVals(final Comparable<?>[] vals1, final Comparable<?>[] vals2) {
+    for (int i = 0; i < this.sortKeys.length; i++) {
+      final Comparable v1 = vals1[i];
+      final Comparable v2 = vals2[i];
+      final int ret;
+      if (v1 == v2) {
+        ret = 0;
+      } else if (ValUtil.isNull(v1)) {
+        ret = -1;
+      } else if (ValUtil.isNull(v2)) {
+        ret = 1;
+      } else {
+        ret = v1.compareTo(v2);
+      }
+      if (ret != 0) {
+        return this.sortKeys[i].desc ? -ret : ret;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * ランファイルパス作成.
+   *
+   * @param workDir 作業ディレクトリ
+   * @param runNo ラン番号
+   * @return ランファイルパス
+   */
+  private String createRunPath(final String workDir, final Object runNo) {
+    return FileUtil.joinPath(workDir, "run_" + runNo + (this.compressRuns ? ".tsv.gz" : ".tsv"));
+  }
+
+  /**
+   * ラン出力.<br>
+   * <ul>
+   * <li>行を並べ替えて入出力用TSV形式でランファイルに出力する。</li>
+   * </ul>
+   *
+   * @param keys 列名配列
+   * @param rows 行リスト
+   * @param runPath ランファイルパス
+   */
+  private void writeRun(final String[] keys, final List<SortRow> rows, final String runPath) {
+    rows.sort(this::compareRow);
+    try (final IoTsvWriter tw = new IoTsvWriter(runPath, CompressType.byFilePath(runPath))) {
+      tw.println(keys);
+      for (final SortRow row : rows) {
+        tw.println(row.values);
+      }
+    }
+  }
+
+  /**
+   * ランマージ.<br>
+   * <ul>
+   * <li>各ランの先頭行を優先度付きキューに入れ、最小の行から順に出力する。</li>
+   * <li>キーが同じ行はラン番号順（入力ファイルの順序）とする。</li>
+   * </ul>
+   *
+   * @param keys 列名配列
+   * @param keyIdxs ソートキー位置
+   * @param runPaths ランファイルパスリスト
+   * @param writer 行出力処理
+   */
+  private void merge(final String[] keys, final int[] keyIdxs, final List<String> runPaths,
+      final Consumer<String[]> writer) {
+    final List<RunCursor> cursors = new ArrayList<>();
+    try {
+      final Comparator<RunCursor> cmp = (c1, c2) -> {
+        final int ret = compareVals(c1.row.sortVals, c2.row.sortVals);
+        return (ret != 0 ? ret : Integer.compare(c1.runIdx, c2.runIdx));
+      };
+      final PriorityQueue<RunCursor> queue = new PriorityQueue<>(runPaths.size(), cmp);
+      for (int i = 0; i < runPaths.size(); i++) {
+        final RunCursor cursor = new RunCursor(runPaths.get(i), i);
+        cursors.add(cursor);
+        if (cursor.next(keys, keyIdxs)) {
+          queue.add(cursor);
+        }
+      }
+      while (!queue.isEmpty()) {
+        final RunCursor cursor = queue.poll();
+        writer.accept(cursor.row.values);
+        if (cursor.next(keys, keyIdxs)) {
+          queue.add(cursor);
+        }
+      }
+    } finally {
+      for (final RunCursor cursor : cursors) {
+        cursor.reader.close();
+      }
+    }
+  }
+
+  /**
+   * ランファイル削除.
+   *
+   * @param runPaths ランファイルパスリスト
+   */
+  private static void deleteRuns(final List<String> runPaths) {
+    for (final String path : runPaths) {
+      FileUtil.delete(path);
+    }
+  }
+
+  /**
+   * 例外発生チェック.
+   *
+   * @param firstError 最初のエラー
+   */
+  private static void throwIfFailed(final AtomicReference<Throwable> firstError) {
+    final Throwable e = firstError.get();
+    if (ValUtil.isNull(e)) {
+      return;
+    }
+    throw new RuntimeException("Exception error occurred while writing a sort run. ", e);
+  }
+
+  /**
+   * 並べ替え行.
+   */
+  private static final class SortRow {
+    /** ソート値. */
+    private final Comparable<?>[] sortVals;
+    /** 値配列（列名配列順）. */
+    private final String[] values;
+    /** 見積バイト数. */
+    private final long bytes;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param sortVals ソート値
+     * @param values 値配列
+     * @param bytes 見積バイト数
+     */
+    private SortRow(final Comparable<?>[] sortVals, final String[] values, final long bytes) {
+      this.sortVals = sortVals;
+      this.values = values;
+      this.bytes = bytes;
+    }
+  }
+
+  /**
+   * ラン読込カーソル.
+   */
+  private final class RunCursor {
+    /** ランファイルリーダー. */
+    private final IoTsvReader reader;
+    /** 行ビューイテレーター. */
+    private final Iterator<IoRowView> ite;
+    /** ラン番号. */
+    private final int runIdx;
+    /** 現在行. */
+    private SortRow row = null;
+    /** 読込済行数. */
+    private long rowNo = 0;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param runPath ランファイルパス
+     * @param runIdx ラン番号
+     */
+    private RunCursor(final String runPath, final int runIdx) {
+      this.reader = new IoTsvReader(runPath);
+      this.ite = this.reader.rowViews().iterator();
+      this.runIdx = runIdx;
+    }
+
+    /**
+     * 次行読込.
+     *
+     * @param keys 列名配列
+     * @param keyIdxs ソートキー位置
+     * @return 次行が無い場合は <code>false</code>
+     */
+    private boolean next(final String[] keys, final int[] keyIdxs) {
+      if (!this.ite.hasNext()) {
+        this.row = null;
+        return false;
+      }
+      this.row = toSortRow(keys, keyIdxs, this.ite.next(), ++this.rowNo);
+      return true;
+    }
+  }
+
+  /**
+   * 出力ライター作成処理.
+   */
+  @FunctionalInterface
+  private interface RowWriterOpener {
+    /**
+     * 出力ライター作成.
+     *
+     * @return 出力ライター
+     */
+    RowWriter open();
+  }
+
+  /**
+   * 出力ライター.
+   */
+  private static final class RowWriter implements AutoCloseable {
+    /** 行出力処理. */
+    private final Consumer<String[]> printer;
+    /** クローズ処理. */
+    private final Runnable closer;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param printer 行出力処理
+     * @param closer クローズ処理
+     */
+    private RowWriter(final Consumer<String[]> printer, final Runnable closer) {
+      this.printer = printer;
+      this.closer = closer;
+    }
+
+    /**
+     * 行出力.
+     *
+     * @param values 値配列
+     */
+    private void println(final String[] values) {
+      this.printer.accept(values);
+    }
+
+    /**
+     * クローズ.
+     */
+    @Override
+    public void close() {
+      this.closer.run();
+    }
+  }
+}
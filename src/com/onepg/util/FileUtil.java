@@ -1,32 +1,48 @@
 package com.onepg.util;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.ResolverStyle;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
+import com.onepg.util.ValUtil.CompressType;
+
 /**
  * ファイル操作ユーティリティクラス.
  */
 public final class FileUtil {
 
+  /** 圧縮ストリームバッファサイズ（64KB）. */
+  private static final int STREAM_BUFFER_SIZE = 64 * 1_024;
+
   /** 日時フォーマッター：タイムスタンプ ファイル用. */
   private static final DateTimeFormatter DTF_FILE_TIMESTAMP =
       DateTimeFormatter.ofPattern("uuuuMMdd'T'HHmmss").withResolverStyle(ResolverStyle.STRICT);
@@ -228,6 +244,33 @@ public final class FileUtil {
     return ret;
   }
 
+  /**
+   * ファイルチェックサム（SHA-256）取得.<br>
+   * <ul>
+   * <li>ファイル内容のバイト列から SHA-256 ハッシュ値を求める。（圧縮ファイルは圧縮後のバイト列が対象）</li>
+   * </ul>
+   *
+   * @param fullPath フルパス
+   * @return SHA-256 ハッシュ値（英字小文字の16進数文字列）
+   */
+  public static String getFileSha256(final String fullPath) {
+    if (!exists(fullPath)) {
+      throw new RuntimeException("File does not exist. " + LogUtil.joinKeyVal("path", fullPath));
+    }
+    try {
+      final MessageDigest md = MessageDigest.getInstance("SHA-256");
+      try (final InputStream is = new DigestInputStream(new FileInputStream(fullPath), md)) {
+        final byte[] buf = new byte[STREAM_BUFFER_SIZE];
+        while (is.read(buf) != -1) {
+          // 読込と同時にハッシュ値を更新
+        }
+      }
+      return HexFormat.of().formatHex(md.digest());
+    } catch (Exception e) {
+      throw new RuntimeException("Exception error occurred during file checksum calculation. " + LogUtil.joinKeyVal("path", fullPath), e);
+    }
+  }
+
   /**
    * ファイル名またはフルパスを拡張子とそれ以外に分割.
    *
@@ -249,6 +292,30 @@ public final class FileUtil {
     return ret;
   }
 
+  /**
+   * ファイル名からデータファイルの拡張子を取り除く.<br>
+   * <ul>
+   * <li>圧縮ファイル（拡張子 gz・gzip・zip）の場合は圧縮の拡張子を１回だけ取り除き、残りの拡張子が tsv・csv・txt・dat の場合はそれも取り除く。<br>
+   * ［例］table.tsv.gz → table、table.zip → table、a.b.zip → a.b</li>
+   * <li>圧縮ファイル以外は <code>trimTypeMark</code> と同じ。</li>
+   * </ul>
+   *
+   * @param fileName ファイル名またはフルパス
+   * @return 拡張子より前の部分（ドットは含まない）
+   */
+  public static String trimDataTypeMark(final String fileName) {
+    final String baseName = trimTypeMark(fileName);
+    if (CompressType.NONE == CompressType.byFilePath(fileName)) {
+      return baseName;
+    }
+    final String innerTypeMark = getTypeMark(baseName).toLowerCase();
+    if ("tsv".equals(innerTypeMark) || "csv".equals(innerTypeMark) || "txt".equals(innerTypeMark)
+        || "dat".equals(innerTypeMark)) {
+      return trimTypeMark(baseName);
+    }
+    return baseName;
+  }
+
   /**
    * ファイル名から拡張子を取り除く.
    *
@@ -528,13 +595,44 @@ public final class FileUtil {
    * @param zipPath 圧縮ファイルパス
    */
   public static void zip(final List<String> srcPaths, final String fileNameCharset, final String zipPath) {
+    zip(srcPaths, fileNameCharset, zipPath, Deflater.DEFAULT_COMPRESSION, 1);
+  }
+
+  /**
+   * 圧縮ファイル作成（圧縮レベル・並列数指定）.<br>
+   * <ul>
+   * <li>圧縮レベルは 0（無圧縮）～9（最大圧縮）で指定する。-1 は既定値（6相当）とする。</li>
+   * <li>並列数が 2 以上の場合は、ファイルごとの圧縮を並列数のスレッドで同時に行い、ソースファイルリストの順にzipファイルへ組み立てる。
+   *   <ul>
+   *   <li>圧縮済データは 4MB 以下の場合はメモリ、それより大きい場合は圧縮ファイルと同じディレクトリの一時ファイルに保持する。（出力後に削除）</li>
+   *   <li>同時に保持する圧縮済ファイル数は並列数の２倍までとする。</li>
+   *   </ul></li>
+   * <li>4GB 以上のファイル・圧縮ファイル、65535 を超えるファイル数は zip64 形式で出力する。</li>
+   * <li>エントリー名はファイル名とする。ファイル名が重複する場合はエラーとする。</li>
+   * </ul>
+   *
+   * @param srcPaths ソースファイルパスリスト
+   * @param fileNameCharset ファイル名文字セット
+   * @param zipPath 圧縮ファイルパス
+   * @param level 圧縮レベル（0～9、-1 は既定値）
+   * @param parallel 並列数
+   */
+  public static void zip(final List<String> srcPaths, final String fileNameCharset, final String zipPath,
+      final int level, final int parallel) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION || parallel <= 0) {
+      throw new RuntimeException("Invalid zip settings. " + LogUtil.joinKeyVal("level", level, "parallel", parallel));
+    }
     // ファイル存在確認と Fileオブジェクトの作成
     final List<File> srcFiles = new ArrayList<>();
+    final Set<String> entryNames = new HashSet<>();
     for (final String path : srcPaths) {
       final File f = new File(path);
       if (!f.exists()) {
         throw new RuntimeException("Source file to compress does not exist. " + LogUtil.joinKeyVal("path", f.getAbsolutePath()));
       }
+      if (!entryNames.add(f.getName())) {
+        throw new RuntimeException("Source file name is duplicated. " + LogUtil.joinKeyVal("path", f.getAbsolutePath()));
+      }
       srcFiles.add(f);
     }
     // 圧縮ファイル
@@ -546,11 +644,19 @@ public final class FileUtil {
       throw new RuntimeException("Parent directory of zip file does not exist. " + LogUtil.joinKeyVal("path", zipFile.getAbsolutePath()));
     }
     // 圧縮
-    try (final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile), Charset.forName(fileNameCharset))) {
-      for (final File file : srcFiles) {
-        zos.putNextEntry(new ZipEntry(file.getName()));
-        try (final InputStream is = new BufferedInputStream(new FileInputStream(file))) {
-          is.transferTo(zos);
+    try {
+      if (parallel > 1 && srcFiles.size() > 1) {
+        ParallelZipWriter.write(srcFiles, Charset.forName(fileNameCharset), zipFile, level, parallel);
+        return;
+      }
+      try (final ZipOutputStream zos = new ZipOutputStream(
+          new BufferedOutputStream(new FileOutputStream(zipFile), STREAM_BUFFER_SIZE), Charset.forName(fileNameCharset))) {
+        zos.setLevel(level);
+        for (final File file : srcFiles) {
+          zos.putNextEntry(new ZipEntry(file.getName()));
+          try (final InputStream is = new BufferedInputStream(new FileInputStream(file), STREAM_BUFFER_SIZE)) {
+            is.transferTo(zos);
+          }
         }
       }
     } catch (Exception e) {
@@ -561,7 +667,162 @@ public final class FileUtil {
   }
   
   /**
-   * 圧縮ファイル解凍.
+   * ファイル連結.<br>
+   * <ul>
+   * <li>ソースファイルをリストの順にバイト単位で連結して連結先ファイルを作成する。</li>
+   * <li>ヘッダ行読み飛ばしの場合、２ファイル目以降の先頭行（最初の LF まで）は出力しない。</li>
+   * <li>連結先ファイルは拡張子に関わらず圧縮せずに出力する。</li>
+   * <li>連結に失敗した場合は作成途中の連結先ファイルを削除する。</li>
+   * </ul>
+   *
+   * @param srcPaths ソースファイルパスリスト
+   * @param destPath 連結先ファイルパス
+   * @param skipHeader ２ファイル目以降の先頭行を読み飛ばす場合は <code>true</code>
+   */
+  public static void concat(final List<String> srcPaths, final String destPath, final boolean skipHeader) {
+    concat(srcPaths, destPath, skipHeader, CompressType.NONE);
+  }
+
+  /**
+   * ファイル連結（圧縮タイプ指定）.<br>
+   * <ul>
+   * <li>ソースファイルをリストの順にバイト単位で連結して連結先ファイルを作成する。</li>
+   * <li>ヘッダ行読み飛ばしの場合、２ファイル目以降の先頭行（最初の LF まで）は出力しない。</li>
+   * <li>圧縮タイプが gzip・zip の場合は圧縮しながら出力する。（zipエントリー名は <code>TxtWriter</code> と同じ規則で、拡張子が無い場合は１ファイル目の拡張子を付加する）</li>
+   * <li>連結に失敗した場合は作成途中の連結先ファイルを削除する。</li>
+   * </ul>
+   *
+   * @param srcPaths ソースファイルパスリスト
+   * @param destPath 連結先ファイルパス
+   * @param skipHeader ２ファイル目以降の先頭行を読み飛ばす場合は <code>true</code>
+   * @param compressType 連結先ファイルの圧縮タイプ
+   */
+  public static void concat(final List<String> srcPaths, final String destPath, final boolean skipHeader,
+      final CompressType compressType) {
+    if (ValUtil.isEmpty(srcPaths)) {
+      throw new RuntimeException("Source file list is empty. " + LogUtil.joinKeyVal("path", destPath));
+    }
+    for (final String path : srcPaths) {
+      if (!exists(path)) {
+        throw new RuntimeException("Source file to concatenate does not exist. " + LogUtil.joinKeyVal("path", path));
+      }
+    }
+    final String absDestPath = convAbsolutePath(destPath);
+    if (exists(absDestPath)) {
+      throw new RuntimeException("Destination file already exists. " + LogUtil.joinKeyVal("path", absDestPath));
+    }
+    if (!existsParent(absDestPath)) {
+      throw new RuntimeException("Parent directory of destination file does not exist. " + LogUtil.joinKeyVal("path", absDestPath));
+    }
+
+    final String entryTypeMark = getTypeMark(srcPaths.get(0));
+    try (final OutputStream os = openOutputStream(absDestPath, false, compressType, entryTypeMark)) {
+      for (int i = 0; i < srcPaths.size(); i++) {
+        try (final InputStream is = new BufferedInputStream(new FileInputStream(srcPaths.get(i)), STREAM_BUFFER_SIZE)) {
+          if (skipHeader && i > 0) {
+            // 先頭行を読み飛ばす
+            int b;
+            while ((b = is.read()) != -1 && b != '\n') {
+              // 処理なし
+            }
+          }
+          is.transferTo(os);
+        }
+      }
+    } catch (Exception e) {
+      // 連結に失敗した場合は作成された連結先ファイルを削除
+      delete(absDestPath);
+      throw new RuntimeException("Exception error occurred during file concatenation. " + LogUtil.joinKeyVal("path", absDestPath), e);
+    }
+  }
+
+  /**
+   * 出力ストリーム作成.<br>
+   * <ul>
+   * <li>圧縮タイプが GZIP・ZIP の場合は圧縮ストリームを返す。</li>
+   * <li>ZIP の場合は１エントリーを開始した状態で返す。（クローズ時にエントリーも閉じられる）</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param canAppend 追記を許可する場合は <code>true</code>
+   * @param compressType 圧縮タイプ
+   * @param entryTypeMark zipエントリー拡張子（エントリー名に拡張子が無い場合に付加する）
+   * @return 出力ストリーム
+   * @throws IOException I/O例外エラー
+   */
+  static OutputStream openOutputStream(final String filePath, final boolean canAppend,
+      final CompressType compressType, final String entryTypeMark) throws IOException {
+    return openOutputStream(filePath, canAppend, compressType, entryTypeMark, null);
+  }
+
+  /**
+   * 出力ストリーム作成（ダイジェスト更新あり）.<br>
+   * <ul>
+   * <li>ダイジェストを指定した場合は、ファイルに書き込むバイト列（圧縮後）でダイジェストを更新する。<br>
+   * 書き込み完了後にファイルを読み直さずにハッシュ値を求められる。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param canAppend 追記を許可する場合は <code>true</code>
+   * @param compressType 圧縮タイプ
+   * @param entryTypeMark zipエントリー拡張子（エントリー名に拡張子が無い場合に付加する）
+   * @param digest ダイジェスト（不要な場合は <code>null</code>）
+   * @return 出力ストリーム
+   * @throws IOException I/O例外エラー
+   */
+  static OutputStream openOutputStream(final String filePath, final boolean canAppend,
+      final CompressType compressType, final String entryTypeMark, final MessageDigest digest) throws IOException {
+    final FileOutputStream fos = new FileOutputStream(filePath, canAppend);
+    try {
+      final OutputStream os;
+      if (ValUtil.isNull(digest)) {
+        os = fos;
+      } else {
+        os = new DigestOutputStream(fos, digest);
+      }
+      if (CompressType.GZIP == compressType) {
+        return new GZIPOutputStream(os, STREAM_BUFFER_SIZE);
+      }
+      if (CompressType.ZIP == compressType) {
+        final ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(os, STREAM_BUFFER_SIZE));
+        zos.putNextEntry(new ZipEntry(createZipEntryName(filePath, entryTypeMark)));
+        return zos;
+      }
+      return os;
+    } catch (IOException | RuntimeException e) {
+      fos.close();
+      throw e;
+    }
+  }
+
+  /**
+   * zipエントリー名作成.<br>
+   * <ul>
+   * <li>ファイル名から拡張子 zip を除いた名前とする。残りに拡張子が無い場合はエントリー拡張子を付加する。（［例］data.zip → data.txt）</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param entryTypeMark zipエントリー拡張子
+   * @return zipエントリー名
+   */
+  private static String createZipEntryName(final String filePath, final String entryTypeMark) {
+    final String fileName = getFileName(filePath);
+    if (!"zip".equalsIgnoreCase(getTypeMark(fileName))) {
+      // 拡張子が zip 以外の場合はそのまま
+      return fileName;
+    }
+    final String entryName = fileName.substring(0, fileName.lastIndexOf("."));
+    if (ValUtil.isBlank(getTypeMark(entryName)) && !ValUtil.isBlank(entryTypeMark)) {
+      return entryName + "." + entryTypeMark;
+    }
+    return entryName;
+  }
+
+  /**
+   * 圧縮ファイル解凍.<br>
+   * <ul>
+   * <li>エントリーを順に読み込みながら解凍する。zip64 形式のファイルも解凍できる。</li>
+   * </ul>
    * 
    * @param zipPath 圧縮ファイルパス
    * @param destDirPath 解凍先ディレクトリパス
@@ -576,7 +837,10 @@ public final class FileUtil {
     final List<String> retPaths = new ArrayList<>();
     
     try (final ZipFile zipFile = new ZipFile(zipPath)) {
-      for (final ZipEntry entry : zipFile.stream().toList()) {
+      // エントリーリストを作成せず１件ずつ解凍する
+      final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
         final File outFile = new File(destDir, entry.getName());
         if (!outFile.getCanonicalPath().startsWith(destDir.getCanonicalPath() + File.separator)) {
           throw new RuntimeException("Invalid zip entry path. " + LogUtil.joinKeyVal("file", entry.getName()));
@@ -589,7 +853,7 @@ public final class FileUtil {
         // 親ディレクトリが無ければ作成（ネスト対応）
         outFile.getParentFile().mkdirs();
         try (final InputStream is = zipFile.getInputStream(entry);
-             final FileOutputStream fos = new FileOutputStream(outFile)) {
+             final OutputStream fos = new BufferedOutputStream(new FileOutputStream(outFile), STREAM_BUFFER_SIZE)) {
           is.transferTo(fos);
           retPaths.add(outFile.getAbsolutePath());
         } catch (IOException e) {
@@ -0,0 +1,255 @@
+package com.onepg.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.onepg.util.ValUtil.LineSep;
+
+/**
+ * 固定長レコードレイアウトクラス.<br>
+ * <ul>
+ * <li>固定長ファイル（<code>FixedReader</code>・<code>FixedWriter</code>）のレコード長・レコード区切りと、項目ごとの開始位置・長さを定義する。</li>
+ * <li>開始位置・長さは文字数ではなくバイト数で指定する。開始位置はレコード先頭を 0 とする。</li>
+ * <li>項目の範囲は重なってもよい。（同じ範囲を別名・別型で読み込む場合）項目が定義されていない範囲は出力時に空白となる。</li>
+ * <li>項目型が文字列の場合は左詰め・空白埋め、数値の場合は右詰め・ゼロ埋めで出力し、読込時は埋めた空白を取り除く。</li>
+ * </ul>
+ * <pre>［例］
+ * <code>final FixedLayout layout = new FixedLayout(30, LineSep.CRLF)
+ *     .addField("user_id", 0, 8, FieldType.NUMBER)
+ *     .addField("user_nm", 8, 20, FieldType.STRING)
+ *     .addField("sex_cs", 28, 2, FieldType.STRING);</code>
+ * </pre>
+ */
+public final class FixedLayout {
+
+  /**
+   * 項目型.
+   */
+  public enum FieldType {
+    /** 文字列（左詰め・空白埋め、読込時は後ろの空白を除く） */
+    STRING,
+    /** 数値（右詰め・ゼロ埋め、読込時は前後の空白を除く） */
+    NUMBER;
+
+    /**
+     * 値から項目型取得.<br>
+     * <ul>
+     * <li>大文字小文字を区別しない。ブランクの場合は文字列とする。</li>
+     * </ul>
+     *
+     * @param value 値（［例］string・number）
+     * @return 項目型
+     */
+    public static FieldType byValue(final String value) {
+      if (ValUtil.isBlank(value)) {
+        return STRING;
+      }
+      for (final FieldType type : values()) {
+        if (type.name().equalsIgnoreCase(value)) {
+          return type;
+        }
+      }
+      throw new RuntimeException("Invalid fixed-length field type. " + LogUtil.joinKeyVal("type", value));
+    }
+  }
+
+  /**
+   * 項目定義.
+   */
+  public static final class Field {
+    /** 項目名. */
+    private final String name;
+    /** 開始位置（バイト）. */
+    private final int offset;
+    /** 長さ（バイト）. */
+    private final int length;
+    /** 項目型. */
+    private final FieldType type;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param name 項目名
+     * @param offset 開始位置（バイト）
+     * @param length 長さ（バイト）
+     * @param type 項目型
+     */
+    private Field(final String name, final int offset, final int length, final FieldType type) {
+      this.name = name;
+      this.offset = offset;
+      this.length = length;
+      this.type = type;
+    }
+
+    /**
+     * 項目名取得.
+     *
+     * @return 項目名
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * 開始位置取得.
+     *
+     * @return 開始位置（バイト）
+     */
+    public int getOffset() {
+      return this.offset;
+    }
+
+    /**
+     * 長さ取得.
+     *
+     * @return 長さ（バイト）
+     */
+    public int getLength() {
+      return this.length;
+    }
+
+    /**
+     * 項目型取得.
+     *
+     * @return 項目型
+     */
+    public FieldType getType() {
+      return this.type;
+    }
+  }
+
+  /** レコード長（バイト、レコード区切りを除く）. */
+  private final int recordLength;
+  /** レコード区切り（無しの場合は <code>null</code>）. */
+  private final LineSep lineSep;
+  /** 項目定義リスト. */
+  private final List<Field> fields = new ArrayList<>();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param recordLength レコード長（バイト、レコード区切りを除く）
+   * @param lineSep レコード区切り（レコード区切りが無い場合は <code>null</code>）
+   */
+  public FixedLayout(final int recordLength, final LineSep lineSep) {
+    if (recordLength <= 0) {
+      throw new RuntimeException("Record length must be positive. " + LogUtil.joinKeyVal("recordLength", recordLength));
+    }
+    this.recordLength = recordLength;
+    this.lineSep = lineSep;
+  }
+
+  /**
+   * レイアウトファイル読込.<br>
+   * <ul>
+   * <li>入出力用TSVファイルからレイアウトを読み込む。列は name（項目名）・offset（開始位置）・length（長さ）・type（項目型、省略可能）とする。</li>
+   * </ul>
+   *
+   * @param layoutPath レイアウトファイルパス
+   * @param recordLength レコード長（バイト、レコード区切りを除く）
+   * @param lineSep レコード区切り（レコード区切りが無い場合は <code>null</code>）
+   * @return レイアウト
+   */
+  public static FixedLayout load(final String layoutPath, final int recordLength, final LineSep lineSep) {
+    final FixedLayout layout = new FixedLayout(recordLength, lineSep);
+    try (final IoTsvReader tr = new IoTsvReader(layoutPath)) {
+      for (final IoItems row : tr) {
+        layout.addField(row.getString("name"), row.getInt("offset"), row.getInt("length"),
+            FieldType.byValue(row.getStringOrDefault("type", ValUtil.BLANK)));
+      }
+    }
+    return layout;
+  }
+
+  /**
+   * 項目追加（文字列）.
+   *
+   * @param name 項目名
+   * @param offset 開始位置（バイト、レコード先頭は 0）
+   * @param length 長さ（バイト）
+   * @return 自インスタンス
+   */
+  public FixedLayout addField(final String name, final int offset, final int length) {
+    return addField(name, offset, length, FieldType.STRING);
+  }
+
+  /**
+   * 項目追加.
+   *
+   * @param name 項目名
+   * @param offset 開始位置（バイト、レコード先頭は 0）
+   * @param length 長さ（バイト）
+   * @param type 項目型
+   * @return 自インスタンス
+   */
+  public FixedLayout addField(final String name, final int offset, final int length, final FieldType type) {
+    if (ValUtil.isBlank(name)) {
+      throw new RuntimeException("Field name is blank. " + LogUtil.joinKeyVal("offset", offset));
+    }
+    if (offset < 0 || length <= 0 || offset + length > this.recordLength) {
+      throw new RuntimeException("Field is out of the record. " + LogUtil.joinKeyVal("name", name, "offset", offset,
+          "length", length, "recordLength", this.recordLength));
+    }
+    if (!ValUtil.isNull(getField(name))) {
+      throw new RuntimeException("Field name is duplicated. " + LogUtil.joinKeyVal("name", name));
+    }
+    this.fields.add(new Field(name, offset, length, type));
+    return this;
+  }
+
+  /**
+   * 項目定義取得.
+   *
+   * @param name 項目名
+   * @return 項目定義（無い場合は <code>null</code>）
+   */
+  public Field getField(final String name) {
+    for (final Field field : this.fields) {
+      if (field.name.equals(name)) {
+        return field;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 項目定義リスト取得.
+   *
+   * @return 項目定義リスト（定義順、変更不可）
+   */
+  public List<Field> getFields() {
+    return Collections.unmodifiableList(this.fields);
+  }
+
+  /**
+   * レコード長取得.
+   *
+   * @return レコード長（バイト、レコード区切りを除く）
+   */
+  public int getRecordLength() {
+    return this.recordLength;
+  }
+
+  /**
+   * レコード区切り取得.
+   *
+   * @return レコード区切り（無しの場合は <code>null</code>）
+   */
+  public LineSep getLineSep() {
+    return this.lineSep;
+  }
+
+  /**
+   * レコード区切りバイト配列取得.
+   *
+   * @return レコード区切りのバイト配列（無しの場合は長さゼロ）
+   */
+  byte[] getLineSepBytes() {
+    if (ValUtil.isNull(this.lineSep)) {
+      return new byte[0];
+    }
+    return this.lineSep.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,316 @@
+package com.onepg.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.onepg.util.FixedLayout.Field;
+import com.onepg.util.FixedLayout.FieldType;
+import com.onepg.util.ValUtil.CharSet;
+
+/**
+ * 固定長ファイルリーダークラス.<br>
+ * <ul>
+ * <li>レイアウト（<code>FixedLayout</code>）にしたがって固定長ファイルの各レコードを <code>IoItems</code> として返すイテレーターを提供する。</li>
+ * <li>try 句（try-with-resources文）で宣言する。</li>
+ * <li>ファイルをメモリマップして読み込み、行単位の読込・文字列化は行わない。レコードの位置はレコード番号から計算する。</li>
+ * <li>読込項目名を指定した場合は、その項目のバイト範囲のみ文字列に変換する。（他の範囲はデコードしない）</li>
+ * <li>文字セットは <code>CharSet</code> で指定する。項目の範囲で２バイト文字が分断されないレイアウトである前提とする。</li>
+ * <li>レコード区切りがあるレイアウトの場合は、各レコードの区切り位置にレコード区切りがあることを確認する。（レコード長の不一致はエラー）最終レコードのレコード区切りは省略されていてもよい。</li>
+ * <li>ファイルサイズがレコード長の倍数でない場合はエラーとする。</li>
+ * <li>圧縮ファイルは読み込めない。（メモリマップするため）</li>
+ * <li>メモリマップはクローズ後も GC されるまで解放されないため、読込中・読込直後のファイルは削除・移動できない OS がある。</li>
+ * </ul>
+ * <pre>［例］
+ * <code>try (final FixedReader fr = new FixedReader(filePath, CharSet.MS932, layout, "user_id", "user_nm");) {
+ *   for (final IoItems items : fr) {
+ *     ：省略
+ *   }
+ * }</code>
+ * </pre>
+ */
+public final class FixedReader implements Iterable<IoItems>, AutoCloseable {
+
+  /** メモリマップ最大サイズ（1GB、レコード長の倍数に切り捨てる）. */
+  private static final long MAX_MAP_SIZE = 1_024L * 1_024 * 1_024;
+  /** 空白. */
+  private static final byte SPACE_BYTE = ' ';
+
+  /** ファイルパス. */
+  private final String filePath;
+  /** レイアウト. */
+  private final FixedLayout layout;
+  /** 文字セット（デコード用）. */
+  private final Charset decodeCharset;
+  /** ファイルチャネル. */
+  private final FileChannel channel;
+  /** 読込項目配列. */
+  private final Field[] fields;
+  /** レコード区切りバイト配列. */
+  private final byte[] sepBytes;
+  /** レコード長（レコード区切りを含む）. */
+  private final int recordSize;
+  /** レコード数. */
+  private final long recordCount;
+  /** メモリマップあたりのレコード数. */
+  private final long recordsPerMap;
+  /** 項目バッファ. */
+  private final byte[] fieldBuf;
+
+  /** 現在のメモリマップ. */
+  private MappedByteBuffer mapBuf = null;
+  /** 現在のメモリマップ番号. */
+  private long mapNo = -1;
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>読込項目名を省略した場合はレイアウトの全項目を読み込む。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param charSet 文字セット
+   * @param layout レイアウト
+   * @param fieldNames 読込項目名（省略可能）
+   */
+  public FixedReader(final String filePath, final CharSet charSet, final FixedLayout layout,
+      final String... fieldNames) {
+    this.filePath = FileUtil.convAbsolutePath(filePath);
+    this.layout = layout;
+    this.decodeCharset = Charset.forName(charSet.toString());
+    this.fields = selectFields(layout, fieldNames);
+    this.sepBytes = layout.getLineSepBytes();
+    this.recordSize = layout.getRecordLength() + this.sepBytes.length;
+    this.recordsPerMap = Math.max(1, MAX_MAP_SIZE / this.recordSize);
+    int maxLen = 0;
+    for (final Field field : this.fields) {
+      maxLen = Math.max(maxLen, field.getLength());
+    }
+    this.fieldBuf = new byte[maxLen];
+
+    if (!FileUtil.exists(this.filePath)) {
+      throw new RuntimeException("File does not exist. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    try {
+      this.channel = FileChannel.open(Paths.get(this.filePath), StandardOpenOption.READ);
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception error occurred while opening fixed-length file. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+    try {
+      final long size = this.channel.size();
+      if (size % this.recordSize == 0) {
+        this.recordCount = size / this.recordSize;
+      } else if (this.sepBytes.length > 0 && (size + this.sepBytes.length) % this.recordSize == 0) {
+        // 最終レコードのレコード区切り省略
+        this.recordCount = (size + this.sepBytes.length) / this.recordSize;
+      } else {
+        throw new RuntimeException("File size is not a multiple of the record length. "
+            + LogUtil.joinKeyVal("path", this.filePath, "size", size, "recordSize", this.recordSize));
+      }
+    } catch (final IOException | RuntimeException e) {
+      close();
+      if (e instanceof RuntimeException) {
+        throw (RuntimeException) e;
+      }
+      throw new RuntimeException("Exception error occurred while reading fixed-length file size. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * 読込項目選択.
+   *
+   * @param layout レイアウト
+   * @param fieldNames 読込項目名
+   * @return 読込項目配列
+   */
+  private static Field[] selectFields(final FixedLayout layout, final String[] fieldNames) {
+    if (ValUtil.isEmpty(fieldNames)) {
+      return layout.getFields().toArray(new Field[0]);
+    }
+    final List<Field> list = new ArrayList<>();
+    for (final String name : fieldNames) {
+      final Field field = layout.getField(name);
+      if (ValUtil.isNull(field)) {
+        throw new RuntimeException("Field is not defined in the layout. " + LogUtil.joinKeyVal("name", name));
+      }
+      list.add(field);
+    }
+    return list.toArray(new Field[0]);
+  }
+
+  /**
+   * イテレーター作成.
+   *
+   * @return レコードイテレーター
+   */
+  @Override
+  public Iterator<IoItems> iterator() {
+    return new FixedReadIterator();
+  }
+
+  /**
+   * レコード読込.<br>
+   * <ul>
+   * <li>指定レコード番号のレコードを読み込む。（先頭レコードは 0）</li>
+   * <li>レコード位置を計算して直接読み込むため、任意の順序で読み込める。</li>
+   * </ul>
+   *
+   * @param recordNo レコード番号
+   * @return レコード
+   */
+  public IoItems read(final long recordNo) {
+    if (recordNo < 0 || recordNo >= this.recordCount) {
+      throw new RuntimeException("Record number is out of range. "
+          + LogUtil.joinKeyVal("path", this.filePath, "recordNo", recordNo, "recordCount", this.recordCount));
+    }
+    final int base = mapRecord(recordNo);
+    checkLineSep(recordNo, base);
+    final IoItems row = new IoItems();
+    for (final Field field : this.fields) {
+      row.put(field.getName(), decodeField(base, field));
+    }
+    return row;
+  }
+
+  /**
+   * レコード数取得.
+   *
+   * @return レコード数
+   */
+  public long getRecordCount() {
+    return this.recordCount;
+  }
+
+  /**
+   * レイアウト取得.
+   *
+   * @return レイアウト
+   */
+  public FixedLayout getLayout() {
+    return this.layout;
+  }
+
+  /**
+   * ファイルクローズ.
+   */
+  @Override
+  public void close() {
+    this.mapBuf = null;
+    try {
+      this.channel.close();
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception error occurred while closing fixed-length file. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * レコードのメモリマップ.<br>
+   * <ul>
+   * <li>レコードを含む範囲がマップされていなければマップし直す。マップ範囲はレコード境界にそろえる。</li>
+   * </ul>
+   *
+   * @param recordNo レコード番号
+   * @return マップ内のレコード始端位置
+   */
+  private int mapRecord(final long recordNo) {
+    final long no = recordNo / this.recordsPerMap;
+    if (no != this.mapNo) {
+      final long start = no * this.recordsPerMap * this.recordSize;
+      try {
+        final long size = Math.min(this.recordsPerMap * this.recordSize, this.channel.size() - start);
+        this.mapBuf = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      } catch (final IOException e) {
+        throw new RuntimeException("Exception error occurred while mapping fixed-length file. "
+            + LogUtil.joinKeyVal("path", this.filePath, "recordNo", recordNo), e);
+      }
+      this.mapNo = no;
+    }
+    return (int) ((recordNo % this.recordsPerMap) * this.recordSize);
+  }
+
+  /**
+   * レコード区切りチェック.
+   *
+   * @param recordNo レコード番号
+   * @param base マップ内のレコード始端位置
+   */
+  private void checkLineSep(final long recordNo, final int base) {
+    final int sepPos = base + this.layout.getRecordLength();
+    if (sepPos >= this.mapBuf.limit()) {
+      // 最終レコードのレコード区切り省略
+      return;
+    }
+    for (int i = 0; i < this.sepBytes.length; i++) {
+      if (this.mapBuf.get(sepPos + i) != this.sepBytes[i]) {
+        throw new RuntimeException("Record separator is not at the expected position. Check the record length. "
+            + LogUtil.joinKeyVal("path", this.filePath, "recordNo", recordNo));
+      }
+    }
+  }
+
+  /**
+   * 項目デコード.<br>
+   * <ul>
+   * <li>文字列項目は後ろの空白、数値項目は前後の空白をバイト単位で除いてからデコードする。</li>
+   * </ul>
+   *
+   * @param base マップ内のレコード始端位置
+   * @param field 項目
+   * @return 値
+   */
+  private String decodeField(final int base, final Field field) {
+    final int len = field.getLength();
+    this.mapBuf.get(base + field.getOffset(), this.fieldBuf, 0, len);
+    int end = len;
+    while (end > 0 && this.fieldBuf[end - 1] == SPACE_BYTE) {
+      end--;
+    }
+    int begin = 0;
+    if (FieldType.NUMBER == field.getType()) {
+      while (begin < end && this.fieldBuf[begin] == SPACE_BYTE) {
+        begin++;
+      }
+    }
+    if (begin == end) {
+      return ValUtil.BLANK;
+    }
+    return new String(this.fieldBuf, begin, end - begin, this.decodeCharset);
+  }
+
+  /**
+   * 固定長ファイルイテレーター.
+   */
+  private final class FixedReadIterator implements Iterator<IoItems> {
+    /** 次のレコード番号. */
+    private long nextNo = 0;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+      return this.nextNo < FixedReader.this.recordCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IoItems next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return read(this.nextNo++);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.onepg.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import com.onepg.util.FixedLayout.Field;
+import com.onepg.util.FixedLayout.FieldType;
+import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
+
+/**
+ * 固定長ファイルライタークラス.<br>
+ * <ul>
+ * <li>レイアウト（<code>FixedLayout</code>）にしたがって <code>IoItems</code> などの行データを固定長レコードとして出力する。</li>
+ * <li>try 句（try-with-resources文）で宣言する。</li>
+ * <li>値は指定文字セットでバイト列に変換し、文字列項目は左詰め・空白埋め、数値項目は右詰め・ゼロ埋め（負の値は先頭に -）で項目の長さにそろえる。</li>
+ * <li>値のバイト数が項目の長さを超える場合はエラーとする。（２バイト文字の途中で切り捨てないため）</li>
+ * <li><code>null</code>・ブランクの項目、レイアウトに項目が無い範囲は空白で埋める。行データに無い項目はエラーとする。</li>
+ * <li>レイアウトにレコード区切りがある場合は各レコードの後ろに出力する。</li>
+ * <li>既存ファイルがある場合はエラーとする。出力パスの拡張子が gz・zip の場合は圧縮して出力する。</li>
+ * </ul>
+ * <pre>［例］
+ * <code>try (final FixedWriter fw = new FixedWriter(filePath, CharSet.MS932, layout);) {
+ *   for (final IoItems row : rows) {
+ *     fw.println(row);
+ *   }
+ * }</code>
+ * </pre>
+ */
+public final class FixedWriter implements AutoCloseable {
+
+  /** 出力バッファサイズ（64KB）. */
+  private static final int BUFFER_SIZE = 64 * 1_024;
+  /** 空白. */
+  private static final byte SPACE_BYTE = ' ';
+  /** ゼロ. */
+  private static final byte ZERO_BYTE = '0';
+  /** マイナス. */
+  private static final byte MINUS_BYTE = '-';
+
+  /** ファイルパス. */
+  private final String filePath;
+  /** レイアウト. */
+  private final FixedLayout layout;
+  /** 文字セット（エンコード用）. */
+  private final Charset encodeCharset;
+  /** 出力ストリーム. */
+  private final OutputStream os;
+  /** レコードバッファ（レコード区切りを含む）. */
+  private final byte[] recordBuf;
+  /** 出力レコード数. */
+  private long recordCount = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param charSet 文字セット
+   * @param layout レイアウト
+   */
+  public FixedWriter(final String filePath, final CharSet charSet, final FixedLayout layout) {
+    this.filePath = FileUtil.convAbsolutePath(filePath);
+    this.layout = layout;
+    this.encodeCharset = Charset.forName(charSet.toString());
+    final byte[] sepBytes = layout.getLineSepBytes();
+    this.recordBuf = new byte[layout.getRecordLength() + sepBytes.length];
+    System.arraycopy(sepBytes, 0, this.recordBuf, layout.getRecordLength(), sepBytes.length);
+
+    if (FileUtil.exists(this.filePath)) {
+      throw new RuntimeException("File already exists. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    if (!FileUtil.existsParent(this.filePath)) {
+      throw new RuntimeException("File creation target directory does not exist. "
+          + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    try {
+      this.os = new BufferedOutputStream(FileUtil.openOutputStream(this.filePath, false,
+          CompressType.byFilePath(this.filePath), "dat"), BUFFER_SIZE);
+    } catch (final IOException e) {
+      throw new RuntimeException("An exception error occurred while creating output stream. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * レコード出力.
+   *
+   * @param row 行データ
+   */
+  public void println(final AbstractIoTypeMap row) {
+    Arrays.fill(this.recordBuf, 0, this.layout.getRecordLength(), SPACE_BYTE);
+    for (final Field field : this.layout.getFields()) {
+      if (!row.containsKey(field.getName())) {
+        throw new RuntimeException("Row does not have the layout field. "
+            + LogUtil.joinKeyVal("path", this.filePath, "field", field.getName(), "recordNo", this.recordCount));
+      }
+      encodeField(field, row.getStringNullable(field.getName()));
+    }
+    try {
+      this.os.write(this.recordBuf);
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception error occurred while writing fixed-length record. "
+          + LogUtil.joinKeyVal("path", this.filePath, "recordNo", this.recordCount), e);
+    }
+    this.recordCount++;
+  }
+
+  /**
+   * 項目エンコード.
+   *
+   * @param field 項目
+   * @param value 値
+   */
+  private void encodeField(final Field field, final String value) {
+    if (ValUtil.isBlank(value)) {
+      // 空白埋め済
+      return;
+    }
+    final byte[] bytes = value.getBytes(this.encodeCharset);
+    final int len = field.getLength();
+    if (bytes.length > len) {
+      throw new RuntimeException("Value exceeds the field length. " + LogUtil.joinKeyVal("path", this.filePath,
+          "field", field.getName(), "length", len, "bytes", bytes.length, "recordNo", this.recordCount));
+    }
+    final int offset = field.getOffset();
+    if (FieldType.NUMBER != field.getType()) {
+      System.arraycopy(bytes, 0, this.recordBuf, offset, bytes.length);
+      return;
+    }
+    // 数値は右詰め・ゼロ埋め（符号は先頭）
+    final int padLen = len - bytes.length;
+    if (bytes[0] == MINUS_BYTE) {
+      this.recordBuf[offset] = MINUS_BYTE;
+      Arrays.fill(this.recordBuf, offset + 1, offset + 1 + padLen, ZERO_BYTE);
+      System.arraycopy(bytes, 1, this.recordBuf, offset + 1 + padLen, bytes.length - 1);
+    } else {
+      Arrays.fill(this.recordBuf, offset, offset + padLen, ZERO_BYTE);
+      System.arraycopy(bytes, 0, this.recordBuf, offset + padLen, bytes.length);
+    }
+  }
+
+  /**
+   * フラッシュ.
+   */
+  public void flush() {
+    try {
+      this.os.flush();
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception error occurred while flushing fixed-length file. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * ファイルクローズ.
+   */
+  @Override
+  public void close() {
+    try {
+      this.os.close();
+    } catch (final IOException e) {
+      throw new RuntimeException("Exception error occurred while closing fixed-length file. "
+          + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * ファイルパス取得.
+   *
+   * @return ファイルパス
+   */
+  public String getFilePath() {
+    return this.filePath;
+  }
+
+  /**
+   * 出力レコード数取得.
+   *
+   * @return 出力レコード数
+   */
+  public long getRecordCount() {
+    return this.recordCount;
+  }
+}
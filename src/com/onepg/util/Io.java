@@ -99,6 +99,7 @@ import java.util.Map;
  * <ul>
  * <li>セッションデータへの操作は本インスタンスが保持するデータに直接影響する。</li>
  * <li>JSON 取込時にセッションデータも格納される。</li>
+ * <li>URLパラメーター取込時は <code>_session</code> の値（JSON）がセッションデータとして格納される。</li>
  * <li>JSON 作成時にセッションデータも出力される。</li>
  * <li>JSON 入出力時のキーは <code>_session</code> 固定となる。</li>
  * </ul>
@@ -1121,6 +1122,13 @@ public final class Io extends AbstractIoTypeMap {
         val = ValUtil.urlDecode(keyVal[1]);
       }
 
+      if (KEY_SESSION.equals(key)) {
+        // セッションデータ追加
+        count++;
+        this.sessionData.putAllByJson(val);
+        continue;
+      }
+
       if (key.endsWith("[]")) {
         final String lsKey = key.substring(key.length() - 2);
         final List<String> list;
@@ -1226,6 +1234,37 @@ public final class Io extends AbstractIoTypeMap {
     return count;
   }
 
+  /**
+   * JSON配列から I/Oマップリスト作成.<br>
+   * <ul>
+   * <li>連想配列の配列の JSON から、連想配列ごとに I/Oマップを作成して返す。</li>
+   * <li>各連想配列は <code>#putAllByJson(String)</code> と同様に格納されるため、ネストマップ・複数行リスト等も格納される。</li>
+   * <li>配列要素が <code>null</code> の場合はリストに <code>null</code> を格納する。</li>
+   * </ul>
+   *
+   * @param jsonAry JSON配列文字列
+   * @return I/Oマップリスト
+   */
+  public static List<Io> createListByJsonArray(final String jsonAry) {
+    if (ValUtil.isBlank(jsonAry) || !JsonArraySeparateParser.JSON_ARRAY_PATTERN.matcher(jsonAry).find()) {
+      throw new RuntimeException("JSON array is required. " + LogUtil.joinKeyVal("json", jsonAry));
+    }
+    final List<Io> list = new ArrayList<>();
+    for (final String json : new JsonArraySeparateParser(jsonAry)) {
+      if (ValUtil.JSON_NULL.equals(json)) {
+        list.add(null);
+        continue;
+      }
+      if (!JsonMapSeparateParser.JSON_MAP_PATTERN.matcher(json).find()) {
+        throw new RuntimeException("JSON array element must be an object. " + LogUtil.joinKeyVal("json", json));
+      }
+      final Io io = new Io();
+      io.putAllByJson(json);
+      list.add(io);
+    }
+    return list;
+  }
+
   /**
    * JSON配列文字列 to 文字列リスト.
    *
@@ -170,11 +170,14 @@ public final class IoItems extends AbstractIoTypeMap {
   }
 
   /**
-   * JSON作成.
+   * JSON作成.<br>
+   * <ul>
+   * <li>行ごとに JSON を出力する場合（ストリーミングレスポンス等）に使用します。</li>
+   * </ul>
    *
    * @return JSON文字列
    */
-  String createJson() {
+  public String createJson() {
     final Map<String, String> valMap = super.getValMap();
     final StringBuilder sb = new StringBuilder();
     for (final String key : super.allKeySet()) {
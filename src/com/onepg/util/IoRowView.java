@@ -0,0 +1,269 @@
+package com.onepg.util;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.onepg.util.ValUtil.CsvType;
+
+
+/**
+ * 読取専用行ビュークラス.<br>
+ * <ul>
+ * <li><code>CsvReader#rowViews()</code>・<code>IoTsvReader#rowViews()</code> が返す、全行で使い回される読取専用の行マップ。</li>
+ * <li>現在行の文字列と各項目の始点終点のみを保持し、値は取得時に切り出す。</li>
+ * <li>キーはヘッダ行（またはキー配列）から１回だけ検証し、行ごとのキー検証・マップ作成を行わない。</li>
+ * <li>次行を読み込むと内容が置き換わるため、行を保持する場合は <code>new IoItems(view)</code> でコピーする。</li>
+ * <li>格納・削除は実行時エラーとなる。</li>
+ * <li>値の内容は同じ行を <code>CsvReader</code>・<code>IoTsvReader</code> のイテレーターで読み込んだ <code>IoItems</code> と同じになる。</li>
+ * </ul>
+ */
+public final class IoRowView extends AbstractIoTypeMap {
+
+  /** 行ビューマップ. */
+  private final RowViewMap rowMap;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param keys キー配列
+   * @param csvType CSVタイプ（データ入出力用TSV の場合は <code>null</code>）
+   */
+  IoRowView(final String[] keys, final CsvType csvType) {
+    this(new RowViewMap(keys, csvType));
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param rowMap 行ビューマップ
+   */
+  private IoRowView(final RowViewMap rowMap) {
+    super(rowMap, Collections.emptySet());
+    this.rowMap = rowMap;
+  }
+
+  /**
+   * 行文字列セット.<br>
+   * <ul>
+   * <li>行文字列を走査し、各項目の始点終点を更新する。</li>
+   * </ul>
+   *
+   * @param line 行文字列
+   */
+  void setLine(final String line) {
+    this.rowMap.setLine(line);
+  }
+
+  /**
+   * ダブルクォーテーション未閉鎖判定.
+   *
+   * @return 現在行のダブルクォーテーションが閉じてない場合は <code>true</code>
+   */
+  boolean isUnclosedDq() {
+    return this.rowMap.unclosedDq;
+  }
+
+  /**
+   * 文字列表現取得.<br>
+   * <ul>
+   * <li>現在行を <code>IoItems</code> にコピーしたログ出力用文字列を返す。</li>
+   * </ul>
+   *
+   * @return 文字列表現
+   */
+  @Override
+  public String toString() {
+    return new IoItems(this).toString();
+  }
+
+  /**
+   * 行ビューマップクラス.<br>
+   * <ul>
+   * <li>キーからキー配列インデックスを求め、現在行の始点終点から値を切り出す。</li>
+   * <li>項目位置の配列はキー数分を１回だけ確保して使い回す。</li>
+   * </ul>
+   */
+  private static final class RowViewMap extends AbstractMap<String, String> {
+
+    /** キー配列. */
+    private final String[] keys;
+    /** キーインデックスマップ&lt;キー、キー配列インデックス&gt;（ブランクキーは含まない）. */
+    private final Map<String, Integer> keyIdxMap;
+    /** CSVタイプ（データ入出力用TSV の場合は <code>null</code>）. */
+    private final CsvType csvType;
+    /** 項目始点配列. */
+    private final int[] begins;
+    /** 項目終点配列. */
+    private final int[] ends;
+
+    /** 現在行文字列. */
+    private String line = null;
+    /** 現在行の格納項目数（キー数以下）. */
+    private int fieldCount = 0;
+    /** ダブルクォーテーション未閉鎖判定フラグ. */
+    private boolean unclosedDq = false;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param keys キー配列
+     * @param csvType CSVタイプ
+     */
+    private RowViewMap(final String[] keys, final CsvType csvType) {
+      super();
+      this.keys = keys;
+      this.csvType = csvType;
+      this.begins = new int[keys.length];
+      this.ends = new int[keys.length];
+      // キーはここで１回だけ検証する
+      this.keyIdxMap = new HashMap<>();
+      for (int i = 0; i < keys.length; i++) {
+        final String key = keys[i];
+        if (ValUtil.isBlank(key)) {
+          // キー名がブランクの場合は不要項目としスキップする
+          continue;
+        }
+        ValUtil.validateIoKey(key);
+        if (this.keyIdxMap.containsKey(key)) {
+          throw new RuntimeException("Key already exists. " + LogUtil.joinKeyVal("key", key));
+        }
+        this.keyIdxMap.put(key, i);
+      }
+    }
+
+    /**
+     * 行文字列セット.<br>
+     * <ul>
+     * <li>項目位置の走査は <code>SimpleSeparateParser</code>・<code>CsvDqParser</code> の分割ルールをそのまま使用する。</li>
+     * </ul>
+     *
+     * @param line 行文字列
+     */
+    private void setLine(final String line) {
+      this.line = line;
+      this.fieldCount = 0;
+      if (ValUtil.isNull(this.csvType)) {
+        SimpleSeparateParser.scanBeginEnds(line, ValUtil.TAB, this::addPos);
+        this.unclosedDq = false;
+      } else if (this.csvType == CsvType.NO_DQ) {
+        SimpleSeparateParser.scanBeginEnds(line, ",", this::addPos);
+        this.unclosedDq = false;
+      } else {
+        // キー数を超える項目も、ダブルクォーテーションの閉鎖判定のため末尾まで走査される
+        this.unclosedDq = CsvDqParser.scanBeginEnds(line, this::addPos);
+      }
+    }
+
+    /**
+     * 項目位置追加.
+     *
+     * @param beginPos 始点
+     * @param endPos 終点
+     */
+    private void addPos(final int beginPos, final int endPos) {
+      if (this.keys.length <= this.fieldCount) {
+        // キー列より多い項目は格納しない
+        return;
+      }
+      this.begins[this.fieldCount] = beginPos;
+      this.ends[this.fieldCount] = endPos;
+      this.fieldCount++;
+    }
+
+    /**
+     * キー配列インデックス取得.
+     *
+     * @param key キー
+     * @return キー配列インデックス（現在行に値が無い場合は -1）
+     */
+    private int getIdx(final Object key) {
+      final Integer idx = this.keyIdxMap.get(key);
+      if (ValUtil.isNull(idx) || this.fieldCount <= idx) {
+        return -1;
+      }
+      return idx;
+    }
+
+    /**
+     * 値切り出し.
+     *
+     * @param idx キー配列インデックス
+     * @return 値
+     */
+    private String getValue(final int idx) {
+      final String value = this.line.substring(this.begins[idx], this.ends[idx]);
+      if (ValUtil.isNull(this.csvType)) {
+        return ValUtil.reEscIoTsv(value);
+      }
+      if (this.csvType == CsvType.NO_DQ) {
+        return value;
+      }
+      return value.replace("\"\"", "\"");
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return getIdx(key) >= 0;
+    }
+
+    @Override
+    public String get(final Object key) {
+      final int idx = getIdx(key);
+      if (idx < 0) {
+        return null;
+      }
+      return getValue(idx);
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (final int idx : this.keyIdxMap.values()) {
+        if (idx < this.fieldCount) {
+          size++;
+        }
+      }
+      return size;
+    }
+
+    /**
+     * エントリーセット取得.<br>
+     * <ul>
+     * <li>現在行の内容をキー順にコピーした読取専用セットを返す。</li>
+     * </ul>
+     *
+     * @return エントリーセット
+     */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      final Map<String, String> map = new LinkedHashMap<>();
+      for (int i = 0; i < this.fieldCount; i++) {
+        final String key = this.keys[i];
+        if (ValUtil.isBlank(key)) {
+          continue;
+        }
+        map.put(key, getValue(i));
+      }
+      return Collections.unmodifiableSet(map.entrySet());
+    }
+
+    @Override
+    public String put(final String key, final String value) {
+      throw new UnsupportedOperationException("Row view is read-only. " + LogUtil.joinKeyVal("key", key));
+    }
+
+    @Override
+    public String remove(final Object key) {
+      throw new UnsupportedOperationException("Row view is read-only. " + LogUtil.joinKeyVal("key", key));
+    }
+
+    @Override
+    public void clear() {
+      throw new UnsupportedOperationException("Row view is read-only. ");
+    }
+  }
+}
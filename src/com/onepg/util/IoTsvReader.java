@@ -3,6 +3,7 @@ package com.onepg.util;
 import java.util.Iterator;
 
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 
 
 /**
@@ -15,6 +16,8 @@ import com.onepg.util.ValUtil.CharSet;
  * <li>キー名は <code>IoItems</code> オブジェクトキーとして有効な値である必要があります。（<code>AbstractIoTypeMap</code> のキールール）</li>
  * <li>ファイルの文字コードは UTF-8、改行コードは LF の前提とする。</li>
  * <li>値内にある改行コード（CRLF・CR・LF）とタブ文字はエスケープされている前提とする。</li>
+ * <li>gzip・zip圧縮ファイルを直接読み込める。（<code>TxtReader</code> 参照）</li>
+ * <li>行ごとの <code>IoItems</code> 作成を避けたい場合は <code>#rowViews()</code> で読取専用行ビューを使い回すストリーミングモードを使用できる。</li>
  * </ul>
  * <pre>［例］
  * <code>try (final IoTsvReader tr = new IoTsvReader(filePath);) {
@@ -42,7 +45,20 @@ public final class IoTsvReader implements Iterable<IoItems>, AutoCloseable {
    * @param filePath ファイルパス
    */
   public IoTsvReader(final String filePath) {
-    this.txtReader = new TxtReader(filePath, CharSet.UTF8);
+    this(filePath, CompressType.byFilePath(filePath));
+  }
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>ファイルの１行目をヘッダ行とし <code>IoItems</code> のキーに使用する。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param compressType 圧縮タイプ
+   */
+  public IoTsvReader(final String filePath, final CompressType compressType) {
+    this.txtReader = new TxtReader(filePath, CharSet.UTF8, compressType);
     // ファイルの1行目をキーとして取得
     final String firstLine = this.txtReader.getFirstLine();
     if (ValUtil.isNull(firstLine)) {
@@ -62,6 +78,26 @@ public final class IoTsvReader implements Iterable<IoItems>, AutoCloseable {
     return new TsvReadIterator();
   }
 
+  /**
+   * 行ビューイテラブル取得.<br>
+   * <ul>
+   * <li>全行で同じ読取専用行ビュー <code>IoRowView</code> を返すストリーミングモードのイテラブルを返す。</li>
+   * <li>キーの検証は最初に１回だけ行い、行ごとの <code>IoItems</code> 作成・キー検証・項目配列作成を行わない。</li>
+   * <li>値をバインドするだけの用途（［例］<code>SqlConst#bind</code>）では行ごとのオブジェクト生成がほぼ無くなる。</li>
+   * <li>次行を読み込むと行ビューの内容は置き換わるため、行を保持する場合は <code>new IoItems(view)</code> でコピーする。</li>
+   * </ul>
+   * <pre>［例］
+   * <code>for (final IoRowView row : tr.rowViews()) {
+   *   SqlUtil.executeOneCache(conn, SQL_INS.bind(row));
+   * }</code>
+   * </pre>
+   *
+   * @return TSV行ビューイテラブル
+   */
+  public Iterable<IoRowView> rowViews() {
+    return () -> new TsvRowViewIterator();
+  }
+
   /**
    * ファイルクローズ.
    */
@@ -103,6 +139,33 @@ public final class IoTsvReader implements Iterable<IoItems>, AutoCloseable {
     return this.txtReader.isReadedEndRow();
   }
 
+  /**
+   * 読込済バイト位置取得.<br>
+   * <ul>
+   * <li>イテレーターで読み込んだ最後の行の終端のバイト位置を返す。（<code>TxtReader#getReadedBytes()</code> 参照）</li>
+   * <li>中断した読込を再開する位置として <code>#seek(long)</code> に渡せる。</li>
+   * </ul>
+   *
+   * @return 読込済バイト位置
+   */
+  public long getReadedBytes() {
+    return this.txtReader.getReadedBytes();
+  }
+
+  /**
+   * バイト位置移動.<br>
+   * <ul>
+   * <li>以前に <code>#getReadedBytes()</code> で取得したバイト位置まで読み飛ばし、次に読み込む行をその位置から始まる行にする。（<code>TxtReader#seek(long)</code> 参照）</li>
+   * <li>読込済行数はカウントアップされない。</li>
+   * <li>イテレーター作成前に呼び出す必要がある。</li>
+   * </ul>
+   *
+   * @param bytePos バイト位置
+   */
+  public void seek(final long bytePos) {
+    this.txtReader.seek(bytePos);
+  }
+
   /**
    * TSV読み込み行イテレータークラス.
    */
@@ -152,4 +215,59 @@ public final class IoTsvReader implements Iterable<IoItems>, AutoCloseable {
       return items;
     }
   }
+
+  /**
+   * TSV読み込み行ビューイテレータークラス.<br>
+   * <ul>
+   * <li>全行で同じ読取専用行ビューを返す。</li>
+   * </ul>
+   */
+  public final class TsvRowViewIterator implements Iterator<IoRowView> {
+
+    /** TxtReader のイテレーター */
+    private final Iterator<String> txtIterator;
+    /** 行ビュー */
+    private final IoRowView view;
+
+    /**
+     * コンストラクタ.
+     */
+    private TsvRowViewIterator() {
+      super();
+      this.txtIterator = txtReader.iterator();
+      this.view = new IoRowView(keys, null);
+    }
+
+    /**
+     * 次行確認.
+     *
+     * @return 次行が存在する場合は <code>true</code>
+     */
+    @Override
+    public boolean hasNext() {
+      if (ValUtil.isEmpty(keys)) {
+        // キー配列が無い場合は次行無しとする
+        return false;
+      }
+      return this.txtIterator.hasNext();
+    }
+
+    /**
+     * 次行取得.<br>
+     * <ul>
+     * <li>行ビューの内容を次の TSV行に置き換えて返す。</li>
+     * </ul>
+     *
+     * @return TSV行の行ビュー
+     */
+    @Override
+    public IoRowView next() {
+      final String line = this.txtIterator.next();
+      // 読込済行数をカウントアップ
+      readedCount++;
+
+      this.view.setLine(line);
+      return this.view;
+    }
+  }
 }
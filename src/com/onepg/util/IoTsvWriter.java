@@ -1,7 +1,9 @@
 package com.onepg.util;
 
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 import com.onepg.util.ValUtil.LineSep;
+import java.security.MessageDigest;
 
 /**
  * データ入出力用TSVライタークラス.<br>
@@ -12,6 +14,7 @@ import com.onepg.util.ValUtil.LineSep;
  * <li>ファイルの文字コードは UTF-8、改行コードは LF 固定とする。</li>
  * <li><code>null</code> はエスケープする。</li>
  * <li>値内にある改行コード（CRLF・CR・LF）とタブ文字はエスケープする。</li>
+ * <li>圧縮タイプを指定した場合は gzip・zip圧縮ファイルに直接出力できる。（<code>TxtWriter</code> 参照）</li>
  * </ul>
  */
 public final class IoTsvWriter implements AutoCloseable {
@@ -20,12 +23,39 @@ public final class IoTsvWriter implements AutoCloseable {
   private final TxtWriter txtWriter;
 
   /**
-   * コンストラクタ.
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>拡張子に関わらず圧縮せずに出力する。</li>
+   * </ul>
    *
    * @param filePath ファイルパス
    */
   public IoTsvWriter(final String filePath) {
-    this.txtWriter = new TxtWriter(filePath, LineSep.LF, CharSet.UTF8);
+    this(filePath, CompressType.NONE);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param compressType 圧縮タイプ
+   */
+  public IoTsvWriter(final String filePath, final CompressType compressType) {
+    this(filePath, compressType, null);
+  }
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>ファイルに書き込むバイト列（圧縮後）でダイジェストを更新する。クローズ後に <code>MessageDigest#digest()</code> でハッシュ値を取得する。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param compressType 圧縮タイプ
+   * @param digest ダイジェスト（不要な場合は <code>null</code>）
+   */
+  public IoTsvWriter(final String filePath, final CompressType compressType, final MessageDigest digest) {
+    this.txtWriter = new TxtWriter(filePath, LineSep.LF, CharSet.UTF8, false, false, false, compressType, "tsv", digest);
   }
 
   /**
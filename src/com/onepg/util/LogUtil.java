@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * ログユーティリティクラス.
@@ -31,6 +32,8 @@ public final class LogUtil {
   private static final PrintWriter CONSOLE_WRITER;
   /** 親プロセスID（全インスタンス共通）. */
   static final long PARENT_PID;
+  /** スレッド別ログ転送先（子スレッドに引き継ぐ）. */
+  private static final InheritableThreadLocal<Consumer<String>> THREAD_LOG_FORWARDER = new InheritableThreadLocal<>();
 
   static {
     PROP_MAP = PropertiesUtil.getFrameworkProps(FwPropertiesName.LOG);
@@ -87,6 +90,33 @@ public final class LogUtil {
     }
   }
 
+  /**
+   * スレッド別ログ転送先設定.<br>
+   * <ul>
+   * <li>設定後に現在のスレッド（およびそこから生成した子スレッド）でログ出力すると、ログファイルへの出力に加えて出力内容を転送先に渡す。（ログライターの生成時期は問わない）</li>
+   * <li>常駐バッチ実行デーモンでジョブごとのログを呼び出し元へ返すために使用する。</li>
+   * <li><code>null</code> を指定すると解除する。</li>
+   * </ul>
+   *
+   * @param forwarder 転送先（解除する場合は <code>null</code>）
+   */
+  public static void setThreadLogForwarder(final Consumer<String> forwarder) {
+    if (ValUtil.isNull(forwarder)) {
+      THREAD_LOG_FORWARDER.remove();
+      return;
+    }
+    THREAD_LOG_FORWARDER.set(forwarder);
+  }
+
+  /**
+   * スレッド別ログ転送先取得.
+   *
+   * @return 転送先（未設定の場合は <code>null</code>）
+   */
+  static Consumer<String> getThreadLogForwarder() {
+    return THREAD_LOG_FORWARDER.get();
+  }
+
   /**
    * 標準出力.
    *
@@ -4,6 +4,7 @@ import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.ResolverStyle;
+import java.util.function.Consumer;
 
 
 /**
@@ -14,6 +15,7 @@ import java.time.format.ResolverStyle;
  * <li>ログテキストハンドラー <code>LogTxtHandler</code> からテキストライターインスタンスを取得してログ出力する。</li>
  * <li>情報用とエラー用、２つのログテキストハンドラーを保持する。</li>
  * <li>開発モードの場合はコンソールにもログ出力する。</li>
+ * <li>出力時のスレッドにログ転送先が設定されている場合は転送先にもログ出力する。（<code>LogUtil#setThreadLogForwarder(Consumer)</code> 参照）</li>
  * <li>ログテキストのオープン・クローズはログテキストハンドラーが受け持ち、本クラスではオープン・クローズしない。</li>
  * </ul>
  */
@@ -31,7 +33,6 @@ public final class LogWriter {
   private final LogTxtHandler errHdr;
   /** コンソールライター（開発用）. */
   private final PrintWriter console;
-
   /** 追跡コード. */
   private final String traceCode;
   /** 情報ログプレフィックス. */
@@ -118,6 +119,28 @@ public final class LogWriter {
     return log;
   }
 
+  /**
+   * ログ転送.<br>
+   * <ul>
+   * <li>転送先は出力ごとに現在のスレッドから取得する。（ジョブをまたいで使い回されるログライターでも実行中のジョブへ転送するため）</li>
+   * <li>転送先でのエラーは握りつぶす。</li>
+   * </ul>
+   *
+   * @param log ログ文言
+   */
+  private void forward(final String log) {
+    final Consumer<String> forwarder = LogUtil.getThreadLogForwarder();
+    if (ValUtil.isNull(forwarder)) {
+      return;
+    }
+    try {
+      forwarder.accept(log);
+    } catch (Exception e) {
+      // ログ転送中のエラーは握りつぶす
+      LogUtil.stdout(e, "An exception occurred while forwarding the log. " + LogUtil.joinKeyVal("log", log));
+    }
+  }
+
   /**
    * 共通ログ出力処理.
    */
@@ -153,6 +176,12 @@ public final class LogWriter {
         this.console.println(stackTrace);
       }
     }
+
+    // ログ転送
+    forward(log);
+    if (stackTrace != null) {
+      forward(stackTrace);
+    }
   }
 
   /**
@@ -214,6 +243,7 @@ public final class LogWriter {
     if (this.isDevelopMode) {
       this.console.println(log);
     }
+    forward(log);
   }
 
   /**
@@ -232,6 +262,7 @@ public final class LogWriter {
     if (this.isDevelopMode) {
       this.console.println(log);
     }
+    forward(log);
   }
 
   /**
@@ -250,6 +281,7 @@ public final class LogWriter {
     if (this.isDevelopMode) {
       this.console.println(log);
     }
+    forward(log);
   }
 
   /**
@@ -270,6 +302,7 @@ public final class LogWriter {
       LogUtil.stdout(e, "An exception occurred while writing to the develop log. " + LogUtil.joinKeyVal("log", log));
     }
     this.console.println(log);
+    forward(log);
   }
 
   /**
@@ -0,0 +1,693 @@
+package com.onepg.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
+import com.onepg.util.ValUtil.CsvType;
+
+
+/**
+ * 並列行リーダークラス.<br>
+ * <ul>
+ * <li>CSV・データ入出力用TSV ファイルを行（レコード）境界で複数の範囲に分割し、ForkJoin プールで範囲ごとに並列解析する。</li>
+ * <li>try 句（try-with-resources文）で宣言する。</li>
+ * <li>各行は <code>IoItems</code> として引数の処理に渡される。解析結果は <code>CsvReader</code>・<code>IoTsvReader</code> と同じになる。</li>
+ * <li>行の引き渡し順は下記から選択できる。
+ *   <ul>
+ *   <li>順序保証：呼び出し元スレッドでファイルの行順に処理を呼び出す。</li>
+ *   <li>順序非保証：解析したワーカースレッドで並行に処理を呼び出す。（処理はスレッドセーフである必要がある）</li>
+ *   </ul></li>
+ * <li>範囲の境界は LF の直後とする。改行コードが CR のみのファイルは分割されず１範囲で解析される。</li>
+ * <li>CSVタイプが改行有りの場合は、事前に各範囲のダブルクォーテーション数を並列に数え、値内の改行で範囲が分割されないよう境界を調整する。</li>
+ * <li>gzip・zip圧縮ファイルは範囲に分割できないため読み込めない。</li>
+ * <li>１行（レコード）は範囲をまたがないため、１範囲の大きさは範囲サイズより大きくなることがある。</li>
+ * </ul>
+ * <pre>［例］
+ * <code>try (final ParallelRowReader pr = new ParallelRowReader(filePath, CharSet.UTF8, CsvType.DQ_ALL_LF);) {
+ *   pr.read(row -&gt; {
+ *     ：省略
+ *   }, true);
+ * }</code>
+ * </pre>
+ */
+public final class ParallelRowReader implements AutoCloseable {
+
+  /** デフォルト範囲サイズ（8MB）. */
+  private static final int DEFAULT_CHUNK_SIZE = 8 * 1_024 * 1_024;
+  /** LF検索バッファサイズ（64KB）. */
+  private static final int FIND_LF_BUFFER_SIZE = 64 * 1_024;
+
+  /** ファイルパス. */
+  private final String filePath;
+  /** ファイルチャネル. */
+  private final FileChannel channel;
+  /** ファイルサイズ. */
+  private final long fileSize;
+  /** 文字セット. */
+  private final CharSet charSet;
+  /** 文字セット（デコード用）. */
+  private final Charset decodeCharset;
+  /** CSVタイプ（データ入出力用TSV の場合は <code>null</code>）. */
+  private final CsvType csvType;
+  /** キー配列. */
+  private final String[] keys;
+  /** データ始点（ヘッダ行を除く）. */
+  private final long dataBeginPos;
+
+  /** 並列数. */
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  /** 範囲サイズ（バイト）. */
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  /** 読込済行数（ヘッダ行を除く）. */
+  private final AtomicLong readedCount = new AtomicLong(0);
+  /** 読込実行済フラグ. */
+  private boolean readExecuted = false;
+  /** 閉じた場合は <code>true</code> */
+  private boolean isClosed = false;
+
+  /**
+   * コンストラクタ（データ入出力用TSV）.<br>
+   * <ul>
+   * <li>ファイルの１行目をヘッダ行とし <code>IoItems</code> のキーに使用する。</li>
+   * <li>ファイルの文字コードは UTF-8、改行コードは LF の前提とする。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   */
+  public ParallelRowReader(final String filePath) {
+    this(filePath, CharSet.UTF8, null, null);
+  }
+
+  /**
+   * コンストラクタ（CSV）.<br>
+   * <ul>
+   * <li>ファイルの１行目をヘッダ行とし <code>IoItems</code> のキーに使用する。</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param charSet  文字セット
+   * @param csvType CSVタイプ
+   */
+  public ParallelRowReader(final String filePath, final CharSet charSet, final CsvType csvType) {
+    this(filePath, charSet, null, csvType);
+    if (ValUtil.isNull(csvType)) {
+      throw new RuntimeException("CSV type is required. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+  }
+
+  /**
+   * コンストラクタ（CSV）.<br>
+   * <ul>
+   * <li>引数のキー配列を使用し、ファイルの１行目からCSVデータとして読み込む。</li>
+   * <li>キー名は <code>IoItems</code> オブジェクトキーとして有効な値である必要があります。（<code>AbstractIoTypeMap</code> のキールール）</li>
+   * </ul>
+   *
+   * @param filePath ファイルパス
+   * @param charSet  文字セット
+   * @param keys キー配列
+   * @param csvType CSVタイプ
+   */
+  public ParallelRowReader(final String filePath, final CharSet charSet, final String[] keys, final CsvType csvType) {
+    this.filePath = FileUtil.convAbsolutePath(filePath);
+    if (!FileUtil.exists(this.filePath)) {
+      throw new RuntimeException("File does not exist. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    if (CompressType.NONE != CompressType.byFilePath(this.filePath)) {
+      // 圧縮ファイルは範囲に分割できない
+      throw new RuntimeException("Compressed file cannot be read in parallel. Use CsvReader or IoTsvReader. "
+          + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    if (!ValUtil.isNull(keys) && ValUtil.isEmpty(keys)) {
+      throw new RuntimeException("Keys array is empty. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    this.charSet = charSet;
+    this.decodeCharset = Charset.forName(charSet.toString());
+    this.csvType = csvType;
+
+    try {
+      this.channel = FileChannel.open(Paths.get(this.filePath), StandardOpenOption.READ);
+      this.fileSize = this.channel.size();
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while reading file. " + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+
+    if (!ValUtil.isNull(keys)) {
+      // 引数のキー配列を使用する
+      this.keys = keys;
+      this.dataBeginPos = 0;
+      return;
+    }
+
+    // ファイルの1行目をキーとして取得
+    final long[] firstLineEnd = findFirstLineEnd();
+    if (firstLineEnd[0] < 0) {
+      // ファイルがゼロ行
+      this.keys = new String[0];
+      this.dataBeginPos = this.fileSize;
+      return;
+    }
+    final String firstLine = new String(readBytes(0, firstLineEnd[0]), this.decodeCharset);
+    if (ValUtil.isNull(this.csvType)) {
+      this.keys = ValUtil.split(firstLine, ValUtil.TAB);
+    } else {
+      this.keys = ValUtil.splitCsv(firstLine, this.csvType);
+    }
+    this.dataBeginPos = firstLineEnd[1];
+  }
+
+  /**
+   * 並列数設定.<br>
+   * <ul>
+   * <li>省略時は利用可能なプロセッサ数となる。</li>
+   * </ul>
+   *
+   * @param parallelism 並列数
+   */
+  public void setParallelism(final int parallelism) {
+    if (parallelism <= 0) {
+      throw new RuntimeException("Parallelism must be positive. " + LogUtil.joinKeyVal("parallelism", parallelism));
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * 範囲サイズ設定.<br>
+   * <ul>
+   * <li>１範囲の目安のバイト数。省略時は 8MB となる。</li>
+   * </ul>
+   *
+   * @param chunkSize 範囲サイズ（バイト）
+   */
+  public void setChunkSize(final int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new RuntimeException("Chunk size must be positive. " + LogUtil.joinKeyVal("chunkSize", chunkSize));
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * ファイルクローズ.
+   */
+  @Override
+  public void close() {
+    if (this.isClosed) {
+      return;
+    }
+    this.isClosed = true;
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while closing file. " + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+  }
+
+  /**
+   * キー配列取得. <br>
+   * <ul>
+   * <li>ファイルの1行目をキーとした場合は、ファイルの1行目から取得したキー配列を返す。</li>
+   * <li>ファイルがゼロ行の場合は長さゼロの配列を返す。</li>
+   * <li>引数のキー配列を使用した場合は、引数のキー配列を返す。</li>
+   * </ul>
+   *
+   * @return キー配列
+   */
+  public String[] getKeys() {
+    return this.keys;
+  }
+
+  /**
+   * 読込済行数（ヘッダ行を除く）取得.
+   *
+   * @return 読込済行数
+   */
+  public long getReadedCount() {
+    return this.readedCount.get();
+  }
+
+  /**
+   * 全行読込.<br>
+   * <ul>
+   * <li>ファイルを範囲に分割して並列に解析し、各行を引数の処理に渡す。</li>
+   * <li>順序保証の場合、処理は呼び出し元スレッドでファイルの行順に呼び出される。
+   * 解析済みで未処理の範囲は並列数の２倍までに制限される。</li>
+   * <li>順序非保証の場合、処理は各ワーカースレッドから並行に呼び出されるため、スレッドセーフである必要がある。</li>
+   * <li>いずれかの範囲でエラーが発生した場合は残りの範囲を中止して例外をスローする。</li>
+   * <li>読込は１回のみ実行できる。</li>
+   * </ul>
+   *
+   * @param action 行処理
+   * @param keepOrder 順序保証する場合は <code>true</code>
+   * @return 読込行数（ヘッダ行を除く）
+   */
+  public long read(final Consumer<IoItems> action, final boolean keepOrder) {
+    if (this.isClosed) {
+      throw new RuntimeException("File is already closed. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    if (this.readExecuted) {
+      throw new RuntimeException("Read has already been executed. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    this.readExecuted = true;
+    if (ValUtil.isEmpty(this.keys) || this.fileSize <= this.dataBeginPos) {
+      // キー配列またはデータが無い場合は終了
+      return 0;
+    }
+
+    final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+    try {
+      // 範囲始点リスト
+      final List<Long> begins = createRangeBegins(pool);
+      if (keepOrder) {
+        readOrdered(pool, begins, action);
+      } else {
+        readUnordered(pool, begins, action);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    return this.readedCount.get();
+  }
+
+  /**
+   * 順序保証読込.
+   *
+   * @param pool ForkJoin プール
+   * @param begins 範囲始点リスト
+   * @param action 行処理
+   */
+  private void readOrdered(final ForkJoinPool pool, final List<Long> begins, final Consumer<IoItems> action) {
+    // 解析済みで未処理の範囲の上限
+    final int maxInFlight = this.parallelism * 2;
+    final Deque<ForkJoinTask<List<IoItems>>> tasks = new ArrayDeque<>();
+    int nextIdx = 0;
+    while (nextIdx < begins.size() || !tasks.isEmpty()) {
+      while (nextIdx < begins.size() && tasks.size() < maxInFlight) {
+        final long begin = begins.get(nextIdx);
+        final long end = getRangeEnd(begins, nextIdx);
+        tasks.add(pool.submit(() -> parseRange(begin, end)));
+        nextIdx++;
+      }
+      // 先頭の範囲から順に処理する
+      final List<IoItems> rows = getTaskResult(tasks.poll());
+      for (final IoItems row : rows) {
+        action.accept(row);
+      }
+    }
+  }
+
+  /**
+   * 順序非保証読込.
+   *
+   * @param pool ForkJoin プール
+   * @param begins 範囲始点リスト
+   * @param action 行処理
+   */
+  private void readUnordered(final ForkJoinPool pool, final List<Long> begins, final Consumer<IoItems> action) {
+    // 中止フラグ（いずれかの範囲でエラーが発生した場合は以降の行処理を呼び出さない）
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+    final List<ForkJoinTask<List<IoItems>>> tasks = new ArrayList<>();
+    for (int i = 0; i < begins.size(); i++) {
+      final long begin = begins.get(i);
+      final long end = getRangeEnd(begins, i);
+      tasks.add(pool.submit(() -> {
+        try {
+          if (aborted.get()) {
+            return null;
+          }
+          final List<IoItems> rows = parseRange(begin, end);
+          for (final IoItems row : rows) {
+            if (aborted.get()) {
+              return null;
+            }
+            action.accept(row);
+          }
+          return rows;
+        } catch (final RuntimeException | Error e) {
+          aborted.set(true);
+          throw e;
+        }
+      }));
+    }
+    try {
+      for (final ForkJoinTask<List<IoItems>> task : tasks) {
+        getTaskResult(task);
+      }
+    } catch (final RuntimeException e) {
+      // 残りの範囲を中止し、実行中の行処理の終了を待つ
+      aborted.set(true);
+      for (final ForkJoinTask<List<IoItems>> task : tasks) {
+        task.cancel(true);
+      }
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * タスク結果取得.
+   *
+   * @param task タスク
+   * @return 行リスト
+   */
+  private List<IoItems> getTaskResult(final ForkJoinTask<List<IoItems>> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel read was interrupted. " + LogUtil.joinKeyVal("path", this.filePath), e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException("An exception error occurred while parallel reading. " + LogUtil.joinKeyVal("path", this.filePath), cause);
+    }
+  }
+
+  /**
+   * 範囲終点取得.
+   *
+   * @param begins 範囲始点リスト
+   * @param idx 範囲インデックス
+   * @return 範囲終点（この位置を含まない）
+   */
+  private long getRangeEnd(final List<Long> begins, final int idx) {
+    if (idx + 1 < begins.size()) {
+      return begins.get(idx + 1);
+    }
+    return this.fileSize;
+  }
+
+  /**
+   * 範囲始点リスト作成.<br>
+   * <ul>
+   * <li>範囲サイズごとの位置から次の LF の直後を範囲始点とする。</li>
+   * <li>CSVタイプが改行有りの場合、ダブルクォーテーション内の LF を範囲始点としないよう調整する。</li>
+   * </ul>
+   *
+   * @param pool ForkJoin プール
+   * @return 範囲始点リスト
+   */
+  private List<Long> createRangeBegins(final ForkJoinPool pool) {
+    final List<Long> rawBegins = new ArrayList<>();
+    rawBegins.add(this.dataBeginPos);
+    long pos = this.dataBeginPos + this.chunkSize;
+    while (pos < this.fileSize) {
+      final long lfPos = findNextLf(pos);
+      if (lfPos < 0 || this.fileSize <= lfPos + 1) {
+        break;
+      }
+      rawBegins.add(lfPos + 1);
+      pos = lfPos + 1 + this.chunkSize;
+    }
+
+    if (this.csvType != CsvType.DQ_ALL_LF && this.csvType != CsvType.DQ_STD_LF) {
+      // 改行有り以外は LF が常に行境界となる
+      return rawBegins;
+    }
+
+    // 範囲ごとのダブルクォーテーション数を並列に数える
+    final List<ForkJoinTask<long[]>> tasks = new ArrayList<>();
+    for (int i = 0; i < rawBegins.size(); i++) {
+      final long begin = rawBegins.get(i);
+      final long end = getRangeEnd(rawBegins, i);
+      tasks.add(pool.submit(() -> scanDq(begin, end)));
+    }
+    final List<long[]> scans = new ArrayList<>();
+    for (final ForkJoinTask<long[]> task : tasks) {
+      try {
+        scans.add(task.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Parallel read was interrupted. " + LogUtil.joinKeyVal("path", this.filePath), e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("An exception error occurred while scanning double quotations. " + LogUtil.joinKeyVal("path", this.filePath), e.getCause());
+      }
+    }
+
+    // ファイル先頭からのダブルクォーテーション数の奇偶で範囲始点を調整する
+    final List<Long> begins = new ArrayList<>();
+    begins.add(rawBegins.get(0));
+    long parity = 0;
+    for (int i = 1; i < rawBegins.size(); i++) {
+      parity ^= scans.get(i - 1)[0];
+      if (parity == 0) {
+        // ダブルクォーテーション外
+        begins.add(rawBegins.get(i));
+        continue;
+      }
+      // ダブルクォーテーション内の場合は閉じた行の次を範囲始点とする（閉じない場合は前の範囲に含める）
+      final long closedLfPos = scans.get(i)[1];
+      if (0 <= closedLfPos && closedLfPos + 1 < this.fileSize) {
+        begins.add(closedLfPos + 1);
+      }
+    }
+    return begins;
+  }
+
+  /**
+   * 範囲内ダブルクォーテーション走査.<br>
+   * <ul>
+   * <li>エスケープされていないダブルクォーテーション数の奇偶と、範囲始点からのダブルクォーテーション数が奇数になった最初の LF 位置を返す。</li>
+   * <li>２つ連続したダブルクォーテーション（""）は奇偶に影響しないため１文字ずつ数える。</li>
+   * <li>Shift_JIS・MS932 の場合は２バイト文字の２バイト目をバックスラッシュとして扱わない。</li>
+   * </ul>
+   *
+   * @param begin 範囲始点
+   * @param end 範囲終点（この位置を含まない）
+   * @return ｛ダブルクォーテーション数の奇偶（0:偶数、1:奇数）、LF位置（無い場合は -1）｝
+   */
+  private long[] scanDq(final long begin, final long end) {
+    final byte[] bytes = readBytes(begin, end);
+    final boolean isSjis = (this.charSet != CharSet.UTF8);
+    long dqCount = 0;
+    long closedLfPos = -1;
+    int bsCount = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      final int b = bytes[i] & 0xFF;
+      if (isSjis && isSjisLeadByte(b)) {
+        // ２バイト文字は読み飛ばす
+        i++;
+        bsCount = 0;
+        continue;
+      }
+      if (b == '\\') {
+        bsCount++;
+        continue;
+      }
+      if (b == '"' && bsCount % 2 == 0) {
+        dqCount++;
+      } else if (b == '\n' && closedLfPos < 0 && dqCount % 2 == 1) {
+        closedLfPos = begin + i;
+      }
+      bsCount = 0;
+    }
+    return new long[] {dqCount % 2, closedLfPos};
+  }
+
+  /**
+   * Shift_JIS ２バイト文字 １バイト目判定.
+   *
+   * @param b バイト値（0～255）
+   * @return １バイト目の場合は <code>true</code>
+   */
+  private static boolean isSjisLeadByte(final int b) {
+    return (0x81 <= b && b <= 0x9F) || (0xE0 <= b && b <= 0xFC);
+  }
+
+  /**
+   * 範囲解析.<br>
+   * <ul>
+   * <li>範囲をデコードして行ごとに <code>IoItems</code> を作成する。</li>
+   * <li>CSVタイプが改行有りの場合、ダブルクォーテーションが閉じていない行は次行を LF で連結する。（<code>CsvReader</code> と同じ）</li>
+   * </ul>
+   *
+   * @param begin 範囲始点
+   * @param end 範囲終点（この位置を含まない）
+   * @return 行リスト
+   */
+  private List<IoItems> parseRange(final long begin, final long end) {
+    final String txt = new String(readBytes(begin, end), this.decodeCharset);
+    final List<IoItems> rows = new ArrayList<>();
+    try (final BufferedReader br = new BufferedReader(new StringReader(txt))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        rows.add(createRow(br, line));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while parsing rows. "
+          + LogUtil.joinKeyVal("path", this.filePath, "begin", begin, "end", end), e);
+    }
+    this.readedCount.addAndGet(rows.size());
+    return rows;
+  }
+
+  /**
+   * 行作成.
+   *
+   * @param br 範囲リーダー（改行有りCSVの次行連結用）
+   * @param line 行文字列
+   * @return 行マップ
+   * @throws IOException I/O例外エラー
+   */
+  private IoItems createRow(final BufferedReader br, final String line) throws IOException {
+    final IoItems items = new IoItems();
+    if (ValUtil.isNull(this.csvType)) {
+      // データ入出力用TSV
+      items.putAllByIoTsv(this.keys, line);
+      return items;
+    }
+    if (this.csvType == CsvType.NO_DQ) {
+      // ダブルクォーテーション無し
+      items.putAllByCsvNoDq(this.keys, line);
+      return items;
+    }
+    if (this.csvType == CsvType.DQ_ALL || this.csvType == CsvType.DQ_STD) {
+      // ダブルクォーテーション付き改行無し
+      items.putAllByCsvDq(this.keys, line);
+      return items;
+    }
+
+    // ダブルクォーテーション付き改行有り
+    String mergedLine = line;
+    CsvDqParser dqParser = new CsvDqParser(mergedLine);
+    String nextLine;
+    while (dqParser.isUnclosedDq() && (nextLine = br.readLine()) != null) {
+      // ダブルクォーテーション閉じてない場合は次行を連結する
+      mergedLine = mergedLine + ValUtil.LF + nextLine;
+      dqParser = new CsvDqParser(mergedLine);
+    }
+    items.putAllByCsvDq(this.keys, mergedLine, dqParser);
+    return items;
+  }
+
+  /**
+   * 先頭行終端検索.<br>
+   * <ul>
+   * <li>改行コード（CRLF・CR・LF）を <code>TxtReader</code> と同様に扱う。</li>
+   * </ul>
+   *
+   * @return ｛先頭行終点（改行コードを含まない、ゼロ行の場合は -1）、次行始点｝
+   */
+  private long[] findFirstLineEnd() {
+    if (this.fileSize == 0) {
+      return new long[] {-1, 0};
+    }
+    final ByteBuffer buf = ByteBuffer.allocate(FIND_LF_BUFFER_SIZE);
+    long pos = 0;
+    try {
+      while (pos < this.fileSize) {
+        buf.clear();
+        final int len = this.channel.read(buf, pos);
+        if (len <= 0) {
+          break;
+        }
+        for (int i = 0; i < len; i++) {
+          final byte b = buf.get(i);
+          if (b == '\n') {
+            return new long[] {pos + i, pos + i + 1};
+          }
+          if (b == '\r') {
+            final long crPos = pos + i;
+            // CRLF の場合は LF まで改行コードとする
+            if (crPos + 1 < this.fileSize && readBytes(crPos + 1, crPos + 2)[0] == '\n') {
+              return new long[] {crPos, crPos + 2};
+            }
+            return new long[] {crPos, crPos + 1};
+          }
+        }
+        pos += len;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while reading first line. " + LogUtil.joinKeyVal("path", this.filePath), e);
+    }
+    // 改行コードが無い場合はファイル全体が１行
+    return new long[] {this.fileSize, this.fileSize};
+  }
+
+  /**
+   * 次 LF 検索.
+   *
+   * @param fromPos 検索開始位置
+   * @return LF位置（無い場合は -1）
+   */
+  private long findNextLf(final long fromPos) {
+    final ByteBuffer buf = ByteBuffer.allocate(FIND_LF_BUFFER_SIZE);
+    long pos = fromPos;
+    try {
+      while (pos < this.fileSize) {
+        buf.clear();
+        final int len = this.channel.read(buf, pos);
+        if (len <= 0) {
+          break;
+        }
+        for (int i = 0; i < len; i++) {
+          if (buf.get(i) == '\n') {
+            return pos + i;
+          }
+        }
+        pos += len;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while finding line separator. "
+          + LogUtil.joinKeyVal("path", this.filePath, "position", fromPos), e);
+    }
+    return -1;
+  }
+
+  /**
+   * 範囲バイト読込.<br>
+   * <ul>
+   * <li>位置指定読込のため複数スレッドから同時に呼び出せる。</li>
+   * </ul>
+   *
+   * @param begin 範囲始点
+   * @param end 範囲終点（この位置を含まない）
+   * @return バイト配列
+   */
+  private byte[] readBytes(final long begin, final long end) {
+    final long size = end - begin;
+    if (Integer.MAX_VALUE < size) {
+      throw new RuntimeException("Range is too large. A single row must be smaller than 2GB. "
+          + LogUtil.joinKeyVal("path", this.filePath, "begin", begin, "end", end));
+    }
+    final ByteBuffer buf = ByteBuffer.allocate((int) size);
+    try {
+      long pos = begin;
+      while (buf.hasRemaining()) {
+        final int len = this.channel.read(buf, pos);
+        if (len < 0) {
+          break;
+        }
+        pos += len;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while reading file. "
+          + LogUtil.joinKeyVal("path", this.filePath, "begin", begin, "end", end), e);
+    }
+    return buf.array();
+  }
+}
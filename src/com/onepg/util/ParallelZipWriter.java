@@ -0,0 +1,448 @@
+package com.onepg.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 並列zipファイル作成.<br>
+ * <ul>
+ * <li>エントリーごとの圧縮（deflate）を複数スレッドで同時に行い、圧縮済データをファイルの順にzipファイルへ組み立てる。</li>
+ * <li>圧縮済データは 4MB 以下の場合はメモリ、それより大きい場合はzipファイルと同じディレクトリの一時ファイルに保持する。</li>
+ * <li>同時に保持する圧縮済エントリー数は並列数の２倍までとする。</li>
+ * <li>4GB 以上のエントリー・zipファイル、65535 を超えるエントリー数は zip64 形式で出力する。</li>
+ * </ul>
+ * @hidden
+ */
+final class ParallelZipWriter {
+
+  /** メモリ保持する圧縮済データの上限サイズ（4MB）. */
+  private static final long MEMORY_ENTRY_MAX = 4L * 1_024 * 1_024;
+  /** 読込バッファサイズ（64KB）. */
+  private static final int BUFFER_SIZE = 64 * 1_024;
+  /** zip64 を使用する値（32bit 上限）. */
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  /** zip64 を使用するエントリー数（16bit 上限）. */
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  /** ローカルファイルヘッダー署名. */
+  private static final int LOC_SIG = 0x04034b50;
+  /** セントラルディレクトリヘッダー署名. */
+  private static final int CEN_SIG = 0x02014b50;
+  /** セントラルディレクトリ終端署名. */
+  private static final int END_SIG = 0x06054b50;
+  /** zip64 セントラルディレクトリ終端署名. */
+  private static final int ZIP64_END_SIG = 0x06064b50;
+  /** zip64 セントラルディレクトリ終端ロケーター署名. */
+  private static final int ZIP64_LOC_SIG = 0x07064b50;
+  /** zip64 拡張フィールドID. */
+  private static final short ZIP64_EXTRA_ID = 0x0001;
+  /** 必要バージョン（通常）. */
+  private static final short VERSION_DEFAULT = 20;
+  /** 必要バージョン（zip64）. */
+  private static final short VERSION_ZIP64 = 45;
+  /** 汎用フラグ（ファイル名 UTF-8）. */
+  private static final short FLAG_UTF8 = 0x0800;
+  /** 圧縮方式（deflate）. */
+  private static final short METHOD_DEFLATED = 8;
+
+  /**
+   * コンストラクタ.
+   */
+  private ParallelZipWriter() {
+    // 処理なし
+  }
+
+  /**
+   * zipファイル作成.
+   *
+   * @param srcFiles ソースファイルリスト
+   * @param nameCharset ファイル名文字セット
+   * @param zipFile zipファイル
+   * @param level 圧縮レベル（0～9、-1 は既定値）
+   * @param parallel 並列数
+   * @throws Exception 例外エラー
+   */
+  static void write(final List<File> srcFiles, final Charset nameCharset, final File zipFile, final int level,
+      final int parallel) throws Exception {
+    final ExecutorService pool = Executors.newFixedThreadPool(parallel);
+    final Deque<Future<DeflatedEntry>> window = new ArrayDeque<>();
+    final List<DeflatedEntry> entries = new ArrayList<>();
+    final File tmpDir = zipFile.getAbsoluteFile().getParentFile();
+    final int windowSize = parallel * 2;
+    try (final CountingOutputStream os = new CountingOutputStream(
+        new BufferedOutputStream(new FileOutputStream(zipFile), BUFFER_SIZE))) {
+      for (final File file : srcFiles) {
+        if (window.size() >= windowSize) {
+          entries.add(writeEntry(os, window.poll(), nameCharset));
+        }
+        window.add(pool.submit(() -> deflate(file, level, tmpDir)));
+      }
+      while (!window.isEmpty()) {
+        entries.add(writeEntry(os, window.poll(), nameCharset));
+      }
+      writeCentralDirectory(os, entries, nameCharset);
+    } finally {
+      // 未出力の圧縮処理を取り消し、実行中の圧縮処理の終了を待つ
+      for (final Future<DeflatedEntry> future : window) {
+        future.cancel(true);
+      }
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      // 未出力の一時ファイル削除（取り消した圧縮処理は結果を取得できないため対象外）
+      for (final Future<DeflatedEntry> future : window) {
+        if (!future.isDone() || future.isCancelled()) {
+          continue;
+        }
+        try {
+          future.get().deleteTmpFile();
+        } catch (final InterruptedException | ExecutionException ignore) {
+          // 圧縮失敗時は一時ファイル作成側で削除済
+        }
+      }
+    }
+  }
+
+  /**
+   * エントリー圧縮.
+   *
+   * @param file ソースファイル
+   * @param level 圧縮レベル
+   * @param tmpDir 一時ファイルディレクトリ
+   * @return 圧縮済エントリー
+   * @throws IOException I/O例外エラー
+   */
+  private static DeflatedEntry deflate(final File file, final int level, final File tmpDir) throws IOException {
+    final DeflatedEntry entry = new DeflatedEntry(file);
+    final CRC32 crc = new CRC32();
+    final Deflater deflater = new Deflater(level, true);
+    final OutputStream dataOs;
+    if (file.length() <= MEMORY_ENTRY_MAX) {
+      dataOs = new ByteArrayOutputStream((int) Math.max(32, file.length() / 2));
+    } else {
+      entry.tmpFile = File.createTempFile("zip", ".tmp", tmpDir);
+      dataOs = new FileOutputStream(entry.tmpFile);
+    }
+    try (final InputStream is = new FileInputStream(file);
+        final CountingOutputStream cos = new CountingOutputStream(dataOs);
+        final DeflaterOutputStream dos = new DeflaterOutputStream(cos, deflater, BUFFER_SIZE)) {
+      final byte[] buf = new byte[BUFFER_SIZE];
+      int len;
+      while ((len = is.read(buf)) != -1) {
+        if (Thread.currentThread().isInterrupted()) {
+          // 取り消された場合は中断して一時ファイルを削除する
+          throw new InterruptedIOException("Deflate interrupted. " + LogUtil.joinKeyVal("file", file));
+        }
+        crc.update(buf, 0, len);
+        dos.write(buf, 0, len);
+        entry.size += len;
+      }
+      dos.finish();
+      entry.compSize = cos.count;
+    } catch (final IOException | RuntimeException e) {
+      entry.deleteTmpFile();
+      throw e;
+    } finally {
+      deflater.end();
+    }
+    entry.crc = crc.getValue();
+    if (dataOs instanceof ByteArrayOutputStream) {
+      entry.data = ((ByteArrayOutputStream) dataOs).toByteArray();
+    }
+    return entry;
+  }
+
+  /**
+   * エントリー出力.<br>
+   * <ul>
+   * <li>圧縮完了を待ち、ローカルファイルヘッダーと圧縮済データを出力する。</li>
+   * </ul>
+   *
+   * @param os 出力ストリーム
+   * @param future 圧縮処理
+   * @param nameCharset ファイル名文字セット
+   * @return 出力したエントリー
+   * @throws Exception 例外エラー
+   */
+  private static DeflatedEntry writeEntry(final CountingOutputStream os, final Future<DeflatedEntry> future,
+      final Charset nameCharset) throws Exception {
+    final DeflatedEntry entry;
+    try {
+      entry = future.get();
+    } catch (final ExecutionException e) {
+      throw (e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+    }
+    try {
+      entry.offset = os.count;
+      final byte[] name = entry.name.getBytes(nameCharset);
+      final boolean zip64 = (entry.size >= ZIP64_MAGIC || entry.compSize >= ZIP64_MAGIC);
+      final ByteBuffer bb = newBuffer(30 + name.length + (zip64 ? 20 : 0));
+      bb.putInt(LOC_SIG);
+      bb.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+      bb.putShort(getFlag(nameCharset));
+      bb.putShort(METHOD_DEFLATED);
+      bb.putInt(entry.dosTime);
+      bb.putInt((int) entry.crc);
+      bb.putInt((int) (zip64 ? ZIP64_MAGIC : entry.compSize));
+      bb.putInt((int) (zip64 ? ZIP64_MAGIC : entry.size));
+      bb.putShort((short) name.length);
+      bb.putShort((short) (zip64 ? 20 : 0));
+      bb.put(name);
+      if (zip64) {
+        bb.putShort(ZIP64_EXTRA_ID);
+        bb.putShort((short) 16);
+        bb.putLong(entry.size);
+        bb.putLong(entry.compSize);
+      }
+      os.write(bb.array());
+      if (ValUtil.isNull(entry.tmpFile)) {
+        os.write(entry.data);
+      } else {
+        try (final InputStream is = new BufferedInputStream(new FileInputStream(entry.tmpFile), BUFFER_SIZE)) {
+          is.transferTo(os);
+        }
+      }
+    } finally {
+      entry.data = null;
+      entry.deleteTmpFile();
+    }
+    return entry;
+  }
+
+  /**
+   * セントラルディレクトリ出力.
+   *
+   * @param os 出力ストリーム
+   * @param entries 出力済エントリーリスト
+   * @param nameCharset ファイル名文字セット
+   * @throws IOException I/O例外エラー
+   */
+  private static void writeCentralDirectory(final CountingOutputStream os, final List<DeflatedEntry> entries,
+      final Charset nameCharset) throws IOException {
+    final long cenOffset = os.count;
+    for (final DeflatedEntry entry : entries) {
+      final byte[] name = entry.name.getBytes(nameCharset);
+      // zip64 拡張フィールドには 32bit を超える値のみ格納する
+      final boolean sizeOver = (entry.size >= ZIP64_MAGIC);
+      final boolean compOver = (entry.compSize >= ZIP64_MAGIC);
+      final boolean offsetOver = (entry.offset >= ZIP64_MAGIC);
+      final int extraDataLen = (sizeOver ? 8 : 0) + (compOver ? 8 : 0) + (offsetOver ? 8 : 0);
+      final int extraLen = (extraDataLen > 0 ? 4 + extraDataLen : 0);
+      final short version = (extraLen > 0 ? VERSION_ZIP64 : VERSION_DEFAULT);
+      final ByteBuffer bb = newBuffer(46 + name.length + extraLen);
+      bb.putInt(CEN_SIG);
+      bb.putShort(version);
+      bb.putShort(version);
+      bb.putShort(getFlag(nameCharset));
+      bb.putShort(METHOD_DEFLATED);
+      bb.putInt(entry.dosTime);
+      bb.putInt((int) entry.crc);
+      bb.putInt((int) (compOver ? ZIP64_MAGIC : entry.compSize));
+      bb.putInt((int) (sizeOver ? ZIP64_MAGIC : entry.size));
+      bb.putShort((short) name.length);
+      bb.putShort((short) extraLen);
+      // コメント長・開始ディスク番号・内部属性・外部属性
+      bb.putShort((short) 0);
+      bb.putShort((short) 0);
+      bb.putShort((short) 0);
+      bb.putInt(0);
+      bb.putInt((int) (offsetOver ? ZIP64_MAGIC : entry.offset));
+      bb.put(name);
+      if (extraLen > 0) {
+        bb.putShort(ZIP64_EXTRA_ID);
+        bb.putShort((short) extraDataLen);
+        if (sizeOver) {
+          bb.putLong(entry.size);
+        }
+        if (compOver) {
+          bb.putLong(entry.compSize);
+        }
+        if (offsetOver) {
+          bb.putLong(entry.offset);
+        }
+      }
+      os.write(bb.array());
+    }
+    final long cenEnd = os.count;
+    final long cenSize = cenEnd - cenOffset;
+    final int count = entries.size();
+    final boolean zip64 = (count >= ZIP64_MAGIC_COUNT || cenSize >= ZIP64_MAGIC || cenOffset >= ZIP64_MAGIC);
+    if (zip64) {
+      // zip64 セントラルディレクトリ終端とロケーター
+      final ByteBuffer bb = newBuffer(56 + 20);
+      bb.putInt(ZIP64_END_SIG);
+      bb.putLong(44);
+      bb.putShort(VERSION_ZIP64);
+      bb.putShort(VERSION_ZIP64);
+      bb.putInt(0);
+      bb.putInt(0);
+      bb.putLong(count);
+      bb.putLong(count);
+      bb.putLong(cenSize);
+      bb.putLong(cenOffset);
+      bb.putInt(ZIP64_LOC_SIG);
+      bb.putInt(0);
+      bb.putLong(cenEnd);
+      bb.putInt(1);
+      os.write(bb.array());
+    }
+    final ByteBuffer bb = newBuffer(22);
+    bb.putInt(END_SIG);
+    bb.putShort((short) 0);
+    bb.putShort((short) 0);
+    bb.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+    bb.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+    bb.putInt((int) Math.min(cenSize, ZIP64_MAGIC));
+    bb.putInt((int) Math.min(cenOffset, ZIP64_MAGIC));
+    bb.putShort((short) 0);
+    os.write(bb.array());
+  }
+
+  /**
+   * リトルエンディアンバッファ作成.
+   *
+   * @param size サイズ
+   * @return バッファ
+   */
+  private static ByteBuffer newBuffer(final int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * 汎用フラグ取得.
+   *
+   * @param nameCharset ファイル名文字セット
+   * @return 汎用フラグ
+   */
+  private static short getFlag(final Charset nameCharset) {
+    return (StandardCharsets.UTF_8.equals(nameCharset) ? FLAG_UTF8 : 0);
+  }
+
+  /**
+   * MS-DOS形式日時変換.
+   *
+   * @param millis エポックミリ秒
+   * @return MS-DOS形式日時（上位16bit が日付、下位16bit が時刻）
+   */
+  private static int toDosTime(final long millis) {
+    final LocalDateTime ldt = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    if (ldt.getYear() < 1980) {
+      // MS-DOS形式の下限
+      return (1 << 21) | (1 << 16);
+    }
+    return ((ldt.getYear() - 1980) << 25) | (ldt.getMonthValue() << 21) | (ldt.getDayOfMonth() << 16)
+        | (ldt.getHour() << 11) | (ldt.getMinute() << 5) | (ldt.getSecond() >> 1);
+  }
+
+  /**
+   * 圧縮済エントリー.
+   */
+  private static final class DeflatedEntry {
+    /** エントリー名. */
+    private final String name;
+    /** 更新日時（MS-DOS形式）. */
+    private final int dosTime;
+    /** CRC32. */
+    private long crc = 0;
+    /** 圧縮前サイズ. */
+    private long size = 0;
+    /** 圧縮後サイズ. */
+    private long compSize = 0;
+    /** ローカルファイルヘッダー位置. */
+    private long offset = 0;
+    /** 圧縮済データ（メモリ保持の場合）. */
+    private byte[] data = null;
+    /** 圧縮済データ一時ファイル（一時ファイル保持の場合）. */
+    private File tmpFile = null;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param file ソースファイル
+     */
+    private DeflatedEntry(final File file) {
+      this.name = file.getName();
+      this.dosTime = toDosTime(file.lastModified());
+    }
+
+    /**
+     * 一時ファイル削除.
+     */
+    private void deleteTmpFile() {
+      if (!ValUtil.isNull(this.tmpFile)) {
+        FileUtil.delete(this.tmpFile);
+        this.tmpFile = null;
+      }
+    }
+  }
+
+  /**
+   * 出力バイト数カウント付き出力ストリーム.
+   */
+  private static final class CountingOutputStream extends OutputStream {
+    /** 出力先. */
+    private final OutputStream out;
+    /** 出力バイト数. */
+    private long count = 0;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param out 出力先
+     */
+    private CountingOutputStream(final OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      this.out.write(b);
+      this.count++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      this.out.write(b, off, len);
+      this.count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      this.out.close();
+    }
+  }
+}
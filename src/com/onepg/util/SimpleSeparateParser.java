@@ -41,19 +41,34 @@ final class SimpleSeparateParser extends AbstractStringSeparateParser {
   @Override
   protected List<int[]> findBeginEnds(final String value) {
     final List<int[]> idxs = new ArrayList<>();
-    final int sepLen = this.sep.length();
+    scanBeginEnds(value, this.sep, (beginPos, endPos) -> idxs.add(new int[] {beginPos, endPos}));
+    return idxs;
+  }
+
+  /**
+   * 分割始点終点走査.<br>
+   * <ul>
+   * <li>分割した項目の始点終点を先頭から順に受取処理に渡す。</li>
+   * <li>分割ルールは <code>findBeginEnds</code> と同じ。（<code>IoRowView</code> からも使用する）</li>
+   * </ul>
+   *
+   * @param value 対象文字列
+   * @param sep 分割文字列
+   * @param consumer 始点終点受取処理
+   */
+  static void scanBeginEnds(final String value, final String sep, final BeginEndConsumer consumer) {
+    final int sepLen = sep.length();
     int beginPos = 0;
     int endPos = beginPos;
 
-    while ((endPos = value.indexOf(this.sep, beginPos)) != -1) {
+    while ((endPos = value.indexOf(sep, beginPos)) != -1) {
       // 区切り文字手前まで
-      idxs.add(new int[] {beginPos, endPos});
+      consumer.accept(beginPos, endPos);
       // 区切り文字直後
       beginPos = endPos + sepLen;
     }
 
     // 最後の始点終点を追加
-    idxs.add(new int[] {beginPos, value.length()});
-    return idxs;
+    consumer.accept(beginPos, value.length());
   }
 }
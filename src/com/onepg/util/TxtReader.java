@@ -1,21 +1,29 @@
 package com.onepg.util;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 
 
 /**
  * テキストリーダークラス.<br>
  * <ul>
- * <li>ファイルリーダー <code>BufferedReader</code> のラッパークラス。</li>
+ * <li>ファイルを行単位で読み込むクラス。行区切りは <code>BufferedReader#readLine()</code> と同じく LF・CRLF・CR とする。</li>
  * <li>try 句（try-with-resources文）で宣言する。</li>
+ * <li>gzip・zip圧縮ファイルは解凍ファイルを作成せずストリームで読み込む。（圧縮タイプは拡張子で判定、または引数で指定する）</li>
+ * <li>zip圧縮ファイルは最初のファイルエントリーのみ読み込む。</li>
+ * <li>読み込んだ行の終端のバイト位置を保持し、そのバイト位置から読込を再開できる。（<code>#getReadedBytes()</code>・<code>#seek(long)</code>）<br>
+ * 行をバイト単位で区切るため、文字セットは CR・LF のバイトが２バイト文字の一部に現れないもの（UTF-8・Shift_JIS・MS932）に限る。</li>
  * </ul>
  * <pre>［例］
  * <code>try (final TxtReader tr = new TxtReader(filePath, ValUtil.UTF8);) {
@@ -29,12 +37,40 @@ import com.onepg.util.ValUtil.CharSet;
  */
 public final class TxtReader implements Iterable<String>, AutoCloseable {
 
-  /** バッファリーダー */
-  private final BufferedReader br;
+  /** 圧縮ストリームバッファサイズ（64KB）. */
+  private static final int STREAM_BUFFER_SIZE = 64 * 1_024;
+
+  /** 読込バッファサイズ（64KB）. */
+  private static final int READ_BUFFER_SIZE = 64 * 1_024;
+  /** 行バッファ初期サイズ（1KB）. */
+  private static final int LINE_BUFFER_INIT_SIZE = 1_024;
+  /** LF. */
+  private static final byte LF_BYTE = '\n';
+  /** CR. */
+  private static final byte CR_BYTE = '\r';
+
+  /** 入力ストリーム. */
+  private final InputStream is;
+  /** 文字セット（デコード用）. */
+  private final Charset decodeCharset;
+  /** 読込バッファ. */
+  private final byte[] readBuf = new byte[READ_BUFFER_SIZE];
+  /** 読込バッファ位置. */
+  private int readBufPos = 0;
+  /** 読込バッファ有効長. */
+  private int readBufLen = 0;
+  /** 行バッファ（読込バッファをまたがる行用）. */
+  private byte[] lineBuf = new byte[LINE_BUFFER_INIT_SIZE];
+  /** ストリーム読込済バイト位置（先読み行を含む）. */
+  private long streamPos = 0;
   /** ファイルパス. */
   private final String filePath;
   /** 読み込んだ行 */
   private String nextLine = null;
+  /** 読み込んだ行の終端バイト位置. */
+  private long nextLineEndPos = 0;
+  /** 読込済バイト位置（返却済の行の終端）. */
+  private long readedBytes = 0;
 
   /** イテレーター作成済みフラグ. */
   private boolean iteCreated = false;
@@ -46,12 +82,26 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
   private boolean isClosed = false;
 
   /**
-   * コンストラクタ.
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>圧縮タイプはファイルの拡張子から判定する。（<code>CompressType#byFilePath(String)</code>）</li>
+   * </ul>
    *
    * @param filePath ファイルパス
    * @param charSet  文字セット
    */
   public TxtReader(final String filePath, final CharSet charSet) {
+    this(filePath, charSet, CompressType.byFilePath(filePath));
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param charSet  文字セット
+   * @param compressType 圧縮タイプ
+   */
+  public TxtReader(final String filePath, final CharSet charSet, final CompressType compressType) {
     this.filePath = FileUtil.convAbsolutePath(filePath);
 
     final File targetFile = new File(this.filePath);
@@ -59,13 +109,49 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
       throw new RuntimeException("File does not exist. " + LogUtil.joinKeyVal("path", this.filePath));
     }
 
+    this.decodeCharset = Charset.forName(charSet.toString());
     try {
-      this.br = new BufferedReader(new InputStreamReader(new FileInputStream(targetFile), charSet.toString()));
-    } catch (UnsupportedEncodingException | FileNotFoundException e) {
+      this.is = openInputStream(targetFile, compressType);
+    } catch (IOException e) {
       throw new RuntimeException("An exception error occurred while reading file. " + LogUtil.joinKeyVal("path", this.filePath), e);
     }
   }
 
+  /**
+   * 入力ストリーム作成.<br>
+   * <ul>
+   * <li>圧縮タイプが GZIP・ZIP の場合は解凍ストリームを返す。</li>
+   * <li>ZIP の場合は最初のファイルエントリーの位置まで読み進める。</li>
+   * </ul>
+   *
+   * @param file ファイル
+   * @param compressType 圧縮タイプ
+   * @return 入力ストリーム
+   * @throws IOException I/O例外エラー
+   */
+  private static InputStream openInputStream(final File file, final CompressType compressType) throws IOException {
+    final InputStream fis = new FileInputStream(file);
+    try {
+      if (CompressType.GZIP == compressType) {
+        return new GZIPInputStream(fis, STREAM_BUFFER_SIZE);
+      }
+      if (CompressType.ZIP == compressType) {
+        final ZipInputStream zis = new ZipInputStream(new BufferedInputStream(fis, STREAM_BUFFER_SIZE));
+        ZipEntry entry;
+        while ((entry = zis.getNextEntry()) != null) {
+          if (!entry.isDirectory()) {
+            return zis;
+          }
+        }
+        throw new IOException("Zip file has no file entry.");
+      }
+      return fis;
+    } catch (IOException | RuntimeException e) {
+      fis.close();
+      throw e;
+    }
+  }
+
   /**
    * イテレーター作成.
    *
@@ -90,7 +176,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
     }
     this.isClosed = true;
     try {
-      this.br.close();
+      this.is.close();
     } catch (IOException e) {
       throw new RuntimeException("An exception error occurred while closing file. " + LogUtil.joinKeyVal("path", this.filePath), e);
     }
@@ -117,6 +203,166 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
     return this.readedEndRowFlag;
   }
 
+  /**
+   * 読込済バイト位置取得.<br>
+   * <ul>
+   * <li>読み込んだ（スキップ・先頭行取得を含む）最後の行の終端（改行コードの直後）のバイト位置を返す。</li>
+   * <li>イテレーターの次行確認で先読みした行は含まない。</li>
+   * <li>圧縮ファイルの場合は解凍後のバイト位置となる。</li>
+   * </ul>
+   *
+   * @return 読込済バイト位置
+   */
+  public long getReadedBytes() {
+    return this.readedBytes;
+  }
+
+  /**
+   * バイト位置移動.<br>
+   * <ul>
+   * <li>引数のバイト位置まで読み飛ばし、次に読み込む行をその位置から始まる行にする。</li>
+   * <li>バイト位置は以前に <code>#getReadedBytes()</code> で取得した行の終端である前提とする。（行の途中を指定した場合は行の途中から読み込まれる）</li>
+   * <li>非圧縮ファイルは読み飛ばす範囲を読み込まずに移動する。圧縮ファイルは解凍しながら読み捨てる。</li>
+   * <li>読込済行数はカウントアップされない。</li>
+   * <li>現在の読込済バイト位置より前には戻れない。イテレーター作成後は移動できない。</li>
+   * </ul>
+   *
+   * @param bytePos バイト位置
+   */
+  public void seek(final long bytePos) {
+    if (this.iteCreated) {
+      throw new RuntimeException("Cannot call seek() after iterator has been created.");
+    }
+    if (bytePos < this.readedBytes) {
+      throw new RuntimeException("Cannot seek backward. " + LogUtil.joinKeyVal("path", this.filePath,
+          "readedBytes", this.readedBytes, "bytePos", bytePos));
+    }
+    if (this.isClosed) {
+      throw new RuntimeException("Cannot seek in a closed file. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+    try {
+      long remain = bytePos - this.streamPos;
+      // 読込バッファ内の分
+      final int inBuf = (int) Math.min(remain, this.readBufLen - this.readBufPos);
+      this.readBufPos += inBuf;
+      this.streamPos += inBuf;
+      remain -= inBuf;
+      // ストリームの分
+      while (remain > 0) {
+        final long skipped = this.is.skip(remain);
+        if (skipped > 0) {
+          this.streamPos += skipped;
+          remain -= skipped;
+          continue;
+        }
+        // skip で進まない場合は１バイト読んで終端か確認する
+        if (this.is.read() < 0) {
+          throw new RuntimeException("Seek position exceeds the file size. " + LogUtil.joinKeyVal("path", this.filePath,
+              "bytePos", bytePos, "fileBytes", this.streamPos));
+        }
+        this.streamPos++;
+        remain--;
+      }
+      this.readedBytes = bytePos;
+    } catch (IOException e) {
+      throw new RuntimeException("An exception error occurred while seeking file. " + LogUtil.joinKeyVal("path", this.filePath,
+          "bytePos", bytePos), e);
+    }
+  }
+
+  /**
+   * １行読込.<br>
+   * <ul>
+   * <li>改行コード（LF・CRLF・CR）までを１行として読み込み、改行コードを除いた文字列を返す。</li>
+   * <li>行が読込バッファ内に収まる場合は行バッファへコピーせずにデコードする。</li>
+   * </ul>
+   *
+   * @return 行文字列（ファイル終端の場合は <code>null</code>）
+   * @throws IOException I/O例外エラー
+   */
+  private String readLine() throws IOException {
+    int lineLen = 0;
+    boolean readAny = false;
+    while (true) {
+      if (this.readBufPos >= this.readBufLen && !fillReadBuffer()) {
+        // ファイル終端（改行コードの無い最終行）
+        if (!readAny) {
+          return null;
+        }
+        return new String(this.lineBuf, 0, lineLen, this.decodeCharset);
+      }
+      readAny = true;
+      final int begin = this.readBufPos;
+      int idx = begin;
+      while (idx < this.readBufLen && this.readBuf[idx] != LF_BYTE && this.readBuf[idx] != CR_BYTE) {
+        idx++;
+      }
+      final int len = idx - begin;
+      this.streamPos += len;
+      this.readBufPos = idx;
+      if (idx >= this.readBufLen) {
+        // 改行コードが無いため行バッファへ退避して次のバッファを読み込む
+        lineLen = appendLineBuffer(lineLen, begin, len);
+        continue;
+      }
+
+      final String line;
+      if (lineLen == 0) {
+        line = new String(this.readBuf, begin, len, this.decodeCharset);
+      } else {
+        lineLen = appendLineBuffer(lineLen, begin, len);
+        line = new String(this.lineBuf, 0, lineLen, this.decodeCharset);
+      }
+      // 改行コードを読み進める（CRLF は２バイト）
+      final byte eol = this.readBuf[this.readBufPos];
+      this.readBufPos++;
+      this.streamPos++;
+      if (eol == CR_BYTE && (this.readBufPos < this.readBufLen || fillReadBuffer())
+          && this.readBuf[this.readBufPos] == LF_BYTE) {
+        this.readBufPos++;
+        this.streamPos++;
+      }
+      return line;
+    }
+  }
+
+  /**
+   * 読込バッファ補充.
+   *
+   * @return ファイル終端の場合は <code>false</code>
+   * @throws IOException I/O例外エラー
+   */
+  private boolean fillReadBuffer() throws IOException {
+    int len;
+    do {
+      len = this.is.read(this.readBuf, 0, this.readBuf.length);
+    } while (len == 0);
+    if (len < 0) {
+      this.readBufPos = 0;
+      this.readBufLen = 0;
+      return false;
+    }
+    this.readBufPos = 0;
+    this.readBufLen = len;
+    return true;
+  }
+
+  /**
+   * 行バッファ追加.
+   *
+   * @param lineLen 行バッファ有効長
+   * @param begin 読込バッファ始点
+   * @param len 追加長
+   * @return 追加後の行バッファ有効長
+   */
+  private int appendLineBuffer(final int lineLen, final int begin, final int len) {
+    if (lineLen + len > this.lineBuf.length) {
+      this.lineBuf = Arrays.copyOf(this.lineBuf, Math.max(this.lineBuf.length * 2, lineLen + len));
+    }
+    System.arraycopy(this.readBuf, begin, this.lineBuf, lineLen, len);
+    return lineLen + len;
+  }
+
   /**
    * 1行スキップ.<br>
    * <ul>
@@ -159,7 +405,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
     try {
       for (int c = 1; c <= count; c++) {        
         // 1行読み飛ばし
-        final String line = this.br.readLine();
+        final String line = readLine();
         if (ValUtil.isNull(line)) {
           // 最終行読込済ON
           readedEndRowFlag = true;
@@ -167,6 +413,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
           close();
           return false;
         }
+        this.readedBytes = this.streamPos;
       }
       return true;
     } catch (IOException e) {
@@ -195,7 +442,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
       throw new RuntimeException("First line can only be read when no lines have been read yet. " + LogUtil.joinKeyVal("path", this.filePath) + LogUtil.joinKeyVal("readedCount", String.valueOf(readedCount)));
     }
     try {
-      final String line = this.br.readLine();
+      final String line = readLine();
       if (ValUtil.isNull(line)) {
         // 最終行読込済ON
         readedEndRowFlag = true;
@@ -205,6 +452,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
       }
       // 読込済行数をカウントアップ
       readedCount++;
+      this.readedBytes = this.streamPos;
       return line;
     } catch (IOException e) {
       throw new RuntimeException("An exception error occurred while reading first line. " + LogUtil.joinKeyVal("path", this.filePath), e);
@@ -246,7 +494,8 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
 
       // 次行存在確認
       try {
-        nextLine = br.readLine();
+        nextLine = readLine();
+        nextLineEndPos = streamPos;
         this.hasNextRow = !ValUtil.isNull(nextLine);
         this.hasNextChecked = true; // 確認完了フラグ
       } catch (IOException e) {
@@ -278,6 +527,7 @@ public final class TxtReader implements Iterable<String>, AutoCloseable {
       nextLine = null;
       // 読込済行数をカウントアップ
       readedCount++;
+      readedBytes = nextLineEndPos;
 
       // 再度確認が必要
       this.hasNextChecked = false;
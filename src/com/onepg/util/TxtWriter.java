@@ -1,11 +1,13 @@
 package com.onepg.util;
 
 import com.onepg.util.ValUtil.CharSet;
+import com.onepg.util.ValUtil.CompressType;
 import com.onepg.util.ValUtil.LineSep;
 import java.io.BufferedWriter;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.security.MessageDigest;
 
 /**
  * テキストライタークラス.<br>
@@ -13,10 +15,16 @@ import java.io.OutputStreamWriter;
  * <li>テキストファイル専用のプリントライターラッパークラス。</li>
  * <li>文字セット、改行コード指定可能。</li>
  * <li><code>null</code>の書き込みは改行のみ出力される。</li>
+ * <li>gzip・zip圧縮ファイルは非圧縮ファイルを作成せずストリームで圧縮して書き込む。（圧縮タイプは引数で指定する。拡張子では判定しない）</li>
+ * <li>zip圧縮ファイルのエントリー名は、ファイル名から拡張子 zip を除いた名前とする。残りに拡張子が無い場合はエントリー拡張子を付加する。（［例］data.zip → data.txt）</li>
+ * <li>圧縮ファイルへの追記はできない。</li>
  * </ul>
  */
 public class TxtWriter implements AutoCloseable {
 
+  /** デフォルトzipエントリー拡張子. */
+  private static final String DEFAULT_ENTRY_TYPE_MARK = "txt";
+
   /** プリントライター. */
   private final CustomPrintWriter pw;
   /** ファイルパス. */
@@ -48,7 +56,10 @@ public class TxtWriter implements AutoCloseable {
   }
 
   /**
-   * コンストラクタ.
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>拡張子に関わらず圧縮せずに出力する。（圧縮する場合は圧縮タイプを指定する）</li>
+   * </ul>
    *
    * @param filePath ファイルパス
    * @param lineSep 改行コード
@@ -59,8 +70,65 @@ public class TxtWriter implements AutoCloseable {
    */
   public TxtWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final boolean withBom, 
     final boolean canAppend, final boolean lineFlush) {
+    this(filePath, lineSep, charSet, withBom, canAppend, lineFlush, CompressType.NONE);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param lineSep 改行コード
+   * @param charSet 文字セット
+   * @param withBom BOM付きの場合は <code>true</code>
+   * @param canAppend 追記を許可する場合は <code>true</code>
+   * @param lineFlush 改行時フラッシュする場合は <code>true</code>
+   * @param compressType 圧縮タイプ
+   */
+  public TxtWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final boolean withBom, 
+    final boolean canAppend, final boolean lineFlush, final CompressType compressType) {
+    this(filePath, lineSep, charSet, withBom, canAppend, lineFlush, compressType, DEFAULT_ENTRY_TYPE_MARK);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param lineSep 改行コード
+   * @param charSet 文字セット
+   * @param withBom BOM付きの場合は <code>true</code>
+   * @param canAppend 追記を許可する場合は <code>true</code>
+   * @param lineFlush 改行時フラッシュする場合は <code>true</code>
+   * @param compressType 圧縮タイプ
+   * @param entryTypeMark zipエントリー拡張子（エントリー名に拡張子が無い場合に付加する）
+   */
+  TxtWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final boolean withBom, 
+    final boolean canAppend, final boolean lineFlush, final CompressType compressType, final String entryTypeMark) {
+    this(filePath, lineSep, charSet, withBom, canAppend, lineFlush, compressType, entryTypeMark, null);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath ファイルパス
+   * @param lineSep 改行コード
+   * @param charSet 文字セット
+   * @param withBom BOM付きの場合は <code>true</code>
+   * @param canAppend 追記を許可する場合は <code>true</code>
+   * @param lineFlush 改行時フラッシュする場合は <code>true</code>
+   * @param compressType 圧縮タイプ
+   * @param entryTypeMark zipエントリー拡張子（エントリー名に拡張子が無い場合に付加する）
+   * @param digest ファイルに書き込むバイト列で更新するダイジェスト（不要な場合は <code>null</code>）
+   */
+  TxtWriter(final String filePath, final LineSep lineSep, final CharSet charSet, final boolean withBom, 
+    final boolean canAppend, final boolean lineFlush, final CompressType compressType, final String entryTypeMark,
+    final MessageDigest digest) {
     this.filePath = FileUtil.convAbsolutePath(filePath);
 
+    // 圧縮ファイルへの追記はエラー
+    if (canAppend && CompressType.NONE != compressType) {
+      throw new RuntimeException("Cannot append to a compressed file. " + LogUtil.joinKeyVal("path", this.filePath));
+    }
+
     // 追記無しで既存ファイルが有ればエラー
     if (!canAppend && FileUtil.exists(this.filePath)) {
       throw new RuntimeException("File already exists. " + LogUtil.joinKeyVal("path", this.filePath));
@@ -71,7 +139,7 @@ public class TxtWriter implements AutoCloseable {
     }
 
     try {
-      final FileOutputStream fos = new FileOutputStream(this.filePath, canAppend);
+      final OutputStream fos = FileUtil.openOutputStream(this.filePath, canAppend, compressType, entryTypeMark, digest);
       if (withBom && CharSet.UTF8 == charSet) {
         // BOM
         fos.write(0xef);
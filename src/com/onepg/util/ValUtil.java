@@ -151,6 +151,42 @@ public final class ValUtil {
     DQ_STD_LF
   }
 
+  /**
+   * 圧縮タイプ列挙型.<br>
+   * <ul>
+   * <li>テキストファイルを圧縮ストリーム経由で読み書きする場合の形式を定義する。</li>
+   * <li>ZIP は１ファイル（１エントリー）のみ格納した zipファイルとして扱う。</li>
+   * </ul>
+   */
+  public enum CompressType {
+    /** 圧縮無し */
+    NONE,
+    /** gzip圧縮 */
+    GZIP,
+    /** zip圧縮 */
+    ZIP;
+
+    /**
+     * ファイルパスから圧縮タイプ取得.<br>
+     * <ul>
+     * <li>拡張子（大文字小文字を区別しない）が gz・gzip の場合は GZIP、zip の場合は ZIP、それ以外は NONE を返す。</li>
+     * </ul>
+     *
+     * @param filePath ファイルパス
+     * @return 圧縮タイプ
+     */
+    public static CompressType byFilePath(final String filePath) {
+      final String typeMark = FileUtil.getTypeMark(filePath).toLowerCase();
+      if ("gz".equals(typeMark) || "gzip".equals(typeMark)) {
+        return GZIP;
+      }
+      if ("zip".equals(typeMark)) {
+        return ZIP;
+      }
+      return NONE;
+    }
+  }
+
   /**
    * <code>null</code> チェック.<br>
    * <ul>
@@ -533,6 +569,10 @@ public final class ValUtil {
     if (isNull(value)) {
       return IOTSV_NULL;
     }
+    if (value.indexOf('\t') < 0 && value.indexOf('\r') < 0 && value.indexOf('\n') < 0) {
+      // エスケープ対象文字が無い場合は正規表現置換を行わない
+      return value;
+    }
     final String ret = value.replaceAll(TAB, IOTSV_TAB)
                       .replaceAll(CR, IOTSV_CR)
                       .replaceAll(LF, IOTSV_LF);
@@ -552,6 +592,10 @@ public final class ValUtil {
     if (IOTSV_NULL.equals(value)) {
       return null;
     }
+    if (value.indexOf('\\') < 0) {
+      // エスケープ文字が無い場合は正規表現置換を行わない
+      return value;
+    }
     final String ret = value.replaceAll(IOTSV_TAB, TAB)
                       .replaceAll(IOTSV_CR, CR)
                       .replaceAll(IOTSV_LF, LF);
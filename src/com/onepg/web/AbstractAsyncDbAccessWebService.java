@@ -0,0 +1,253 @@
+package com.onepg.web;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.Io;
+import com.onepg.util.LogUtil;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 非同期DBアクセス Webサービス 基底クラス.<br>
+ * <ul>
+ * <li>互いに依存しない複数の DB抽出を、それぞれ別のプーリングDB接続で並列に実行する Webサービスの基底クラスです。<br>
+ * 抽出が4～5件ある画面でも、応答時間は各抽出時間の合計ではなく最大値程度になります。</li>
+ * <li>サブクラスで <code>doExecuteAsync</code>メソッドを実装し、その中で <code>readAsync</code>メソッドにより DB抽出処理（ステップ）を登録します。<br>
+ * 登録したステップは即時に並列実行が開始され、<code>CompletableFuture</code> を返します。</li>
+ * <li><code>doExecuteAsync</code>メソッド終了後、すべてのステップの完了を待ち、ステップごとの結果反映処理を登録順に呼び出し元スレッドで実行します。<br>
+ * 結果反映処理では I/Oマップ（<code>Io</code>）に結果をセットします。（<code>Io</code> はスレッドセーフではないためステップ内では操作しない）</li>
+ * <li>いずれかのステップで例外エラーが発生した場合・待機時間上限を超えた場合は、未完了のステップを取り消し（実行中のステップには割り込み）、その例外エラーをスローします。</li>
+ * <li>各ステップの DB接続はステップ終了時にクローズ（ロールバック）されるため、参照専用です。更新処理には <code>AbstractDbAccessWebService</code> を使用します。<br>
+ * 他のサービスの未コミットの更新も参照できないため、JSON サービス一括実行のトランザクション実行では使用できません。</li>
+ * <li>並列実行するステップ数だけプーリングDB接続を使用するため、DB接続の最大数（db.properties）に注意してください。<br>
+ * 最大数に達している場合、ステップは他の接続が解放されるまで待機時間上限まで待ちます。（超えた場合は例外エラー）</li>
+ * <li>並列実行数・待機時間上限は web.properties の json.service.async.parallel.count（省略時は 8）・json.service.async.timeout.msec（省略時は 60000）で設定します。<br>
+ * json.service.async.virtual.thread が <code>true</code> の場合は、仮想スレッドが使用できる Java バージョンであれば仮想スレッドで実行します。（並列実行数は無視される）</li>
+ * </ul>
+ * <pre>
+ * ［例］
+ * <code>&#64;Override
+ * protected void doExecuteAsync(final Io io) throws Exception {
+ *   readAsync(conn -&gt; SqlUtil.selectOne(conn, headSql), head -&gt; io.putAll(head));
+ *   readAsync(conn -&gt; SqlUtil.selectBulkAll(conn, detailSql), rows -&gt; io.putRows("detail", rows));
+ * }</code>
+ * </pre>
+ */
+public abstract class AbstractAsyncDbAccessWebService extends AbstractWebService {
+
+  /** 並列実行スレッドプール（全サービス共有）. */
+  private static final ExecutorService EXECUTOR = createExecutor();
+  /** 待機時間上限（ミリ秒）. */
+  private static final long TIMEOUT_MSEC = ServerUtil.PROP_MAP.getLongOrDefault("json.service.async.timeout.msec", 60_000L);
+
+  /** 登録ステップリスト. */
+  private final List<Step<?>> steps = new ArrayList<>();
+
+  /**
+   * DB抽出処理.
+   *
+   * @param <T> 抽出結果の型
+   */
+  @FunctionalInterface
+  public interface DbReader<T> {
+    /**
+     * DB抽出.
+     *
+     * @param conn DB接続（ステップ専用）
+     * @return 抽出結果
+     * @throws Exception 例外エラー
+     */
+    T read(Connection conn) throws Exception;
+  }
+
+  /**
+   * 登録ステップ.
+   *
+   * @param <T> 抽出結果の型
+   */
+  private static final class Step<T> {
+    /** 実行結果. */
+    private final CompletableFuture<T> future;
+    /** 結果反映処理. */
+    private final Consumer<T> merger;
+    /** 実行タスク. */
+    private final Future<?> task;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param future 実行結果
+     * @param merger 結果反映処理
+     * @param task 実行タスク
+     */
+    private Step(final CompletableFuture<T> future, final Consumer<T> merger, final Future<?> task) {
+      this.future = future;
+      this.merger = merger;
+      this.task = task;
+    }
+
+    /**
+     * 取消.<br>
+     * <ul>
+     * <li>未開始のステップは実行せず、実行中のステップには割り込みます。</li>
+     * </ul>
+     */
+    private void cancel() {
+      this.task.cancel(true);
+      this.future.cancel(false);
+    }
+
+    /**
+     * 結果反映.
+     *
+     * @param timeoutNanos 待機時間上限（ナノ秒）
+     * @throws Exception 例外エラー
+     */
+    private void merge(final long timeoutNanos) throws Exception {
+      final T result = this.future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+      if (this.merger != null) {
+        this.merger.accept(result);
+      }
+    }
+  }
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>スーパークラスのコンストラクタを呼び出します。</li>
+   * </ul>
+   */
+  public AbstractAsyncDbAccessWebService() {
+    super();
+  }
+
+  /**
+   * 非同期メイン処理.<br>
+   * <ul>
+   * <li>サブクラスで <code>readAsync</code>メソッドによりステップを登録します。</li>
+   * <li>ステップの完了を待たずに終了して構いません。</li>
+   * </ul>
+   *
+   * @param io 引数かつ戻値（リクエストかつレスポンス）
+   * @throws Exception 例外エラー
+   */
+  protected abstract void doExecuteAsync(final Io io) throws Exception;
+
+  /**
+   * {@inheritDoc}
+   * <ul>
+   * <li><code>doExecuteAsync</code>メソッドを呼び出した後、登録したすべてのステップの完了を待ち、結果反映処理を登録順に実行します。</li>
+   * <li>例外エラー・待機時間上限超過の場合は未完了のステップを取り消します。（DB接続を解放するため）</li>
+   * </ul>
+   */
+  @Override
+  public final void doExecute(final Io io) throws Exception {
+    boolean completed = false;
+    try {
+      doExecuteAsync(io);
+      final long limitNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MSEC);
+      for (final Step<?> step : this.steps) {
+        try {
+          step.merge(limitNanos - System.nanoTime());
+        } catch (final ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          }
+          throw e;
+        } catch (final TimeoutException e) {
+          throw new RuntimeException("Async web service step timed out. "
+              + LogUtil.joinKeyVal("timeoutMsec", TIMEOUT_MSEC, "steps", this.steps.size()), e);
+        }
+      }
+      completed = true;
+    } finally {
+      if (!completed) {
+        // 未完了のステップを取り消す
+        for (final Step<?> step : this.steps) {
+          step.cancel();
+        }
+      }
+      this.steps.clear();
+    }
+  }
+
+  /**
+   * DB抽出ステップ登録.<br>
+   * <ul>
+   * <li>ステップ専用のプーリングDB接続で DB抽出処理を並列に実行します。</li>
+   * <li>DB接続の最大数に達している場合は、接続が解放されるまで待機時間上限まで待ちます。</li>
+   * <li>結果反映処理はすべてのステップの完了後、登録順に呼び出し元スレッドで実行されます。</li>
+   * </ul>
+   *
+   * @param <T> 抽出結果の型
+   * @param reader DB抽出処理
+   * @param merger 結果反映処理（不要な場合は <code>null</code>）
+   * @return 実行結果
+   */
+  protected final <T> CompletableFuture<T> readAsync(final DbReader<T> reader, final Consumer<T> merger) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    final Future<?> task = EXECUTOR.submit(() -> {
+      try (final Connection conn = DbUtil.getConnPooledWait(super.traceCode, TIMEOUT_MSEC)) {
+        future.complete(reader.read(conn));
+      } catch (final Exception | Error e) {
+        future.completeExceptionally(e);
+      }
+    });
+    this.steps.add(new Step<>(future, merger, task));
+    return future;
+  }
+
+  /**
+   * DB抽出ステップ登録.<br>
+   * <ul>
+   * <li>結果反映処理なしでステップを登録します。実行結果は他のステップとの組み合わせ等に使用します。</li>
+   * </ul>
+   *
+   * @param <T> 抽出結果の型
+   * @param reader DB抽出処理
+   * @return 実行結果
+   */
+  protected final <T> CompletableFuture<T> readAsync(final DbReader<T> reader) {
+    return readAsync(reader, null);
+  }
+
+  /**
+   * 並列実行スレッドプール生成.<br>
+   * <ul>
+   * <li>仮想スレッドを使用する設定で、仮想スレッドが使用できる Java バージョンの場合は仮想スレッドのプールを生成します。</li>
+   * <li>それ以外の場合は並列実行数のデーモンスレッドのプールを生成します。</li>
+   * </ul>
+   *
+   * @return スレッドプール
+   */
+  private static ExecutorService createExecutor() {
+    if (ServerUtil.PROP_MAP.getBooleanOrDefault("json.service.async.virtual.thread", false)) {
+      try {
+        // Java 21 以降のみ存在するためリフレクションで呼び出す
+        final ExecutorService ret = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+        LogUtil.stdout("Async web service steps run on virtual threads. ");
+        return ret;
+      } catch (final ReflectiveOperationException e) {
+        LogUtil.stdout("Virtual threads are not available. Using platform threads. ");
+      }
+    }
+    final int parallelCount = ServerUtil.PROP_MAP.getIntOrDefault("json.service.async.parallel.count", 8);
+    final AtomicInteger threadNo = new AtomicInteger();
+    return Executors.newFixedThreadPool(parallelCount, r -> {
+      final Thread th = new Thread(r, "async-service-" + threadNo.incrementAndGet());
+      th.setDaemon(true);
+      return th;
+    });
+  }
+}
@@ -56,6 +56,27 @@ public abstract class AbstractDbAccessWebService extends AbstractWebService {
     }
   }
 
+  /**
+   * 共有DB接続でのメイン処理の呼び出し.<br>
+   * <ul>
+   * <li>呼び出し元から渡されたDB接続でスーパークラスの処理を実行します。</li>
+   * <li>コミット・ロールバック・クローズは行いません。（呼び出し元で行う）</li>
+   * <li>複数の Webサービスを1つのトランザクションで実行する場合に使用します。</li>
+   * </ul>
+   *
+   * @param io 引数かつ戻値（リクエストかつレスポンス）
+   * @param conn DB接続
+   * @throws Exception 例外エラー
+   */
+  void executeWithConn(final Io io, final Connection conn) throws Exception {
+    this.dbConn = conn;
+    try {
+      super.execute(io);
+    } finally {
+      this.dbConn = null;
+    }
+  }
+
   /**
    * DB接続取得.<br>
    * <ul>
@@ -0,0 +1,100 @@
+package com.onepg.web;
+
+import com.onepg.db.SqlResultSet;
+import com.onepg.util.IoItems;
+import com.onepg.util.ValUtil;
+import java.io.IOException;
+
+/**
+ * ストリーミングDBアクセス Webサービス 基底クラス.<br>
+ * <ul>
+ * <li>抽出結果を全件そろえてから返すのではなく、抽出した行から順にレスポンスに書き込む Webサービスの基底クラスです。<br>
+ * 最初の行が届くまでの時間が抽出件数に依存しなくなるため、大量件数の検索・出力に使用します。</li>
+ * <li>サブクラスの <code>doExecute</code>メソッドで <code>SqlUtil#select(Connection, SqlBean)</code> の SQL結果セットを
+ * <code>writeRows</code>メソッドに渡します。（行データを個別に出力する場合は <code>writeRow</code>メソッド）</li>
+ * <li>レスポンスは NDJSON 形式（Accept ヘッダーに <code>text/event-stream</code> を含む場合は SSE 形式）で、
+ * 最後に I/Oマップ（メッセージ・セッションデータを含む）を終了レコードとして出力します。</li>
+ * <li>DB接続の取得・コミット・クローズは <code>AbstractDbAccessWebService</code> と同じです。</li>
+ * <li>レスポンスキャッシュ・同一リクエスト集約・一括実行の対象外です。（一括実行では 400 エラーを返す）</li>
+ * </ul>
+ * <pre>
+ * ［例］
+ * <code>&#64;Override
+ * public void doExecute(final Io io) throws Exception {
+ *   try (final SqlResultSet rSet = SqlUtil.select(getDbConn(), sb)) {
+ *     writeRows(rSet);
+ *   }
+ * }</code>
+ * </pre>
+ * @see RowStreamWriter
+ */
+public abstract class AbstractStreamDbAccessWebService extends AbstractDbAccessWebService {
+
+  /** 行ストリーミングレスポンス出力. */
+  private RowStreamWriter streamWriter = null;
+
+  /**
+   * コンストラクタ.<br>
+   * <ul>
+   * <li>スーパークラスのコンストラクタを呼び出します。</li>
+   * </ul>
+   */
+  public AbstractStreamDbAccessWebService() {
+    super();
+  }
+
+  /**
+   * 行ストリーミングレスポンス出力設定.
+   *
+   * @param streamWriter 行ストリーミングレスポンス出力
+   */
+  void setStreamWriter(final RowStreamWriter streamWriter) {
+    this.streamWriter = streamWriter;
+  }
+
+  /**
+   * 行データ出力.<br>
+   * <ul>
+   * <li>行データをレスポンスに書き込みます。</li>
+   * </ul>
+   *
+   * @param row 行データ
+   * @throws IOException I/O例外エラー（クライアント切断等）
+   */
+  protected final void writeRow(final IoItems row) throws IOException {
+    getStreamWriter().writeRow(row);
+  }
+
+  /**
+   * 全行データ出力.<br>
+   * <ul>
+   * <li>SQL結果セットの全行をレスポンスに書き込みます。</li>
+   * <li>SQL結果セットのクローズは呼び出し元で行います。</li>
+   * </ul>
+   *
+   * @param rSet SQL結果セット
+   * @return 出力行数
+   * @throws IOException I/O例外エラー（クライアント切断等）
+   */
+  protected final long writeRows(final SqlResultSet rSet) throws IOException {
+    final RowStreamWriter writer = getStreamWriter();
+    long count = 0;
+    for (final IoItems row : rSet) {
+      writer.writeRow(row);
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 行ストリーミングレスポンス出力取得.
+   *
+   * @return 行ストリーミングレスポンス出力
+   */
+  private RowStreamWriter getStreamWriter() {
+    if (ValUtil.isNull(this.streamWriter)) {
+      throw new RuntimeException("Row stream is valid only when called as a json service. ");
+    }
+    return this.streamWriter;
+  }
+}
@@ -60,4 +60,17 @@ public abstract class AbstractWebService {
       this.logger.end();
     }
   }
+
+  /**
+   * レスポンスキャッシュ破棄.<br>
+   * <ul>
+   * <li><code>@CacheableResponse</code> を付与した Webサービスのレスポンスキャッシュをすべて破棄します。</li>
+   * <li>キャッシュ対象の Webサービスが返すデータを更新した場合に呼び出します。</li>
+   * </ul>
+   *
+   * @param svcCls Webサービスクラス
+   */
+  protected final void invalidateResponseCache(final Class<? extends AbstractWebService> svcCls) {
+    ResponseCache.invalidate(svcCls.getName());
+  }
 }
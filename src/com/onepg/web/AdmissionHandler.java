@@ -0,0 +1,189 @@
+package com.onepg.web;
+
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 受付制御ハンドラークラス.<br>
+ * <ul>
+ * <li>コンテキストごとのスレッドプールでハンドラーを実行し、あるコンテキストの処理待ちが他のコンテキストに波及しないようにします。</li>
+ * <li>並列実行数を超えたリクエストは待機数まで待機させ、待機数を超えた場合は即時に 503（Retry-After ヘッダー付き）を返します。</li>
+ * <li>待機時間が最大待機時間を超えたリクエストは処理せずに 503 を返します。（クライアント側がタイムアウトしている可能性が高いため）</li>
+ * <li>設定は web.properties のコンテキストごとの設定キープレフィックスに続く下記キーで行います。並列実行数が無い場合は受付制御しません。
+ *   <ul>
+ *   <li>.parallel.count: 並列実行数</li>
+ *   <li>.waiting.count: 待機数（省略時は 0、待機させない）</li>
+ *   <li>.max.wait.msec: 最大待機時間（ミリ秒、省略時は 0、制限しない）</li>
+ *   </ul></li>
+ * <li>Retry-After ヘッダーの秒数は web.properties の busy.retry.after.sec で設定します。（省略時は 5）</li>
+ * </ul>
+ * @hidden
+ */
+final class AdmissionHandler implements HttpHandler {
+
+  /** 設定キー - 再試行までの秒数. */
+  private static final String PPKEY_RETRY_AFTER_SEC = "busy.retry.after.sec";
+  /** 拒否ログ出力間隔（件数）. */
+  private static final long REJECT_LOG_INTERVAL = 100;
+
+  /** ログライター. */
+  private final LogWriter logger = LogUtil.newLogWriter(getClass());
+  /** コンテキスト名. */
+  private final String contextName;
+  /** ハンドラー. */
+  private final HttpHandler handler;
+  /** スレッドプール. */
+  private final ThreadPoolExecutor executor;
+  /** 最大待機時間（ナノ秒、0 は制限しない）. */
+  private final long maxWaitNanos;
+  /** 再試行までの秒数. */
+  private final int retryAfterSec;
+  /** 拒否件数. */
+  private final AtomicLong rejectCount = new AtomicLong();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param contextName コンテキスト名
+   * @param handler ハンドラー
+   * @param parallelCount 並列実行数
+   * @param waitingCount 待機数
+   * @param maxWaitMsec 最大待機時間（ミリ秒）
+   * @param retryAfterSec 再試行までの秒数
+   */
+  private AdmissionHandler(final String contextName, final HttpHandler handler, final int parallelCount,
+      final int waitingCount, final long maxWaitMsec, final int retryAfterSec) {
+    this.contextName = contextName;
+    this.handler = handler;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMsec);
+    this.retryAfterSec = retryAfterSec;
+    final BlockingQueue<Runnable> queue;
+    if (waitingCount <= 0) {
+      queue = new SynchronousQueue<>();
+    } else {
+      queue = new ArrayBlockingQueue<>(waitingCount);
+    }
+    final AtomicInteger threadNo = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(parallelCount, parallelCount, 0L, TimeUnit.MILLISECONDS, queue,
+        r -> new Thread(r, contextName + "-" + threadNo.incrementAndGet()));
+  }
+
+  /**
+   * 受付制御ハンドラー生成.<br>
+   * <ul>
+   * <li>並列実行数が設定されている場合は受付制御ハンドラーでラップして返します。</li>
+   * <li>並列実行数が設定されていない場合はハンドラーをそのまま返します。</li>
+   * </ul>
+   *
+   * @param contextName コンテキスト名
+   * @param handler ハンドラー
+   * @param propMap WEB設定
+   * @param keyPrefix 設定キープレフィックス（［例］json.service）
+   * @return ハンドラー
+   */
+  static HttpHandler wrap(final String contextName, final HttpHandler handler, final IoItems propMap,
+      final String keyPrefix) {
+    if (!propMap.containsKey(keyPrefix + ".parallel.count")) {
+      return handler;
+    }
+    final int parallelCount = propMap.getInt(keyPrefix + ".parallel.count");
+    final int waitingCount = propMap.getIntOrDefault(keyPrefix + ".waiting.count", 0);
+    final long maxWaitMsec = propMap.getIntOrDefault(keyPrefix + ".max.wait.msec", 0);
+    final int retryAfterSec = propMap.getIntOrDefault(PPKEY_RETRY_AFTER_SEC, 5);
+    if (parallelCount <= 0 || waitingCount < 0 || maxWaitMsec < 0) {
+      throw new RuntimeException("Invalid admission control settings. " + LogUtil.joinKeyVal("context", contextName,
+          "parallel", parallelCount, "waiting", waitingCount, "maxWaitMsec", maxWaitMsec));
+    }
+    LogUtil.stdout("Admission control enabled. " + LogUtil.joinKeyVal("context", contextName, "parallel", parallelCount,
+        "waiting", waitingCount, "maxWaitMsec", maxWaitMsec));
+    return new AdmissionHandler(contextName, handler, parallelCount, waitingCount, maxWaitMsec, retryAfterSec);
+  }
+
+  /**
+   * リクエスト受付.<br>
+   * <ul>
+   * <li>リクエストをスレッドプールに渡して即時に戻ります。スレッドプールが満杯の場合は 503 を返します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @throws IOException I/O例外エラー
+   */
+  @Override
+  public void handle(final HttpExchange exchange) throws IOException {
+    final long acceptedNanos = System.nanoTime();
+    try {
+      this.executor.execute(() -> execute(exchange, acceptedNanos));
+    } catch (final RejectedExecutionException e) {
+      reject(exchange, "queue full");
+    }
+  }
+
+  /**
+   * リクエスト実行.<br>
+   * <ul>
+   * <li>最大待機時間を超えて待機していた場合は 503 を返し、それ以外はハンドラーを実行します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param acceptedNanos 受付時刻（ナノ秒）
+   */
+  private void execute(final HttpExchange exchange, final long acceptedNanos) {
+    try {
+      if (this.maxWaitNanos > 0 && System.nanoTime() - acceptedNanos > this.maxWaitNanos) {
+        reject(exchange, "wait timeout");
+        return;
+      }
+      this.handler.handle(exchange);
+    } catch (final Exception | Error e) {
+      this.logger.error(e, "An exception error occurred in admission controlled handler. "
+          + LogUtil.joinKeyVal("context", this.contextName));
+      exchange.close();
+    }
+  }
+
+  /**
+   * リクエスト拒否.<br>
+   * <ul>
+   * <li>503 を返します。ログは拒否件数が一定件数に達するごとに出力します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param reason 拒否理由
+   * @throws IOException I/O例外エラー
+   */
+  private void reject(final HttpExchange exchange, final String reason) throws IOException {
+    final long count = this.rejectCount.incrementAndGet();
+    if (count == 1 || count % REJECT_LOG_INTERVAL == 0) {
+      this.logger.info("Request rejected by admission control. " + LogUtil.joinKeyVal("context", this.contextName,
+          "reason", reason, "rejected", count, "active", this.executor.getActiveCount(),
+          "waiting", this.executor.getQueue().size()));
+    }
+    try {
+      ServerUtil.responseBusy(exchange, this.retryAfterSec);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * 停止.<br>
+   * <ul>
+   * <li>待機中のリクエストは破棄し、実行中のリクエストの終了は待ちません。</li>
+   * </ul>
+   */
+  void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
@@ -0,0 +1,46 @@
+package com.onepg.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * レスポンスキャッシュ対象 Webサービス宣言.<br>
+ * <ul>
+ * <li>Webサービスクラスに付与すると、<code>GET</code>メソッドのレスポンス JSON を有効期間の間キャッシュします。</li>
+ * <li>キャッシュが有効な間は同じリクエスト（サービスパス・クエリパラメーター（順不同）・利用者別の場合は利用者）に対して
+ * Webサービスを実行せずにキャッシュしたレスポンスを返します。</li>
+ * <li>参照データ・選択肢取得等、同じ条件で同じ結果を返す参照専用の Webサービスにのみ付与します。</li>
+ * <li>エラーメッセージを含むレスポンス、Webサービスがセッションデータを変更したレスポンスはキャッシュしません。<br>
+ * セッションデータはキャッシュせず、キャッシュ使用時はリクエストのセッションデータをレスポンスに付け直します。</li>
+ * <li>クライアントからは <code>HttpUtil.getJsonService</code>（<code>GET</code>メソッド）で呼び出します。</li>
+ * <li>データ更新時等にキャッシュを破棄する場合は <code>AbstractWebService#invalidateResponseCache(Class)</code> を呼び出します。</li>
+ * <li>キャッシュの最大件数・最大バイト数は web.properties の json.service.cache.max.entries・json.service.cache.max.bytes で設定します。</li>
+ * </ul>
+ * <pre>
+ * ［例］<code>@CacheableResponse(ttlSec = 60)
+ * public class ExampleListInit extends AbstractDbAccessWebService {</code>
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CacheableResponse {
+
+  /**
+   * 有効期間（秒）.
+   *
+   * @return 有効期間（秒）
+   */
+  int ttlSec();
+
+  /**
+   * 利用者別キャッシュ.<br>
+   * <ul>
+   * <li><code>true</code> の場合は利用者（JWT のサインインID）ごとにキャッシュします。</li>
+   * </ul>
+   *
+   * @return 利用者別の場合は <code>true</code>
+   */
+  boolean perUser() default false;
+}
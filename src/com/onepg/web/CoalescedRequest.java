@@ -0,0 +1,38 @@
+package com.onepg.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 同一リクエスト集約対象 Webサービス宣言.<br>
+ * <ul>
+ * <li>Webサービスクラスに付与すると、同じリクエスト（サービスパス・クエリパラメーター（順不同）・利用者別の場合は利用者）の
+ * <code>GET</code>メソッドが同時に実行された場合、最初のリクエストだけ Webサービスを実行し、他のリクエストはその完了を待って同じレスポンスを返します。</li>
+ * <li>キャッシュと異なり、実行中のリクエストのみ集約するため古いデータを返すことはありません。</li>
+ * <li>共有するレスポンスはセッションデータを除いたもので、待機していたリクエストにはそれぞれのリクエストのセッションデータを付け直して返します。</li>
+ * <li>エラーメッセージを含むレスポンス、Webサービスがセッションデータを変更したレスポンスは共有せず、待機していたリクエストはそれぞれ Webサービスを実行します。</li>
+ * <li>クライアントからは <code>HttpUtil.getJsonService</code>（<code>GET</code>メソッド）で呼び出します。</li>
+ * <li>待機時間の上限は web.properties の json.service.coalesce.max.wait.msec で設定します。（超えた場合はそれぞれ Webサービスを実行する）</li>
+ * <li><code>@CacheableResponse</code> と併用した場合は、キャッシュが無い間の同時リクエストを集約します。</li>
+ * </ul>
+ * <pre>
+ * ［例］<code>@CoalescedRequest
+ * public class ExampleListInit extends AbstractDbAccessWebService {</code>
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CoalescedRequest {
+
+  /**
+   * 利用者別集約.<br>
+   * <ul>
+   * <li><code>true</code> の場合は同じ利用者（JWT のサインインID）のリクエストのみ集約します。</li>
+   * </ul>
+   *
+   * @return 利用者別の場合は <code>true</code>
+   */
+  boolean perUser() default false;
+}
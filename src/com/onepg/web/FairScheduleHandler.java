@@ -0,0 +1,466 @@
+package com.onepg.web;
+
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ValUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 利用者別公平スケジューリングハンドラークラス.<br>
+ * <ul>
+ * <li>リクエストを利用者ごとの待機キューに振り分け、利用者間でラウンドロビンに実行します。<br>
+ * 一部の利用者が重い処理を繰り返しても、他の利用者のリクエストが後回しにされ続けないようにします。</li>
+ * <li>利用者は JWT の sub（サインインID）で識別し、JWT が無い・無効な場合はクライアントIPアドレスで識別します。</li>
+ * <li>利用者ごとの同時実行数を制限し、制限に達した利用者のリクエストは他の利用者のリクエストの後に実行します。</li>
+ * <li>サービスパスごとに優先区分（高・通常・低）を設定でき、上位区分の待機リクエストを先に実行します。（短い画面操作系を出力系より先に実行する等）</li>
+ * <li>並列実行数・待機数・最大待機時間の扱いは受付制御ハンドラー（<code>AdmissionHandler</code>）と同じです。</li>
+ * <li>設定は web.properties のコンテキストごとの設定キープレフィックスに続く下記キーで行います。
+ *   <ul>
+ *   <li>.parallel.count: 並列実行数（必須）</li>
+ *   <li>.waiting.count: 待機数（省略時は 0、待機させない）</li>
+ *   <li>.max.wait.msec: 最大待機時間（ミリ秒、省略時は 0、制限しない）</li>
+ *   <li>.user.max.inflight: 利用者ごとの同時実行数（省略時は 2）</li>
+ *   <li>.user.max.waiting: 利用者ごとの待機数（省略時は 0、待機数のみで制限）</li>
+ *   <li>.priority.high.paths: 優先区分「高」のサービスパス前方一致条件（コンテキストパスより後、カンマ区切り）</li>
+ *   <li>.priority.low.paths: 優先区分「低」のサービスパス前方一致条件（コンテキストパスより後、カンマ区切り）</li>
+ *   </ul></li>
+ * </ul>
+ * @hidden
+ */
+final class FairScheduleHandler implements HttpHandler {
+
+  /** 設定キー - 再試行までの秒数. */
+  private static final String PPKEY_RETRY_AFTER_SEC = "busy.retry.after.sec";
+  /** 拒否ログ出力間隔（件数）. */
+  private static final long REJECT_LOG_INTERVAL = 100;
+  /** 優先区分 - 高. */
+  private static final int PRIORITY_HIGH = 0;
+  /** 優先区分 - 通常. */
+  private static final int PRIORITY_NORMAL = 1;
+  /** 優先区分 - 低. */
+  private static final int PRIORITY_LOW = 2;
+  /** 優先区分数. */
+  private static final int PRIORITY_COUNT = 3;
+
+  /** ログライター. */
+  private final LogWriter logger = LogUtil.newLogWriter(getClass());
+  /** コンテキスト名. */
+  private final String contextName;
+  /** ハンドラー. */
+  private final HttpHandler handler;
+  /** スレッドプール. */
+  private final ExecutorService executor;
+  /** 並列実行数. */
+  private final int parallelCount;
+  /** 待機数. */
+  private final int waitingCount;
+  /** 最大待機時間（ナノ秒、0 は制限しない）. */
+  private final long maxWaitNanos;
+  /** 利用者ごとの同時実行数. */
+  private final int userMaxInflight;
+  /** 利用者ごとの待機数（0 は制限しない）. */
+  private final int userMaxWaiting;
+  /** 優先区分「高」のサービスパス前方一致条件. */
+  private final String[] highPaths;
+  /** 優先区分「低」のサービスパス前方一致条件. */
+  private final String[] lowPaths;
+  /** 再試行までの秒数. */
+  private final int retryAfterSec;
+  /** 拒否件数. */
+  private final AtomicLong rejectCount = new AtomicLong();
+
+  /** 排他ロック. */
+  private final Object lock = new Object();
+  /** 利用者状態マップ（利用者キー・状態）. */
+  private final Map<String, UserState> users = new HashMap<>();
+  /** 優先区分ごとの実行順（待機リクエストのある利用者のラウンドロビン）. */
+  private final List<ArrayDeque<UserState>> rounds;
+  /** 実行中件数. */
+  private int running = 0;
+  /** 待機件数. */
+  private int waiting = 0;
+  /** 停止済フラグ. */
+  private boolean stopped = false;
+
+  /**
+   * 利用者状態.
+   */
+  private static final class UserState {
+    /** 利用者キー. */
+    private final String userKey;
+    /** 優先区分ごとの待機リクエスト. */
+    private final List<ArrayDeque<Task>> queues;
+    /** 実行中件数. */
+    private int inflight = 0;
+    /** 待機件数. */
+    private int waiting = 0;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param userKey 利用者キー
+     */
+    private UserState(final String userKey) {
+      this.userKey = userKey;
+      this.queues = new ArrayList<>(PRIORITY_COUNT);
+      for (int i = 0; i < PRIORITY_COUNT; i++) {
+        this.queues.add(new ArrayDeque<>());
+      }
+    }
+  }
+
+  /**
+   * 待機リクエスト.
+   */
+  private static final class Task {
+    /** HTTP送受信データ. */
+    private final HttpExchange exchange;
+    /** 受付時刻（ナノ秒）. */
+    private final long acceptedNanos;
+    /** 利用者状態. */
+    private final UserState user;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param exchange HTTP送受信データ
+     * @param acceptedNanos 受付時刻（ナノ秒）
+     * @param user 利用者状態
+     */
+    private Task(final HttpExchange exchange, final long acceptedNanos, final UserState user) {
+      this.exchange = exchange;
+      this.acceptedNanos = acceptedNanos;
+      this.user = user;
+    }
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param contextName コンテキスト名
+   * @param handler ハンドラー
+   * @param propMap WEB設定
+   * @param keyPrefix 設定キープレフィックス
+   */
+  private FairScheduleHandler(final String contextName, final HttpHandler handler, final IoItems propMap,
+      final String keyPrefix) {
+    this.contextName = contextName;
+    this.handler = handler;
+    this.parallelCount = propMap.getInt(keyPrefix + ".parallel.count");
+    this.waitingCount = propMap.getIntOrDefault(keyPrefix + ".waiting.count", 0);
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(propMap.getIntOrDefault(keyPrefix + ".max.wait.msec", 0));
+    this.userMaxInflight = propMap.getIntOrDefault(keyPrefix + ".user.max.inflight", 2);
+    this.userMaxWaiting = propMap.getIntOrDefault(keyPrefix + ".user.max.waiting", 0);
+    this.highPaths = splitPaths(propMap.getStringOrDefault(keyPrefix + ".priority.high.paths", ValUtil.BLANK));
+    this.lowPaths = splitPaths(propMap.getStringOrDefault(keyPrefix + ".priority.low.paths", ValUtil.BLANK));
+    this.retryAfterSec = propMap.getIntOrDefault(PPKEY_RETRY_AFTER_SEC, 5);
+    if (this.parallelCount <= 0 || this.waitingCount < 0 || this.maxWaitNanos < 0 || this.userMaxInflight <= 0
+        || this.userMaxWaiting < 0) {
+      throw new RuntimeException("Invalid fair schedule settings. " + LogUtil.joinKeyVal("context", contextName,
+          "parallel", this.parallelCount, "waiting", this.waitingCount, "userMaxInflight", this.userMaxInflight,
+          "userMaxWaiting", this.userMaxWaiting));
+    }
+    this.rounds = new ArrayList<>(PRIORITY_COUNT);
+    for (int i = 0; i < PRIORITY_COUNT; i++) {
+      this.rounds.add(new ArrayDeque<>());
+    }
+    final AtomicInteger threadNo = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(this.parallelCount,
+        r -> new Thread(r, contextName + "-" + threadNo.incrementAndGet()));
+  }
+
+  /**
+   * 公平スケジューリングハンドラー生成.
+   *
+   * @param contextName コンテキスト名
+   * @param handler ハンドラー
+   * @param propMap WEB設定
+   * @param keyPrefix 設定キープレフィックス（［例］json.service）
+   * @return ハンドラー
+   */
+  static FairScheduleHandler wrap(final String contextName, final HttpHandler handler, final IoItems propMap,
+      final String keyPrefix) {
+    final FairScheduleHandler ret = new FairScheduleHandler(contextName, handler, propMap, keyPrefix);
+    LogUtil.stdout("Fair scheduling enabled. " + LogUtil.joinKeyVal("context", contextName, "parallel",
+        ret.parallelCount, "waiting", ret.waitingCount, "userMaxInflight", ret.userMaxInflight, "userMaxWaiting",
+        ret.userMaxWaiting, "highPaths", LogUtil.join(ret.highPaths), "lowPaths", LogUtil.join(ret.lowPaths)));
+    return ret;
+  }
+
+  /**
+   * サービスパス前方一致条件分割.
+   *
+   * @param paths カンマ区切りのサービスパス前方一致条件
+   * @return サービスパス前方一致条件
+   */
+  private static String[] splitPaths(final String paths) {
+    return Arrays.stream(paths.split(",")).map(String::trim).filter(s -> !ValUtil.isBlank(s))
+        .toArray(String[]::new);
+  }
+
+  /**
+   * リクエスト受付.<br>
+   * <ul>
+   * <li>リクエストを利用者ごとの待機キューに追加して即時に戻ります。待機数を超える場合は 503 を返します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @throws IOException I/O例外エラー
+   */
+  @Override
+  public void handle(final HttpExchange exchange) throws IOException {
+    final long acceptedNanos = System.nanoTime();
+    final String userKey = getUserKey(exchange);
+    final int priority = getPriority(exchange);
+    final String rejectReason;
+    synchronized (this.lock) {
+      rejectReason = enqueue(exchange, acceptedNanos, userKey, priority);
+      if (rejectReason == null) {
+        dispatch();
+      }
+    }
+    if (rejectReason != null) {
+      reject(exchange, rejectReason, userKey);
+    }
+  }
+
+  /**
+   * 利用者キー取得.<br>
+   * <ul>
+   * <li>Authorization ヘッダーの JWT が有効な場合はサインインID、それ以外はクライアントIPアドレスを返します。</li>
+   * <li>JWT が無効な場合の認証エラーは後続のハンドラーで返します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @return 利用者キー
+   */
+  private String getUserKey(final HttpExchange exchange) {
+    final String signinId = ServerUtil.getSigninId(exchange);
+    if (!ValUtil.isNull(signinId)) {
+      return "sub:" + signinId;
+    }
+    final InetSocketAddress remote = exchange.getRemoteAddress();
+    if (ValUtil.isNull(remote) || ValUtil.isNull(remote.getAddress())) {
+      return "addr:";
+    }
+    return "addr:" + remote.getAddress().getHostAddress();
+  }
+
+  /**
+   * 優先区分取得.
+   *
+   * @param exchange HTTP送受信データ
+   * @return 優先区分
+   */
+  private int getPriority(final HttpExchange exchange) {
+    final String reqPath = exchange.getRequestURI().getPath();
+    final String prefix = "/" + this.contextName + "/";
+    final String svcPath;
+    if (reqPath.startsWith(prefix)) {
+      svcPath = reqPath.substring(prefix.length());
+    } else {
+      svcPath = reqPath;
+    }
+    for (final String path : this.highPaths) {
+      if (svcPath.startsWith(path)) {
+        return PRIORITY_HIGH;
+      }
+    }
+    for (final String path : this.lowPaths) {
+      if (svcPath.startsWith(path)) {
+        return PRIORITY_LOW;
+      }
+    }
+    return PRIORITY_NORMAL;
+  }
+
+  /**
+   * 待機キュー追加.<br>
+   * <ul>
+   * <li>ロック取得済の状態で呼び出します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param acceptedNanos 受付時刻（ナノ秒）
+   * @param userKey 利用者キー
+   * @param priority 優先区分
+   * @return 拒否理由（追加した場合は <code>null</code>）
+   */
+  private String enqueue(final HttpExchange exchange, final long acceptedNanos, final String userKey,
+      final int priority) {
+    if (this.stopped) {
+      return "stopped";
+    }
+    final UserState user = this.users.computeIfAbsent(userKey, UserState::new);
+    // 即時実行できるリクエストは待機数に数えない
+    final boolean runnable = (this.running < this.parallelCount && user.inflight < this.userMaxInflight
+        && this.waiting == 0);
+    if (!runnable) {
+      if (this.waiting >= this.waitingCount) {
+        removeIfIdle(user);
+        return "queue full";
+      }
+      if (this.userMaxWaiting > 0 && user.waiting >= this.userMaxWaiting) {
+        return "user queue full";
+      }
+    }
+    final ArrayDeque<Task> queue = user.queues.get(priority);
+    if (queue.isEmpty()) {
+      this.rounds.get(priority).addLast(user);
+    }
+    queue.addLast(new Task(exchange, acceptedNanos, user));
+    user.waiting++;
+    this.waiting++;
+    return null;
+  }
+
+  /**
+   * 実行割り当て.<br>
+   * <ul>
+   * <li>ロック取得済の状態で呼び出します。</li>
+   * <li>空きスレッドがある間、上位の優先区分から順に、同時実行数に達していない利用者のリクエストをラウンドロビンで取り出して実行します。</li>
+   * </ul>
+   */
+  private void dispatch() {
+    while (!this.stopped && this.running < this.parallelCount && this.waiting > 0) {
+      final Task task = pollNext();
+      if (task == null) {
+        // 待機リクエストのある利用者が全員同時実行数に達している
+        return;
+      }
+      this.running++;
+      this.executor.execute(() -> execute(task));
+    }
+  }
+
+  /**
+   * 次に実行するリクエストの取り出し.
+   *
+   * @return 待機リクエスト（実行可能なリクエストが無い場合は <code>null</code>）
+   */
+  private Task pollNext() {
+    for (int priority = 0; priority < PRIORITY_COUNT; priority++) {
+      final ArrayDeque<UserState> round = this.rounds.get(priority);
+      for (int i = round.size(); i > 0; i--) {
+        final UserState user = round.pollFirst();
+        if (user.inflight >= this.userMaxInflight) {
+          // 同時実行数に達している利用者は後回し
+          round.addLast(user);
+          continue;
+        }
+        final ArrayDeque<Task> queue = user.queues.get(priority);
+        final Task task = queue.pollFirst();
+        if (!queue.isEmpty()) {
+          round.addLast(user);
+        }
+        user.waiting--;
+        this.waiting--;
+        user.inflight++;
+        return task;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * リクエスト実行.<br>
+   * <ul>
+   * <li>最大待機時間を超えて待機していた場合は 503 を返し、それ以外はハンドラーを実行します。</li>
+   * <li>終了後に次の待機リクエストを割り当てます。</li>
+   * </ul>
+   *
+   * @param task 待機リクエスト
+   */
+  private void execute(final Task task) {
+    try {
+      if (this.maxWaitNanos > 0 && System.nanoTime() - task.acceptedNanos > this.maxWaitNanos) {
+        reject(task.exchange, "wait timeout", null);
+        return;
+      }
+      this.handler.handle(task.exchange);
+    } catch (final Exception | Error e) {
+      this.logger.error(e, "An exception error occurred in fair scheduled handler. "
+          + LogUtil.joinKeyVal("context", this.contextName));
+      task.exchange.close();
+    } finally {
+      synchronized (this.lock) {
+        task.user.inflight--;
+        removeIfIdle(task.user);
+        this.running--;
+        dispatch();
+      }
+    }
+  }
+
+  /**
+   * 利用者状態削除.<br>
+   * <ul>
+   * <li>実行中・待機中のリクエストが無い利用者の状態を削除します。</li>
+   * </ul>
+   *
+   * @param user 利用者状態
+   */
+  private void removeIfIdle(final UserState user) {
+    if (user.inflight == 0 && user.waiting == 0) {
+      this.users.remove(user.userKey);
+    }
+  }
+
+  /**
+   * リクエスト拒否.<br>
+   * <ul>
+   * <li>503 を返します。ログは拒否件数が一定件数に達するごとに出力します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param reason 拒否理由
+   * @param userKey 利用者キー（ログ用、不明な場合は <code>null</code>）
+   * @throws IOException I/O例外エラー
+   */
+  private void reject(final HttpExchange exchange, final String reason, final String userKey) throws IOException {
+    final long count = this.rejectCount.incrementAndGet();
+    if (count == 1 || count % REJECT_LOG_INTERVAL == 0) {
+      final int runningCount;
+      final int waitingCnt;
+      synchronized (this.lock) {
+        runningCount = this.running;
+        waitingCnt = this.waiting;
+      }
+      this.logger.info("Request rejected by fair scheduler. " + LogUtil.joinKeyVal("context", this.contextName,
+          "reason", reason, "user", userKey, "rejected", count, "running", runningCount, "waiting", waitingCnt));
+    }
+    try {
+      ServerUtil.responseBusy(exchange, this.retryAfterSec);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * 停止.<br>
+   * <ul>
+   * <li>待機中のリクエストは破棄し、実行中のリクエストの終了は待ちません。</li>
+   * </ul>
+   */
+  void shutdown() {
+    synchronized (this.lock) {
+      this.stopped = true;
+    }
+    this.executor.shutdownNow();
+  }
+}
@@ -0,0 +1,241 @@
+package com.onepg.web;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.Io;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ValUtil;
+import com.sun.net.httpserver.HttpExchange;
+import java.net.HttpURLConnection;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * JSON サービス一括実行クラス.<br>
+ * <ul>
+ * <li>1回のリクエストで複数の JSON サービスを実行し、実行結果を配列で返します。（<code>/services/_batch</code>）</li>
+ * <li>リクエストは <code>POST</code>メソッドで、JSON 配列 <code>[{"path":"exmodule/ExampleLoad","params":{...}}, ...]</code> を送信します。<br>
+ * path はコンテキストパスより後のサービスパス、params は各サービスへのリクエスト（<code>_session</code> を含む）です。</li>
+ * <li>レスポンスは各サービスのレスポンス JSON をリクエストの順に並べた JSON 配列です。</li>
+ * <li>通常は各サービスを並列に実行します。（各サービスは個別のDB接続・トランザクション）<br>
+ * 例外エラーが発生したサービスの実行結果は <code>null</code> になります。</li>
+ * <li>クエリパラメーター transaction が <code>true</code> の場合は各サービスを順に1つのDB接続・トランザクションで実行し、すべて正常終了した場合にコミットします。<br>
+ * エラーメッセージを返したサービスがある場合はロールバックし、後続サービスは実行せず実行結果を <code>null</code> にします。
+ * 例外エラーが発生した場合はロールバックし、単一サービスと同様にエラーレスポンスを返します。<br>
+ * 非同期DBアクセス Webサービス（<code>AbstractAsyncDbAccessWebService</code>）はステップごとに別のDB接続を使用し、未コミットの更新を参照できないため実行できません。（400 エラー）</li>
+ * <li>ストリーミング Webサービス（<code>AbstractStreamDbAccessWebService</code>）は実行できません。（400 エラー）</li>
+ * <li>JWT 検証はリクエストにつき1回のみ行います。</li>
+ * <li>並列実行数・最大サービス数は web.properties の json.service.batch.parallel.count（省略時は 4）・
+ * json.service.batch.max.calls（省略時は 20）で設定します。</li>
+ * </ul>
+ * @hidden
+ */
+final class JsonBatchExecutor {
+
+  /** 一括実行サービスパス. */
+  static final String BATCH_PATH = "_batch";
+  /** サービスパスの許可文字パターン. */
+  private static final Pattern SVC_PATH_PATTERN = Pattern.compile("^[A-Za-z0-9_/]+$");
+
+  /** ログライター. */
+  private final LogWriter logger = LogUtil.newLogWriter(getClass());
+  /** JSON サービスハンドラー. */
+  private final JsonServiceHandler handler;
+  /** 最大サービス数. */
+  private final int maxCalls;
+  /** 並列実行スレッドプール. */
+  private final ExecutorService executor;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param handler JSON サービスハンドラー
+   * @param contextPath コンテキストパス（スレッド名用）
+   * @param propMap WEB設定
+   */
+  JsonBatchExecutor(final JsonServiceHandler handler, final String contextPath, final IoItems propMap) {
+    this.handler = handler;
+    this.maxCalls = propMap.getIntOrDefault("json.service.batch.max.calls", 20);
+    final int parallelCount = propMap.getIntOrDefault("json.service.batch.parallel.count", 4);
+    if (this.maxCalls <= 0 || parallelCount <= 0) {
+      throw new RuntimeException("Invalid json service batch settings. "
+          + LogUtil.joinKeyVal("maxCalls", this.maxCalls, "parallel", parallelCount));
+    }
+    final AtomicInteger threadNo = new AtomicInteger();
+    this.executor = Executors.newFixedThreadPool(parallelCount,
+        r -> new Thread(r, contextPath + "-batch-" + threadNo.incrementAndGet()));
+  }
+
+  /**
+   * 一括実行.
+   *
+   * @param exchange HTTP送受信データ
+   * @throws Exception 例外エラー
+   */
+  void execute(final HttpExchange exchange) throws Exception {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      ServerUtil.responseText(exchange, HttpURLConnection.HTTP_BAD_METHOD, "Only POST method is valid for batch. ");
+      return;
+    }
+    final List<Io> calls = Io.createListByJsonArray(ServerUtil.getRequestBody(exchange));
+    if (calls.isEmpty() || calls.size() > this.maxCalls) {
+      ServerUtil.responseText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+          "Batch call count must be 1 to " + this.maxCalls + ". ");
+      return;
+    }
+    final Io query = new Io();
+    query.putAllByUrlParam(exchange.getRequestURI().getRawQuery());
+    final boolean inTransaction = query.getBooleanOrDefault("transaction", false);
+
+    // サービスクラス名・リクエストの解析
+    final String[] clsNames = new String[calls.size()];
+    final Io[] ios = new Io[calls.size()];
+    for (int i = 0; i < calls.size(); i++) {
+      final Io call = calls.get(i);
+      final String path = ValUtil.isNull(call) ? null : call.getStringOrDefault("path", null);
+      if (ValUtil.isBlank(path) || !SVC_PATH_PATTERN.matcher(path).find() || path.contains(BATCH_PATH)) {
+        ServerUtil.responseText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+            "Batch call path is invalid. " + LogUtil.joinKeyVal("index", i, "path", path));
+        return;
+      }
+      clsNames[i] = this.handler.buildClsNameBySvcPath(path);
+      if (isSubclassOf(clsNames[i], AbstractStreamDbAccessWebService.class)) {
+        ServerUtil.responseText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+            "Streaming service cannot run in batch. " + LogUtil.joinKeyVal("index", i, "path", path));
+        return;
+      }
+      if (inTransaction && isSubclassOf(clsNames[i], AbstractAsyncDbAccessWebService.class)) {
+        ServerUtil.responseText(exchange, HttpURLConnection.HTTP_BAD_REQUEST,
+            "Async service cannot run in batch transaction. " + LogUtil.joinKeyVal("index", i, "path", path));
+        return;
+      }
+      if (call.containsKeyNest("params")) {
+        ios[i] = call.getNest("params");
+      } else {
+        ios[i] = new Io();
+      }
+    }
+
+    final String[] results;
+    if (inTransaction) {
+      results = executeInTransaction(clsNames, ios);
+    } else {
+      results = executeParallel(clsNames, ios);
+    }
+
+    final StringBuilder sb = new StringBuilder("[");
+    for (final String result : results) {
+      sb.append(ValUtil.isNull(result) ? ValUtil.JSON_NULL : result).append(',');
+    }
+    ValUtil.deleteLastChar(sb);
+    sb.append(']');
+    ServerUtil.responseJson(exchange, sb.toString());
+  }
+
+  /**
+   * サブクラス判定.<br>
+   * <ul>
+   * <li>クラスが存在しない場合は <code>false</code> を返します。（クラス非存在エラーはサービス実行時に返す）</li>
+   * </ul>
+   *
+   * @param clsName サービスクラス名
+   * @param superCls スーパークラス
+   * @return サブクラスの場合は <code>true</code>
+   */
+  private static boolean isSubclassOf(final String clsName, final Class<?> superCls) {
+    try {
+      return superCls.isAssignableFrom(Class.forName(clsName));
+    } catch (final ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * 並列実行.<br>
+   * <ul>
+   * <li>待機中に割り込まれた場合は未完了のサービスを取り消します。</li>
+   * </ul>
+   *
+   * @param clsNames サービスクラス名
+   * @param ios リクエスト
+   * @return レスポンス JSON（例外エラーの場合は <code>null</code>）
+   * @throws InterruptedException 割り込みエラー
+   */
+  private String[] executeParallel(final String[] clsNames, final Io[] ios) throws InterruptedException {
+    final List<Future<String>> futures = new ArrayList<>();
+    for (int i = 0; i < clsNames.length; i++) {
+      final String clsName = clsNames[i];
+      final Io io = ios[i];
+      futures.add(this.executor.submit(() -> {
+        final AbstractWebService serviceObj = this.handler.createWebServiceClsInstance(clsName);
+        serviceObj.execute(io);
+        return io.createJsonWithMsg(ServerUtil.MSG_MAP);
+      }));
+    }
+    final String[] results = new String[clsNames.length];
+    for (int i = 0; i < results.length; i++) {
+      try {
+        results[i] = futures.get(i).get();
+      } catch (final InterruptedException e) {
+        // 未完了のサービスを取り消す（DB接続・共有スレッドプールを解放するため）
+        for (int j = i; j < futures.size(); j++) {
+          futures.get(j).cancel(true);
+        }
+        throw e;
+      } catch (final Exception e) {
+        this.logger.error(e, "An exception error occurred in json service batch execution. "
+            + LogUtil.joinKeyVal("index", i, "class", clsNames[i]));
+        results[i] = null;
+      }
+    }
+    return results;
+  }
+
+  /**
+   * トランザクション実行.<br>
+   * <ul>
+   * <li>1つのプーリングDB接続で各サービスを順に実行し、すべて正常終了した場合にコミットします。</li>
+   * <li>コミットしない場合のロールバックは <code>DbConnPooled#close()</code> で行われます。</li>
+   * </ul>
+   *
+   * @param clsNames サービスクラス名
+   * @param ios リクエスト
+   * @return レスポンス JSON（未実行の場合は <code>null</code>）
+   * @throws Exception 例外エラー
+   */
+  private String[] executeInTransaction(final String[] clsNames, final Io[] ios) throws Exception {
+    final String[] results = new String[clsNames.length];
+    try (final Connection conn = DbUtil.getConnPooled(ValUtil.getSequenceCode())) {
+      for (int i = 0; i < clsNames.length; i++) {
+        final AbstractWebService serviceObj = this.handler.createWebServiceClsInstance(clsNames[i]);
+        if (serviceObj instanceof AbstractDbAccessWebService) {
+          ((AbstractDbAccessWebService) serviceObj).executeWithConn(ios[i], conn);
+        } else {
+          serviceObj.execute(ios[i]);
+        }
+        results[i] = ios[i].createJsonWithMsg(ServerUtil.MSG_MAP);
+        if (ios[i].hasErrorMsg()) {
+          this.logger.info("Json service batch transaction rolled back by error message. "
+              + LogUtil.joinKeyVal("index", i, "class", clsNames[i]));
+          return results;
+        }
+      }
+      conn.commit();
+    }
+    return results;
+  }
+
+  /**
+   * 停止.
+   */
+  void shutdown() {
+    this.executor.shutdownNow();
+  }
+}
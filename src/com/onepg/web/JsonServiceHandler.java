@@ -1,9 +1,13 @@
 package com.onepg.web;
 
+import com.onepg.util.AbstractIoTypeMap;
 import com.onepg.util.Io;
+import com.onepg.util.IoItems;
 import com.onepg.util.LogUtil;
+import com.onepg.util.ValUtil;
 import com.sun.net.httpserver.HttpExchange;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 
 /**
  * JSON サービスハンドラークラス.
@@ -17,6 +21,9 @@ final class JsonServiceHandler extends AbstractHttpHandler {
   /** サービスクラスパッケージ. */
   private final String svcClsPackage;
 
+  /** 一括実行. */
+  private final JsonBatchExecutor batchExecutor;
+
   /**
    * コンストラクタ.<br>
    * <ul>
@@ -30,6 +37,7 @@ final class JsonServiceHandler extends AbstractHttpHandler {
     super();
     this.contextPath = contextPath;
     this.svcClsPackage = svcClsPackage;
+    this.batchExecutor = new JsonBatchExecutor(this, contextPath, ServerUtil.PROP_MAP);
   }
 
   /**
@@ -37,28 +45,78 @@ final class JsonServiceHandler extends AbstractHttpHandler {
    * <ul>
    * <li>URLパスからサービスクラス名を動的に解決し、リフレクションで実行します。</li>
    * <li><code>GET/POST</code>メソッドに応じてリクエストパラメーターを解析し、サービスクラスに渡します。</li>
+   * <li><code>@CacheableResponse</code> を付与したサービスクラスへの <code>GET</code>メソッドは、キャッシュがあればサービスクラスを実行せずにキャッシュを返します。</li>
+   * <li><code>_batch</code> パスへのリクエストは複数サービスの一括実行として処理します。（<code>JsonBatchExecutor</code>）</li>
+   * <li><code>@CoalescedRequest</code> を付与したサービスクラスへの <code>GET</code>メソッドは、同じリクエストが実行中であればその完了を待って同じレスポンスを返します。</li>
+   * <li><code>AbstractStreamDbAccessWebService</code> のサービスクラスは、行データを順にストリーミングレスポンスとして返します。</li>
    * </ul>
    */
   @Override
   protected void doExecute(final HttpExchange exchange) throws Exception {
     // リクエストパス
     final String reqPath = exchange.getRequestURI().getPath();
+    // 一括実行
+    if (reqPath.equals("/" + this.contextPath + "/" + JsonBatchExecutor.BATCH_PATH)) {
+      try {
+        this.batchExecutor.execute(exchange);
+      } catch (final Exception | Error e) {
+        super.logger.error(e, "An exception error occurred in json service batch execution. ");
+        ServerUtil.responseText(exchange, HttpURLConnection.HTTP_INTERNAL_ERROR, "Unexpected json service error. ");
+      }
+      return;
+    }
     // クラス名構築
     final String clsName = buildClsNameByReq(reqPath);
 
     try {
-      // サービスクラスの生成と検証
-      final AbstractWebService serviceObj = createWebServiceClsInstance(clsName);
-      
-      // リクエストパラメーターの処理
-      final Io io = reqToIoParams(exchange, clsName);
-      
-      // サービス処理実行
-      serviceObj.execute(io);
-      
-      // レスポンス
-      final String resJson = io.createJsonWithMsg(ServerUtil.MSG_MAP);
-      ServerUtil.responseJson(exchange, resJson);
+      // キャッシュ・同一リクエスト集約設定
+      final ResponseCache.Policy policy;
+      if ("GET".equals(exchange.getRequestMethod())) {
+        policy = ResponseCache.getPolicy(clsName);
+      } else {
+        policy = ResponseCache.Policy.NONE;
+      }
+      if (!policy.isCacheEnabled() && !policy.isCoalesce()) {
+        executeService(exchange, clsName, policy, null, null);
+        return;
+      }
+      final String reqKey = ResponseCache.createKey(clsName, exchange.getRequestURI().getRawQuery(),
+          policy.isPerUser() ? ValUtil.nvl(ServerUtil.getSigninId(exchange)) : null);
+
+      // レスポンスキャッシュ
+      if (policy.isCacheEnabled()) {
+        final ResponseCache.Entry cached = ResponseCache.get(reqKey);
+        if (!ValUtil.isNull(cached)) {
+          responseShared(exchange, cached.getResBytes(), cached.getGzipBytes(),
+              reqToIoParams(exchange, clsName).session());
+          return;
+        }
+      }
+
+      // 同一リクエスト集約
+      if (policy.isCoalesce()) {
+        final SingleFlight.Flight flight = new SingleFlight.Flight(reqKey);
+        final SingleFlight.Flight leader = SingleFlight.start(flight);
+        if (ValUtil.isNull(leader)) {
+          // 先行リクエストとして実行する
+          try {
+            executeService(exchange, clsName, policy, reqKey, flight);
+          } finally {
+            // 例外エラー時も後続リクエストの待機を解除する（2回目以降の完了は無視される）
+            flight.finish(null);
+          }
+          return;
+        }
+        final SingleFlight.Result shared = leader.await();
+        if (!ValUtil.isNull(shared)) {
+          // 自リクエストのセッションデータを付け直して返す
+          responseShared(exchange, shared.getResBytes(), shared.getGzipBytes(),
+              reqToIoParams(exchange, clsName).session());
+          return;
+        }
+        // 共有できない実行結果の場合は自リクエストで実行する
+      }
+      executeService(exchange, clsName, policy, reqKey, null);
       
     } catch (final ClassNotFoundException e) {
       super.logger.error(e, "Web service class not found. " + LogUtil.joinKeyVal("class", clsName));
@@ -69,6 +127,125 @@ final class JsonServiceHandler extends AbstractHttpHandler {
     }
   }
 
+  /**
+   * サービス実行.<br>
+   * <ul>
+   * <li>サービスクラスを実行してレスポンスを返します。</li>
+   * <li>キャッシュキーがあり、レスポンスにエラーメッセージを含まず、サービスがセッションデータを変更していない場合は、
+   * セッションデータを除いたレスポンスをキャッシュし、後続リクエストに共有します。（セッションデータは呼び出し元ごとに付け直す）</li>
+   * <li>後続リクエストへの共有は自リクエストのレスポンス送信より先に行います。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param clsName クラス名
+   * @param policy キャッシュ・同一リクエスト集約設定
+   * @param reqKey キャッシュキー（キャッシュ・集約しない場合は <code>null</code>）
+   * @param flight 実行中リクエスト（先行リクエストでない場合は <code>null</code>）
+   * @throws Exception 例外エラー
+   */
+  private void executeService(final HttpExchange exchange, final String clsName, final ResponseCache.Policy policy,
+      final String reqKey, final SingleFlight.Flight flight) throws Exception {
+    // サービスクラスの生成と検証
+    final AbstractWebService serviceObj = createWebServiceClsInstance(clsName);
+
+    // リクエストパラメーターの処理
+    final Io io = reqToIoParams(exchange, clsName);
+
+    // ストリーミングサービス
+    if (serviceObj instanceof AbstractStreamDbAccessWebService) {
+      executeStreamService(exchange, (AbstractStreamDbAccessWebService) serviceObj, io);
+      return;
+    }
+
+    // リクエストのセッションデータ（サービスによる変更の確認用）
+    final String reqSessionJson = new IoItems(io.session()).createJson();
+    // キャッシュ破棄世代（実行中に破棄された場合はキャッシュしない）
+    final long cacheGeneration = ResponseCache.getGeneration(clsName);
+
+    // サービス処理実行
+    serviceObj.execute(io);
+
+    // レスポンス
+    if (ValUtil.isNull(reqKey) || io.hasErrorMsg() || !reqSessionJson.equals(new IoItems(io.session()).createJson())) {
+      ServerUtil.responseJson(exchange, io.createJsonWithMsg(ServerUtil.MSG_MAP));
+      return;
+    }
+    // 共有レスポンス（セッションデータを除く）
+    final IoItems session = new IoItems(io.session());
+    for (final String key : session.keySet()) {
+      io.session().remove(key);
+    }
+    final byte[] resBytes = io.createJsonWithMsg(ServerUtil.MSG_MAP).getBytes(StandardCharsets.UTF_8);
+    final byte[] gzipBytes = ServerUtil.compressTxtIfLarge(resBytes);
+    if (policy.isCacheEnabled()) {
+      ResponseCache.put(reqKey, resBytes, gzipBytes, policy, clsName, cacheGeneration);
+    }
+    if (!ValUtil.isNull(flight)) {
+      flight.finish(new SingleFlight.Result(resBytes, gzipBytes));
+    }
+    responseShared(exchange, resBytes, gzipBytes, session);
+  }
+
+  /**
+   * 共有レスポンス返却.<br>
+   * <ul>
+   * <li>キャッシュ等で共有するレスポンス（セッションデータを含まない）を返します。</li>
+   * <li>自リクエストのセッションデータがある場合はレスポンスに追加して返します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param resBytes JSON バイト配列（セッションデータを含まない）
+   * @param gzipBytes GZIP圧縮データ（圧縮しない場合は <code>null</code>）
+   * @param session 自リクエストのセッションデータ
+   * @throws Exception 例外エラー
+   */
+  private static void responseShared(final HttpExchange exchange, final byte[] resBytes, final byte[] gzipBytes,
+      final AbstractIoTypeMap session) throws Exception {
+    if (ValUtil.isEmpty(session)) {
+      ServerUtil.responseJson(exchange, resBytes, gzipBytes);
+      return;
+    }
+    // 末尾の } の前にセッションデータを追加する
+    final StringBuilder sb = new StringBuilder(new String(resBytes, StandardCharsets.UTF_8));
+    ValUtil.deleteLastChar(sb);
+    if (sb.length() > 1) {
+      sb.append(',');
+    }
+    sb.append("\"_session\":").append(new IoItems(session).createJson()).append('}');
+    ServerUtil.responseJson(exchange, sb.toString());
+  }
+
+  /**
+   * ストリーミングサービス実行.<br>
+   * <ul>
+   * <li>サービスクラスが書き込んだ行データを順にレスポンスとして送信し、最後に I/Oマップを終了レコードとして送信します。</li>
+   * <li>レスポンス送信開始前の例外エラーは通常のサービスと同様にエラーレスポンスを返します。</li>
+   * <li>レスポンス送信開始後の例外エラーはエラーレコードを送信して終了します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param serviceObj ストリーミングサービス
+   * @param io リクエスト
+   * @throws Exception 例外エラー
+   */
+  private void executeStreamService(final HttpExchange exchange, final AbstractStreamDbAccessWebService serviceObj,
+      final Io io) throws Exception {
+    final RowStreamWriter writer = new RowStreamWriter(exchange);
+    serviceObj.setStreamWriter(writer);
+    try {
+      serviceObj.execute(io);
+    } catch (final Exception | Error e) {
+      if (!writer.isStarted()) {
+        throw e;
+      }
+      super.logger.error(e, "An exception error occurred in json stream service execution. "
+          + LogUtil.joinKeyVal("class", serviceObj.getClass().getName(), "rows", writer.getRowCount()));
+      writer.abort("Unexpected json service error. ");
+      return;
+    }
+    writer.finish(io.createJsonWithMsg(ServerUtil.MSG_MAP));
+  }
+
   /**
    * クラス名の構築.<br>
    * <ul>
@@ -83,6 +260,36 @@ final class JsonServiceHandler extends AbstractHttpHandler {
         + reqPath.replace("/" + this.contextPath + "/", "").replace("/", ".");
   }
   
+  /**
+   * サービスパスからクラス名の構築.<br>
+   * <ul>
+   * <li>コンテキストパスより後のサービスパス（［例］exmodule/ExampleLoad）からサービスクラス名を生成します。</li>
+   * <li>サービスパス先頭のスラッシュは無視します。</li>
+   * </ul>
+   *
+   * @param svcPath サービスパス
+   * @return クラス名
+   */
+  String buildClsNameBySvcPath(final String svcPath) {
+    final String path;
+    if (svcPath.startsWith("/")) {
+      path = svcPath.substring(1);
+    } else {
+      path = svcPath;
+    }
+    return this.svcClsPackage + "." + path.replace("/", ".");
+  }
+
+  /**
+   * 停止.<br>
+   * <ul>
+   * <li>一括実行のスレッドプールを停止します。</li>
+   * </ul>
+   */
+  void shutdown() {
+    this.batchExecutor.shutdown();
+  }
+
   /**
    * リクエストパラメーターをI/Oパラメーターに変換.<br>
    * <ul>
@@ -99,7 +306,7 @@ final class JsonServiceHandler extends AbstractHttpHandler {
     final Io io = new Io();
 
     if ("GET".equals(reqMethod)) {
-      final String query = exchange.getRequestURI().getQuery();
+      final String query = exchange.getRequestURI().getRawQuery();
       io.putAllByUrlParam(query);
     } else if ("POST".equals(reqMethod)) {
       final String body = ServerUtil.getRequestBody(exchange);
@@ -5,13 +5,21 @@ import com.onepg.util.ValUtil;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * JWT ユーティリティクラス.
  * <ul>
  *   <li>JSON Web Token の生成・検証を行う。</li>
  *   <li>署名アルゴリズムは HMAC-SHA256（HS256）を使用する。</li>
+ *   <li>署名用の <code>Mac</code> はスレッドごとに初期化済のものを再利用する。</li>
+ *   <li>検証済 JWT は署名をキーにサインインID・有効期限を保持し、同じ JWT の再検証は署名計算を行わない。<br>
+ *   保持件数の上限は web.properties の jwt.cache.max.entries（省略時は 10000、0 は保持しない）で設定する。<br>
+ *   上限を超える場合は最も長く使用されていないものから破棄する。（LRU）</li>
  * </ul>
  * @hidden
  */
@@ -25,6 +33,40 @@ final class JwtUtil {
   private static final String SECRET_KEY = ServerUtil.PROP_MAP.getStringOrDefault("jwt.secret.key", "must-be-configured-in-web.properties");
   /** 有効期間（秒）. */
   private static final long EXPIRE_SEC = ServerUtil.PROP_MAP.getLongOrDefault("jwt.expire.sec", 86_400L); // デフォルトは24時間
+  /** 署名秘密鍵仕様. */
+  private static final SecretKeySpec KEY_SPEC = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), SIGN_ALG);
+  /** 初期化済署名（スレッドごと）. */
+  private static final ThreadLocal<Mac> THREAD_MAC = ThreadLocal.withInitial(JwtUtil::createMac);
+
+  /** 検証済 JWT 最大保持件数. */
+  private static final int CACHE_MAX_ENTRIES = ServerUtil.PROP_MAP.getIntOrDefault("jwt.cache.max.entries", 10_000);
+  /** 検証済 JWT マップ（署名・検証済 JWT、アクセス順）. ※排他ロックを兼ねる */
+  private static final Map<String, Verified> VERIFIED_MAP = new LinkedHashMap<>(64, 0.75f, true);
+
+  /**
+   * 検証済 JWT.
+   */
+  private static final class Verified {
+    /** 署名対象データ（ヘッダー・ペイロード）. */
+    private final String signData;
+    /** サインインID. */
+    private final String sub;
+    /** 有効期限（エポック秒）. */
+    private final long exp;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param signData 署名対象データ
+     * @param sub サインインID
+     * @param exp 有効期限（エポック秒）
+     */
+    private Verified(final String signData, final String sub, final long exp) {
+      this.signData = signData;
+      this.sub = sub;
+      this.exp = exp;
+    }
+  }
 
   /**
    * コンストラクタ.
@@ -60,23 +102,69 @@ final class JwtUtil {
     // エラーログ用トークン（部分マスク済み）
     final String errToken = ValUtil.substring(token, 0, 1) + "***";
 
-    final String[] parts = token.split("\\.", -1);
-    if (parts.length != 3) {
+    // ヘッダー・ペイロード・署名に分割（区切りは2つのみ）
+    final int dot1 = token.indexOf('.');
+    final int dot2 = (dot1 < 0) ? -1 : token.indexOf('.', dot1 + 1);
+    if (dot2 < 0 || token.indexOf('.', dot2 + 1) >= 0) {
       throw new RuntimeException("JWT format is invalid." + LogUtil.joinKeyVal("token", errToken));
     }
+    final String signData = token.substring(0, dot2);
+    final String signature = token.substring(dot2 + 1);
+    final long now = System.currentTimeMillis() / 1_000L;
+
+    // 検証済 JWT（署名・署名対象データが一致する場合のみ使用）
+    final Verified cached;
+    synchronized (VERIFIED_MAP) {
+      cached = VERIFIED_MAP.get(signature);
+    }
+    if (!ValUtil.isNull(cached) && cached.signData.equals(signData)) {
+      if (now > cached.exp) {
+        synchronized (VERIFIED_MAP) {
+          VERIFIED_MAP.remove(signature, cached);
+        }
+        throw new RuntimeException("JWT token is expired." + LogUtil.joinKeyVal("token", errToken));
+      }
+      return cached.sub;
+    }
+
     // 署名検証
-    final String signData = parts[0] + "." + parts[1];
     final String signed = sign(signData);
-    if (!signed.equals(parts[2])) {
+    if (!signed.equals(signature)) {
       throw new RuntimeException("JWT signature is invalid." + LogUtil.joinKeyVal("token", errToken));
     }
     // ペイロード検証（有効期限）
-    final String json = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+    final String json = new String(Base64.getUrlDecoder().decode(token.substring(dot1 + 1, dot2)), StandardCharsets.UTF_8);
     final long exp = getExpField(json, errToken);
-    if (System.currentTimeMillis() / 1_000L > exp) {
+    if (now > exp) {
       throw new RuntimeException("JWT token is expired." + LogUtil.joinKeyVal("token", errToken));
     }
-    return getSubField(json, errToken);
+    final String sub = getSubField(json, errToken);
+    putVerified(signature, new Verified(signData, sub, exp));
+    return sub;
+  }
+
+  /**
+   * 検証済 JWT 保持.<br>
+   * <ul>
+   * <li>最大保持件数を超える場合は最も長く使用されていないものから破棄し、新しい JWT は常に保持する。<br>
+   * （有効期限切れのものは使用されなくなるため、いずれ破棄される）</li>
+   * </ul>
+   *
+   * @param signature 署名
+   * @param verified 検証済 JWT
+   */
+  private static void putVerified(final String signature, final Verified verified) {
+    if (CACHE_MAX_ENTRIES <= 0) {
+      return;
+    }
+    synchronized (VERIFIED_MAP) {
+      VERIFIED_MAP.put(signature, verified);
+      final Iterator<Verified> ite = VERIFIED_MAP.values().iterator();
+      while (VERIFIED_MAP.size() > CACHE_MAX_ENTRIES && ite.hasNext()) {
+        ite.next();
+        ite.remove();
+      }
+    }
   }
 
   /**
@@ -86,13 +174,25 @@ final class JwtUtil {
    * @return Base64URL エンコードされた署名
    */
   private static String sign(final String data) {
+    // doFinal で初期化時の状態に戻るため再利用できる
+    final byte[] rawHmac = THREAD_MAC.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(rawHmac);
+  }
+
+  /**
+   * 署名 Mac 生成.<br>
+   * <ul>
+   * <li>署名秘密鍵で初期化した HMAC-SHA256 の <code>Mac</code> を生成する。</li>
+   * </ul>
+   *
+   * @return 初期化済署名
+   */
+  private static Mac createMac() {
     try {
       final Mac mac = Mac.getInstance(SIGN_ALG);
-      final SecretKeySpec keySpec = new SecretKeySpec(SECRET_KEY.getBytes(StandardCharsets.UTF_8), SIGN_ALG);
-      mac.init(keySpec);
-      final byte[] rawHmac = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-      return Base64.getUrlEncoder().withoutPadding().encodeToString(rawHmac);
-    } catch (final Exception e) {
+      mac.init(KEY_SPEC);
+      return mac;
+    } catch (final GeneralSecurityException e) {
       throw new RuntimeException("JWT signature generation failed.", e);
     }
   }
@@ -0,0 +1,304 @@
+package com.onepg.web;
+
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ValUtil;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.naming.AuthenticationException;
+import javax.naming.Context;
+import javax.naming.NamingException;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+
+/**
+ * LDAP 認証クラス.<br>
+ * <ul>
+ * <li>サインインの LDAP 認証（simple バインド）を行います。</li>
+ * <li>LDAP 接続はプールして再利用し、認証ごとに同じ接続で再バインドします。（TCP 接続を毎回確立しない）</li>
+ * <li>接続タイムアウト・読込タイムアウトを設定し、LDAP サーバーの応答遅延でリクエスト処理スレッドが長時間ふさがらないようにします。</li>
+ * <li>バインド（再バインドを含む）の応答待機は JDK の LDAP プロバイダーの仕様により接続タイムアウトが上限になります。</li>
+ * <li>同時認証数が上限に達している場合は待たずに混雑として返します。</li>
+ * <li>認証失敗（ID・パスワード誤り）を短時間保持し、同じ ID・パスワードの再試行は LDAP に問い合わせずに失敗とします。（任意）<br>
+ * パスワードはハッシュ値のみ保持します。</li>
+ * <li>設定は web.properties の ldap.connect.timeout.msec（省略時は 3000）・ldap.read.timeout.msec（省略時は 5000）・
+ * ldap.pool.max.idle（省略時は 8）・ldap.max.concurrent（省略時は 8）・ldap.negative.cache.sec（省略時は 0 で保持しない）で行います。</li>
+ * </ul>
+ * @hidden
+ */
+final class LdapAuthenticator {
+
+  /** ログライター. */
+  private static final LogWriter logger = LogUtil.newLogWriter(LdapAuthenticator.class);
+
+  /** 接続タイムアウト（ミリ秒）. */
+  private static final long CONNECT_TIMEOUT_MSEC = ServerUtil.PROP_MAP.getLongOrDefault("ldap.connect.timeout.msec", 3_000L);
+  /** 読込タイムアウト（ミリ秒）. */
+  private static final long READ_TIMEOUT_MSEC = ServerUtil.PROP_MAP.getLongOrDefault("ldap.read.timeout.msec", 5_000L);
+  /** プール接続保持数上限. */
+  private static final int POOL_MAX_IDLE = ServerUtil.PROP_MAP.getIntOrDefault("ldap.pool.max.idle", 8);
+  /** 認証失敗保持時間（ナノ秒）. */
+  private static final long NEGATIVE_CACHE_NANOS =
+      TimeUnit.SECONDS.toNanos(ServerUtil.PROP_MAP.getLongOrDefault("ldap.negative.cache.sec", 0L));
+  /** 認証失敗最大保持件数. */
+  private static final int NEGATIVE_CACHE_MAX_ENTRIES = 10_000;
+
+  /** 同時認証数制御. */
+  private static final Semaphore PERMITS = new Semaphore(ServerUtil.PROP_MAP.getIntOrDefault("ldap.max.concurrent", 8));
+  /** プール接続. */
+  private static final ConcurrentLinkedDeque<LdapContext> IDLE_CTXS = new ConcurrentLinkedDeque<>();
+  /** 認証失敗マップ（ID・パスワードのハッシュ値、有効期限（ナノ秒））. */
+  private static final Map<String, Long> NEGATIVE_MAP = new ConcurrentHashMap<>();
+
+  /**
+   * 認証結果.
+   */
+  enum Result {
+    /** 認証成功. */
+    SUCCESS,
+    /** 認証失敗（ID・パスワード誤り）. */
+    FAILED,
+    /** 混雑（同時認証数上限）. */
+    BUSY,
+    /** LDAP サーバーエラー（接続不可・タイムアウト等）. */
+    ERROR
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private LdapAuthenticator() {
+    // 処理なし
+  }
+
+  /**
+   * 認証.<br>
+   * <ul>
+   * <li>プール接続で再バインドし、プール接続が無い場合は新規接続します。（切断済のプール接続は再バインド時に再接続される）</li>
+   * <li>タイムアウト等で LDAP サーバーエラーになった場合は再試行せず、接続を破棄してエラーを返します。</li>
+   * </ul>
+   *
+   * @param id サインインID
+   * @param pw パスワード
+   * @param debug <code>true</code> の場合はエラー情報をログ出力する
+   * @return 認証結果
+   */
+  static Result authenticate(final String id, final String pw, final boolean debug) {
+    final String negativeKey = createNegativeKey(id, pw);
+    if (isNegativeCached(negativeKey)) {
+      logger.info("LDAP authentication failed (cached). " + LogUtil.joinKeyVal("id", id));
+      return Result.FAILED;
+    }
+    if (!PERMITS.tryAcquire()) {
+      logger.info("LDAP authentication is busy. " + LogUtil.joinKeyVal("id", id));
+      return Result.BUSY;
+    }
+    try {
+      final String userDn = ServerUtil.LDAP_USER_DN_FMT.formatted(id);
+      final LdapContext pooled = IDLE_CTXS.pollFirst();
+      try {
+        return bind(pooled, userDn, pw, id, negativeKey, debug);
+      } catch (final NamingException e) {
+        // エラーになった接続は再利用しない
+        if (!ValUtil.isNull(pooled)) {
+          closeQuietly(pooled);
+        }
+        logger.error("LDAP server error during authentication. " + LogUtil.joinKeyVal("id", id));
+        if (debug) {
+          logger.error(e, "LDAP authentication error in debug mode. ");
+        }
+        return Result.ERROR;
+      }
+    } finally {
+      PERMITS.release();
+    }
+  }
+
+  /**
+   * バインド.<br>
+   * <ul>
+   * <li>接続を指定した場合は再バインドし、指定しない場合は新規接続してバインドします。</li>
+   * <li>認証成功・失敗のいずれも接続は再利用できるためプールに戻します。</li>
+   * </ul>
+   *
+   * @param ctx プール接続（新規接続する場合は <code>null</code>）
+   * @param userDn ユーザーDN
+   * @param pw パスワード
+   * @param id サインインID（ログ用）
+   * @param negativeKey 認証失敗キー
+   * @param debug <code>true</code> の場合はエラー情報をログ出力する
+   * @return 認証結果
+   * @throws NamingException LDAP サーバーエラー
+   */
+  private static Result bind(final LdapContext ctx, final String userDn, final String pw, final String id,
+      final String negativeKey, final boolean debug) throws NamingException {
+    LdapContext bindCtx = ctx;
+    try {
+      if (ValUtil.isNull(bindCtx)) {
+        bindCtx = new InitialLdapContext(createEnv(userDn, pw), null);
+      } else {
+        bindCtx.addToEnvironment(Context.SECURITY_AUTHENTICATION, "simple");
+        bindCtx.addToEnvironment(Context.SECURITY_PRINCIPAL, userDn);
+        bindCtx.addToEnvironment(Context.SECURITY_CREDENTIALS, pw);
+        // 同じ接続で再バインドする
+        bindCtx.reconnect(null);
+      }
+      release(bindCtx);
+      return Result.SUCCESS;
+    } catch (final AuthenticationException e) {
+      logger.info("LDAP authentication failed. " + LogUtil.joinKeyVal("id", id));
+      if (debug) {
+        logger.error(e, "LDAP authentication error in debug mode. ");
+      }
+      putNegative(negativeKey);
+      if (!ValUtil.isNull(bindCtx)) {
+        release(bindCtx);
+      }
+      return Result.FAILED;
+    }
+  }
+
+  /**
+   * 接続環境作成.
+   *
+   * @param userDn ユーザーDN
+   * @param pw パスワード
+   * @return 接続環境
+   */
+  private static Hashtable<String, String> createEnv(final String userDn, final String pw) {
+    final Hashtable<String, String> env = new Hashtable<>();
+    env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+    env.put(Context.PROVIDER_URL, ServerUtil.LDAP_URL);
+    env.put(Context.SECURITY_AUTHENTICATION, "simple");
+    env.put(Context.SECURITY_PRINCIPAL, userDn);
+    env.put(Context.SECURITY_CREDENTIALS, pw);
+    env.put("com.sun.jndi.ldap.connect.timeout", String.valueOf(CONNECT_TIMEOUT_MSEC));
+    env.put("com.sun.jndi.ldap.read.timeout", String.valueOf(READ_TIMEOUT_MSEC));
+    return env;
+  }
+
+  /**
+   * 接続返却.<br>
+   * <ul>
+   * <li>パスワードを接続環境から削除してプールに戻します。保持数上限を超える場合はクローズします。</li>
+   * </ul>
+   *
+   * @param ctx 接続
+   */
+  private static void release(final LdapContext ctx) {
+    try {
+      ctx.removeFromEnvironment(Context.SECURITY_CREDENTIALS);
+    } catch (final NamingException e) {
+      closeQuietly(ctx);
+      return;
+    }
+    if (IDLE_CTXS.size() >= POOL_MAX_IDLE) {
+      closeQuietly(ctx);
+      return;
+    }
+    IDLE_CTXS.offerFirst(ctx);
+  }
+
+  /**
+   * 認証失敗キー作成.
+   *
+   * @param id サインインID
+   * @param pw パスワード
+   * @return 認証失敗キー（保持しない場合は <code>null</code>）
+   */
+  private static String createNegativeKey(final String id, final String pw) {
+    if (NEGATIVE_CACHE_NANOS <= 0) {
+      return null;
+    }
+    try {
+      final MessageDigest md = MessageDigest.getInstance("SHA-256");
+      final byte[] hash = md.digest((ValUtil.nvl(id) + '\0' + ValUtil.nvl(pw)).getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-256 is not available. ", e);
+    }
+  }
+
+  /**
+   * 認証失敗保持判定.
+   *
+   * @param negativeKey 認証失敗キー
+   * @return 保持期間内の認証失敗の場合は <code>true</code>
+   */
+  private static boolean isNegativeCached(final String negativeKey) {
+    if (ValUtil.isNull(negativeKey)) {
+      return false;
+    }
+    final Long expireNanos = NEGATIVE_MAP.get(negativeKey);
+    if (ValUtil.isNull(expireNanos)) {
+      return false;
+    }
+    if (System.nanoTime() - expireNanos > 0) {
+      NEGATIVE_MAP.remove(negativeKey, expireNanos);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * 認証失敗保持.<br>
+   * <ul>
+   * <li>最大保持件数に達している場合は有効期限切れのものを削除し、それでも空きが無い場合は保持しない。</li>
+   * </ul>
+   *
+   * @param negativeKey 認証失敗キー
+   */
+  private static void putNegative(final String negativeKey) {
+    if (ValUtil.isNull(negativeKey)) {
+      return;
+    }
+    final long now = System.nanoTime();
+    if (NEGATIVE_MAP.size() >= NEGATIVE_CACHE_MAX_ENTRIES) {
+      final Iterator<Long> ite = NEGATIVE_MAP.values().iterator();
+      while (ite.hasNext()) {
+        if (now - ite.next() > 0) {
+          ite.remove();
+        }
+      }
+      if (NEGATIVE_MAP.size() >= NEGATIVE_CACHE_MAX_ENTRIES) {
+        return;
+      }
+    }
+    NEGATIVE_MAP.put(negativeKey, now + NEGATIVE_CACHE_NANOS);
+  }
+
+  /**
+   * エラー無視クローズ.
+   *
+   * @param ctx 接続
+   */
+  private static void closeQuietly(final LdapContext ctx) {
+    try {
+      ctx.close();
+    } catch (final NamingException ignore) {
+      // 処理なし
+    }
+  }
+
+  /**
+   * 停止.<br>
+   * <ul>
+   * <li>プール接続をすべてクローズします。</li>
+   * </ul>
+   */
+  static void shutdown() {
+    LdapContext ctx;
+    while (!ValUtil.isNull(ctx = IDLE_CTXS.pollFirst())) {
+      closeQuietly(ctx);
+    }
+  }
+}
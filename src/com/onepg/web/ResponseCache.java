@@ -0,0 +1,341 @@
+package com.onepg.web;
+
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import com.onepg.util.ValUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * レスポンスキャッシュクラス.<br>
+ * <ul>
+ * <li><code>@CacheableResponse</code> を付与した Webサービスの <code>GET</code>メソッドのレスポンスを保持します。</li>
+ * <li>キャッシュキーは Webサービスクラス名・並べ替えたクエリパラメーター（セッションデータ <code>_session</code> を除く）・利用者別の場合は利用者キーです。</li>
+ * <li>レスポンスはセッションデータを除いて保持し、キャッシュ使用時に呼び出し元のセッションデータを付け直します。</li>
+ * <li>レスポンスは JSON バイト配列と GZIP圧縮データで保持し、キャッシュ使用時は JSON 作成・圧縮を行いません。</li>
+ * <li>最大件数・最大バイト数を超える場合は最も長く使用されていないものから破棄します。（LRU）</li>
+ * <li>Webサービスクラスごとに破棄世代を持ち、Webサービス実行中に破棄された場合はそのレスポンスを格納しません。（破棄前のデータを再格納しないため）</li>
+ * <li>最大件数・最大バイト数は web.properties の json.service.cache.max.entries（省略時は 1000、0 はキャッシュしない）・
+ * json.service.cache.max.bytes（省略時は 16MB）で設定します。</li>
+ * </ul>
+ * @hidden
+ */
+final class ResponseCache {
+
+  /** セッションデータのクエリパラメーター. */
+  private static final String SESSION_PARAM_PREFIX = "_session=";
+
+  /** ログライター. */
+  private static final LogWriter logger = LogUtil.newLogWriter(ResponseCache.class);
+
+  /** 最大件数. */
+  private static final int MAX_ENTRIES = ServerUtil.PROP_MAP.getIntOrDefault("json.service.cache.max.entries", 1_000);
+  /** 最大バイト数. */
+  private static final long MAX_BYTES =
+      ServerUtil.PROP_MAP.getLongOrDefault("json.service.cache.max.bytes", 16L * 1_024 * 1_024);
+
+  /** キャッシュマップ（キャッシュキー・キャッシュエントリー、アクセス順）. ※排他ロックを兼ねる */
+  private static final Map<String, Entry> CACHE_MAP = new LinkedHashMap<>(64, 0.75f, true);
+  /** キャッシュ合計バイト数. ※CACHE_MAP で排他 */
+  private static long totalBytes = 0;
+  /** 破棄世代マップ（Webサービスクラス名・破棄世代）. ※CACHE_MAP で排他 */
+  private static final Map<String, Long> GENERATION_MAP = new HashMap<>();
+
+  /** キャッシュ設定マップ（Webサービスクラス名・キャッシュ設定）. */
+  private static final Map<String, Policy> POLICY_MAP = new ConcurrentHashMap<>();
+
+  /**
+   * キャッシュ設定.
+   */
+  static final class Policy {
+    /** キャッシュ・集約しない設定. */
+    static final Policy NONE = new Policy(0, false, false);
+
+    /** 有効期間（秒）. */
+    private final int ttlSec;
+    /** 利用者別. */
+    private final boolean perUser;
+    /** 同一リクエスト集約. */
+    private final boolean coalesce;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param ttlSec 有効期間（秒）
+     * @param perUser 利用者別
+     * @param coalesce 同一リクエスト集約
+     */
+    private Policy(final int ttlSec, final boolean perUser, final boolean coalesce) {
+      this.ttlSec = ttlSec;
+      this.perUser = perUser;
+      this.coalesce = coalesce;
+    }
+
+    /**
+     * キャッシュ有効判定.
+     *
+     * @return キャッシュする場合は <code>true</code>
+     */
+    boolean isCacheEnabled() {
+      return this.ttlSec > 0 && MAX_ENTRIES > 0;
+    }
+
+    /**
+     * 同一リクエスト集約判定.
+     *
+     * @return 集約する場合は <code>true</code>
+     * @see CoalescedRequest
+     */
+    boolean isCoalesce() {
+      return this.coalesce;
+    }
+
+    /**
+     * 利用者別判定.
+     *
+     * @return 利用者別の場合は <code>true</code>
+     */
+    boolean isPerUser() {
+      return this.perUser;
+    }
+
+    /**
+     * 有効期間取得.
+     *
+     * @return 有効期間（秒）
+     */
+    int getTtlSec() {
+      return this.ttlSec;
+    }
+  }
+
+  /**
+   * キャッシュエントリー.
+   */
+  static final class Entry {
+    /** JSON バイト配列. */
+    private final byte[] resBytes;
+    /** GZIP圧縮データ. */
+    private final byte[] gzipBytes;
+    /** 有効期限（ナノ秒）. */
+    private final long expireNanos;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param resBytes JSON バイト配列
+     * @param gzipBytes GZIP圧縮データ
+     * @param expireNanos 有効期限（ナノ秒）
+     */
+    private Entry(final byte[] resBytes, final byte[] gzipBytes, final long expireNanos) {
+      this.resBytes = resBytes;
+      this.gzipBytes = gzipBytes;
+      this.expireNanos = expireNanos;
+    }
+
+    /**
+     * JSON バイト配列取得.
+     *
+     * @return JSON バイト配列
+     */
+    byte[] getResBytes() {
+      return this.resBytes;
+    }
+
+    /**
+     * GZIP圧縮データ取得.
+     *
+     * @return GZIP圧縮データ（圧縮していない場合は <code>null</code>）
+     */
+    byte[] getGzipBytes() {
+      return this.gzipBytes;
+    }
+
+    /**
+     * バイト数取得.
+     *
+     * @return バイト数
+     */
+    private long size() {
+      return this.resBytes.length + (ValUtil.isNull(this.gzipBytes) ? 0 : this.gzipBytes.length);
+    }
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private ResponseCache() {
+    // 処理なし
+  }
+
+  /**
+   * キャッシュ設定取得.<br>
+   * <ul>
+   * <li>Webサービスクラスの <code>@CacheableResponse</code>・<code>@CoalescedRequest</code> からキャッシュ設定を取得します。（クラス名ごとに保持）</li>
+   * <li>クラスが存在しない場合はキャッシュしない設定を返します。（クラス非存在エラーは Webサービス実行時に返す）</li>
+   * </ul>
+   *
+   * @param clsName Webサービスクラス名
+   * @return キャッシュ設定
+   */
+  static Policy getPolicy(final String clsName) {
+    return POLICY_MAP.computeIfAbsent(clsName, k -> {
+      try {
+        final Class<?> cls = Class.forName(k);
+        final CacheableResponse cacheAnno = cls.getAnnotation(CacheableResponse.class);
+        final CoalescedRequest coalesceAnno = cls.getAnnotation(CoalescedRequest.class);
+        final int ttlSec = ValUtil.isNull(cacheAnno) ? 0 : Math.max(cacheAnno.ttlSec(), 0);
+        final boolean coalesce = !ValUtil.isNull(coalesceAnno);
+        if (ttlSec == 0 && !coalesce) {
+          return Policy.NONE;
+        }
+        final boolean perUser = (ttlSec > 0 && cacheAnno.perUser()) || (coalesce && coalesceAnno.perUser());
+        return new Policy(ttlSec, perUser, coalesce);
+      } catch (final ClassNotFoundException | LinkageError e) {
+        return Policy.NONE;
+      }
+    });
+  }
+
+  /**
+   * キャッシュキー作成.<br>
+   * <ul>
+   * <li>クエリパラメーターはパラメーター単位で並べ替え、空のパラメーター・セッションデータのパラメーターは除きます。</li>
+   * </ul>
+   *
+   * @param clsName Webサービスクラス名
+   * @param query クエリ文字列（URLエンコード済）
+   * @param userKey 利用者キー（利用者別でない場合は <code>null</code>）
+   * @return キャッシュキー
+   */
+  static String createKey(final String clsName, final String query, final String userKey) {
+    final List<String> params = new ArrayList<>();
+    for (final String param : ValUtil.split(query, "&")) {
+      if (!ValUtil.isBlank(param) && !param.startsWith(SESSION_PARAM_PREFIX)) {
+        params.add(param);
+      }
+    }
+    Collections.sort(params);
+    final StringBuilder sb = new StringBuilder(clsName).append('?').append(String.join("&", params));
+    if (!ValUtil.isNull(userKey)) {
+      sb.append(ValUtil.TAB).append(userKey);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * キャッシュ取得.
+   *
+   * @param key キャッシュキー
+   * @return キャッシュエントリー（存在しない・有効期限切れの場合は <code>null</code>）
+   */
+  static Entry get(final String key) {
+    synchronized (CACHE_MAP) {
+      final Entry entry = CACHE_MAP.get(key);
+      if (ValUtil.isNull(entry)) {
+        return null;
+      }
+      if (System.nanoTime() - entry.expireNanos > 0) {
+        CACHE_MAP.remove(key);
+        totalBytes -= entry.size();
+        return null;
+      }
+      return entry;
+    }
+  }
+
+  /**
+   * 破棄世代取得.<br>
+   * <ul>
+   * <li>Webサービス実行前に取得し、キャッシュ格納時に渡します。</li>
+   * </ul>
+   *
+   * @param clsName Webサービスクラス名
+   * @return 破棄世代
+   */
+  static long getGeneration(final String clsName) {
+    synchronized (CACHE_MAP) {
+      return GENERATION_MAP.getOrDefault(clsName, 0L);
+    }
+  }
+
+  /**
+   * キャッシュ格納.<br>
+   * <ul>
+   * <li>最大件数・最大バイト数を超える場合は最も長く使用されていないものから破棄します。</li>
+   * <li>1件で最大バイト数を超えるレスポンスはキャッシュしません。</li>
+   * <li>破棄世代が Webサービス実行前から変わっている場合はキャッシュしません。</li>
+   * </ul>
+   *
+   * @param key キャッシュキー
+   * @param resBytes JSON バイト配列
+   * @param gzipBytes GZIP圧縮データ（圧縮しない場合は <code>null</code>）
+   * @param policy キャッシュ設定
+   * @param clsName Webサービスクラス名
+   * @param generation Webサービス実行前の破棄世代
+   */
+  static void put(final String key, final byte[] resBytes, final byte[] gzipBytes, final Policy policy,
+      final String clsName, final long generation) {
+    final Entry entry = new Entry(resBytes, gzipBytes,
+        System.nanoTime() + TimeUnit.SECONDS.toNanos(policy.getTtlSec()));
+    if (entry.size() > MAX_BYTES) {
+      return;
+    }
+    synchronized (CACHE_MAP) {
+      if (GENERATION_MAP.getOrDefault(clsName, 0L) != generation) {
+        // 実行中に破棄されたため格納しない
+        return;
+      }
+      final Entry old = CACHE_MAP.put(key, entry);
+      if (!ValUtil.isNull(old)) {
+        totalBytes -= old.size();
+      }
+      totalBytes += entry.size();
+      final Iterator<Entry> ite = CACHE_MAP.values().iterator();
+      while ((CACHE_MAP.size() > MAX_ENTRIES || totalBytes > MAX_BYTES) && ite.hasNext()) {
+        final Entry eldest = ite.next();
+        if (eldest == entry) {
+          break;
+        }
+        totalBytes -= eldest.size();
+        ite.remove();
+      }
+    }
+  }
+
+  /**
+   * キャッシュ破棄.<br>
+   * <ul>
+   * <li>Webサービスクラスのキャッシュをすべて破棄します。</li>
+   * <li>破棄世代を進め、実行中の Webサービスのレスポンスが格納されないようにします。</li>
+   * </ul>
+   *
+   * @param clsName Webサービスクラス名
+   */
+  static void invalidate(final String clsName) {
+    final String prefix = clsName + "?";
+    int count = 0;
+    synchronized (CACHE_MAP) {
+      GENERATION_MAP.merge(clsName, 1L, Long::sum);
+      final Iterator<Map.Entry<String, Entry>> ite = CACHE_MAP.entrySet().iterator();
+      while (ite.hasNext()) {
+        final Map.Entry<String, Entry> ent = ite.next();
+        if (ent.getKey().startsWith(prefix)) {
+          totalBytes -= ent.getValue().size();
+          ite.remove();
+          count++;
+        }
+      }
+    }
+    if (count > 0) {
+      logger.info("Response cache invalidated. " + LogUtil.joinKeyVal("class", clsName, "count", count));
+    }
+  }
+}
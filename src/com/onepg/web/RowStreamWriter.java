@@ -0,0 +1,186 @@
+package com.onepg.web;
+
+import com.onepg.util.IoItems;
+import com.onepg.util.ValUtil;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行ストリーミングレスポンス出力クラス.<br>
+ * <ul>
+ * <li>ストリーミング Webサービスの行データを、抽出した順にチャンク転送でレスポンスに書き込みます。</li>
+ * <li>リクエストの Accept ヘッダーに <code>text/event-stream</code> が含まれる場合は SSE（Server-Sent Events）形式、
+ * それ以外は NDJSON 形式で出力します。</li>
+ * <li>NDJSON 形式は1行1レコードで、行データは <code>{"row":{...}}</code>、
+ * 終了レコードは <code>{"end":{...}}</code>（メッセージ・セッションデータを含むレスポンス JSON）、
+ * 途中エラーは <code>{"error":"..."}</code> です。</li>
+ * <li>SSE 形式はイベント名 <code>row</code>・<code>end</code>・<code>error</code> で同じデータを出力します。</li>
+ * <li>最初の行は即時にフラッシュし、以降は行数または経過時間が上限に達した時点でフラッシュします。<br>
+ * 上限は web.properties の json.service.stream.flush.rows（省略時は 100）・json.service.stream.flush.msec（省略時は 200）で設定します。</li>
+ * <li>レスポンスヘッダーは最初の書き込み時に送信します。（送信前のエラーは通常のエラーレスポンスにできる）</li>
+ * </ul>
+ * @hidden
+ */
+final class RowStreamWriter {
+
+  /** NDJSON コンテンツタイプ. */
+  private static final String CONTENT_TYPE_NDJSON = "application/x-ndjson; charset=UTF-8";
+  /** SSE コンテンツタイプ. */
+  private static final String CONTENT_TYPE_SSE = "text/event-stream; charset=UTF-8";
+
+  /** フラッシュ行数. */
+  private static final int FLUSH_ROWS = ServerUtil.PROP_MAP.getIntOrDefault("json.service.stream.flush.rows", 100);
+  /** フラッシュ間隔（ナノ秒）. */
+  private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(
+      ServerUtil.PROP_MAP.getLongOrDefault("json.service.stream.flush.msec", 200L));
+
+  /** HTTP送受信データ. */
+  private final HttpExchange exchange;
+  /** SSE 形式. */
+  private final boolean sse;
+  /** 出力先（レスポンスヘッダー送信前は <code>null</code>）. */
+  private BufferedWriter bw = null;
+  /** 出力行数. */
+  private long rowCount = 0;
+  /** 前回フラッシュ以降の出力行数. */
+  private int unflushedRows = 0;
+  /** 前回フラッシュ時刻（ナノ秒）. */
+  private long lastFlushNanos = 0;
+  /** 終了済. */
+  private boolean closed = false;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param exchange HTTP送受信データ
+   */
+  RowStreamWriter(final HttpExchange exchange) {
+    this.exchange = exchange;
+    this.sse = ValUtil.nvl(exchange.getRequestHeaders().getFirst("Accept")).contains("text/event-stream");
+  }
+
+  /**
+   * 行データ出力.
+   *
+   * @param row 行データ
+   * @throws IOException I/O例外エラー
+   */
+  void writeRow(final IoItems row) throws IOException {
+    if (this.closed) {
+      throw new RuntimeException("Row stream is already closed. ");
+    }
+    writeRecord("row", row.createJson());
+    this.rowCount++;
+    this.unflushedRows++;
+    final long nowNanos = System.nanoTime();
+    if (this.rowCount == 1 || this.unflushedRows >= FLUSH_ROWS || nowNanos - this.lastFlushNanos >= FLUSH_NANOS) {
+      this.bw.flush();
+      this.unflushedRows = 0;
+      this.lastFlushNanos = nowNanos;
+    }
+  }
+
+  /**
+   * 出力行数取得.
+   *
+   * @return 出力行数
+   */
+  long getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * 出力開始済判定.
+   *
+   * @return レスポンスヘッダー送信済の場合は <code>true</code>
+   */
+  boolean isStarted() {
+    return !ValUtil.isNull(this.bw);
+  }
+
+  /**
+   * 正常終了.<br>
+   * <ul>
+   * <li>終了レコードを出力してレスポンスを閉じます。</li>
+   * </ul>
+   *
+   * @param resJson レスポンス JSON（メッセージ・セッションデータを含む）
+   * @throws IOException I/O例外エラー
+   */
+  void finish(final String resJson) throws IOException {
+    if (this.closed) {
+      return;
+    }
+    writeRecord("end", resJson);
+    close();
+  }
+
+  /**
+   * 異常終了.<br>
+   * <ul>
+   * <li>レスポンスヘッダー送信後に例外エラーが発生した場合に、エラーレコードを出力してレスポンスを閉じます。</li>
+   * <li>クライアント切断等で出力できない場合は無視します。</li>
+   * </ul>
+   *
+   * @param errMsg エラーメッセージ
+   */
+  void abort(final String errMsg) {
+    if (this.closed) {
+      return;
+    }
+    try {
+      writeRecord("error", '"' + ValUtil.jsonEscape(errMsg) + '"');
+      close();
+    } catch (final IOException ignore) {
+      // 処理なし
+    } finally {
+      this.closed = true;
+      this.exchange.close();
+    }
+  }
+
+  /**
+   * レコード出力.<br>
+   * <ul>
+   * <li>最初の出力時にレスポンスヘッダーを送信します。</li>
+   * </ul>
+   *
+   * @param type レコード種別
+   * @param json データ JSON
+   * @throws IOException I/O例外エラー
+   */
+  private void writeRecord(final String type, final String json) throws IOException {
+    if (ValUtil.isNull(this.bw)) {
+      this.bw = new BufferedWriter(new OutputStreamWriter(
+          ServerUtil.responseStreamBegin(this.exchange, this.sse ? CONTENT_TYPE_SSE : CONTENT_TYPE_NDJSON),
+          ValUtil.UTF8));
+      this.lastFlushNanos = System.nanoTime();
+    }
+    if (this.sse) {
+      this.bw.write("event: ");
+      this.bw.write(type);
+      this.bw.write("\ndata: ");
+      this.bw.write(json);
+      this.bw.write("\n\n");
+    } else {
+      this.bw.write("{\"");
+      this.bw.write(type);
+      this.bw.write("\":");
+      this.bw.write(json);
+      this.bw.write("}\n");
+    }
+  }
+
+  /**
+   * 終了.
+   *
+   * @throws IOException I/O例外エラー
+   */
+  private void close() throws IOException {
+    this.closed = true;
+    this.bw.close();
+  }
+}
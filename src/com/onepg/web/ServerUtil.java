@@ -189,6 +189,81 @@ final class ServerUtil {
     responseCompressed(exchange, HttpURLConnection.HTTP_OK, json);
   }
 
+  /**
+   * 圧縮済 JSON レスポンス表示.<br>
+   * <ul>
+   * <li>OK(200) ステータスで返します。</li>
+   * <li>クライアントが GZIP に対応していて GZIP圧縮データがある場合は GZIP圧縮データを返します。</li>
+   * <li>レスポンスキャッシュ等、事前に作成したレスポンスデータを返す場合に使用します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param resBytes JSON バイト配列（UTF-8）
+   * @param gzipBytes GZIP圧縮データ（圧縮しない場合は <code>null</code>）
+   * @throws IOException I/O例外エラー
+   * @see #compressTxtIfLarge(byte[])
+   */
+  static void responseJson(final HttpExchange exchange, final byte[] resBytes, final byte[] gzipBytes)
+      throws IOException {
+    final Headers headers = exchange.getResponseHeaders();
+    setSecurityHeaders(headers);
+    headers.set("Content-Type", "application/json; charset=UTF-8");
+    headers.set("Cache-Control", "no-cache");
+    final String acceptEncoding = ValUtil.nvl(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    final byte[] bytes;
+    if (!ValUtil.isNull(gzipBytes) && acceptEncoding.contains("gzip")) {
+      bytes = gzipBytes;
+      headers.set("Content-Encoding", "gzip");
+    } else {
+      bytes = resBytes;
+    }
+    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, bytes.length);
+    try (final OutputStream os = exchange.getResponseBody()) {
+      os.write(bytes);
+    }
+  }
+
+  /**
+   * ストリーミングレスポンス開始.<br>
+   * <ul>
+   * <li>OK(200) ステータスでレスポンスヘッダーを送信し、レスポンスボディを返します。</li>
+   * <li>レスポンスボディのサイズは指定せずチャンク転送で送信します。（書き込み・フラッシュした分から順に送信される）</li>
+   * <li>中継サーバーでのバッファリングを抑止するヘッダーを付与します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param contentType コンテンツタイプ
+   * @return レスポンスボディ（呼び出し元でクローズする）
+   * @throws IOException I/O例外エラー
+   */
+  static OutputStream responseStreamBegin(final HttpExchange exchange, final String contentType)
+      throws IOException {
+    final Headers headers = exchange.getResponseHeaders();
+    setSecurityHeaders(headers);
+    headers.set("Content-Type", contentType);
+    headers.set("Cache-Control", "no-cache");
+    headers.set("X-Accel-Buffering", "no");
+    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, 0);
+    return exchange.getResponseBody();
+  }
+
+  /**
+   * テキスト圧縮.<br>
+   * <ul>
+   * <li>圧縮対象サイズ下限を超える場合は GZIP圧縮データを返し、それ以外は <code>null</code> を返します。</li>
+   * </ul>
+   *
+   * @param data テキストバイト配列
+   * @return GZIP圧縮データ（圧縮しない場合は <code>null</code>）
+   * @throws IOException I/O例外エラー
+   */
+  static byte[] compressTxtIfLarge(final byte[] data) throws IOException {
+    if (data.length <= TXT_TO_COMPRESS_MIN_SIZE) {
+      return null;
+    }
+    return compressGzip(data);
+  }
+
   /**
    * ファイル表示.<br>
    * <ul>
@@ -367,6 +442,43 @@ final class ServerUtil {
     exchange.getResponseBody().close();
   }
 
+  /**
+   * 過負荷レスポンス表示.<br>
+   * <ul>
+   * <li>Service Unavailable(503) ステータスと Retry-After ヘッダーを返します。</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @param retryAfterSec 再試行までの秒数
+   * @throws IOException I/O例外エラー
+   */
+  static void responseBusy(final HttpExchange exchange, final int retryAfterSec) throws IOException {
+    exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSec));
+    responseText(exchange, HttpURLConnection.HTTP_UNAVAILABLE, "Server is busy. Please retry later. ");
+  }
+
+  /**
+   * サインインID取得.<br>
+   * <ul>
+   * <li>Authorization ヘッダーの JWT からサインインIDを取得します。</li>
+   * <li>JWT が無い・無効な場合は <code>null</code> を返します。（認証エラーは呼び出し元またはハンドラーで判断する）</li>
+   * </ul>
+   *
+   * @param exchange HTTP送受信データ
+   * @return サインインID
+   */
+  static String getSigninId(final HttpExchange exchange) {
+    final String authHeader = exchange.getRequestHeaders().getFirst("Authorization");
+    if (ValUtil.isNull(authHeader) || !authHeader.startsWith("Bearer ")) {
+      return null;
+    }
+    try {
+      return JwtUtil.validateToken(authHeader.substring(7));
+    } catch (final Exception e) {
+      return null;
+    }
+  }
+
   /**
    * リクエストフルURL取得.<br>
    * <ul>
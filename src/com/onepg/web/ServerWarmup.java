@@ -0,0 +1,447 @@
+package com.onepg.web;
+
+import com.onepg.db.DbUtil;
+import com.onepg.util.FileUtil;
+import com.onepg.util.IoItems;
+import com.onepg.util.LogUtil;
+import com.onepg.util.PropertiesUtil;
+import com.onepg.util.ValUtil;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Webサーバー起動時ウォームアップクラス.<br>
+ * <ul>
+ * <li>Webサーバーの受付開始前に以下を行い、起動直後のリクエストが遅くなることを防ぎます。
+ * <ol>
+ * <li>JSON サービスパッケージ配下のサービスクラスの読込・初期化（キャッシュ設定の取得を含む）</li>
+ * <li>DB接続プールの事前接続（db.properties の .conn.min まで）</li>
+ * <li>静的ファイルの事前読込（静的ファイルハンドラーでの処理を含む）</li>
+ * <li>記録したリクエストの再生（任意）</li>
+ * </ol></li>
+ * <li>静的ファイルの事前読込・リクエストの再生は、ネットワークを経由せずハンドラーを直接呼び出します。
+ * （受付制御・公平スケジューリングは経由しない）</li>
+ * <li>各処理のエラーはログ出力して次の処理を続けます。（ウォームアップの失敗で起動を止めない）</li>
+ * <li>設定は web.properties の warmup.* で行います。</li>
+ * </ul>
+ * <pre>
+ * ［リクエスト記録ファイル］1行1リクエスト（メソッド・パス・POST の場合は JSON）、# 始まりはコメント
+ * <code>GET /services/exmodule/ExampleListInit
+ * POST /services/exmodule/ExampleListSearch {"user_nm":"a"}</code>
+ * </pre>
+ * @hidden
+ */
+final class ServerWarmup {
+
+  /** WEB設定. */
+  private final IoItems propMap;
+  /** ハンドラーマップ（コンテキストパス・ハンドラー）. */
+  private final Map<String, HttpHandler> handlerMap = new LinkedHashMap<>();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param propMap WEB設定
+   */
+  ServerWarmup(final IoItems propMap) {
+    this.propMap = propMap;
+  }
+
+  /**
+   * ハンドラー登録.<br>
+   * <ul>
+   * <li>静的ファイルの事前読込・リクエストの再生で呼び出すハンドラーを登録します。</li>
+   * </ul>
+   *
+   * @param contextPath コンテキストパス
+   * @param handler ハンドラー（受付制御でラップする前のもの）
+   */
+  void addHandler(final String contextPath, final HttpHandler handler) {
+    this.handlerMap.put(contextPath, handler);
+  }
+
+  /**
+   * ウォームアップ実行.
+   */
+  void run() {
+    if (!this.propMap.getBooleanOrDefault("warmup.enabled", false)) {
+      return;
+    }
+    final long startMsec = System.currentTimeMillis();
+    LogUtil.stdout("Starting web server warm-up. ");
+    try {
+      preloadServiceClasses();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in preloading service classes. ");
+    }
+    prefillDbPools();
+    try {
+      preloadStaticFiles();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in preloading static files. ");
+    }
+    try {
+      replayRequests();
+    } catch (final Exception | Error e) {
+      LogUtil.stdout(e, "An exception error occurred in replaying warm-up requests. ");
+    }
+    LogUtil.stdout("Web server warm-up finished. "
+        + LogUtil.joinKeyVal("elapsedMsec", System.currentTimeMillis() - startMsec));
+  }
+
+  /**
+   * サービスクラス読込.<br>
+   * <ul>
+   * <li>JSON サービスパッケージ配下（サブパッケージを含む）のクラスを読込・初期化し、Webサービスクラスのキャッシュ設定を取得します。</li>
+   * <li>クラスパスのディレクトリ・JARファイルの両方に対応します。</li>
+   * </ul>
+   *
+   * @throws Exception 例外エラー
+   */
+  private void preloadServiceClasses() throws Exception {
+    if (!this.propMap.containsKey("json.service.package")) {
+      return;
+    }
+    final String pkg = this.propMap.getString("json.service.package");
+    final String pkgPath = pkg.replace('.', '/');
+    final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    final List<String> clsNames = new ArrayList<>();
+    final Enumeration<URL> urls = loader.getResources(pkgPath);
+    while (urls.hasMoreElements()) {
+      final URL url = urls.nextElement();
+      if ("file".equals(url.getProtocol())) {
+        final Path dir = Paths.get(url.toURI());
+        try (final Stream<Path> paths = Files.walk(dir)) {
+          paths.filter(p -> p.toString().endsWith(".class")).forEach(p -> {
+            final String rel = dir.relativize(p).toString().replace(File.separatorChar, '/');
+            clsNames.add(pkg + "." + rel.substring(0, rel.length() - ".class".length()).replace('/', '.'));
+          });
+        }
+      } else if ("jar".equals(url.getProtocol())) {
+        final JarURLConnection conn = (JarURLConnection) url.openConnection();
+        conn.setUseCaches(false);
+        try (final JarFile jar = conn.getJarFile()) {
+          final Enumeration<JarEntry> entries = jar.entries();
+          while (entries.hasMoreElements()) {
+            final String name = entries.nextElement().getName();
+            if (name.startsWith(pkgPath + "/") && name.endsWith(".class")) {
+              clsNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+            }
+          }
+        }
+      }
+    }
+
+    int svcCount = 0;
+    for (final String clsName : clsNames) {
+      if (clsName.contains("$") || clsName.endsWith(".package-info")) {
+        continue;
+      }
+      try {
+        final Class<?> cls = Class.forName(clsName, true, loader);
+        if (AbstractWebService.class.isAssignableFrom(cls)) {
+          ResponseCache.getPolicy(clsName);
+          svcCount++;
+        }
+      } catch (final ClassNotFoundException | LinkageError e) {
+        LogUtil.stdout("Warm-up class load failed. " + LogUtil.joinKeyVal("class", clsName, "error", e.toString()));
+      }
+    }
+    LogUtil.stdout("Warm-up service classes loaded. "
+        + LogUtil.joinKeyVal("package", pkg, "classes", clsNames.size(), "services", svcCount));
+  }
+
+  /**
+   * DB接続プール事前接続.<br>
+   * <ul>
+   * <li>db.properties の DB接続名ごとに最小接続数まで事前接続します。</li>
+   * </ul>
+   */
+  private void prefillDbPools() {
+    for (final String connName : DbUtil.getConnNames()) {
+      try {
+        final int count = DbUtil.prefillPooledConn(connName);
+        if (count > 0) {
+          LogUtil.stdout("Warm-up database connections created. " + LogUtil.joinKeyVal("connName", connName, "count", count));
+        }
+      } catch (final Exception | Error e) {
+        LogUtil.stdout(e, "An exception error occurred in prefilling database connections. "
+            + LogUtil.joinKeyVal("connName", connName));
+      }
+    }
+  }
+
+  /**
+   * 静的ファイル事前読込.<br>
+   * <ul>
+   * <li>静的ファイルコンテキスト配下のアクセス可能なファイルを静的ファイルハンドラーで処理し、
+   * ファイル読込・圧縮処理を実行しておきます。</li>
+   * <li>最大ファイル数は warmup.static.max.files（省略時は 200）で設定します。</li>
+   * </ul>
+   *
+   * @throws Exception 例外エラー
+   */
+  private void preloadStaticFiles() throws Exception {
+    if (!this.propMap.containsKey("static.file.context")) {
+      return;
+    }
+    final String context = this.propMap.getString("static.file.context");
+    final HttpHandler handler = this.handlerMap.get(context);
+    final File staticDir = new File(FileUtil.joinPath(PropertiesUtil.APPLICATION_DIR_PATH, context));
+    if (ValUtil.isNull(handler) || !staticDir.isDirectory()) {
+      return;
+    }
+    final int maxFiles = this.propMap.getIntOrDefault("warmup.static.max.files", 200);
+    final Path baseDir = Paths.get(PropertiesUtil.APPLICATION_DIR_PATH);
+    final List<Path> files = new ArrayList<>();
+    try (final Stream<Path> paths = Files.walk(staticDir.toPath())) {
+      paths.filter(Files::isRegularFile)
+          .filter(p -> StaticFileHandler.checkAccessFile(p.toString()))
+          .limit(maxFiles)
+          .forEach(files::add);
+    }
+    final Map<String, String> addHeaders = new HashMap<>();
+    addHeaders.put("Accept-Encoding", "gzip");
+    for (final Path file : files) {
+      final String reqPath = "/" + baseDir.relativize(file).toString().replace(File.separatorChar, '/');
+      handler.handle(new WarmupExchange("GET", reqPath, null, addHeaders));
+    }
+    LogUtil.stdout("Warm-up static files loaded. " + LogUtil.joinKeyVal("context", context, "files", files.size()));
+  }
+
+  /**
+   * リクエスト再生.<br>
+   * <ul>
+   * <li>リクエスト記録ファイル（warmup.requests.file）のリクエストを、再生回数（warmup.requests.repeat、省略時は 1）だけ実行します。</li>
+   * <li>JWT 検証が有効な場合はウォームアップ用の JWT を付与します。</li>
+   * <li>更新処理を含むリクエストは記録しないでください。（実際に実行される）</li>
+   * </ul>
+   *
+   * @throws Exception 例外エラー
+   */
+  private void replayRequests() throws Exception {
+    final String reqFilePath = this.propMap.getStringOrDefault("warmup.requests.file", null);
+    if (ValUtil.isBlank(reqFilePath)) {
+      return;
+    }
+    final List<String> lines = Files.readAllLines(Paths.get(reqFilePath), StandardCharsets.UTF_8);
+    final int repeat = this.propMap.getIntOrDefault("warmup.requests.repeat", 1);
+    final Map<String, String> addHeaders = new HashMap<>();
+    addHeaders.put("Accept-Encoding", "gzip");
+    if (ServerUtil.LDAP_ENABLED) {
+      addHeaders.put("Authorization", "Bearer " + JwtUtil.createToken("_warmup"));
+    }
+
+    int okCount = 0;
+    int ngCount = 0;
+    for (int i = 0; i < repeat; i++) {
+      for (final String line : lines) {
+        if (ValUtil.isBlank(line) || line.trim().startsWith("#")) {
+          continue;
+        }
+        // メソッド・パス・JSON に分割
+        final String[] parts = line.trim().split("\\s+", 3);
+        final String method = parts[0].toUpperCase();
+        final String path = (parts.length > 1) ? parts[1] : "";
+        final String body = (parts.length > 2) ? parts[2] : null;
+        final HttpHandler handler = findHandler(path);
+        if (ValUtil.isNull(handler)) {
+          if (i == 0) {
+            LogUtil.stdout("Warm-up request skipped (no handler). " + LogUtil.joinKeyVal("path", path));
+          }
+          continue;
+        }
+        final WarmupExchange exchange = new WarmupExchange(method, path, body, addHeaders);
+        handler.handle(exchange);
+        if (exchange.getResponseCode() < 400) {
+          okCount++;
+        } else {
+          ngCount++;
+        }
+      }
+    }
+    LogUtil.stdout("Warm-up requests replayed. "
+        + LogUtil.joinKeyVal("file", reqFilePath, "repeat", repeat, "ok", okCount, "ng", ngCount));
+  }
+
+  /**
+   * ハンドラー検索.
+   *
+   * @param path リクエストパス
+   * @return ハンドラー（該当なしの場合は <code>null</code>）
+   */
+  private HttpHandler findHandler(final String path) {
+    for (final Map.Entry<String, HttpHandler> ent : this.handlerMap.entrySet()) {
+      if (path.startsWith("/" + ent.getKey() + "/")) {
+        return ent.getValue();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * ウォームアップ用 HTTP送受信データ.<br>
+   * <ul>
+   * <li>ネットワークを経由せずにハンドラーを呼び出すための HTTP送受信データです。</li>
+   * <li>レスポンスボディは破棄します。</li>
+   * </ul>
+   */
+  private static final class WarmupExchange extends HttpExchange {
+    /** ローカルアドレス. */
+    private static final InetSocketAddress LOCAL_ADDRESS = new InetSocketAddress("127.0.0.1", 0);
+
+    /** リクエストヘッダー. */
+    private final Headers reqHeaders = new Headers();
+    /** レスポンスヘッダー. */
+    private final Headers resHeaders = new Headers();
+    /** 属性. */
+    private final Map<String, Object> attributes = new HashMap<>();
+    /** リクエストメソッド. */
+    private final String method;
+    /** リクエストURI. */
+    private final URI uri;
+    /** リクエストボディ. */
+    private InputStream reqBody;
+    /** レスポンスボディ. */
+    private OutputStream resBody = OutputStream.nullOutputStream();
+    /** レスポンスステータスコード. */
+    private int resCode = -1;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param method リクエストメソッド
+     * @param path リクエストパス（クエリ文字列を含む）
+     * @param body リクエストボディ（無い場合は <code>null</code>）
+     * @param addHeaders 追加リクエストヘッダー
+     */
+    private WarmupExchange(final String method, final String path, final String body,
+        final Map<String, String> addHeaders) {
+      super();
+      this.method = method;
+      this.uri = URI.create(path);
+      this.reqBody = new ByteArrayInputStream(ValUtil.nvl(body).getBytes(StandardCharsets.UTF_8));
+      this.reqHeaders.set("Host", "localhost");
+      for (final Map.Entry<String, String> ent : addHeaders.entrySet()) {
+        this.reqHeaders.set(ent.getKey(), ent.getValue());
+      }
+      if (!ValUtil.isNull(body)) {
+        this.reqHeaders.set("Content-Type", "application/json");
+      }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+      return this.reqHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+      return this.resHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+      return this.uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+      return this.method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+      return null;
+    }
+
+    @Override
+    public void close() {
+      // 処理なし
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+      return this.reqBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+      return this.resBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(final int rCode, final long responseLength) {
+      this.resCode = rCode;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+      return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public int getResponseCode() {
+      return this.resCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+      return LOCAL_ADDRESS;
+    }
+
+    @Override
+    public String getProtocol() {
+      return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(final String name) {
+      return this.attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(final String name, final Object value) {
+      this.attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(final InputStream i, final OutputStream o) {
+      if (!ValUtil.isNull(i)) {
+        this.reqBody = i;
+      }
+      if (!ValUtil.isNull(o)) {
+        this.resBody = o;
+      }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+      return null;
+    }
+  }
+}
@@ -3,15 +3,9 @@ package com.onepg.web;
 import com.onepg.util.AbstractIoTypeMap;
 import com.onepg.util.Io;
 import java.util.ArrayList;
-import com.onepg.util.LogUtil;
 import com.onepg.util.ValUtil;
 import com.onepg.util.Io.MsgType;
 
-import javax.naming.AuthenticationException;
-import javax.naming.Context;
-import javax.naming.NamingException;
-import javax.naming.directory.InitialDirContext;
-import java.util.Hashtable;
 
 /**
  * サインインサービスクラス.
@@ -33,7 +27,8 @@ final class SigninService extends AbstractWebService {
    * <ul>
    *   <li>LDAP接続情報・JWT設定は <code>web.properties</code> から取得する。</li>
    *   <li>セッションデータをクリアする。</li>
-   *   <li>リクエストからサインインID・パスワードを取得し LDAP 認証する。</li>
+   *   <li>リクエストからサインインID・パスワードを取得し LDAP 認証する。（<code>LdapAuthenticator</code>）</li>
+   *   <li>同時認証数が上限に達している場合は待たずに混雑のエラーメッセージを返す。</li>
    *   <li>認証成功時は JWT を発行しレスポンスに返す。</li>
    *   <li>認証失敗時は JWT をブランクにしてエラーメッセージを返す。</li>
    *   <li>認証失敗時、サインインデバッグモードフラグが有効"1"の場合のみエラー情報を出力する。</li>
@@ -52,31 +47,18 @@ final class SigninService extends AbstractWebService {
     final String id = io.getString(IOKEY_SIGNIN_ID);
     final String pw = io.remove(IOKEY_SIGNIN_PW);
 
-    // LDAP 認証
-    final Hashtable<String, String> param = new Hashtable<>();
-    param.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-    param.put(Context.PROVIDER_URL, ServerUtil.LDAP_URL);
-    param.put(Context.SECURITY_AUTHENTICATION, "simple");
-    param.put(Context.SECURITY_PRINCIPAL, ServerUtil.LDAP_USER_DN_FMT.formatted(id));
-    param.put(Context.SECURITY_CREDENTIALS, pw);
-
-    try {
-      // 認証成功すれば例外は発生しないため、ここではクローズ処理のみ行う
-      (new InitialDirContext(param)).close();
-    } catch (final NamingException e) {
-      // 情報ログとして認証失敗を出力
-      if (e instanceof AuthenticationException) {
-        super.logger.info("LDAP authentication failed. " + LogUtil.joinKeyVal("id", id));
-      } else {
-        super.logger.error("LDAP server error during authentication. " + LogUtil.joinKeyVal("id", id));
-      }
-      if (ValUtil.isTrue(io.getStringNullableOrDefault(IOKEY_SIGNIN_DEBUG, ValUtil.OFF))) {
-        // サインインデバッグモードフラグが有効"1"の場合のみエラー情報を出力する
-        super.logger.error(e, "LDAP authentication error in debug mode. ");
-      }
+    // LDAP 認証（接続プール・同時認証数制御・認証失敗保持は LdapAuthenticator で行う）
+    final boolean debug = ValUtil.isTrue(io.getStringNullableOrDefault(IOKEY_SIGNIN_DEBUG, ValUtil.OFF));
+    final LdapAuthenticator.Result result = LdapAuthenticator.authenticate(id, pw, debug);
+    if (result != LdapAuthenticator.Result.SUCCESS) {
       // 認証失敗は JWT をブランクにしてエラーメッセージを返す
       io.session().put(SSKEY_JWT, ValUtil.BLANK);
-      io.putMsg(MsgType.ERROR, "es001");
+      if (result == LdapAuthenticator.Result.BUSY) {
+        // 混雑時は再試行を促すメッセージ
+        io.putMsg(MsgType.ERROR, "es002");
+      } else {
+        io.putMsg(MsgType.ERROR, "es001");
+      }
       return;
     }
 
@@ -0,0 +1,144 @@
+package com.onepg.web;
+
+import com.onepg.util.LogUtil;
+import com.onepg.util.LogWriter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 同一リクエスト集約クラス.<br>
+ * <ul>
+ * <li><code>@CoalescedRequest</code> を付与した Webサービスの実行中リクエストをキーごとに保持し、
+ * 同じキーの後続リクエストに実行結果（セッションデータを除くレスポンス JSON）を共有します。</li>
+ * <li>キーはレスポンスキャッシュと同じキー（<code>ResponseCache#createKey</code>）を使用します。</li>
+ * <li>後続リクエストの最大待機時間は web.properties の json.service.coalesce.max.wait.msec（省略時は 30000）で設定します。</li>
+ * </ul>
+ * @hidden
+ */
+final class SingleFlight {
+
+  /** ログライター. */
+  private static final LogWriter logger = LogUtil.newLogWriter(SingleFlight.class);
+
+  /** 最大待機時間（ミリ秒）. */
+  private static final long MAX_WAIT_MSEC =
+      ServerUtil.PROP_MAP.getLongOrDefault("json.service.coalesce.max.wait.msec", 30_000L);
+
+  /** 実行中リクエストマップ（キー・実行中リクエスト）. */
+  private static final Map<String, Flight> FLIGHT_MAP = new ConcurrentHashMap<>();
+
+  /**
+   * 実行中リクエスト.
+   */
+  static final class Flight {
+    /** キー. */
+    private final String key;
+    /** 実行結果. */
+    private final CompletableFuture<Result> future = new CompletableFuture<>();
+
+    /**
+     * コンストラクタ.
+     *
+     * @param key キー
+     */
+    Flight(final String key) {
+      this.key = key;
+    }
+
+    /**
+     * 実行完了.<br>
+     * <ul>
+     * <li>実行中リクエストマップから削除した後、待機中の後続リクエストに実行結果を渡します。</li>
+     * <li>2回目以降の呼び出しは無視します。</li>
+     * </ul>
+     *
+     * @param result 実行結果（共有しない場合は <code>null</code>）
+     */
+    void finish(final Result result) {
+      FLIGHT_MAP.remove(this.key, this);
+      this.future.complete(result);
+    }
+
+    /**
+     * 実行結果待機.
+     *
+     * @return 実行結果（共有しない場合・待機時間を超えた場合は <code>null</code>）
+     */
+    Result await() {
+      try {
+        return this.future.get(MAX_WAIT_MSEC, TimeUnit.MILLISECONDS);
+      } catch (final TimeoutException e) {
+        logger.info("Coalesced request wait timed out. " + LogUtil.joinKeyVal("key", this.key));
+        return null;
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (final Exception e) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * 実行結果.
+   */
+  static final class Result {
+    /** JSON バイト配列. */
+    private final byte[] resBytes;
+    /** GZIP圧縮データ. */
+    private final byte[] gzipBytes;
+
+    /**
+     * コンストラクタ.
+     *
+     * @param resBytes JSON バイト配列
+     * @param gzipBytes GZIP圧縮データ（圧縮しない場合は <code>null</code>）
+     */
+    Result(final byte[] resBytes, final byte[] gzipBytes) {
+      this.resBytes = resBytes;
+      this.gzipBytes = gzipBytes;
+    }
+
+    /**
+     * JSON バイト配列取得.
+     *
+     * @return JSON バイト配列
+     */
+    byte[] getResBytes() {
+      return this.resBytes;
+    }
+
+    /**
+     * GZIP圧縮データ取得.
+     *
+     * @return GZIP圧縮データ（圧縮していない場合は <code>null</code>）
+     */
+    byte[] getGzipBytes() {
+      return this.gzipBytes;
+    }
+  }
+
+  /**
+   * コンストラクタ.
+   */
+  private SingleFlight() {
+    // 処理なし
+  }
+
+  /**
+   * 実行開始.<br>
+   * <ul>
+   * <li>同じキーの実行中リクエストが無い場合は引数の実行中リクエストを登録して <code>null</code> を返します。（呼び出し元が実行する）</li>
+   * <li>同じキーの実行中リクエストがある場合はそれを返します。（呼び出し元は <code>Flight#await()</code> で実行結果を待つ）</li>
+   * </ul>
+   *
+   * @param flight 実行中リクエスト
+   * @return 先行の実行中リクエスト（無い場合は <code>null</code>）
+   */
+  static Flight start(final Flight flight) {
+    return FLIGHT_MAP.putIfAbsent(flight.key, flight);
+  }
+}
@@ -9,6 +9,8 @@ import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -24,6 +26,8 @@ public final class StandaloneServer {
   private HttpServer server = null;
   /** 停止処理実行済みフラグ. */
   private boolean terminated = false;
+  /** ハンドラー停止処理リスト（スレッドプールを持つハンドラーの停止処理）. */
+  private final List<Runnable> handlerStoppers = new ArrayList<>();
 
   /**
    * コンストラクタ.
@@ -79,7 +83,10 @@ public final class StandaloneServer {
   }
 
   /**
-   * Webサーバー起動.
+   * Webサーバー起動.<br>
+   * <ul>
+   * <li>コンテキストを作成し、ウォームアップを行った後に受付を開始します。</li>
+   * </ul>
    *
    * @param args 引数
    * @throws IOException I/O例外エラー
@@ -93,6 +100,8 @@ public final class StandaloneServer {
     final int parallelProcessesCount = ServerUtil.PROP_MAP.getInt("parallel.processes.count");
     this.server = HttpServer.create(new InetSocketAddress(portNo), waitingProcessesCount);
     this.server.setExecutor(Executors.newFixedThreadPool(parallelProcessesCount));
+    // 起動時ウォームアップ
+    final ServerWarmup warmup = new ServerWarmup(ServerUtil.PROP_MAP);
 
     // ルートURLハンドラー
     LogUtil.stdout("Creating context. '/'");
@@ -107,7 +116,9 @@ public final class StandaloneServer {
     if (ServerUtil.PROP_MAP.containsKey("static.file.context")) {
       final String staticFileContext = ServerUtil.PROP_MAP.getString("static.file.context");
       LogUtil.stdout("Creating context. '/" + staticFileContext + "'");
-      this.server.createContext("/" + staticFileContext, new StaticFileHandler());
+      final StaticFileHandler staticFileHandler = new StaticFileHandler();
+      warmup.addHandler(staticFileContext, staticFileHandler);
+      this.server.createContext("/" + staticFileContext, admission(staticFileContext, staticFileHandler, "static.file"));
     }
     
     // JSONサービスハンドラー
@@ -115,22 +126,54 @@ public final class StandaloneServer {
       final String jsonServiceContext = ServerUtil.PROP_MAP.getString("json.service.context");
       final String jsonServicePackage = ServerUtil.PROP_MAP.getString("json.service.package");
       LogUtil.stdout("Creating context. '/" + jsonServiceContext + "'" + " (Java package '" + jsonServicePackage + "')");
-      this.server.createContext("/" + jsonServiceContext, new JsonServiceHandler(jsonServiceContext, jsonServicePackage));
+      final JsonServiceHandler jsonServiceHandler = new JsonServiceHandler(jsonServiceContext, jsonServicePackage);
+      this.handlerStoppers.add(jsonServiceHandler::shutdown);
+      warmup.addHandler(jsonServiceContext, jsonServiceHandler);
+      this.server.createContext("/" + jsonServiceContext, admission(jsonServiceContext, jsonServiceHandler, "json.service"));
     }
 
     // サインインサービスハンドラー
     if (ServerUtil.PROP_MAP.containsKey("signin.service.context")) {
       final String signinServiceContext = ServerUtil.PROP_MAP.getString("signin.service.context");
       LogUtil.stdout("Creating context. '/" + signinServiceContext + "'");
-      this.server.createContext("/" + signinServiceContext, new SigninServiceHandler());
+      this.server.createContext("/" + signinServiceContext, admission(signinServiceContext, new SigninServiceHandler(), "signin.service"));
+      this.handlerStoppers.add(LdapAuthenticator::shutdown);
     }
 
+    // ウォームアップ（受付開始前に行う）
+    warmup.run();
+
     // 開始
     this.server.start();
     LogUtil.stdout("Web server started. " + LogUtil.joinKeyVal("port", String.valueOf(portNo), "parallel",
             String.valueOf(parallelProcessesCount), "stopUrl", String.valueOf(serverStopContext)));
   }
 
+  /**
+   * 受付制御ハンドラー適用.<br>
+   * <ul>
+   * <li>web.properties にコンテキストの並列実行数が設定されている場合は、コンテキスト専用のスレッドプールで実行する受付制御ハンドラーでラップします。</li>
+   * <li>web.properties のコンテキストの公平スケジューリング有無が <code>true</code> の場合は、利用者別公平スケジューリングハンドラーでラップします。</li>
+   * </ul>
+   *
+   * @param contextName コンテキスト名
+   * @param handler ハンドラー
+   * @param keyPrefix 設定キープレフィックス
+   * @return ハンドラー
+   */
+  private HttpHandler admission(final String contextName, final HttpHandler handler, final String keyPrefix) {
+    if (ServerUtil.PROP_MAP.getBooleanOrDefault(keyPrefix + ".fair.schedule", false)) {
+      final FairScheduleHandler fair = FairScheduleHandler.wrap(contextName, handler, ServerUtil.PROP_MAP, keyPrefix);
+      this.handlerStoppers.add(fair::shutdown);
+      return fair;
+    }
+    final HttpHandler wrapped = AdmissionHandler.wrap(contextName, handler, ServerUtil.PROP_MAP, keyPrefix);
+    if (wrapped instanceof AdmissionHandler) {
+      this.handlerStoppers.add(((AdmissionHandler) wrapped)::shutdown);
+    }
+    return wrapped;
+  }
+
   /**
    * ルートURLハンドラー.
    */
@@ -184,6 +227,10 @@ public final class StandaloneServer {
         this.server = null;
         LogUtil.stdout("Web server stopped.");
       }
+      // ハンドラーのスレッドプール停止
+      for (final Runnable stopper : this.handlerStoppers) {
+        stopper.run();
+      }
     } catch (final Exception | Error e) {
       LogUtil.stdout(e, "An exception error occurred in web server stop.");
     }
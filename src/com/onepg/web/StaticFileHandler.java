@@ -92,8 +92,9 @@ final class StaticFileHandler extends AbstractHttpHandler {
    * アクセスファイル妥当性チェック.
    * 
    * @param filePath ファイルパス
+   * @return アクセス可能な場合は <code>true</code>
    */
-  private boolean checkAccessFile(final String filePath) {
+  static boolean checkAccessFile(final String filePath) {
     final String fileName = new File(filePath).getName().toLowerCase();
     // 隠しファイル・設定ファイルのアクセス禁止
     // 実行ファイルのアクセス禁止